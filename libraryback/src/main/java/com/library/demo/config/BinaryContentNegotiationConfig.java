@@ -0,0 +1,26 @@
+package com.library.demo.config;
+
+import java.util.List;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+/**
+ * 讓所有控制器除了JSON之外也能依 Accept 回應 application/cbor 與 application/x-jackson-smile
+ * 兩種二進位格式使用與JSON相同的DTO與設定；轉換器加在JSON之後，未指定格式時仍回應JSON
+ */
+@Configuration
+public class BinaryContentNegotiationConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new MappingJackson2CborHttpMessageConverter(JacksonConfig.configure(new CBORMapper())));
+        converters.add(new MappingJackson2SmileHttpMessageConverter(JacksonConfig.configure(new SmileMapper())));
+    }
+}
@@ -0,0 +1,44 @@
+package com.library.demo.config;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 提供整個應用程式共用的時鐘
+ * 重播模式下可指定起始時間與倍速，例如每分鐘跑完一整天
+ */
+@Configuration
+public class ClockConfig {
+
+    @Value("${spring.jackson.time-zone:Asia/Taipei}")
+    private String timeZone;
+
+    @Value("${library.replay.enabled:false}")
+    private boolean replayEnabled;
+
+    // 重播起始時間（本地時間），未設定時從現在開始
+    @Value("${library.replay.start-time:}")
+    private String replayStartTime;
+
+    // 重播倍速，1440 表示每分鐘跑完一整天
+    @Value("${library.replay.speed:1}")
+    private double replaySpeed;
+
+    @Bean
+    public TimeWarpClock clock() {
+        ZoneId zone = ZoneId.of(timeZone);
+        if (!replayEnabled) {
+            return new TimeWarpClock(zone, Instant.now(), 1);
+        }
+        Instant start = replayStartTime.isEmpty()
+                ? Instant.now()
+                : LocalDateTime.parse(replayStartTime).atZone(zone).toInstant();
+        System.out.println("重播模式啟用，起始時間: " + start.atZone(zone).toLocalDateTime() + "，倍速: " + replaySpeed);
+        return new TimeWarpClock(zone, start, replaySpeed);
+    }
+}
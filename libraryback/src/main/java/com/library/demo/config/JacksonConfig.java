@@ -11,9 +11,15 @@ public class JacksonConfig {
     
     @Bean
     public ObjectMapper objectMapper() {
-        ObjectMapper objectMapper = new ObjectMapper();
+        return configure(new ObjectMapper());
+    }
+    
+    /**
+     * 套用與JSON相同的設定，CBOR 與 Smile 的 mapper 也經由此處建立
+     */
+    public static <T extends ObjectMapper> T configure(T objectMapper) {
         objectMapper.registerModule(new JavaTimeModule());
         objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
         return objectMapper;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,93 @@
+package com.library.demo.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 唯讀副本的連線設定
+ */
+@ConfigurationProperties(prefix = "library.datasource")
+public class ReplicaDataSourceProperties {
+
+    // 副本落後主資料庫超過此秒數時改用主資料庫
+    private int maxReplicaLagSeconds = 120;
+
+    // 副本健康檢查間隔
+    private int replicaCheckSeconds = 10;
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    public int getMaxReplicaLagSeconds() {
+        return maxReplicaLagSeconds;
+    }
+
+    public void setMaxReplicaLagSeconds(int maxReplicaLagSeconds) {
+        this.maxReplicaLagSeconds = maxReplicaLagSeconds;
+    }
+
+    public int getReplicaCheckSeconds() {
+        return replicaCheckSeconds;
+    }
+
+    public void setReplicaCheckSeconds(int replicaCheckSeconds) {
+        this.replicaCheckSeconds = replicaCheckSeconds;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    public void setReplicas(List<Replica> replicas) {
+        this.replicas = replicas;
+    }
+
+    public static class Replica {
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public String getDriverClassName() {
+            return driverClassName;
+        }
+
+        public void setDriverClassName(String driverClassName) {
+            this.driverClassName = driverClassName;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.library.demo.config;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.library.demo.model.SnapshotVersion;
+
+/**
+ * 依交易性質選擇資料庫
+ * 唯讀交易輪流使用健康的副本，其餘（擷取寫入、分館設定、資料清理）一律使用主資料庫；
+ * 副本的健康狀態由 checkReplicas 比對快照版本列決定，落後超過上限或無法連線時改回主資料庫。
+ * 需搭配 LazyConnectionDataSourceProxy，讓交易的唯讀設定在取得實際連線前就已生效
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final String PRIMARY = "primary";
+
+    private static final String POSITION_QUERY =
+            "SELECT version, record_time FROM snapshot_version WHERE version_name = ?";
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+
+    // 目前可接受唯讀查詢的副本，啟動後第一次檢查前皆視為不健康
+    private final Set<String> healthyReplicas = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas) {
+        this.primary = primary;
+        this.replicas = new LinkedHashMap<>(replicas);
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        List<String> candidates = new ArrayList<>(healthyReplicas);
+        if (candidates.isEmpty()) {
+            return PRIMARY;
+        }
+        return candidates.get(Math.floorMod(nextReplica.getAndIncrement(), candidates.size()));
+    }
+
+    /**
+     * 比對主資料庫與各副本的快照版本，更新副本的健康狀態
+     * @param maxLag 副本最新快照的記錄時間最多可落後主資料庫多久
+     */
+    public void checkReplicas(Duration maxLag) {
+        if (replicas.isEmpty()) {
+            return;
+        }
+        SnapshotPosition primaryPosition;
+        try {
+            primaryPosition = readPosition(primary);
+        } catch (Exception e) {
+            System.err.println("讀取主資料庫快照版本失敗，暫停副本健康檢查: " + e.getMessage());
+            return;
+        }
+
+        replicas.forEach((name, replica) -> {
+            boolean healthy;
+            String detail;
+            try {
+                Duration lag = primaryPosition.lagOf(readPosition(replica));
+                healthy = lag.compareTo(maxLag) <= 0;
+                detail = "落後 " + lag.getSeconds() + " 秒";
+            } catch (Exception e) {
+                healthy = false;
+                detail = "無法連線: " + e.getMessage();
+            }
+            boolean changed = healthy ? healthyReplicas.add(name) : healthyReplicas.remove(name);
+            if (changed) {
+                System.out.println("副本 " + name + (healthy ? " 恢復接受唯讀查詢，" : " 改由主資料庫代替，") + detail);
+            }
+        });
+    }
+
+    /**
+     * 各副本目前是否接受唯讀查詢
+     */
+    public Map<String, Boolean> getReplicaHealth() {
+        Map<String, Boolean> health = new LinkedHashMap<>();
+        for (String name : replicas.keySet()) {
+            health.put(name, healthyReplicas.contains(name));
+        }
+        return health;
+    }
+
+    private SnapshotPosition readPosition(DataSource dataSource) {
+        List<SnapshotPosition> rows = new JdbcTemplate(dataSource).query(POSITION_QUERY,
+                (rs, rowNum) -> {
+                    Timestamp recordTime = rs.getTimestamp("record_time");
+                    return new SnapshotPosition(rs.getLong("version"),
+                            recordTime != null ? recordTime.toLocalDateTime() : null);
+                },
+                SnapshotVersion.LIBRARY_AREAS);
+        return rows.isEmpty() ? new SnapshotPosition(0, null) : rows.get(0);
+    }
+
+    /**
+     * 某個資料庫目前看到的快照版本
+     */
+    private static class SnapshotPosition {
+        private final long version;
+        private final LocalDateTime recordTime;
+
+        SnapshotPosition(long version, LocalDateTime recordTime) {
+            this.version = version;
+            this.recordTime = recordTime;
+        }
+
+        /**
+         * 副本相對於本位置落後的時間
+         */
+        Duration lagOf(SnapshotPosition replica) {
+            if (replica.version >= version) {
+                return Duration.ZERO;
+            }
+            if (replica.recordTime == null || recordTime == null) {
+                // 副本尚未收到任何快照，視為無限落後
+                return ChronoUnit.FOREVER.getDuration();
+            }
+            Duration lag = Duration.between(replica.recordTime, recordTime);
+            return lag.isNegative() ? Duration.ZERO : lag;
+        }
+    }
+}
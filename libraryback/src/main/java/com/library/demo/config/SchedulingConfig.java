@@ -0,0 +1,133 @@
+package com.library.demo.config;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.scheduling.support.CronExpression;
+
+import com.library.demo.service.ClusterLeaseService;
+import com.library.demo.service.LibraryAreaService;
+import com.library.demo.service.LibraryBranchService;
+import com.library.demo.service.OccupancyProfileService;
+import com.library.demo.service.SeatSubscriptionService;
+import com.library.demo.service.SnapshotVersionService;
+
+/**
+ * 註冊固定週期的定時任務
+ * 擷取、閉館快照與分館開放狀態依營業時間觸發，由 TransitionScheduler 設定；
+ * cron 任務依應用程式時鐘計算，重播模式加速時會換算回真實時間。
+ * 租約續約固定依真實時間執行；會寫入資料的任務只在擷取主節點上執行，其他節點只續約租約並輪詢快照版本；
+ * 所有節點都定期檢查唯讀副本的落後量
+ */
+@Configuration
+public class SchedulingConfig implements SchedulingConfigurer {
+
+    @Autowired
+    private LibraryAreaService libraryAreaService;
+
+    @Autowired
+    private LibraryBranchService libraryBranchService;
+
+    @Autowired
+    private ClusterLeaseService clusterLeaseService;
+
+    @Autowired
+    private SnapshotVersionService snapshotVersionService;
+
+    @Autowired
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @Autowired
+    private ReplicaDataSourceProperties replicaDataSourceProperties;
+
+    @Autowired
+    private TimeWarpClock clock;
+
+    @Autowired
+    private OccupancyProfileService occupancyProfileService;
+
+    @Autowired
+    private SeatSubscriptionService seatSubscriptionService;
+
+    @Value("${library.cluster.version-poll-seconds:5}")
+    private int versionPollSeconds;
+
+    @Value("${library.cluster.version-poll-min-millis:1000}")
+    private long versionPollMinMillis;
+
+    @Value("${library.profile.persist-minutes:10}")
+    private int profilePersistMinutes;
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        // 租約以資料庫的真實時間計算，每隔租約長度的三分之一（真實時間）續約一次，不隨重播倍速縮短
+        taskRegistrar.addFixedDelayTask(clusterLeaseService::renewOrAcquire,
+                Duration.ofSeconds(clusterLeaseService.getLeaseSeconds()).dividedBy(3));
+        // 快照版本依應用程式時間輪詢，重播加速時不低於真實時間的下限，避免持續查詢主資料庫
+        Duration versionPoll = clock.toRealDuration(Duration.ofSeconds(versionPollSeconds));
+        Duration versionPollFloor = Duration.ofMillis(versionPollMinMillis);
+        taskRegistrar.addFixedDelayTask(snapshotVersionService::pollForNewSnapshot,
+                versionPoll.compareTo(versionPollFloor) < 0 ? versionPollFloor : versionPoll);
+
+        // 副本落後量以快照記錄時間比較，重播加速時上限依倍速放大
+        Duration maxReplicaLag = Duration.ofMillis(
+                (long) (replicaDataSourceProperties.getMaxReplicaLagSeconds() * 1000 * clock.getSpeed()));
+        taskRegistrar.addFixedDelayTask(() -> replicaRoutingDataSource.checkReplicas(maxReplicaLag),
+                Duration.ofSeconds(replicaDataSourceProperties.getReplicaCheckSeconds()));
+
+        // 主節點保存使用率分佈，其他節點重新載入
+        taskRegistrar.addFixedDelayTask(occupancyProfileService::persistOrReload,
+                clock.toRealDuration(Duration.ofMinutes(profilePersistMinutes)));
+
+        // 每個節點各自移除過期的座位門檻訂閱
+        taskRegistrar.addFixedDelayTask(seatSubscriptionService::removeExpired,
+                clock.toRealDuration(Duration.ofMinutes(1)));
+
+        // 其他節點每小時重新載入營業時間，取得主節點上的變更
+        taskRegistrar.addTriggerTask(followerOnly(libraryBranchService::reloadCalendarOnFollower),
+                clockCron("0 0 * * * ?"));
+        // 每天凌晨2點清理舊資料
+        taskRegistrar.addTriggerTask(leaderOnly(libraryAreaService::cleanupOldData), clockCron("0 0 2 * * ?"));
+        // 每天凌晨2點半合併孤兒區域代碼
+        taskRegistrar.addTriggerTask(leaderOnly(libraryAreaService::mergeOrphanAreas), clockCron("0 30 2 * * ?"));
+    }
+
+    /**
+     * 只在擷取主節點上執行的任務
+     */
+    private Runnable leaderOnly(Runnable task) {
+        return () -> {
+            if (clusterLeaseService.isLeader()) {
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * 只在非主節點上執行的任務
+     */
+    private Runnable followerOnly(Runnable task) {
+        return () -> {
+            if (!clusterLeaseService.isLeader()) {
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * 依應用程式時鐘計算的 cron 觸發器
+     */
+    private Trigger clockCron(String expression) {
+        CronExpression cron = CronExpression.parse(expression);
+        return triggerContext -> {
+            ZonedDateTime next = cron.next(ZonedDateTime.now(clock));
+            return next == null ? null : clock.toRealInstant(next.toInstant());
+        };
+    }
+}
@@ -0,0 +1,12 @@
+package com.library.demo.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 座位來源的設定，來源清單由 SeatSourceCatalog 依 library.sources 建立
+ */
+@Configuration
+@EnableConfigurationProperties(SeatSourceProperties.class)
+public class SeatSourceConfig {
+}
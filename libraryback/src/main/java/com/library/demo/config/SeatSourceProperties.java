@@ -0,0 +1,183 @@
+package com.library.demo.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 座位來源的擷取設定
+ * 臺北市圖書館以外的系統以 json 清單設定，每個系統指定回應中座位陣列的位置與欄位名稱
+ */
+@ConfigurationProperties(prefix = "library.sources")
+public class SeatSourceProperties {
+
+    // 單一來源超過此秒數未回應時，本次快照略過該來源
+    private int timeoutSeconds = 30;
+
+    // 第一個來源回應後最多再等其他來源的毫秒數，之後才回應的來源另外寫入
+    private long mergeWindowMillis = 1000;
+
+    private List<JsonSource> json = new ArrayList<>();
+
+    public int getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    public void setTimeoutSeconds(int timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    public long getMergeWindowMillis() {
+        return mergeWindowMillis;
+    }
+
+    public void setMergeWindowMillis(long mergeWindowMillis) {
+        this.mergeWindowMillis = mergeWindowMillis;
+    }
+
+    public List<JsonSource> getJson() {
+        return json;
+    }
+
+    public void setJson(List<JsonSource> json) {
+        this.json = json;
+    }
+
+    public static class JsonSource {
+        private String id;
+        private String url;
+        // 座位陣列的 JSON Pointer，空白表示回應本身就是陣列
+        private String itemsPath = "";
+        // 回應中沒有分館欄位時使用的分館名稱
+        private String branchName = "";
+        private int intervalSeconds;
+        private int requestsPerMinute;
+        private int timeoutSeconds;
+        private Fields fields = new Fields();
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getItemsPath() {
+            return itemsPath;
+        }
+
+        public void setItemsPath(String itemsPath) {
+            this.itemsPath = itemsPath;
+        }
+
+        public String getBranchName() {
+            return branchName;
+        }
+
+        public void setBranchName(String branchName) {
+            this.branchName = branchName;
+        }
+
+        public int getIntervalSeconds() {
+            return intervalSeconds;
+        }
+
+        public void setIntervalSeconds(int intervalSeconds) {
+            this.intervalSeconds = intervalSeconds;
+        }
+
+        public int getRequestsPerMinute() {
+            return requestsPerMinute;
+        }
+
+        public void setRequestsPerMinute(int requestsPerMinute) {
+            this.requestsPerMinute = requestsPerMinute;
+        }
+
+        public int getTimeoutSeconds() {
+            return timeoutSeconds;
+        }
+
+        public void setTimeoutSeconds(int timeoutSeconds) {
+            this.timeoutSeconds = timeoutSeconds;
+        }
+
+        public Fields getFields() {
+            return fields;
+        }
+
+        public void setFields(Fields fields) {
+            this.fields = fields;
+        }
+    }
+
+    /**
+     * 座位陣列中每筆資料的欄位名稱
+     */
+    public static class Fields {
+        private String areaId = "area_id";
+        private String areaName = "area_name";
+        private String branchName = "branch_name";
+        private String floorName = "floor_name";
+        private String freeCount = "free_count";
+        private String totalCount = "total_count";
+
+        public String getAreaId() {
+            return areaId;
+        }
+
+        public void setAreaId(String areaId) {
+            this.areaId = areaId;
+        }
+
+        public String getAreaName() {
+            return areaName;
+        }
+
+        public void setAreaName(String areaName) {
+            this.areaName = areaName;
+        }
+
+        public String getBranchName() {
+            return branchName;
+        }
+
+        public void setBranchName(String branchName) {
+            this.branchName = branchName;
+        }
+
+        public String getFloorName() {
+            return floorName;
+        }
+
+        public void setFloorName(String floorName) {
+            this.floorName = floorName;
+        }
+
+        public String getFreeCount() {
+            return freeCount;
+        }
+
+        public void setFreeCount(String freeCount) {
+            this.freeCount = freeCount;
+        }
+
+        public String getTotalCount() {
+            return totalCount;
+        }
+
+        public void setTotalCount(String totalCount) {
+            this.totalCount = totalCount;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.library.demo.config;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * 可加速的時鐘
+ * 從指定的起始時間開始，以真實時間乘上倍速前進；倍速為1且起點為現在時等同系統時鐘。
+ * 重播模式用它把數週的擷取、閉館快照與清理排程壓縮在短時間內執行
+ */
+public class TimeWarpClock extends Clock {
+
+    private final ZoneId zone;
+    private final Instant warpStart;
+    private final Instant realStart;
+    private final double speed;
+
+    public TimeWarpClock(ZoneId zone, Instant warpStart, double speed) {
+        this(zone, warpStart, Instant.now(), speed);
+    }
+
+    private TimeWarpClock(ZoneId zone, Instant warpStart, Instant realStart, double speed) {
+        this.zone = zone;
+        this.warpStart = warpStart;
+        this.realStart = realStart;
+        this.speed = speed;
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return new TimeWarpClock(zone, warpStart, realStart, speed);
+    }
+
+    @Override
+    public Instant instant() {
+        if (speed == 1) {
+            return warpStart.plus(Duration.between(realStart, Instant.now()));
+        }
+        long realNanos = Duration.between(realStart, Instant.now()).toNanos();
+        return warpStart.plusNanos((long) (realNanos * speed));
+    }
+
+    /**
+     * 將加速後的時間點換算回真實時間，供排程器設定下一次執行時間
+     */
+    public Instant toRealInstant(Instant warpedInstant) {
+        long warpedNanos = Duration.between(warpStart, warpedInstant).toNanos();
+        return realStart.plusNanos((long) (warpedNanos / speed));
+    }
+
+    /**
+     * 將加速後的時間長度換算成真實時間長度
+     */
+    public Duration toRealDuration(Duration warpedDuration) {
+        return Duration.ofNanos((long) (warpedDuration.toNanos() / speed));
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+}
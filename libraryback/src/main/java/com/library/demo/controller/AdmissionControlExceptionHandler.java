@@ -0,0 +1,30 @@
+package com.library.demo.controller;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import com.library.demo.service.AdmissionControlService;
+
+/**
+ * 所有經過 AdmissionControlService 的端點共用的拒絕回應
+ */
+@RestControllerAdvice
+public class AdmissionControlExceptionHandler {
+
+    /**
+     * 超過頻率限制回應 429，名額與佇列已滿回應 503，並告知多久後再試
+     */
+    @ExceptionHandler(AdmissionControlService.RejectedException.class)
+    public ResponseEntity<Map<String, Object>> handleRejected(AdmissionControlService.RejectedException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", e.getMessage());
+        return ResponseEntity.status(e.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(response);
+    }
+}
@@ -0,0 +1,31 @@
+package com.library.demo.controller;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * 以 IllegalArgumentException 表示參數錯誤的端點共用的 400 回應
+ * 只套用在列出的控制器，其他控制器的 IllegalArgumentException 仍視為伺服器錯誤
+ */
+@RestControllerAdvice(assignableTypes = {
+        LibraryAreaController.class,
+        LibraryAreaHistoryController.class,
+        OccupancyProfileController.class,
+        SeatSubscriptionController.class
+})
+public class IllegalArgumentExceptionHandler {
+
+    /**
+     * 不支援的欄位名稱、格式、時段數，超出限制的查詢或訂閱參數不正確時回傳 400
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> handleIllegalArgument(IllegalArgumentException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", e.getMessage());
+        return ResponseEntity.badRequest().body(response);
+    }
+}
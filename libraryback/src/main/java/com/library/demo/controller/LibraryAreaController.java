@@ -3,79 +3,156 @@ package com.library.demo.controller;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.library.demo.dto.AreaOrphanDTO;
+import com.library.demo.dto.FetchStrategyStatsDTO;
 import com.library.demo.dto.LibraryAreaDTO;
 import com.library.demo.dto.OccupationStatsDTO;
+import com.library.demo.dto.SeatSourceHealthDTO;
+import com.library.demo.service.AdmissionControlService;
+import com.library.demo.service.AvailabilitySearchService;
+import com.library.demo.service.EncodedSnapshotCache;
+import com.library.demo.service.IngestionCoordinator;
 import com.library.demo.service.LibraryAreaService;
+import com.library.demo.service.RequestCoalescer;
+
+import jakarta.servlet.http.HttpServletRequest;
 
 @RestController
 @RequestMapping("/api/library")
 @CrossOrigin(origins = "*") // 允許跨域請求
 public class LibraryAreaController {
 
+    // 搜尋一次最多回傳的區域數
+    private static final int MAX_SEARCH_LIMIT = 100;
+
     @Autowired
     private LibraryAreaService libraryAreaService;
     
+    @Autowired
+    private IngestionCoordinator ingestionCoordinator;
+    
+    @Autowired
+    private AvailabilitySearchService availabilitySearchService;
+    
+    @Autowired
+    private EncodedSnapshotCache encodedSnapshotCache;
+    
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+    
+    @Autowired
+    private AdmissionControlService admissionControlService;
+    
     /**
      * 獲取當前圖書館座位可用性
+     * 依 Accept 回應 JSON、CBOR 或 Smile，同一快照版本內直接使用快取的編碼結果
      */
     @GetMapping("/current")
-    public List<LibraryAreaDTO> getCurrentAvailability() {
-        return libraryAreaService.getCurrentAvailability();
+    public ResponseEntity<byte[]> getCurrentAvailability(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return encodedSnapshotCache.respond("current", accept, ifNoneMatch, libraryAreaService::getCurrentAvailability);
+    }
+    
+    /**
+     * 搜尋有空位的區域，依剩餘座位由多到少排序
+     * 例如 /search?minFree=5&branch=總館&keywords=自修,閱覽&limit=10；多個分館以逗號分隔
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<LibraryAreaDTO>> searchAvailability(
+            @RequestParam(defaultValue = "1") int minFree,
+            @RequestParam(required = false) Set<String> branch,
+            @RequestParam(required = false) String floor,
+            @RequestParam(required = false) List<String> keywords,
+            @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            throw new IllegalArgumentException("limit 必須介於 1 與 " + MAX_SEARCH_LIMIT + " 之間: " + limit);
+        }
+        return ResponseEntity.ok(availabilitySearchService.search(minFree,
+                branch != null ? branch : Set.of(), floor, keywords != null ? keywords : List.of(), limit));
     }
     
     /**
      * 獲取統計資料：每天最高佔用率時段和最高佔用率的日期
+     * 同時到達的請求共用同一次查詢
      */
     @GetMapping("/stats")
-    public OccupationStatsDTO getOccupationStats() {
-        return libraryAreaService.getOccupationStats();
+    public CompletableFuture<OccupationStatsDTO> getOccupationStats() {
+        return requestCoalescer.submit("stats", libraryAreaService::getOccupationStats);
     }
     
     /**
      * 手動測試API調用
+     * 會直接請求上游，經由准入控制限制並發與頻率
      */
     @GetMapping("/test-api")
-    public ResponseEntity<String> testApiCall() {
-        String result = libraryAreaService.testApiCall();
-        if (result != null) {
-            if (result.trim().startsWith("<")) {
-                return ResponseEntity.ok("API返回了HTML內容而不是JSON: " + result.substring(0, Math.min(result.length(), 100)) + "...");
+    public ResponseEntity<String> testApiCall(HttpServletRequest request) {
+        return admissionControlService.execute("test-api", AdmissionControlService.Priority.LOW, request.getRemoteAddr(), () -> {
+            String result = libraryAreaService.testApiCall();
+            if (result != null) {
+                if (result.trim().startsWith("<")) {
+                    return ResponseEntity.ok("API返回了HTML內容而不是JSON: " + result.substring(0, Math.min(result.length(), 100)) + "...");
+                } else {
+                    return ResponseEntity.ok("API調用成功，返回了JSON: " + result.substring(0, Math.min(result.length(), 100)) + "...");
+                }
             } else {
-                return ResponseEntity.ok("API調用成功，返回了JSON: " + result.substring(0, Math.min(result.length(), 100)) + "...");
+                return ResponseEntity.status(500).body("API調用失敗，請查看服務器日誌");
             }
-        } else {
-            return ResponseEntity.status(500).body("API調用失敗，請查看服務器日誌");
-        }
+        });
+    }
+    
+    /**
+     * 檢視各擷取策略的排序、成功率、延遲與斷路器狀態（用於調試）
+     */
+    @GetMapping("/fetch-strategies")
+    public List<FetchStrategyStatsDTO> getFetchStrategyStats() {
+        return libraryAreaService.getFetchStrategyStats();
+    }
+    
+    /**
+     * 檢視各座位來源的間隔、頻率上限、最近一次擷取結果與退避狀態
+     */
+    @GetMapping("/sources")
+    public List<SeatSourceHealthDTO> getSeatSourceHealth() {
+        return libraryAreaService.getSeatSourceHealth();
     }
     
     /**
      * 手動觸發資料獲取（用於測試）
+     * 與定時擷取共用取樣桶，同一桶內只請求上游一次；經由准入控制限制並發與頻率
      */
     @GetMapping("/fetch")
-    public ResponseEntity<Map<String, Object>> manualFetch() {
-        Map<String, Object> response = new HashMap<>();
-        try {
-            String result = libraryAreaService.manualFetchAndSave();
-            response.put("message", result);
+    public ResponseEntity<Map<String, Object>> manualFetch(HttpServletRequest request) {
+        return admissionControlService.execute("fetch", AdmissionControlService.Priority.NORMAL, request.getRemoteAddr(), () -> {
+            Map<String, Object> response = new HashMap<>();
+            try {
+                String result = ingestionCoordinator.manualFetchAndSave();
+                response.put("message", result);
             
-            // 獲取更新後的資料
-            List<LibraryAreaDTO> currentData = libraryAreaService.getCurrentAvailability();
-            response.put("currentData", currentData);
-            response.put("dataCount", currentData.size());
+                // 獲取更新後的資料
+                List<LibraryAreaDTO> currentData = libraryAreaService.getCurrentAvailability();
+                response.put("currentData", currentData);
+                response.put("dataCount", currentData.size());
             
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            response.put("error", "資料獲取失敗: " + e.getMessage());
-            return ResponseEntity.status(500).body(response);
-        }
+                return ResponseEntity.ok(response);
+            } catch (Exception e) {
+                response.put("error", "資料獲取失敗: " + e.getMessage());
+                return ResponseEntity.status(500).body(response);
+            }
+        });
     }
     
     /**
@@ -96,38 +173,71 @@ public class LibraryAreaController {
         }
     }
     
+    /**
+     * 列出由舊版產生或已被新代碼取代的區域代碼，以及應合併到的代碼
+     */
+    @GetMapping("/areas/orphans")
+    public List<AreaOrphanDTO> getOrphanAreas() {
+        return libraryAreaService.getOrphanAreas();
+    }
+    
+    /**
+     * 手動合併孤兒區域代碼（平時由主節點每天執行一次）
+     * 改寫歷史記錄，經由准入控制
+     */
+    @GetMapping("/areas/merge-orphans")
+    public ResponseEntity<Map<String, Object>> mergeOrphanAreas(HttpServletRequest request) {
+        return admissionControlService.execute("merge-orphans", AdmissionControlService.Priority.LOW, request.getRemoteAddr(), () -> {
+            Map<String, Object> response = new HashMap<>();
+            try {
+                int merged = libraryAreaService.mergeOrphanAreas();
+                response.put("message", "合併了 " + merged + " 個孤兒區域代碼");
+                response.put("merged", merged);
+                return ResponseEntity.ok(response);
+            } catch (Exception e) {
+                response.put("error", "合併孤兒區域代碼失敗: " + e.getMessage());
+                return ResponseEntity.status(500).body(response);
+            }
+        });
+    }
+    
     /**
      * 重置資料庫（用於調試）
+     * 經由准入控制，與其他受控端點共用執行名額
      */
     @GetMapping("/reset-db")
-    public ResponseEntity<Map<String, Object>> resetDatabase() {
-        Map<String, Object> response = new HashMap<>();
-        try {
-            String result = libraryAreaService.resetDatabase();
-            response.put("message", result);
+    public ResponseEntity<Map<String, Object>> resetDatabase(HttpServletRequest request) {
+        return admissionControlService.execute("reset-db", AdmissionControlService.Priority.LOW, request.getRemoteAddr(), () -> {
+            Map<String, Object> response = new HashMap<>();
+            try {
+                String result = ingestionCoordinator.resetDatabase();
+                response.put("message", result);
             
-            // 獲取更新後的資料
-            List<LibraryAreaDTO> currentData = libraryAreaService.getCurrentAvailability();
-            response.put("currentData", currentData);
-            response.put("dataCount", currentData.size());
+                // 獲取更新後的資料
+                List<LibraryAreaDTO> currentData = libraryAreaService.getCurrentAvailability();
+                response.put("currentData", currentData);
+                response.put("dataCount", currentData.size());
             
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            response.put("error", "重置資料庫失敗: " + e.getMessage());
-            return ResponseEntity.status(500).body(response);
-        }
+                return ResponseEntity.ok(response);
+            } catch (Exception e) {
+                response.put("error", "重置資料庫失敗: " + e.getMessage());
+                return ResponseEntity.status(500).body(response);
+            }
+        });
     }
     
     /**
      * 獲取按分館分組的圖書館座位資料
+     * 與 /current 相同依 Accept 選擇格式並快取編碼結果
      */
     @GetMapping("/by-branch")
-    public ResponseEntity<Map<String, List<LibraryAreaDTO>>> getAvailabilityByBranch() {
+    public ResponseEntity<byte[]> getAvailabilityByBranch(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            Map<String, List<LibraryAreaDTO>> groupedData = libraryAreaService.getAvailabilityByBranch();
-            return ResponseEntity.ok(groupedData);
+            return encodedSnapshotCache.respond("by-branch", accept, ifNoneMatch, libraryAreaService::getAvailabilityByBranch);
         } catch (Exception e) {
             return ResponseEntity.status(500).body(null);
         }
     }
-} 
\ No newline at end of file
+}
@@ -2,8 +2,11 @@ package com.library.demo.controller;
 
 import java.time.LocalDate;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -15,78 +18,127 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.library.demo.dto.LibraryAreaHistoryDTO;
+import com.library.demo.dto.BusiestHoursBatchDTO;
+import com.library.demo.dto.HistoryField;
 import com.library.demo.service.LibraryAreaService;
+import com.library.demo.service.RequestCoalescer;
 
 @RestController
 @RequestMapping("/api/library/history")
 @CrossOrigin(origins = "*") // 允許跨域請求
 public class LibraryAreaHistoryController {
 
+    private static final String FORMAT_ROWS = "rows";
+    private static final String FORMAT_SERIES = "series";
+
     @Autowired
     private LibraryAreaService libraryAreaService;
     
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+    
     /**
      * 獲取指定日期的歷史記錄
+     * fields 為以逗號分隔的欄位名稱（例如 recordTime,freeCount,totalCount），未指定時回傳所有欄位；
+     * format=series 時改為每個區域一個欄式序列（LibraryAreaHistorySeriesDTO），此時忽略 fields；
+     * 指定 maxPoints 時以 LTTB 降採樣，每個區域最多回傳 maxPoints 筆並保留尖峰
      */
     @GetMapping("/date/{date}")
-    public List<LibraryAreaHistoryDTO> getHistoryByDate(
-            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        return libraryAreaService.getHistoryByDate(date);
+    public List<?> getHistoryByDate(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) String fields,
+            @RequestParam(defaultValue = FORMAT_ROWS) String format,
+            @RequestParam(required = false) Integer maxPoints) {
+        if (isSeries(format)) {
+            return libraryAreaService.getHistorySeriesByDateRange(date, date, maxPoints);
+        }
+        return libraryAreaService.getHistoryByDate(date, HistoryField.parse(fields), maxPoints);
     }
     
     /**
      * 獲取指定日期範圍的歷史記錄
      */
     @GetMapping("/range")
-    public List<LibraryAreaHistoryDTO> getHistoryByDateRange(
+    public List<?> getHistoryByDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
-        return libraryAreaService.getHistoryByDateRange(startDate, endDate);
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String fields,
+            @RequestParam(defaultValue = FORMAT_ROWS) String format,
+            @RequestParam(required = false) Integer maxPoints) {
+        if (isSeries(format)) {
+            return libraryAreaService.getHistorySeriesByDateRange(startDate, endDate, maxPoints);
+        }
+        return libraryAreaService.getHistoryByDateRange(startDate, endDate, HistoryField.parse(fields), maxPoints);
     }
     
     /**
      * 獲取特定區域在指定日期的歷史記錄
      */
     @GetMapping("/area/{areaId}/date/{date}")
-    public List<LibraryAreaHistoryDTO> getHistoryByAreaAndDate(
+    public List<?> getHistoryByAreaAndDate(
             @PathVariable String areaId,
-            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        return libraryAreaService.getHistoryByAreaAndDate(areaId, date);
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) String fields,
+            @RequestParam(defaultValue = FORMAT_ROWS) String format,
+            @RequestParam(required = false) Integer maxPoints) {
+        if (isSeries(format)) {
+            return libraryAreaService.getHistorySeriesByAreaAndDate(areaId, date, maxPoints);
+        }
+        return libraryAreaService.getHistoryByAreaAndDate(areaId, date, HistoryField.parse(fields), maxPoints);
+    }
+    
+    /**
+     * 一次取得多個區域與分館在日期範圍內每日每小時的平均使用率
+     * 例如 /busiest-hours?areaIds=1001,1002&branchNames=總館&startDate=2025-05-01&endDate=2025-05-07，
+     * 未指定 endDate 時只查詢 startDate 當天；同時到達的相同請求共用同一次查詢
+     */
+    @GetMapping("/busiest-hours")
+    public CompletableFuture<BusiestHoursBatchDTO> getBusiestHoursBatch(
+            @RequestParam(required = false) Set<String> areaIds,
+            @RequestParam(required = false) Set<String> branchNames,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        Set<String> areas = areaIds != null ? new LinkedHashSet<>(areaIds) : Set.of();
+        Set<String> branches = branchNames != null ? new LinkedHashSet<>(branchNames) : Set.of();
+        LocalDate end = endDate != null ? endDate : startDate;
+        return requestCoalescer.submit(List.of("busiestHoursBatch", areas, branches, startDate, end),
+                () -> libraryAreaService.getBusiestHoursBatch(areas, branches, startDate, end));
     }
     
     /**
      * 獲取特定區域在指定日期最繁忙的時間段
      */
     @GetMapping("/area/{areaId}/date/{date}/busiest-hours")
-    public ResponseEntity<Map<String, Object>> getBusiestHoursByAreaAndDate(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getBusiestHoursByAreaAndDate(
             @PathVariable String areaId,
             @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        List<Object[]> results = libraryAreaService.getBusiestHoursByAreaAndDate(areaId, date);
-        
-        Map<String, Object> response = new HashMap<>();
-        response.put("areaId", areaId);
-        response.put("date", date);
-        response.put("busiestHours", results);
-        
-        return ResponseEntity.ok(response);
+        return requestCoalescer.submit(List.of("busiestHoursByArea", areaId, date),
+                () -> libraryAreaService.getBusiestHoursByAreaAndDate(areaId, date)).thenApply(results -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("areaId", areaId);
+                    response.put("date", date);
+                    response.put("busiestHours", results);
+                    
+                    return ResponseEntity.ok(response);
+                });
     }
     
     /**
      * 獲取特定分館在指定日期最繁忙的時間段
      */
     @GetMapping("/branch/{branchName}/date/{date}/busiest-hours")
-    public ResponseEntity<Map<String, Object>> getBusiestHoursByBranchAndDate(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getBusiestHoursByBranchAndDate(
             @PathVariable String branchName,
             @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        List<Object[]> results = libraryAreaService.getBusiestHoursByBranchAndDate(branchName, date);
-        
-        Map<String, Object> response = new HashMap<>();
-        response.put("branchName", branchName);
-        response.put("date", date);
-        response.put("busiestHours", results);
-        
-        return ResponseEntity.ok(response);
+        return requestCoalescer.submit(List.of("busiestHoursByBranch", branchName, date),
+                () -> libraryAreaService.getBusiestHoursByBranchAndDate(branchName, date)).thenApply(results -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("branchName", branchName);
+                    response.put("date", date);
+                    response.put("busiestHours", results);
+                    
+                    return ResponseEntity.ok(response);
+                });
     }
     
     /**
@@ -103,4 +155,17 @@ public class LibraryAreaHistoryController {
         
         return ResponseEntity.ok(response);
     }
-} 
\ No newline at end of file
+    
+    /**
+     * @throws IllegalArgumentException 不支援的格式
+     */
+    private static boolean isSeries(String format) {
+        if (FORMAT_SERIES.equalsIgnoreCase(format)) {
+            return true;
+        }
+        if (FORMAT_ROWS.equalsIgnoreCase(format)) {
+            return false;
+        }
+        throw new IllegalArgumentException("不支援的格式: " + format);
+    }
+}
@@ -14,9 +14,12 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.library.demo.dto.LibraryBranchDTO;
+import com.library.demo.service.AdmissionControlService;
 import com.library.demo.service.LibraryBranchService;
 import com.library.demo.service.ScheduledService;
 
+import jakarta.servlet.http.HttpServletRequest;
+
 @RestController
 @RequestMapping("/api/branch")
 @CrossOrigin(origins = "*")
@@ -28,6 +31,9 @@ public class LibraryBranchController {
     @Autowired
     private ScheduledService scheduledService;
     
+    @Autowired
+    private AdmissionControlService admissionControlService;
+    
     /**
      * 獲取所有分館信息
      */
@@ -51,18 +57,21 @@ public class LibraryBranchController {
     
     /**
      * 手動檢查閉館狀態並更新數據
+     * 可能請求上游，經由准入控制；閉館快照影響資料正確性，排隊時優先執行
      */
     @GetMapping("/check-closing")
-    public ResponseEntity<Map<String, Object>> checkLibraryClosing() {
-        Map<String, Object> response = new HashMap<>();
-        try {
-            scheduledService.checkForClosingTimeUpdate();
-            response.put("message", "成功檢查閉館狀態並更新數據");
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            response.put("error", "檢查閉館狀態失敗: " + e.getMessage());
-            return ResponseEntity.status(500).body(response);
-        }
+    public ResponseEntity<Map<String, Object>> checkLibraryClosing(HttpServletRequest request) {
+        return admissionControlService.execute("check-closing", AdmissionControlService.Priority.HIGH, request.getRemoteAddr(), () -> {
+            Map<String, Object> response = new HashMap<>();
+            try {
+                scheduledService.checkForClosingTimeUpdate();
+                response.put("message", "成功檢查閉館狀態並更新數據");
+                return ResponseEntity.ok(response);
+            } catch (Exception e) {
+                response.put("error", "檢查閉館狀態失敗: " + e.getMessage());
+                return ResponseEntity.status(500).body(response);
+            }
+        });
     }
     
     /**
@@ -80,4 +89,4 @@ public class LibraryBranchController {
             return ResponseEntity.status(500).body(response);
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,67 @@
+package com.library.demo.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.library.demo.dto.OccupancyProfileDTO;
+import com.library.demo.model.OccupancyProfile;
+import com.library.demo.service.OccupancyProfileService;
+
+/**
+ * 依星期幾與時段的使用率分佈，直接由記憶體中的分佈回應
+ * slotsPerDay 預設為24（每小時），96為每15分鐘
+ */
+@RestController
+@RequestMapping("/api/library/profile")
+@CrossOrigin(origins = "*") // 允許跨域請求
+public class OccupancyProfileController {
+
+    @Autowired
+    private OccupancyProfileService occupancyProfileService;
+
+    /**
+     * 獲取所有分館的使用率分佈
+     */
+    @GetMapping("/branches")
+    public List<OccupancyProfileDTO> getBranchProfiles(@RequestParam(defaultValue = "24") int slotsPerDay) {
+        return occupancyProfileService.getProfiles(OccupancyProfile.TYPE_BRANCH, slotsPerDay);
+    }
+
+    /**
+     * 獲取特定分館的使用率分佈
+     */
+    @GetMapping("/branch/{branchName}")
+    public ResponseEntity<OccupancyProfileDTO> getBranchProfile(
+            @PathVariable String branchName,
+            @RequestParam(defaultValue = "24") int slotsPerDay) {
+        OccupancyProfileDTO profile = occupancyProfileService.getProfile(OccupancyProfile.TYPE_BRANCH, branchName, slotsPerDay);
+        return profile != null ? ResponseEntity.ok(profile) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * 獲取所有區域的使用率分佈
+     */
+    @GetMapping("/areas")
+    public List<OccupancyProfileDTO> getAreaProfiles(@RequestParam(defaultValue = "24") int slotsPerDay) {
+        return occupancyProfileService.getProfiles(OccupancyProfile.TYPE_AREA, slotsPerDay);
+    }
+
+    /**
+     * 獲取特定區域的使用率分佈
+     */
+    @GetMapping("/area/{areaId}")
+    public ResponseEntity<OccupancyProfileDTO> getAreaProfile(
+            @PathVariable String areaId,
+            @RequestParam(defaultValue = "24") int slotsPerDay) {
+        OccupancyProfileDTO profile = occupancyProfileService.getProfile(OccupancyProfile.TYPE_AREA, areaId, slotsPerDay);
+        return profile != null ? ResponseEntity.ok(profile) : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,64 @@
+package com.library.demo.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.library.demo.dto.SeatSubscriptionDTO;
+import com.library.demo.service.SeatSubscriptionService;
+
+/**
+ * 座位門檻訂閱：區域剩餘座位達到 minFree 時通知
+ */
+@RestController
+@RequestMapping("/api/library/subscriptions")
+@CrossOrigin(origins = "*") // 允許跨域請求
+public class SeatSubscriptionController {
+
+    @Autowired
+    private SeatSubscriptionService seatSubscriptionService;
+
+    /**
+     * 以 SSE 接收通知，例如 /stream?areaId=1988&minFree=5
+     * 連線建立時先送出 subscribed 事件，之後每次達到門檻送出 seat-alert 事件
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeStream(@RequestParam String areaId, @RequestParam int minFree) {
+        return seatSubscriptionService.subscribeStream(areaId, minFree);
+    }
+
+    /**
+     * 建立以 webhook 通知的訂閱，達到門檻時以 POST 送出 JSON
+     */
+    @PostMapping
+    public SeatSubscriptionDTO subscribeWebhook(@RequestBody SeatSubscriptionDTO request) {
+        return seatSubscriptionService.subscribeWebhook(request.getAreaId(), request.getMinFree(), request.getWebhookUrl());
+    }
+
+    /**
+     * 查詢訂閱狀態
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<SeatSubscriptionDTO> getSubscription(@PathVariable String id) {
+        SeatSubscriptionDTO subscription = seatSubscriptionService.getSubscription(id);
+        return subscription != null ? ResponseEntity.ok(subscription) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * 取消訂閱
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> unsubscribe(@PathVariable String id) {
+        return seatSubscriptionService.unsubscribe(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,51 @@
+package com.library.demo.dto;
+
+public class AreaOrphanDTO {
+    private String areaId;
+    private String canonicalAreaId;
+    private String branchName;
+    private String floorName;
+    private String areaName;
+    
+    public AreaOrphanDTO() {}
+    
+    public String getAreaId() {
+        return areaId;
+    }
+    
+    public void setAreaId(String areaId) {
+        this.areaId = areaId;
+    }
+    
+    public String getCanonicalAreaId() {
+        return canonicalAreaId;
+    }
+    
+    public void setCanonicalAreaId(String canonicalAreaId) {
+        this.canonicalAreaId = canonicalAreaId;
+    }
+    
+    public String getBranchName() {
+        return branchName;
+    }
+    
+    public void setBranchName(String branchName) {
+        this.branchName = branchName;
+    }
+    
+    public String getFloorName() {
+        return floorName;
+    }
+    
+    public void setFloorName(String floorName) {
+        this.floorName = floorName;
+    }
+    
+    public String getAreaName() {
+        return areaName;
+    }
+    
+    public void setAreaName(String areaName) {
+        this.areaName = areaName;
+    }
+}
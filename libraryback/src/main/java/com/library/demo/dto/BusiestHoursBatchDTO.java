@@ -0,0 +1,57 @@
+package com.library.demo.dto;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多個區域與分館在日期範圍內每日每小時的平均使用率
+ * 以區域編號與分館名稱為鍵，沒有記錄的區域或分館對應空清單
+ */
+public class BusiestHoursBatchDTO {
+
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private Map<String, List<HourlyOccupationDTO>> areas = new LinkedHashMap<>();
+    private Map<String, List<HourlyOccupationDTO>> branches = new LinkedHashMap<>();
+
+    public BusiestHoursBatchDTO() {}
+
+    public BusiestHoursBatchDTO(LocalDate startDate, LocalDate endDate) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+
+    public Map<String, List<HourlyOccupationDTO>> getAreas() {
+        return areas;
+    }
+
+    public void setAreas(Map<String, List<HourlyOccupationDTO>> areas) {
+        this.areas = areas;
+    }
+
+    public Map<String, List<HourlyOccupationDTO>> getBranches() {
+        return branches;
+    }
+
+    public void setBranches(Map<String, List<HourlyOccupationDTO>> branches) {
+        this.branches = branches;
+    }
+}
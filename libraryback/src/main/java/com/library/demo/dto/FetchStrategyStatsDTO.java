@@ -0,0 +1,89 @@
+package com.library.demo.dto;
+
+import java.time.Instant;
+
+public class FetchStrategyStatsDTO {
+    private String name;
+    private int rank;
+    private String circuitState;
+    private int sampleCount;
+    private double successRate;
+    private double averageLatencyMillis;
+    private int consecutiveFailures;
+    private Instant openUntil;
+    private Instant lastAttempt;
+    
+    public FetchStrategyStatsDTO() {}
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public int getRank() {
+        return rank;
+    }
+    
+    public void setRank(int rank) {
+        this.rank = rank;
+    }
+    
+    public String getCircuitState() {
+        return circuitState;
+    }
+    
+    public void setCircuitState(String circuitState) {
+        this.circuitState = circuitState;
+    }
+    
+    public int getSampleCount() {
+        return sampleCount;
+    }
+    
+    public void setSampleCount(int sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+    
+    public double getSuccessRate() {
+        return successRate;
+    }
+    
+    public void setSuccessRate(double successRate) {
+        this.successRate = successRate;
+    }
+    
+    public double getAverageLatencyMillis() {
+        return averageLatencyMillis;
+    }
+    
+    public void setAverageLatencyMillis(double averageLatencyMillis) {
+        this.averageLatencyMillis = averageLatencyMillis;
+    }
+    
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+    
+    public void setConsecutiveFailures(int consecutiveFailures) {
+        this.consecutiveFailures = consecutiveFailures;
+    }
+    
+    public Instant getOpenUntil() {
+        return openUntil;
+    }
+    
+    public void setOpenUntil(Instant openUntil) {
+        this.openUntil = openUntil;
+    }
+    
+    public Instant getLastAttempt() {
+        return lastAttempt;
+    }
+    
+    public void setLastAttempt(Instant lastAttempt) {
+        this.lastAttempt = lastAttempt;
+    }
+}
@@ -0,0 +1,71 @@
+package com.library.demo.dto;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 座位歷史記錄可選擇的欄位
+ * 每個欄位對應查詢時需要的 JPQL 欄位；使用率由剩餘與總座位數計算
+ */
+public enum HistoryField {
+    AREA_ID("areaId", "lah.areaId"),
+    BRANCH_NAME("branchName", "lah.branchName"),
+    FLOOR_NAME("floorName", "lah.floorName"),
+    AREA_NAME("areaName", "lah.areaName"),
+    FREE_COUNT("freeCount", "lah.freeCount"),
+    TOTAL_COUNT("totalCount", "lah.totalCount"),
+    // 直接讀取分鐘序號再換算，不使用聯結中換算出的時間欄位
+    RECORD_TIME("recordTime", "lah.recordMinute"),
+    OCCUPATION_RATE("occupationRate", null);
+
+    private final String fieldName;
+    private final String path;
+
+    HistoryField(String fieldName, String path) {
+        this.fieldName = fieldName;
+        this.path = path;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * 查詢此欄位時要選取的 JPQL 欄位，使用率為 null
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * 解析以逗號分隔的欄位名稱，空白時回傳所有欄位
+     * @throws IllegalArgumentException 含有不認得的欄位名稱
+     */
+    public static Set<HistoryField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return EnumSet.allOf(HistoryField.class);
+        }
+        Set<HistoryField> result = EnumSet.noneOf(HistoryField.class);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            result.add(fromFieldName(trimmed));
+        }
+        if (result.isEmpty()) {
+            return EnumSet.allOf(HistoryField.class);
+        }
+        return result;
+    }
+
+    private static HistoryField fromFieldName(String name) {
+        for (HistoryField field : values()) {
+            if (field.fieldName.toLowerCase(Locale.ROOT).equals(name.toLowerCase(Locale.ROOT))) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("不支援的欄位: " + name);
+    }
+}
@@ -0,0 +1,56 @@
+package com.library.demo.dto;
+
+import java.time.LocalDate;
+
+/**
+ * 某日某小時的平均使用率
+ */
+public class HourlyOccupationDTO {
+
+    private LocalDate date;
+    private int hour;
+    private double averageOccupation;
+    // 此小時內的記錄筆數
+    private long sampleCount;
+
+    public HourlyOccupationDTO() {}
+
+    public HourlyOccupationDTO(LocalDate date, int hour, double averageOccupation, long sampleCount) {
+        this.date = date;
+        this.hour = hour;
+        this.averageOccupation = averageOccupation;
+        this.sampleCount = sampleCount;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public int getHour() {
+        return hour;
+    }
+
+    public void setHour(int hour) {
+        this.hour = hour;
+    }
+
+    public double getAverageOccupation() {
+        return averageOccupation;
+    }
+
+    public void setAverageOccupation(double averageOccupation) {
+        this.averageOccupation = averageOccupation;
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    public void setSampleCount(long sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+}
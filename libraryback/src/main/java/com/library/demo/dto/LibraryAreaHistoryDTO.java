@@ -2,15 +2,22 @@ package com.library.demo.dto;
 
 import java.time.LocalDateTime;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * 座位歷史記錄
+ * 以 fields 參數只查詢部分欄位時，未查詢的欄位為 null 且不輸出
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class LibraryAreaHistoryDTO {
     private String areaId;
     private String branchName;
     private String floorName;
     private String areaName;
-    private int freeCount;
-    private int totalCount;
+    private Integer freeCount;
+    private Integer totalCount;
     private LocalDateTime recordTime;
-    private double occupationRate;
+    private Double occupationRate;
     
     public LibraryAreaHistoryDTO() {}
     
@@ -46,19 +53,19 @@ public class LibraryAreaHistoryDTO {
         this.areaName = areaName;
     }
     
-    public int getFreeCount() {
+    public Integer getFreeCount() {
         return freeCount;
     }
     
-    public void setFreeCount(int freeCount) {
+    public void setFreeCount(Integer freeCount) {
         this.freeCount = freeCount;
     }
     
-    public int getTotalCount() {
+    public Integer getTotalCount() {
         return totalCount;
     }
     
-    public void setTotalCount(int totalCount) {
+    public void setTotalCount(Integer totalCount) {
         this.totalCount = totalCount;
     }
     
@@ -70,11 +77,11 @@ public class LibraryAreaHistoryDTO {
         this.recordTime = recordTime;
     }
     
-    public double getOccupationRate() {
+    public Double getOccupationRate() {
         return occupationRate;
     }
     
-    public void setOccupationRate(double occupationRate) {
+    public void setOccupationRate(Double occupationRate) {
         this.occupationRate = occupationRate;
     }
 } 
\ No newline at end of file
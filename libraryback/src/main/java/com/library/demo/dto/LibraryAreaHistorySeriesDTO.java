@@ -0,0 +1,86 @@
+package com.library.demo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 單一區域歷史記錄的欄式序列
+ * 區域資訊只出現一次，第 i 筆記錄的時間為 startTime 加上 minuteOffsets[i] 分鐘，
+ * 剩餘與總座位數分別在 freeCounts[i] 與 totalCounts[i]
+ */
+public class LibraryAreaHistorySeriesDTO {
+
+    private String areaId;
+    private String branchName;
+    private String floorName;
+    private String areaName;
+    private LocalDateTime startTime;
+    private int[] minuteOffsets;
+    private int[] freeCounts;
+    private int[] totalCounts;
+
+    public LibraryAreaHistorySeriesDTO() {}
+
+    public String getAreaId() {
+        return areaId;
+    }
+
+    public void setAreaId(String areaId) {
+        this.areaId = areaId;
+    }
+
+    public String getBranchName() {
+        return branchName;
+    }
+
+    public void setBranchName(String branchName) {
+        this.branchName = branchName;
+    }
+
+    public String getFloorName() {
+        return floorName;
+    }
+
+    public void setFloorName(String floorName) {
+        this.floorName = floorName;
+    }
+
+    public String getAreaName() {
+        return areaName;
+    }
+
+    public void setAreaName(String areaName) {
+        this.areaName = areaName;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalDateTime startTime) {
+        this.startTime = startTime;
+    }
+
+    public int[] getMinuteOffsets() {
+        return minuteOffsets;
+    }
+
+    public void setMinuteOffsets(int[] minuteOffsets) {
+        this.minuteOffsets = minuteOffsets;
+    }
+
+    public int[] getFreeCounts() {
+        return freeCounts;
+    }
+
+    public void setFreeCounts(int[] freeCounts) {
+        this.freeCounts = freeCounts;
+    }
+
+    public int[] getTotalCounts() {
+        return totalCounts;
+    }
+
+    public void setTotalCounts(int[] totalCounts) {
+        this.totalCounts = totalCounts;
+    }
+}
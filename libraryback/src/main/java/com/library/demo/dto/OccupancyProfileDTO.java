@@ -0,0 +1,56 @@
+package com.library.demo.dto;
+
+/**
+ * 區域或分館依星期幾與時段的使用率分佈，供熱度圖使用
+ * 陣列第一維為星期幾（0為星期一），第二維為當天的時段；沒有資料的時段平均值為 null
+ */
+public class OccupancyProfileDTO {
+
+    private String type;
+    private String name;
+    private int slotsPerDay;
+    private Double[][] mean;
+    private int[][] count;
+
+    public OccupancyProfileDTO() {}
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getSlotsPerDay() {
+        return slotsPerDay;
+    }
+
+    public void setSlotsPerDay(int slotsPerDay) {
+        this.slotsPerDay = slotsPerDay;
+    }
+
+    public Double[][] getMean() {
+        return mean;
+    }
+
+    public void setMean(Double[][] mean) {
+        this.mean = mean;
+    }
+
+    public int[][] getCount() {
+        return count;
+    }
+
+    public void setCount(int[][] count) {
+        this.count = count;
+    }
+}
@@ -0,0 +1,93 @@
+package com.library.demo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 區域剩餘座位達到訂閱門檻時推送的通知
+ */
+public class SeatAlertDTO {
+
+    private String subscriptionId;
+    private String areaId;
+    private String branchName;
+    private String floorName;
+    private String areaName;
+    private int minFree;
+    private int freeCount;
+    private int totalCount;
+    private LocalDateTime recordTime;
+
+    public SeatAlertDTO() {}
+
+    public String getSubscriptionId() {
+        return subscriptionId;
+    }
+
+    public void setSubscriptionId(String subscriptionId) {
+        this.subscriptionId = subscriptionId;
+    }
+
+    public String getAreaId() {
+        return areaId;
+    }
+
+    public void setAreaId(String areaId) {
+        this.areaId = areaId;
+    }
+
+    public String getBranchName() {
+        return branchName;
+    }
+
+    public void setBranchName(String branchName) {
+        this.branchName = branchName;
+    }
+
+    public String getFloorName() {
+        return floorName;
+    }
+
+    public void setFloorName(String floorName) {
+        this.floorName = floorName;
+    }
+
+    public String getAreaName() {
+        return areaName;
+    }
+
+    public void setAreaName(String areaName) {
+        this.areaName = areaName;
+    }
+
+    public int getMinFree() {
+        return minFree;
+    }
+
+    public void setMinFree(int minFree) {
+        this.minFree = minFree;
+    }
+
+    public int getFreeCount() {
+        return freeCount;
+    }
+
+    public void setFreeCount(int freeCount) {
+        this.freeCount = freeCount;
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public void setTotalCount(int totalCount) {
+        this.totalCount = totalCount;
+    }
+
+    public LocalDateTime getRecordTime() {
+        return recordTime;
+    }
+
+    public void setRecordTime(LocalDateTime recordTime) {
+        this.recordTime = recordTime;
+    }
+}
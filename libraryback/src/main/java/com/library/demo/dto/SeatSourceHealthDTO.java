@@ -0,0 +1,125 @@
+package com.library.demo.dto;
+
+import java.time.Instant;
+
+public class SeatSourceHealthDTO {
+    private String id;
+    private String areaIdPrefix;
+    private String circuitState;
+    private int intervalSeconds;
+    private int requestsPerMinute;
+    private double successRate;
+    private int consecutiveFailures;
+    private long lastLatencyMillis;
+    private int lastAreaCount;
+    private String lastError;
+    private Instant lastAttempt;
+    private Instant lastSuccess;
+    private Instant openUntil;
+    
+    public SeatSourceHealthDTO() {}
+    
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public String getAreaIdPrefix() {
+        return areaIdPrefix;
+    }
+    
+    public void setAreaIdPrefix(String areaIdPrefix) {
+        this.areaIdPrefix = areaIdPrefix;
+    }
+    
+    public String getCircuitState() {
+        return circuitState;
+    }
+    
+    public void setCircuitState(String circuitState) {
+        this.circuitState = circuitState;
+    }
+    
+    public int getIntervalSeconds() {
+        return intervalSeconds;
+    }
+    
+    public void setIntervalSeconds(int intervalSeconds) {
+        this.intervalSeconds = intervalSeconds;
+    }
+    
+    public int getRequestsPerMinute() {
+        return requestsPerMinute;
+    }
+    
+    public void setRequestsPerMinute(int requestsPerMinute) {
+        this.requestsPerMinute = requestsPerMinute;
+    }
+    
+    public double getSuccessRate() {
+        return successRate;
+    }
+    
+    public void setSuccessRate(double successRate) {
+        this.successRate = successRate;
+    }
+    
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+    
+    public void setConsecutiveFailures(int consecutiveFailures) {
+        this.consecutiveFailures = consecutiveFailures;
+    }
+    
+    public long getLastLatencyMillis() {
+        return lastLatencyMillis;
+    }
+    
+    public void setLastLatencyMillis(long lastLatencyMillis) {
+        this.lastLatencyMillis = lastLatencyMillis;
+    }
+    
+    public int getLastAreaCount() {
+        return lastAreaCount;
+    }
+    
+    public void setLastAreaCount(int lastAreaCount) {
+        this.lastAreaCount = lastAreaCount;
+    }
+    
+    public String getLastError() {
+        return lastError;
+    }
+    
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+    
+    public Instant getLastAttempt() {
+        return lastAttempt;
+    }
+    
+    public void setLastAttempt(Instant lastAttempt) {
+        this.lastAttempt = lastAttempt;
+    }
+    
+    public Instant getLastSuccess() {
+        return lastSuccess;
+    }
+    
+    public void setLastSuccess(Instant lastSuccess) {
+        this.lastSuccess = lastSuccess;
+    }
+    
+    public Instant getOpenUntil() {
+        return openUntil;
+    }
+    
+    public void setOpenUntil(Instant openUntil) {
+        this.openUntil = openUntil;
+    }
+}
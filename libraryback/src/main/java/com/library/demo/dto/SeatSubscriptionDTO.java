@@ -0,0 +1,71 @@
+package com.library.demo.dto;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * 座位門檻訂閱
+ * 建立時只需 areaId、minFree 與 webhookUrl；其餘欄位由伺服器填入
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SeatSubscriptionDTO {
+
+    private String id;
+    private String areaId;
+    private int minFree;
+    private String webhookUrl;
+    // 是否等待下一次達到門檻；通知後要等剩餘座位回落到門檻減去緩衝量以下才會再次通知
+    private Boolean armed;
+    private LocalDateTime expiresAt;
+
+    public SeatSubscriptionDTO() {}
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getAreaId() {
+        return areaId;
+    }
+
+    public void setAreaId(String areaId) {
+        this.areaId = areaId;
+    }
+
+    public int getMinFree() {
+        return minFree;
+    }
+
+    public void setMinFree(int minFree) {
+        this.minFree = minFree;
+    }
+
+    public String getWebhookUrl() {
+        return webhookUrl;
+    }
+
+    public void setWebhookUrl(String webhookUrl) {
+        this.webhookUrl = webhookUrl;
+    }
+
+    public Boolean getArmed() {
+        return armed;
+    }
+
+    public void setArmed(Boolean armed) {
+        this.armed = armed;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
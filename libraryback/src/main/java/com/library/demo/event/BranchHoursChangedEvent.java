@@ -0,0 +1,8 @@
+package com.library.demo.event;
+
+/**
+ * 分館營業時間或休館日變動、行事曆重新建立，或快照中首次出現未登記的分館後發布的事件
+ * 供依營業時間設定計時器的排程重新計算下一次觸發時間
+ */
+public class BranchHoursChangedEvent {
+}
@@ -0,0 +1,8 @@
+package com.library.demo.event;
+
+/**
+ * 主節點清理、合併或搬移歷史記錄後，非主節點輪詢到新的維護世代時發布的事件
+ * 供快取了歷史查詢結果的記憶體結構整個失效
+ */
+public class HistoryMaintainedEvent {
+}
@@ -0,0 +1,53 @@
+package com.library.demo.event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.library.demo.model.LibraryArea;
+
+/**
+ * 一次快照寫入完成後發布的事件
+ * 供需要跟隨最新座位資料更新的記憶體結構使用
+ */
+public class SnapshotSavedEvent {
+
+    private final LocalDateTime recordTime;
+    private final List<LibraryArea> areas;
+    private final List<LibraryArea> historyAreas;
+    private final boolean live;
+
+    /**
+     * @param recordTime 快照的記錄時間
+     * @param areas 快照中解析出的所有區域；即時快照另含本次未擷取到的座位來源保留的區域
+     * @param live 是否為即時快照；閉館快照使用自訂時間戳，不算即時
+     */
+    public SnapshotSavedEvent(LocalDateTime recordTime, List<LibraryArea> areas, boolean live) {
+        this(recordTime, areas, areas, live);
+    }
+
+    /**
+     * @param historyAreas 寫入歷史記錄的區域，已剔除閉館分館
+     */
+    public SnapshotSavedEvent(LocalDateTime recordTime, List<LibraryArea> areas, List<LibraryArea> historyAreas, boolean live) {
+        this.recordTime = recordTime;
+        this.areas = areas;
+        this.historyAreas = historyAreas;
+        this.live = live;
+    }
+
+    public LocalDateTime getRecordTime() {
+        return recordTime;
+    }
+
+    public List<LibraryArea> getAreas() {
+        return areas;
+    }
+
+    public List<LibraryArea> getHistoryAreas() {
+        return historyAreas;
+    }
+
+    public boolean isLive() {
+        return live;
+    }
+}
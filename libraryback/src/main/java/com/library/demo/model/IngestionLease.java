@@ -0,0 +1,62 @@
+package com.library.demo.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * 擷取主節點的租約
+ * 同一時間只有持有未過期租約的節點會執行擷取與排程寫入；
+ * 每次換手時 fencingToken 加一，舊主節點遲到的寫入會因 token 較小而被拒絕
+ */
+@Entity
+@Table(name = "ingestion_lease")
+public class IngestionLease {
+
+    @Id
+    private String leaseName;
+    private String ownerId;
+    private long fencingToken;
+    private LocalDateTime expiresAt;
+
+    public IngestionLease() {}
+
+    public IngestionLease(String leaseName, LocalDateTime expiresAt) {
+        this.leaseName = leaseName;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getLeaseName() {
+        return leaseName;
+    }
+
+    public void setLeaseName(String leaseName) {
+        this.leaseName = leaseName;
+    }
+
+    public String getOwnerId() {
+        return ownerId;
+    }
+
+    public void setOwnerId(String ownerId) {
+        this.ownerId = ownerId;
+    }
+
+    public long getFencingToken() {
+        return fencingToken;
+    }
+
+    public void setFencingToken(long fencingToken) {
+        this.fencingToken = fencingToken;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,96 @@
+package com.library.demo.model;
+
+import java.util.Objects;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * 區域維度
+ * 區域的名稱資訊只存一份，歷史記錄以整數 areaKey 參照
+ */
+@Entity
+@Table(name = "library_area_dim",
+       uniqueConstraints = {
+           @UniqueConstraint(name = "uk_area_dim_area_id", columnNames = {"areaId"})
+       })
+public class LibraryAreaDim {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer areaKey;
+
+    private String areaId;
+    private String branchName;
+    private String floorName;
+    private String areaName;
+
+    public LibraryAreaDim() {}
+
+    public LibraryAreaDim(LibraryArea area) {
+        this.areaId = area.getAreaId();
+        updateFrom(area);
+    }
+
+    /**
+     * 名稱資訊是否與上游最新資料相同
+     */
+    public boolean sameNames(LibraryArea area) {
+        return Objects.equals(branchName, area.getBranchName())
+                && Objects.equals(floorName, area.getFloorName())
+                && Objects.equals(areaName, area.getAreaName());
+    }
+
+    /**
+     * 以上游最新資料覆蓋名稱資訊
+     */
+    public void updateFrom(LibraryArea area) {
+        this.branchName = area.getBranchName();
+        this.floorName = area.getFloorName();
+        this.areaName = area.getAreaName();
+    }
+
+    public Integer getAreaKey() {
+        return areaKey;
+    }
+
+    public void setAreaKey(Integer areaKey) {
+        this.areaKey = areaKey;
+    }
+
+    public String getAreaId() {
+        return areaId;
+    }
+
+    public void setAreaId(String areaId) {
+        this.areaId = areaId;
+    }
+
+    public String getBranchName() {
+        return branchName;
+    }
+
+    public void setBranchName(String branchName) {
+        this.branchName = branchName;
+    }
+
+    public String getFloorName() {
+        return floorName;
+    }
+
+    public void setFloorName(String floorName) {
+        this.floorName = floorName;
+    }
+
+    public String getAreaName() {
+        return areaName;
+    }
+
+    public void setAreaName(String areaName) {
+        this.areaName = areaName;
+    }
+}
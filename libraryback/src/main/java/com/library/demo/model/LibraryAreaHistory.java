@@ -1,25 +1,32 @@
 package com.library.demo.model;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.Subselect;
+import org.hibernate.annotations.Synchronize;
 
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
-import jakarta.persistence.Index;
-import jakarta.persistence.Table;
 
+/**
+ * 座位歷史記錄（唯讀）
+ * 實際資料存放在 library_area_history_fact，名稱資訊在 library_area_dim；
+ * 此實體以兩表的聯結呈現原本的欄位，記錄時間由分鐘序號換算，寫入請經由事實表
+ */
 @Entity
-@Table(name = "library_areas_history", 
-       indexes = {
-           @Index(name = "idx_record_time", columnList = "recordTime"),
-           @Index(name = "idx_area_id", columnList = "areaId"),
-           @Index(name = "idx_area_id_record_time", columnList = "areaId,recordTime")
-       })
+@Immutable
+@Subselect("SELECT CAST(f.area_key AS BIGINT) * 100000000 + f.record_minute AS id, " +
+           "d.area_id, d.branch_name, d.floor_name, d.area_name, f.free_count, f.total_count, f.record_minute, " +
+           "DATEADD(MINUTE, CAST(f.record_minute % 1440 AS INT), " +
+           "DATEADD(DAY, CAST(f.record_minute / 1440 AS INT), CAST('1970-01-01' AS DATETIME2))) AS record_time " +
+           "FROM library_area_history_fact f JOIN library_area_dim d ON d.area_key = f.area_key")
+@Synchronize({"library_area_history_fact", "library_area_dim"})
 public class LibraryAreaHistory {
     
+    // 由區域代號與分鐘序號組成
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
     private String areaId;
@@ -30,17 +37,23 @@ public class LibraryAreaHistory {
     private int totalCount;
     private LocalDateTime recordTime;
     
+    // 以本地時間計算的分鐘序號（自1970-01-01 00:00起），作為去重用的分鐘桶
+    private Long recordMinute;
+    
     public LibraryAreaHistory() {}
     
-    // 從LibraryArea對象創建歷史記錄對象的構造函數
-    public LibraryAreaHistory(LibraryArea libraryArea) {
-        this.areaId = libraryArea.getAreaId();
-        this.branchName = libraryArea.getBranchName();
-        this.floorName = libraryArea.getFloorName();
-        this.areaName = libraryArea.getAreaName();
-        this.freeCount = libraryArea.getFreeCount();
-        this.totalCount = libraryArea.getTotalCount();
-        this.recordTime = libraryArea.getRecordTime();
+    /**
+     * 將記錄時間轉換為分鐘桶
+     */
+    public static long toMinuteBucket(LocalDateTime recordTime) {
+        return recordTime.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+    
+    /**
+     * 將分鐘桶轉換回記錄時間
+     */
+    public static LocalDateTime fromMinuteBucket(long recordMinute) {
+        return LocalDateTime.ofEpochSecond(recordMinute * 60, 0, ZoneOffset.UTC);
     }
     
     public Long getId() {
@@ -107,6 +120,14 @@ public class LibraryAreaHistory {
         this.recordTime = recordTime;
     }
     
+    public Long getRecordMinute() {
+        return recordMinute;
+    }
+    
+    public void setRecordMinute(Long recordMinute) {
+        this.recordMinute = recordMinute;
+    }
+    
     public double getOccupationRate() {
         if (totalCount == 0) return 0;
         return (double)(totalCount - freeCount) / totalCount * 100;
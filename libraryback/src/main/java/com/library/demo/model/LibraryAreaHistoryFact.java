@@ -0,0 +1,97 @@
+package com.library.demo.model;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+/**
+ * 精簡的座位歷史記錄
+ * 每列只有區域代號、分鐘序號與座位數，主鍵 (areaKey, recordMinute) 即叢集索引，
+ * 同一區域的時間範圍查詢為連續讀取；名稱資訊見 LibraryAreaDim
+ */
+@Entity
+@Table(name = "library_area_history_fact")
+@IdClass(LibraryAreaHistoryFact.Key.class)
+public class LibraryAreaHistoryFact {
+
+    @Id
+    private Integer areaKey;
+
+    // 以本地時間計算的分鐘序號（自1970-01-01 00:00起）
+    @Id
+    private Long recordMinute;
+
+    @Column(columnDefinition = "smallint")
+    private int freeCount;
+
+    @Column(columnDefinition = "smallint")
+    private int totalCount;
+
+    public LibraryAreaHistoryFact() {}
+
+    public Integer getAreaKey() {
+        return areaKey;
+    }
+
+    public void setAreaKey(Integer areaKey) {
+        this.areaKey = areaKey;
+    }
+
+    public Long getRecordMinute() {
+        return recordMinute;
+    }
+
+    public void setRecordMinute(Long recordMinute) {
+        this.recordMinute = recordMinute;
+    }
+
+    public int getFreeCount() {
+        return freeCount;
+    }
+
+    public void setFreeCount(int freeCount) {
+        this.freeCount = freeCount;
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public void setTotalCount(int totalCount) {
+        this.totalCount = totalCount;
+    }
+
+    /**
+     * 複合主鍵
+     */
+    public static class Key implements Serializable {
+
+        private Integer areaKey;
+        private Long recordMinute;
+
+        public Key() {}
+
+        public Key(Integer areaKey, Long recordMinute) {
+            this.areaKey = areaKey;
+            this.recordMinute = recordMinute;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return Objects.equals(areaKey, other.areaKey) && Objects.equals(recordMinute, other.recordMinute);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(areaKey, recordMinute);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.library.demo.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * 區域識別
+ * 以座位來源前綴與正規化的「分館|樓層|區域名稱」對應到穩定的區域代碼，
+ * 上游沒有提供區域代碼時沿用此處的代碼，不再每次產生新的區域
+ */
+@Entity
+@Table(name = "library_area_identity",
+       uniqueConstraints = {
+           @UniqueConstraint(name = "uk_area_identity_natural_key", columnNames = {"namespace", "naturalKey"})
+       })
+public class LibraryAreaIdentity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer identityKey;
+
+    // 座位來源的區域代碼前綴（含冒號），臺北市圖書館為空字串
+    private String namespace;
+
+    private String naturalKey;
+
+    private String areaId;
+
+    public LibraryAreaIdentity() {}
+
+    public LibraryAreaIdentity(String namespace, String naturalKey, String areaId) {
+        this.namespace = namespace;
+        this.naturalKey = naturalKey;
+        this.areaId = areaId;
+    }
+
+    public Integer getIdentityKey() {
+        return identityKey;
+    }
+
+    public void setIdentityKey(Integer identityKey) {
+        this.identityKey = identityKey;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public void setNamespace(String namespace) {
+        this.namespace = namespace;
+    }
+
+    public String getNaturalKey() {
+        return naturalKey;
+    }
+
+    public void setNaturalKey(String naturalKey) {
+        this.naturalKey = naturalKey;
+    }
+
+    public String getAreaId() {
+        return areaId;
+    }
+
+    public void setAreaId(String areaId) {
+        this.areaId = areaId;
+    }
+}
@@ -1,12 +1,10 @@
 package com.library.demo.model;
 
 import java.time.LocalTime;
-import java.time.ZoneId;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
-import org.springframework.beans.factory.annotation.Value;
 
 @Entity
 @Table(name = "library_branches")
@@ -18,9 +16,6 @@ public class LibraryBranch {
     private LocalTime closeTime;
     private boolean isOpen;
     
-    @Value("${spring.jackson.time-zone:Asia/Taipei}")
-    private String timeZone;
-    
     public LibraryBranch() {}
     
     public LibraryBranch(String branchName, LocalTime openTime, LocalTime closeTime, boolean isOpen) {
@@ -61,18 +56,5 @@ public class LibraryBranch {
     public void setOpen(boolean isOpen) {
         this.isOpen = isOpen;
     }
-    
-    /**
-     * 判斷圖書館當前是否開放
-     */
-    public boolean isOpenNow() {
-        LocalTime currentTime = LocalTime.now(ZoneId.of(timeZone));
-        
-        // 不需要parse，直接使用已有的LocalTime對象
-        LocalTime openTimeValue = this.openTime;
-        LocalTime closeTimeValue = this.closeTime;
-        
-        // 使用與ScheduledService相同的邏輯
-        return !currentTime.isBefore(openTimeValue) && currentTime.isBefore(closeTimeValue);
-    }
-} 
\ No newline at end of file
+
+}
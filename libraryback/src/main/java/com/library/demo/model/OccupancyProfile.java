@@ -0,0 +1,98 @@
+package com.library.demo.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * 區域或分館依星期幾與時段統計的使用率分佈
+ * 每個時段的筆數與使用率總和以二進位陣列保存，記憶體中的結構見 OccupancyProfileMatrix
+ */
+@Entity
+@Table(name = "occupancy_profile")
+public class OccupancyProfile {
+
+    public static final String TYPE_AREA = "AREA";
+    public static final String TYPE_BRANCH = "BRANCH";
+
+    // 類型與名稱組成，例如 AREA:1001、BRANCH:總館
+    @Id
+    private String profileKey;
+    private String profileType;
+    private String name;
+    // 最後一筆計入的分鐘序號
+    private long lastMinute;
+
+    @Column(columnDefinition = "varbinary(max)")
+    private byte[] counts;
+
+    @Column(columnDefinition = "varbinary(max)")
+    private byte[] sums;
+
+    private LocalDateTime updatedAt;
+
+    public OccupancyProfile() {}
+
+    public static String key(String profileType, String name) {
+        return profileType + ":" + name;
+    }
+
+    public String getProfileKey() {
+        return profileKey;
+    }
+
+    public void setProfileKey(String profileKey) {
+        this.profileKey = profileKey;
+    }
+
+    public String getProfileType() {
+        return profileType;
+    }
+
+    public void setProfileType(String profileType) {
+        this.profileType = profileType;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getLastMinute() {
+        return lastMinute;
+    }
+
+    public void setLastMinute(long lastMinute) {
+        this.lastMinute = lastMinute;
+    }
+
+    public byte[] getCounts() {
+        return counts;
+    }
+
+    public void setCounts(byte[] counts) {
+        this.counts = counts;
+    }
+
+    public byte[] getSums() {
+        return sums;
+    }
+
+    public void setSums(byte[] sums) {
+        this.sums = sums;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
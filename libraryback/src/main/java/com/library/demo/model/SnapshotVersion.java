@@ -0,0 +1,88 @@
+package com.library.demo.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * 快照版本
+ * 主節點每次寫入快照時遞增版本，其他節點只需輪詢這一列即可得知是否有新快照；
+ * 同時記錄最後寫入者的 fencingToken，作為快照寫入的防護欄；
+ * 另一列記錄歷史記錄的維護世代，主節點清理或改寫歷史記錄後遞增
+ */
+@Entity
+@Table(name = "snapshot_version")
+public class SnapshotVersion {
+
+    // 座位快照的版本列名稱
+    public static final String LIBRARY_AREAS = "library_areas";
+
+    // 歷史記錄維護世代的版本列名稱，只使用 version 與 fencingToken
+    public static final String HISTORY_MAINTENANCE = "history_maintenance";
+
+    @Id
+    private String versionName;
+    private long version;
+    private long fencingToken;
+    private LocalDateTime recordTime;
+    // 最後一次寫入是否為即時快照
+    private boolean live;
+    // 最後一次即時快照的記錄時間，也就是當前座位資料對應的時間
+    private LocalDateTime liveRecordTime;
+
+    public SnapshotVersion() {}
+
+    public SnapshotVersion(String versionName) {
+        this.versionName = versionName;
+    }
+
+    public String getVersionName() {
+        return versionName;
+    }
+
+    public void setVersionName(String versionName) {
+        this.versionName = versionName;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public long getFencingToken() {
+        return fencingToken;
+    }
+
+    public void setFencingToken(long fencingToken) {
+        this.fencingToken = fencingToken;
+    }
+
+    public LocalDateTime getRecordTime() {
+        return recordTime;
+    }
+
+    public void setRecordTime(LocalDateTime recordTime) {
+        this.recordTime = recordTime;
+    }
+
+    public boolean isLive() {
+        return live;
+    }
+
+    public void setLive(boolean live) {
+        this.live = live;
+    }
+
+    public LocalDateTime getLiveRecordTime() {
+        return liveRecordTime;
+    }
+
+    public void setLiveRecordTime(LocalDateTime liveRecordTime) {
+        this.liveRecordTime = liveRecordTime;
+    }
+}
@@ -0,0 +1,48 @@
+package com.library.demo.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.library.demo.model.IngestionLease;
+
+@Repository
+public interface IngestionLeaseRepository extends JpaRepository<IngestionLease, String> {
+
+    // 租約必須讀取主資料庫，不使用預設的唯讀交易
+    @Override
+    @Transactional
+    Optional<IngestionLease> findById(String leaseName);
+
+    @Override
+    @Transactional
+    boolean existsById(String leaseName);
+
+    // 過期時間一律以資料庫的 CURRENT_TIMESTAMP 計算，各節點本機時鐘的誤差不影響續約與接手
+
+    // 目前的持有者延長租約
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE ingestion_lease SET expires_at = DATEADD(SECOND, :leaseSeconds, CURRENT_TIMESTAMP) " +
+           "WHERE lease_name = :leaseName AND owner_id = :ownerId AND fencing_token = :fencingToken", nativeQuery = true)
+    int renew(String leaseName, String ownerId, long fencingToken, int leaseSeconds);
+
+    // 租約過期時由新節點接手，並遞增 fencing token
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE ingestion_lease SET owner_id = :ownerId, expires_at = DATEADD(SECOND, :leaseSeconds, CURRENT_TIMESTAMP), " +
+           "fencing_token = fencing_token + 1 " +
+           "WHERE lease_name = :leaseName AND expires_at < CURRENT_TIMESTAMP", nativeQuery = true)
+    int takeOver(String leaseName, String ownerId, int leaseSeconds);
+
+    // 正常關閉時立即釋放租約，讓其他節點不必等到過期
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE ingestion_lease SET expires_at = DATEADD(SECOND, -1, CURRENT_TIMESTAMP) " +
+           "WHERE lease_name = :leaseName AND owner_id = :ownerId AND fencing_token = :fencingToken", nativeQuery = true)
+    int release(String leaseName, String ownerId, long fencingToken);
+}
@@ -0,0 +1,141 @@
+package com.library.demo.repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.library.demo.model.LibraryArea;
+
+/**
+ * 以批次 SQL 寫入當前座位資料與歷史記錄
+ * JPA 的 saveAll 對指定主鍵的實體會先 SELECT 再 UPDATE，每個區域各兩次往返；
+ * 這裡只讀一次整張表比對差異，再以批次 UPDATE / INSERT / DELETE 寫入有變動的區域，
+ * 座位數與名稱都沒有變的區域完全不寫入，因此 record_time 代表該區域最後一次變動的時間
+ * 需在呼叫端的交易內執行，與 JPA 共用同一個連線
+ */
+@Repository
+public class LibraryAreaBulkRepository {
+
+    private static final String SELECT_CURRENT =
+            "SELECT area_id, branch_name, floor_name, area_name, free_count, total_count, record_time FROM library_areas";
+
+    private static final String UPDATE_AREA =
+            "UPDATE library_areas SET branch_name = ?, floor_name = ?, area_name = ?, free_count = ?, total_count = ?, record_time = ? " +
+            "WHERE area_id = ?";
+
+    private static final String INSERT_AREA =
+            "INSERT INTO library_areas (branch_name, floor_name, area_name, free_count, total_count, record_time, area_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String DELETE_AREA = "DELETE FROM library_areas WHERE area_id = ?";
+
+    private static final String INSERT_HISTORY =
+            "INSERT INTO library_area_history_fact (area_key, record_minute, free_count, total_count) VALUES (?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 將當前座位資料更新為指定的快照，快照中沒有的區域會被移除
+     * 只移除快照中有出現的座位來源（區域代碼前綴）的區域；本次未擷取到的來源保留原有資料
+     * @param namespaceOf 區域代碼所屬座位來源的前綴
+     * @param retained 收集保留下來的其他來源區域
+     * @return 實際寫入的資料列數（更新、新增與刪除的合計）
+     */
+    public int replaceChanged(List<LibraryArea> areas, Function<String, String> namespaceOf, List<LibraryArea> retained) {
+        Map<String, LibraryArea> existing = new HashMap<>();
+        jdbcTemplate.query(SELECT_CURRENT, rs -> {
+            Timestamp recordTime = rs.getTimestamp("record_time");
+            LibraryArea area = new LibraryArea(rs.getString("area_id"), rs.getString("branch_name"),
+                    rs.getString("floor_name"), rs.getString("area_name"),
+                    rs.getInt("free_count"), rs.getInt("total_count"),
+                    recordTime != null ? recordTime.toLocalDateTime() : null);
+            existing.put(area.getAreaId(), area);
+        });
+
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (LibraryArea area : areas) {
+            if (!seen.add(area.getAreaId())) {
+                continue;
+            }
+            LibraryArea before = existing.get(area.getAreaId());
+            if (before == null) {
+                inserts.add(toParameters(area));
+            } else if (!sameState(before, area)) {
+                updates.add(toParameters(area));
+            }
+        }
+        Set<String> namespaces = new HashSet<>();
+        for (String areaId : seen) {
+            namespaces.add(namespaceOf.apply(areaId));
+        }
+        List<Object[]> deletes = new ArrayList<>();
+        for (LibraryArea before : existing.values()) {
+            if (seen.contains(before.getAreaId())) {
+                continue;
+            }
+            if (namespaces.contains(namespaceOf.apply(before.getAreaId()))) {
+                deletes.add(new Object[] {before.getAreaId()});
+            } else {
+                retained.add(before);
+            }
+        }
+
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_AREA, updates);
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_AREA, inserts);
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_AREA, deletes);
+        }
+        return updates.size() + inserts.size() + deletes.size();
+    }
+
+    /**
+     * 批次寫入同一分鐘桶的歷史記錄
+     * @param recordMinute 分鐘序號
+     * @param areasByKey 區域代號對應的座位資料，呼叫端需先排除該分鐘已寫入的區域
+     * @return 寫入的歷史記錄數量
+     */
+    public int insertHistory(long recordMinute, Map<Integer, LibraryArea> areasByKey) {
+        List<Object[]> rows = new ArrayList<>();
+        areasByKey.forEach((areaKey, area) ->
+                rows.add(new Object[] {areaKey, recordMinute, area.getFreeCount(), area.getTotalCount()}));
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_HISTORY, rows);
+        }
+        return rows.size();
+    }
+
+    private boolean sameState(LibraryArea before, LibraryArea after) {
+        return before.getFreeCount() == after.getFreeCount()
+                && before.getTotalCount() == after.getTotalCount()
+                && Objects.equals(before.getBranchName(), after.getBranchName())
+                && Objects.equals(before.getFloorName(), after.getFloorName())
+                && Objects.equals(before.getAreaName(), after.getAreaName());
+    }
+
+    // UPDATE 與 INSERT 使用相同的參數順序
+    private Object[] toParameters(LibraryArea area) {
+        return new Object[] {
+                area.getBranchName(), area.getFloorName(), area.getAreaName(),
+                area.getFreeCount(), area.getTotalCount(),
+                area.getRecordTime() != null ? Timestamp.valueOf(area.getRecordTime()) : null,
+                area.getAreaId()
+        };
+    }
+}
@@ -0,0 +1,10 @@
+package com.library.demo.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.library.demo.model.LibraryAreaDim;
+
+@Repository
+public interface LibraryAreaDimRepository extends JpaRepository<LibraryAreaDim, Integer> {
+}
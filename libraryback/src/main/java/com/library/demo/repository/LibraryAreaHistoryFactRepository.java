@@ -0,0 +1,28 @@
+package com.library.demo.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.library.demo.model.LibraryAreaHistoryFact;
+
+@Repository
+public interface LibraryAreaHistoryFactRepository extends JpaRepository<LibraryAreaHistoryFact, LibraryAreaHistoryFact.Key> {
+
+    // 查詢指定分鐘桶內已寫入的區域代號
+    @Query("SELECT f.areaKey FROM LibraryAreaHistoryFact f WHERE f.recordMinute = :recordMinute")
+    List<Integer> findAreaKeysByRecordMinute(long recordMinute);
+
+    // 計算指定分鐘之前的記錄數量
+    long countByRecordMinuteLessThan(long recordMinute);
+
+    // 刪除指定分鐘之前的記錄
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM LibraryAreaHistoryFact f WHERE f.recordMinute < :recordMinute")
+    int deleteByRecordMinuteLessThan(long recordMinute);
+}
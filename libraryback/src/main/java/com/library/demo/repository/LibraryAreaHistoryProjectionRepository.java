@@ -0,0 +1,102 @@
+package com.library.demo.repository;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.stereotype.Repository;
+
+import com.library.demo.dto.HistoryField;
+import com.library.demo.dto.LibraryAreaHistoryDTO;
+import com.library.demo.model.LibraryAreaHistory;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * 以純量投影查詢座位歷史記錄
+ * 只選取需要的欄位，結果直接填入 DTO，不建立實體也不進入持久化上下文
+ */
+@Repository
+public class LibraryAreaHistoryProjectionRepository {
+
+    private static final int FETCH_SIZE = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * 查詢分鐘序號範圍 [fromMinute, toMinute) 內的歷史記錄
+     * @param areaId 區域編號，null 表示所有區域；指定區域時依時間排序
+     * @param fields 需要的欄位
+     */
+    public List<LibraryAreaHistoryDTO> find(String areaId, long fromMinute, long toMinute, Set<HistoryField> fields) {
+        // 使用率需要剩餘與總座位數，即使呼叫端沒有要求這兩個欄位也要查詢
+        Set<HistoryField> selected = EnumSet.copyOf(fields);
+        if (selected.remove(HistoryField.OCCUPATION_RATE)) {
+            selected.add(HistoryField.FREE_COUNT);
+            selected.add(HistoryField.TOTAL_COUNT);
+        }
+        List<HistoryField> columns = new ArrayList<>(selected);
+
+        StringBuilder jpql = new StringBuilder("SELECT ");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                jpql.append(", ");
+            }
+            jpql.append(columns.get(i).getPath());
+        }
+        jpql.append(" FROM LibraryAreaHistory lah WHERE lah.recordMinute >= :fromMinute AND lah.recordMinute < :toMinute");
+        if (areaId != null) {
+            jpql.append(" AND lah.areaId = :areaId ORDER BY lah.recordMinute");
+        }
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class)
+                .setParameter("fromMinute", fromMinute)
+                .setParameter("toMinute", toMinute)
+                .setHint("org.hibernate.fetchSize", FETCH_SIZE);
+        if (areaId != null) {
+            query.setParameter("areaId", areaId);
+        }
+
+        boolean includeOccupation = fields.contains(HistoryField.OCCUPATION_RATE);
+        List<Object[]> rows = query.getResultList();
+        List<LibraryAreaHistoryDTO> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            result.add(toDTO(row, columns, fields, includeOccupation));
+        }
+        return result;
+    }
+
+    private LibraryAreaHistoryDTO toDTO(Object[] row, List<HistoryField> columns, Set<HistoryField> fields,
+                                        boolean includeOccupation) {
+        LibraryAreaHistoryDTO dto = new LibraryAreaHistoryDTO();
+        Integer freeCount = null;
+        Integer totalCount = null;
+        for (int i = 0; i < columns.size(); i++) {
+            Object value = row[i];
+            switch (columns.get(i)) {
+                case AREA_ID -> dto.setAreaId((String) value);
+                case BRANCH_NAME -> dto.setBranchName((String) value);
+                case FLOOR_NAME -> dto.setFloorName((String) value);
+                case AREA_NAME -> dto.setAreaName((String) value);
+                case FREE_COUNT -> freeCount = ((Number) value).intValue();
+                case TOTAL_COUNT -> totalCount = ((Number) value).intValue();
+                case RECORD_TIME -> dto.setRecordTime(LibraryAreaHistory.fromMinuteBucket(((Number) value).longValue()));
+                default -> { }
+            }
+        }
+        if (fields.contains(HistoryField.FREE_COUNT)) {
+            dto.setFreeCount(freeCount);
+        }
+        if (fields.contains(HistoryField.TOTAL_COUNT)) {
+            dto.setTotalCount(totalCount);
+        }
+        if (includeOccupation) {
+            dto.setOccupationRate(totalCount == 0 ? 0 : (double) (totalCount - freeCount) / totalCount * 100);
+        }
+        return dto;
+    }
+}
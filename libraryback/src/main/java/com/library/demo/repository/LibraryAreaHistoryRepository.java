@@ -2,66 +2,130 @@ package com.library.demo.repository;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
-import org.springframework.transaction.annotation.Transactional;
 
 import com.library.demo.model.LibraryAreaHistory;
 
+/**
+ * 座位歷史記錄的查詢
+ * 依日期或時間的查詢都換算成分鐘序號範圍，直接使用事實表主鍵 (area_key, record_minute)
+ */
 @Repository
 public interface LibraryAreaHistoryRepository extends JpaRepository<LibraryAreaHistory, Long> {
-    
+
     // 查詢指定日期的所有歷史記錄
-    @Query("SELECT lah FROM LibraryAreaHistory lah WHERE CAST(lah.recordTime AS LocalDate) = :date")
-    List<LibraryAreaHistory> findByDate(LocalDate date);
-    
+    default List<LibraryAreaHistory> findByDate(LocalDate date) {
+        return findByRecordMinuteRange(startMinute(date), startMinute(date.plusDays(1)));
+    }
+
     // 查詢指定時間範圍的歷史記錄
-    List<LibraryAreaHistory> findByRecordTimeBetween(LocalDateTime startTime, LocalDateTime endTime);
-    
+    default List<LibraryAreaHistory> findByRecordTimeBetween(LocalDateTime startTime, LocalDateTime endTime) {
+        return findByRecordMinuteRange(LibraryAreaHistory.toMinuteBucket(startTime),
+                LibraryAreaHistory.toMinuteBucket(endTime) + 1);
+    }
+
     // 查詢指定區域在特定日期的歷史記錄
-    @Query("SELECT lah FROM LibraryAreaHistory lah WHERE lah.areaId = :areaId AND CAST(lah.recordTime AS LocalDate) = :date")
-    List<LibraryAreaHistory> findByAreaIdAndDate(String areaId, LocalDate date);
-    
+    default List<LibraryAreaHistory> findByAreaIdAndDate(String areaId, LocalDate date) {
+        return findByAreaIdAndRecordMinuteRange(areaId, startMinute(date), startMinute(date.plusDays(1)));
+    }
+
     // 查詢特定區域在特定時間範圍的使用率變化
-    @Query("SELECT lah FROM LibraryAreaHistory lah WHERE lah.areaId = :areaId AND lah.recordTime BETWEEN :startTime AND :endTime ORDER BY lah.recordTime")
-    List<LibraryAreaHistory> findOccupationRateChangeByAreaId(String areaId, LocalDateTime startTime, LocalDateTime endTime);
-    
+    default List<LibraryAreaHistory> findOccupationRateChangeByAreaId(String areaId, LocalDateTime startTime, LocalDateTime endTime) {
+        return findByAreaIdAndRecordMinuteRange(areaId, LibraryAreaHistory.toMinuteBucket(startTime),
+                LibraryAreaHistory.toMinuteBucket(endTime) + 1);
+    }
+
     // 查詢特定日期每個區域的平均使用率
+    default List<Object[]> findAverageOccupationByDateGroupByArea(LocalDate date) {
+        return findAverageOccupationByMinuteRangeGroupByArea(startMinute(date), startMinute(date.plusDays(1)));
+    }
+
+    // 查詢特定區域最繁忙的時間段（按小時分組）
+    default List<Object[]> findBusiestHoursByAreaAndDate(String areaId, LocalDate date) {
+        return findBusiestHoursByAreaAndMinuteRange(areaId, startMinute(date), startMinute(date.plusDays(1)));
+    }
+
+    // 查詢特定分館最繁忙的時間段（按小時分組）
+    default List<Object[]> findBusiestHoursByBranchAndDate(String branchName, LocalDate date) {
+        return findBusiestHoursByBranchAndMinuteRange(branchName, startMinute(date), startMinute(date.plusDays(1)));
+    }
+
+    // 統計近期每個星期幾（0為星期一）與小時的座位變化率（每區域每分鐘的剩餘座位變化量）
+    default List<Object[]> findChangeRateProfileSince(LocalDateTime since) {
+        return findChangeRateProfileSinceMinute(LibraryAreaHistory.toMinuteBucket(since));
+    }
+
+    // 查詢分鐘序號範圍 [fromMinute, toMinute) 內的歷史記錄
+    @Query("SELECT lah FROM LibraryAreaHistory lah WHERE lah.recordMinute >= :fromMinute AND lah.recordMinute < :toMinute")
+    List<LibraryAreaHistory> findByRecordMinuteRange(long fromMinute, long toMinute);
+
+    // 查詢指定區域在分鐘序號範圍 [fromMinute, toMinute) 內的歷史記錄
+    @Query("SELECT lah FROM LibraryAreaHistory lah WHERE lah.areaId = :areaId " +
+           "AND lah.recordMinute >= :fromMinute AND lah.recordMinute < :toMinute ORDER BY lah.recordMinute")
+    List<LibraryAreaHistory> findByAreaIdAndRecordMinuteRange(String areaId, long fromMinute, long toMinute);
+
     @Query("SELECT lah.areaId, lah.areaName, lah.branchName, lah.floorName, AVG((lah.totalCount - lah.freeCount) * 100.0 / CASE WHEN lah.totalCount = 0 THEN 1 ELSE lah.totalCount END) as avgOccupation " +
-           "FROM LibraryAreaHistory lah WHERE CAST(lah.recordTime AS LocalDate) = :date " +
+           "FROM LibraryAreaHistory lah WHERE lah.recordMinute >= :fromMinute AND lah.recordMinute < :toMinute " +
            "AND lah.totalCount > 0 " +
            "GROUP BY lah.areaId, lah.areaName, lah.branchName, lah.floorName " +
            "ORDER BY avgOccupation DESC")
-    List<Object[]> findAverageOccupationByDateGroupByArea(LocalDate date);
-    
-    // 查詢特定區域最繁忙的時間段（按小時分組）
-    @Query(value = "SELECT DATEPART(HOUR, lah.record_time) as hour, AVG((lah.total_count - lah.free_count) * 100.0 / " +
-           "CASE WHEN lah.total_count = 0 THEN 1 ELSE lah.total_count END) as avgOccupation " +
-           "FROM library_areas_history lah WHERE lah.area_id = :areaId AND CAST(lah.record_time AS DATE) = :date " +
-           "AND lah.total_count > 0 " +
-           "GROUP BY DATEPART(HOUR, lah.record_time) " +
+    List<Object[]> findAverageOccupationByMinuteRangeGroupByArea(long fromMinute, long toMinute);
+
+    @Query(value = "SELECT (f.record_minute % 1440) / 60 as hour, AVG((f.total_count - f.free_count) * 100.0 / " +
+           "CASE WHEN f.total_count = 0 THEN 1 ELSE f.total_count END) as avgOccupation " +
+           "FROM library_area_history_fact f JOIN library_area_dim d ON d.area_key = f.area_key " +
+           "WHERE d.area_id = :areaId AND f.record_minute >= :fromMinute AND f.record_minute < :toMinute " +
+           "AND f.total_count > 0 " +
+           "GROUP BY (f.record_minute % 1440) / 60 " +
            "ORDER BY avgOccupation DESC", nativeQuery = true)
-    List<Object[]> findBusiestHoursByAreaAndDate(String areaId, LocalDate date);
-    
-    // 查詢特定分館最繁忙的時間段（按小時分組）
-    @Query(value = "SELECT DATEPART(HOUR, lah.record_time) as hour, AVG((lah.total_count - lah.free_count) * 100.0 / " +
-           "CASE WHEN lah.total_count = 0 THEN 1 ELSE lah.total_count END) as avgOccupation " +
-           "FROM library_areas_history lah WHERE lah.branch_name = :branchName AND CAST(lah.record_time AS DATE) = :date " +
-           "AND lah.total_count > 0 " +
-           "GROUP BY DATEPART(HOUR, lah.record_time) " +
+    List<Object[]> findBusiestHoursByAreaAndMinuteRange(String areaId, long fromMinute, long toMinute);
+
+    @Query(value = "SELECT (f.record_minute % 1440) / 60 as hour, AVG((f.total_count - f.free_count) * 100.0 / " +
+           "CASE WHEN f.total_count = 0 THEN 1 ELSE f.total_count END) as avgOccupation " +
+           "FROM library_area_history_fact f JOIN library_area_dim d ON d.area_key = f.area_key " +
+           "WHERE d.branch_name = :branchName AND f.record_minute >= :fromMinute AND f.record_minute < :toMinute " +
+           "AND f.total_count > 0 " +
+           "GROUP BY (f.record_minute % 1440) / 60 " +
            "ORDER BY hour ASC", nativeQuery = true)
-    List<Object[]> findBusiestHoursByBranchAndDate(String branchName, LocalDate date);
-    
-    // 計算特定時間之前的記錄數量
-    long countByRecordTimeBefore(LocalDateTime dateTime);
-    
-    // 刪除特定時間之前的記錄
-    @Modifying
-    @Transactional
-    @Query("DELETE FROM LibraryAreaHistory lah WHERE lah.recordTime < :dateTime")
-    int deleteByRecordTimeBefore(LocalDateTime dateTime);
-} 
\ No newline at end of file
+    List<Object[]> findBusiestHoursByBranchAndMinuteRange(String branchName, long fromMinute, long toMinute);
+
+    // 多個區域在分鐘序號範圍內每日每小時的平均使用率與筆數：區域編號、日序、小時、平均使用率、筆數
+    @Query(value = "SELECT d.area_id, f.record_minute / 1440 as day, (f.record_minute % 1440) / 60 as hour, " +
+           "AVG((f.total_count - f.free_count) * 100.0 / f.total_count) as avgOccupation, COUNT(*) as samples " +
+           "FROM library_area_history_fact f JOIN library_area_dim d ON d.area_key = f.area_key " +
+           "WHERE d.area_id IN (:areaIds) AND f.record_minute >= :fromMinute AND f.record_minute < :toMinute " +
+           "AND f.total_count > 0 " +
+           "GROUP BY d.area_id, f.record_minute / 1440, (f.record_minute % 1440) / 60 " +
+           "ORDER BY d.area_id, day, hour", nativeQuery = true)
+    List<Object[]> findHourlyOccupationByAreaIdsAndMinuteRange(Collection<String> areaIds, long fromMinute, long toMinute);
+
+    // 多個分館在分鐘序號範圍內每日每小時的平均使用率與筆數：分館名稱、日序、小時、平均使用率、筆數
+    @Query(value = "SELECT d.branch_name, f.record_minute / 1440 as day, (f.record_minute % 1440) / 60 as hour, " +
+           "AVG((f.total_count - f.free_count) * 100.0 / f.total_count) as avgOccupation, COUNT(*) as samples " +
+           "FROM library_area_history_fact f JOIN library_area_dim d ON d.area_key = f.area_key " +
+           "WHERE d.branch_name IN (:branchNames) AND f.record_minute >= :fromMinute AND f.record_minute < :toMinute " +
+           "AND f.total_count > 0 " +
+           "GROUP BY d.branch_name, f.record_minute / 1440, (f.record_minute % 1440) / 60 " +
+           "ORDER BY d.branch_name, day, hour", nativeQuery = true)
+    List<Object[]> findHourlyOccupationByBranchNamesAndMinuteRange(Collection<String> branchNames, long fromMinute, long toMinute);
+
+    // 1970-01-01 為星期四，(日序 + 3) % 7 即以星期一為0；與前一筆相隔超過10分鐘的記錄（例如隔夜）不列入計算
+    @Query(value = "SELECT (t.record_minute / 1440 + 3) % 7 as weekday, (t.record_minute % 1440) / 60 as hour, " +
+           "AVG(ABS(t.delta) * 1.0 / CASE WHEN t.gap_minutes < 1 THEN 1 ELSE t.gap_minutes END) as changeRate " +
+           "FROM (SELECT f.record_minute, " +
+           "f.free_count - LAG(f.free_count) OVER (PARTITION BY f.area_key ORDER BY f.record_minute) as delta, " +
+           "f.record_minute - LAG(f.record_minute) OVER (PARTITION BY f.area_key ORDER BY f.record_minute) as gap_minutes " +
+           "FROM library_area_history_fact f WHERE f.record_minute >= :sinceMinute) t " +
+           "WHERE t.delta IS NOT NULL AND t.gap_minutes <= 10 " +
+           "GROUP BY (t.record_minute / 1440 + 3) % 7, (t.record_minute % 1440) / 60", nativeQuery = true)
+    List<Object[]> findChangeRateProfileSinceMinute(long sinceMinute);
+
+    private static long startMinute(LocalDate date) {
+        return LibraryAreaHistory.toMinuteBucket(date.atStartOfDay());
+    }
+}
@@ -0,0 +1,164 @@
+package com.library.demo.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import com.library.demo.dto.LibraryAreaHistorySeriesDTO;
+import com.library.demo.model.LibraryAreaHistory;
+
+/**
+ * 以欄式序列讀取歷史記錄
+ * 依事實表主鍵 (area_key, record_minute) 的順序逐列讀入每個區域的基本型別陣列，
+ * 不為每一列建立物件；區域資訊最後從維度表一次補上，只取範圍內有記錄的區域。
+ * 指定 maxPoints 時在讀取的同時以 LTTB 降採樣，每個區域最多保留 maxPoints 筆
+ */
+@Repository
+public class LibraryAreaHistorySeriesRepository {
+
+    private static final String SELECT_FACTS =
+            "SELECT f.area_key, f.record_minute, f.free_count, f.total_count FROM library_area_history_fact f " +
+            "WHERE f.record_minute >= ? AND f.record_minute < ? ORDER BY f.area_key, f.record_minute";
+
+    private static final String SELECT_AREA_FACTS =
+            "SELECT f.area_key, f.record_minute, f.free_count, f.total_count FROM library_area_history_fact f " +
+            "WHERE f.area_key = (SELECT d.area_key FROM library_area_dim d WHERE d.area_id = ?) " +
+            "AND f.record_minute >= ? AND f.record_minute < ? ORDER BY f.record_minute";
+
+    // 以事實表主鍵逐一確認區域在範圍內有記錄，不把區域代號當成參數傳入，避免超過 SQL Server 的 2100 個參數上限
+    private static final String SELECT_DIMENSIONS =
+            "SELECT d.area_key, d.area_id, d.branch_name, d.floor_name, d.area_name FROM library_area_dim d " +
+            "WHERE EXISTS (SELECT 1 FROM library_area_history_fact f " +
+            "WHERE f.area_key = d.area_key AND f.record_minute >= ? AND f.record_minute < ?)";
+
+    private static final String SELECT_AREA_DIMENSION =
+            "SELECT d.area_key, d.area_id, d.branch_name, d.floor_name, d.area_name FROM library_area_dim d WHERE d.area_id = ?";
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 查詢分鐘序號範圍 [fromMinute, toMinute) 內的歷史記錄，每個區域一個序列
+     * @param areaId 區域編號，null 表示所有區域
+     * @return 依區域編號排序的序列，沒有記錄的區域不列入
+     */
+    public List<LibraryAreaHistorySeriesDTO> find(String areaId, long fromMinute, long toMinute) {
+        return find(areaId, fromMinute, toMinute, null);
+    }
+
+    /**
+     * 查詢並降採樣歷史記錄，每個區域最多保留 maxPoints 筆
+     * @param maxPoints null 或不小於範圍內的分鐘數時不降採樣
+     */
+    public List<LibraryAreaHistorySeriesDTO> find(String areaId, long fromMinute, long toMinute, Integer maxPoints) {
+        // 每分鐘最多一筆記錄，範圍內的分鐘數不超過上限時不需要降採樣
+        Integer limit = maxPoints != null && maxPoints < toMinute - fromMinute ? maxPoints : null;
+        Map<Integer, SeriesBuilder> builders = new LinkedHashMap<>();
+        SeriesBuilder[] current = new SeriesBuilder[1];
+        RowCallbackHandler handler = rs -> {
+            int areaKey = rs.getInt(1);
+            SeriesBuilder builder = current[0];
+            if (builder == null || builder.areaKey != areaKey) {
+                builder = builders.computeIfAbsent(areaKey, key -> new SeriesBuilder(key, fromMinute, toMinute, limit));
+                current[0] = builder;
+            }
+            builder.add(rs.getLong(2), rs.getInt(3), rs.getInt(4));
+        };
+        if (areaId != null) {
+            jdbcTemplate.query(SELECT_AREA_FACTS, handler, areaId, fromMinute, toMinute);
+        } else {
+            jdbcTemplate.query(SELECT_FACTS, handler, fromMinute, toMinute);
+        }
+        if (builders.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<LibraryAreaHistorySeriesDTO> result = new ArrayList<>(builders.size());
+        RowCallbackHandler dimensionHandler = rs -> {
+            // 讀完事實表後才寫入的記錄不在序列中
+            SeriesBuilder builder = builders.get(rs.getInt(1));
+            if (builder == null) {
+                return;
+            }
+            LibraryAreaHistorySeriesDTO dto = builder.build();
+            dto.setAreaId(rs.getString(2));
+            dto.setBranchName(rs.getString(3));
+            dto.setFloorName(rs.getString(4));
+            dto.setAreaName(rs.getString(5));
+            result.add(dto);
+        };
+        if (areaId != null) {
+            jdbcTemplate.query(SELECT_AREA_DIMENSION, dimensionHandler, areaId);
+        } else {
+            jdbcTemplate.query(SELECT_DIMENSIONS, dimensionHandler, fromMinute, toMinute);
+        }
+        result.sort(Comparator.comparing(LibraryAreaHistorySeriesDTO::getAreaId));
+        return result;
+    }
+
+    /**
+     * 單一區域的可增長陣列，以第一筆記錄的分鐘序號為起點
+     */
+    private static class SeriesBuilder {
+        private final int areaKey;
+        private final LttbDownsampler downsampler;
+        private long startMinute;
+        private int size;
+        private int[] minuteOffsets = new int[INITIAL_CAPACITY];
+        private int[] freeCounts = new int[INITIAL_CAPACITY];
+        private int[] totalCounts = new int[INITIAL_CAPACITY];
+
+        SeriesBuilder(int areaKey, long fromMinute, long toMinute, Integer maxPoints) {
+            this.areaKey = areaKey;
+            this.downsampler = maxPoints != null
+                    ? new LttbDownsampler(fromMinute, toMinute, maxPoints, this::append)
+                    : null;
+        }
+
+        void add(long recordMinute, int freeCount, int totalCount) {
+            if (downsampler != null) {
+                downsampler.add(recordMinute, freeCount, totalCount);
+            } else {
+                append(recordMinute, freeCount, totalCount);
+            }
+        }
+
+        private void append(long recordMinute, int freeCount, int totalCount) {
+            if (size == 0) {
+                startMinute = recordMinute;
+            }
+            if (size == minuteOffsets.length) {
+                int capacity = size * 2;
+                minuteOffsets = Arrays.copyOf(minuteOffsets, capacity);
+                freeCounts = Arrays.copyOf(freeCounts, capacity);
+                totalCounts = Arrays.copyOf(totalCounts, capacity);
+            }
+            minuteOffsets[size] = (int) (recordMinute - startMinute);
+            freeCounts[size] = freeCount;
+            totalCounts[size] = totalCount;
+            size++;
+        }
+
+        LibraryAreaHistorySeriesDTO build() {
+            if (downsampler != null) {
+                downsampler.finish();
+            }
+            LibraryAreaHistorySeriesDTO dto = new LibraryAreaHistorySeriesDTO();
+            dto.setStartTime(LibraryAreaHistory.fromMinuteBucket(startMinute));
+            dto.setMinuteOffsets(Arrays.copyOf(minuteOffsets, size));
+            dto.setFreeCounts(Arrays.copyOf(freeCounts, size));
+            dto.setTotalCounts(Arrays.copyOf(totalCounts, size));
+            return dto;
+        }
+    }
+}
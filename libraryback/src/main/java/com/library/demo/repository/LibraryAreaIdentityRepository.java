@@ -0,0 +1,14 @@
+package com.library.demo.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.library.demo.model.LibraryAreaIdentity;
+
+@Repository
+public interface LibraryAreaIdentityRepository extends JpaRepository<LibraryAreaIdentity, Integer> {
+
+    Optional<LibraryAreaIdentity> findByNamespaceAndNaturalKey(String namespace, String naturalKey);
+}
@@ -1,6 +1,10 @@
 package com.library.demo.repository;
 
+import java.util.Collection;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.library.demo.model.LibraryBranch;
@@ -8,4 +12,8 @@ import com.library.demo.model.LibraryBranch;
 @Repository
 public interface LibraryBranchRepository extends JpaRepository<LibraryBranch, String> {
     
-} 
\ No newline at end of file
+    // 只更新開放狀態，不需先載入實體，也不會覆寫營業時間
+    @Modifying
+    @Query("UPDATE LibraryBranch b SET b.isOpen = :open WHERE b.branchName IN :branchNames")
+    int updateOpenFlags(Collection<String> branchNames, boolean open);
+}
@@ -0,0 +1,173 @@
+package com.library.demo.repository;
+
+import java.util.Arrays;
+
+/**
+ * 以 Largest-Triangle-Three-Buckets 逐筆降採樣單一區域的歷史記錄
+ * 查詢範圍依時間平均切成 maxPoints - 2 個區間，第一筆與最後一筆一定保留，
+ * 每個有記錄的區間保留一筆與前一個保留點、下一個區間平均點構成最大三角形的記錄；
+ * 以使用率作為縱軸，因此尖峰與低谷會被保留。
+ * 記錄須依時間順序加入，任何時候只暫存兩個區間的記錄
+ */
+class LttbDownsampler {
+
+    /**
+     * 接收保留下來的記錄
+     */
+    interface Sink {
+        void add(long recordMinute, int freeCount, int totalCount);
+    }
+
+    private final long fromMinute;
+    private final double bucketMinutes;
+    private final int lastBucket;
+    private final Sink sink;
+
+    private boolean started;
+    // 上一個保留點
+    private long selectedMinute;
+    private double selectedRate;
+    // 最近加入、尚未決定所屬區間的一筆，結束時作為最後一筆保留
+    private boolean hasLatest;
+    private long latestMinute;
+    private int latestFree;
+    private int latestTotal;
+    // 等待下一個區間平均點才能選出保留點的區間，以及正在累積的區間
+    private Bucket pending = new Bucket();
+    private Bucket filling = new Bucket();
+
+    /**
+     * @param maxPoints 保留的記錄數上限，至少為3
+     * @throws IllegalArgumentException maxPoints 小於3，沒有可供選點的中間區間
+     */
+    LttbDownsampler(long fromMinute, long toMinute, int maxPoints, Sink sink) {
+        if (maxPoints < 3) {
+            throw new IllegalArgumentException("maxPoints 至少為 3: " + maxPoints);
+        }
+        this.fromMinute = fromMinute;
+        this.bucketMinutes = (double) (toMinute - fromMinute) / (maxPoints - 2);
+        this.lastBucket = maxPoints - 3;
+        this.sink = sink;
+    }
+
+    void add(long recordMinute, int freeCount, int totalCount) {
+        if (!started) {
+            started = true;
+            selectedMinute = recordMinute;
+            selectedRate = rate(freeCount, totalCount);
+            sink.add(recordMinute, freeCount, totalCount);
+            return;
+        }
+        if (hasLatest) {
+            place(latestMinute, latestFree, latestTotal);
+        }
+        hasLatest = true;
+        latestMinute = recordMinute;
+        latestFree = freeCount;
+        latestTotal = totalCount;
+    }
+
+    /**
+     * 輸出剩下的區間與最後一筆記錄
+     */
+    void finish() {
+        if (!hasLatest) {
+            return;
+        }
+        double latestRate = rate(latestFree, latestTotal);
+        if (pending.size > 0) {
+            if (filling.size > 0) {
+                select(pending, filling.averageMinute(), filling.averageRate());
+            } else {
+                select(pending, latestMinute, latestRate);
+            }
+        }
+        if (filling.size > 0) {
+            select(filling, latestMinute, latestRate);
+        }
+        sink.add(latestMinute, latestFree, latestTotal);
+        hasLatest = false;
+    }
+
+    private void place(long recordMinute, int freeCount, int totalCount) {
+        int bucket = (int) Math.min(lastBucket, Math.max(0, (long) ((recordMinute - fromMinute) / bucketMinutes)));
+        if (filling.size > 0 && bucket != filling.index) {
+            // 正在累積的區間已完整，可以用它的平均點為前一個區間選出保留點
+            if (pending.size > 0) {
+                select(pending, filling.averageMinute(), filling.averageRate());
+            }
+            Bucket completed = filling;
+            filling = pending;
+            pending = completed;
+            filling.clear();
+        }
+        filling.index = bucket;
+        filling.add(recordMinute, freeCount, totalCount, rate(freeCount, totalCount));
+    }
+
+    private void select(Bucket bucket, double nextMinute, double nextRate) {
+        int best = 0;
+        double bestArea = -1;
+        for (int i = 0; i < bucket.size; i++) {
+            // 省略 1/2，只比較大小
+            double area = Math.abs((selectedMinute - nextMinute) * (bucket.rates[i] - selectedRate)
+                    - (selectedMinute - bucket.minutes[i]) * (nextRate - selectedRate));
+            if (area > bestArea) {
+                bestArea = area;
+                best = i;
+            }
+        }
+        selectedMinute = bucket.minutes[best];
+        selectedRate = bucket.rates[best];
+        sink.add(bucket.minutes[best], bucket.freeCounts[best], bucket.totalCounts[best]);
+        bucket.clear();
+    }
+
+    private static double rate(int freeCount, int totalCount) {
+        return totalCount == 0 ? 0 : (double) (totalCount - freeCount) / totalCount * 100;
+    }
+
+    private static class Bucket {
+        private int index;
+        private int size;
+        private long[] minutes = new long[16];
+        private int[] freeCounts = new int[16];
+        private int[] totalCounts = new int[16];
+        private double[] rates = new double[16];
+
+        void add(long minute, int freeCount, int totalCount, double rate) {
+            if (size == minutes.length) {
+                int capacity = size * 2;
+                minutes = Arrays.copyOf(minutes, capacity);
+                freeCounts = Arrays.copyOf(freeCounts, capacity);
+                totalCounts = Arrays.copyOf(totalCounts, capacity);
+                rates = Arrays.copyOf(rates, capacity);
+            }
+            minutes[size] = minute;
+            freeCounts[size] = freeCount;
+            totalCounts[size] = totalCount;
+            rates[size] = rate;
+            size++;
+        }
+
+        double averageMinute() {
+            double sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += minutes[i];
+            }
+            return sum / size;
+        }
+
+        double averageRate() {
+            double sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += rates[i];
+            }
+            return sum / size;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
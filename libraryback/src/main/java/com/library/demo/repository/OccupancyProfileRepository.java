@@ -0,0 +1,34 @@
+package com.library.demo.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.library.demo.model.OccupancyProfile;
+
+@Repository
+public interface OccupancyProfileRepository extends JpaRepository<OccupancyProfile, String> {
+
+    // 從歷史記錄彙總各區域依星期幾（0為星期一）與15分鐘時段的使用率總和與筆數
+    @Query(value = "SELECT d.area_id, (f.record_minute / 1440 + 3) % 7 as weekday, (f.record_minute % 1440) / 15 as slot, " +
+           "SUM((f.total_count - f.free_count) * 100.0 / f.total_count) as occupationSum, COUNT(*) as samples, " +
+           "MAX(f.record_minute) as lastMinute " +
+           "FROM library_area_history_fact f JOIN library_area_dim d ON d.area_key = f.area_key " +
+           "WHERE f.record_minute >= :sinceMinute AND f.total_count > 0 " +
+           "GROUP BY d.area_id, (f.record_minute / 1440 + 3) % 7, (f.record_minute % 1440) / 15", nativeQuery = true)
+    List<Object[]> aggregateAreaProfilesSince(long sinceMinute);
+
+    // 同上，分館的使用率為同一分鐘內所有區域合計的使用座位數除以總座位數
+    @Query(value = "SELECT t.branch_name, (t.record_minute / 1440 + 3) % 7 as weekday, (t.record_minute % 1440) / 15 as slot, " +
+           "SUM(t.used_count * 100.0 / t.total_count) as occupationSum, COUNT(*) as samples, " +
+           "MAX(t.record_minute) as lastMinute " +
+           "FROM (SELECT d.branch_name, f.record_minute, SUM(f.total_count - f.free_count) as used_count, " +
+           "SUM(f.total_count) as total_count " +
+           "FROM library_area_history_fact f JOIN library_area_dim d ON d.area_key = f.area_key " +
+           "WHERE f.record_minute >= :sinceMinute GROUP BY d.branch_name, f.record_minute) t " +
+           "WHERE t.total_count > 0 " +
+           "GROUP BY t.branch_name, (t.record_minute / 1440 + 3) % 7, (t.record_minute % 1440) / 15", nativeQuery = true)
+    List<Object[]> aggregateBranchProfilesSince(long sinceMinute);
+}
@@ -0,0 +1,31 @@
+package com.library.demo.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.library.demo.model.SnapshotVersion;
+
+@Repository
+public interface SnapshotVersionRepository extends JpaRepository<SnapshotVersion, String> {
+
+    // 遞增快照版本；fencing token 小於最後寫入者的請求不會更新任何資料列
+    @Modifying
+    @Transactional
+    @Query("UPDATE SnapshotVersion v SET v.version = v.version + 1, v.fencingToken = :fencingToken, " +
+           "v.recordTime = :recordTime, v.live = :live, " +
+           "v.liveRecordTime = CASE WHEN :live = true THEN :recordTime ELSE v.liveRecordTime END " +
+           "WHERE v.versionName = :versionName AND v.fencingToken <= :fencingToken")
+    int advance(String versionName, long fencingToken, LocalDateTime recordTime, boolean live);
+
+    // 只遞增版本，用於不對應快照的維護世代
+    @Modifying
+    @Transactional
+    @Query("UPDATE SnapshotVersion v SET v.version = v.version + 1, v.fencingToken = :fencingToken " +
+           "WHERE v.versionName = :versionName AND v.fencingToken <= :fencingToken")
+    int advanceGeneration(String versionName, long fencingToken);
+}
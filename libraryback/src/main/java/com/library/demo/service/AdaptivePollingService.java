@@ -0,0 +1,302 @@
+package com.library.demo.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.library.demo.event.SnapshotSavedEvent;
+import com.library.demo.model.LibraryArea;
+import com.library.demo.repository.LibraryAreaHistoryRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * 依座位變化率調整擷取間隔
+ * 變化率取自最近幾次快照的剩餘座位變化量，並與依星期幾及小時學習到的歷史變化率混合，
+ * 座位變動越快間隔越短，冷清時段則拉長間隔以節省上游請求與資料庫寫入
+ */
+@Service
+public class AdaptivePollingService {
+
+    // 原本固定每分鐘擷取一次，作為節省量的比較基準
+    private static final double BASELINE_INTERVAL_SECONDS = 60;
+
+    // 最近快照變化率在混合時所佔的權重
+    private static final double RECENT_WEIGHT = 0.6;
+
+    // 歷史變化率的學習速度
+    private static final double PROFILE_LEARNING_RATE = 0.1;
+
+    @Value("${library.polling.min-interval-seconds:15}")
+    private int minIntervalSeconds;
+
+    @Value("${library.polling.max-interval-seconds:300}")
+    private int maxIntervalSeconds;
+
+    // 期望每次擷取之間，每個區域平均變化的座位數
+    @Value("${library.polling.target-change-per-poll:0.5}")
+    private double targetChangePerPoll;
+
+    @Value("${library.polling.recent-snapshots:5}")
+    private int recentSnapshotCount;
+
+    @Value("${library.polling.profile-weeks:4}")
+    private int profileWeeks;
+
+    @Autowired
+    private LibraryAreaHistoryRepository libraryAreaHistoryRepository;
+
+    @Autowired
+    private IngestionCoordinator ingestionCoordinator;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private Clock clock;
+
+    // 最近幾次即時快照：記錄時間與各區域剩餘座位
+    private final Deque<RecentSnapshot> recentSnapshots = new ArrayDeque<>();
+
+    // 依星期幾（0為星期一）與小時學習到的變化率，NaN 表示尚無資料
+    private final double[][] changeRateProfile = new double[7][24];
+
+    private volatile long effectiveIntervalSeconds = (long) BASELINE_INTERVAL_SECONDS;
+
+    private Counter pollCounter;
+    private Counter baselinePollCounter;
+
+    @PostConstruct
+    public void registerMetrics() {
+        for (double[] hours : changeRateProfile) {
+            Arrays.fill(hours, Double.NaN);
+        }
+
+        Gauge.builder("library.ingest.interval", this, service -> service.effectiveIntervalSeconds)
+                .description("目前生效的擷取間隔")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        pollCounter = Counter.builder("library.ingest.polls")
+                .description("實際向上游擷取的次數")
+                .register(meterRegistry);
+        baselinePollCounter = Counter.builder("library.ingest.polls.baseline")
+                .description("同一段時間內固定每分鐘擷取會發出的次數")
+                .register(meterRegistry);
+        Gauge.builder("library.ingest.polls.saved", this,
+                        service -> service.baselinePollCounter.count() - service.pollCounter.count())
+                .description("相較固定每分鐘擷取所節省的上游請求次數")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 啟動後從近幾週的歷史記錄建立變化率分佈
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadChangeRateProfile() {
+        try {
+            LocalDateTime since = now().minusWeeks(profileWeeks);
+            List<Object[]> rows = libraryAreaHistoryRepository.findChangeRateProfileSince(since);
+            synchronized (changeRateProfile) {
+                for (Object[] row : rows) {
+                    int weekday = ((Number) row[0]).intValue();
+                    int hour = ((Number) row[1]).intValue();
+                    changeRateProfile[weekday][hour] = ((Number) row[2]).doubleValue();
+                }
+            }
+            System.out.println("已從近" + profileWeeks + "週歷史記錄載入座位變化率分佈，時段數: " + rows.size());
+        } catch (Exception e) {
+            System.err.println("載入座位變化率分佈失敗，改為只依最近快照調整: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 收到即時快照時更新最近變化率，並學習到對應時段的分佈
+     * 只計算本次實際擷取且開館中的區域；閉館分館與本次未擷取到的座位來源保留的區域不會變動，會稀釋變化率。
+     * 合併期限後才回應的來源與同一次快照的記錄時間相同，併入該次快照計算
+     */
+    @EventListener
+    public void onSnapshotSaved(SnapshotSavedEvent event) {
+        if (!event.isLive() || event.getHistoryAreas().isEmpty()) {
+            return;
+        }
+        Map<String, Integer> freeCounts = new HashMap<>();
+        for (LibraryArea area : event.getHistoryAreas()) {
+            freeCounts.put(area.getAreaId(), area.getFreeCount());
+        }
+
+        synchronized (recentSnapshots) {
+            RecentSnapshot last = recentSnapshots.peekLast();
+            if (last != null && last.recordTime.equals(event.getRecordTime())) {
+                last.freeCounts.putAll(freeCounts);
+                return;
+            }
+            RecentSnapshot snapshot = new RecentSnapshot(event.getRecordTime(), freeCounts);
+            if (last != null) {
+                double rate = changeRate(last, snapshot);
+                if (!Double.isNaN(rate)) {
+                    learn(event.getRecordTime(), rate);
+                }
+            }
+            recentSnapshots.addLast(snapshot);
+            while (recentSnapshots.size() > recentSnapshotCount) {
+                recentSnapshots.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * 記錄一次實際的上游擷取，用於統計節省量
+     */
+    public void recordPoll() {
+        pollCounter.increment();
+        baselinePollCounter.increment(effectiveIntervalSeconds / BASELINE_INTERVAL_SECONDS);
+    }
+
+    /**
+     * 計算下一次擷取前的等待時間（以應用程式時鐘計算）
+     * 所有分館都閉館時回到每分鐘整點檢查一次
+     */
+    public Duration nextInterval() {
+        LocalDateTime now = now();
+        if (!ingestionCoordinator.isSchedulerEnabled()) {
+            return Duration.between(now, now.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1));
+        }
+
+        double recentRate = recentChangeRate();
+        // 同時參考下一個時段，讓開館或尖峰前就先縮短間隔
+        double profileRate = maxIgnoringNaN(profileRate(now), profileRate(now.plusSeconds(effectiveIntervalSeconds)));
+
+        double rate;
+        if (Double.isNaN(recentRate) && Double.isNaN(profileRate)) {
+            // 尚無任何資料時維持原本每分鐘一次
+            effectiveIntervalSeconds = clamp((long) BASELINE_INTERVAL_SECONDS);
+            return Duration.ofSeconds(effectiveIntervalSeconds);
+        } else if (Double.isNaN(recentRate)) {
+            rate = profileRate;
+        } else if (Double.isNaN(profileRate)) {
+            rate = recentRate;
+        } else {
+            rate = RECENT_WEIGHT * recentRate + (1 - RECENT_WEIGHT) * profileRate;
+        }
+
+        long seconds = rate <= 0 ? maxIntervalSeconds : Math.round(targetChangePerPoll / rate * 60);
+        effectiveIntervalSeconds = clamp(seconds);
+        return Duration.ofSeconds(effectiveIntervalSeconds);
+    }
+
+    public long getEffectiveIntervalSeconds() {
+        return effectiveIntervalSeconds;
+    }
+
+    /**
+     * 最近幾次快照的平均變化率（每區域每分鐘的座位變化量）
+     */
+    private double recentChangeRate() {
+        synchronized (recentSnapshots) {
+            double totalChange = 0;
+            double totalAreaMinutes = 0;
+            RecentSnapshot previous = null;
+            for (RecentSnapshot snapshot : recentSnapshots) {
+                if (previous != null) {
+                    double minutes = minutesBetween(previous, snapshot);
+                    // 跳過間隔過長的快照（例如隔夜），避免把閉館期間算成低變化率
+                    if (minutes > 0 && minutes <= 2.0 * maxIntervalSeconds / 60) {
+                        for (Map.Entry<String, Integer> entry : snapshot.freeCounts.entrySet()) {
+                            Integer before = previous.freeCounts.get(entry.getKey());
+                            if (before != null) {
+                                totalChange += Math.abs(entry.getValue() - before);
+                                totalAreaMinutes += minutes;
+                            }
+                        }
+                    }
+                }
+                previous = snapshot;
+            }
+            return totalAreaMinutes == 0 ? Double.NaN : totalChange / totalAreaMinutes;
+        }
+    }
+
+    /**
+     * 兩次快照之間的變化率
+     */
+    private double changeRate(RecentSnapshot previous, RecentSnapshot current) {
+        double minutes = minutesBetween(previous, current);
+        if (minutes <= 0 || minutes > 2.0 * maxIntervalSeconds / 60) {
+            return Double.NaN;
+        }
+        double totalChange = 0;
+        int areaCount = 0;
+        for (Map.Entry<String, Integer> entry : current.freeCounts.entrySet()) {
+            Integer before = previous.freeCounts.get(entry.getKey());
+            if (before != null) {
+                totalChange += Math.abs(entry.getValue() - before);
+                areaCount++;
+            }
+        }
+        return areaCount == 0 ? Double.NaN : totalChange / areaCount / minutes;
+    }
+
+    private void learn(LocalDateTime time, double rate) {
+        int weekday = time.getDayOfWeek().getValue() - 1;
+        int hour = time.getHour();
+        synchronized (changeRateProfile) {
+            double learned = changeRateProfile[weekday][hour];
+            changeRateProfile[weekday][hour] = Double.isNaN(learned)
+                    ? rate
+                    : learned + PROFILE_LEARNING_RATE * (rate - learned);
+        }
+    }
+
+    private double profileRate(LocalDateTime time) {
+        synchronized (changeRateProfile) {
+            return changeRateProfile[time.getDayOfWeek().getValue() - 1][time.getHour()];
+        }
+    }
+
+    private double maxIgnoringNaN(double a, double b) {
+        if (Double.isNaN(a)) return b;
+        if (Double.isNaN(b)) return a;
+        return Math.max(a, b);
+    }
+
+    private double minutesBetween(RecentSnapshot previous, RecentSnapshot current) {
+        return Duration.between(previous.recordTime, current.recordTime).getSeconds() / 60.0;
+    }
+
+    private long clamp(long seconds) {
+        return Math.max(minIntervalSeconds, Math.min(maxIntervalSeconds, seconds));
+    }
+
+    private LocalDateTime now() {
+        return LocalDateTime.now(clock);
+    }
+
+    /**
+     * 最近快照的精簡紀錄
+     */
+    private static class RecentSnapshot {
+        private final LocalDateTime recordTime;
+        private final Map<String, Integer> freeCounts;
+
+        RecentSnapshot(LocalDateTime recordTime, Map<String, Integer> freeCounts) {
+            this.recordTime = recordTime;
+            this.freeCounts = freeCounts;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.library.demo.service;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * 會呼叫上游或改寫資料表的端點的准入控制
+ * 所有受控端點共用固定數量的執行名額，名額用完時依優先順序排隊，排隊已滿或等候逾時回應 503；
+ * 佇列已滿而新請求的優先順序較高時，淘汰佇列中優先順序最低的請求。
+ * 每個用戶端另以權杖桶限制頻率，超過時回應 429；兩者都附上 Retry-After
+ */
+@Service
+public class AdmissionControlService {
+
+    /**
+     * 排隊的優先順序，數值小者先執行
+     */
+    public enum Priority { HIGH, NORMAL, LOW }
+
+    // 用戶端權杖桶超過此數量時清除已補滿的桶
+    private static final int MAX_TRACKED_CLIENTS = 10000;
+
+    @Value("${library.admission.max-concurrent:2}")
+    private int maxConcurrent;
+
+    @Value("${library.admission.queue-capacity:8}")
+    private int queueCapacity;
+
+    @Value("${library.admission.max-wait-seconds:10}")
+    private int maxWaitSeconds;
+
+    @Value("${library.admission.retry-after-seconds:30}")
+    private int retryAfterSeconds;
+
+    @Value("${library.admission.client-requests-per-minute:6}")
+    private int clientRequestsPerMinute;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final PriorityQueue<Waiter> waiting = new PriorityQueue<>(
+            Comparator.comparing((Waiter waiter) -> waiter.priority).thenComparingLong(waiter -> waiter.sequence));
+    private int active;
+    private long nextSequence;
+
+    private final Map<String, TokenBucket> clientBuckets = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("library.admission.active", this, service -> service.active)
+                .description("受控端點正在執行的請求數")
+                .register(meterRegistry);
+        Gauge.builder("library.admission.queued", waiting, PriorityQueue::size)
+                .description("受控端點排隊中的請求數")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 取得執行名額後執行
+     * @param route 端點名稱，用於指標與日誌
+     * @param client 用戶端識別，通常為來源位址
+     * @throws RejectedException 用戶端超過頻率限制（429），或名額與佇列已滿、等候逾時（503）
+     */
+    public <T> T execute(String route, Priority priority, String client, Supplier<T> work) {
+        long waitSeconds = clientBucket(client).tryAcquire();
+        if (waitSeconds > 0) {
+            count(route, "throttled");
+            throw new RejectedException(HttpStatus.TOO_MANY_REQUESTS, waitSeconds, "請求過於頻繁，請稍後再試");
+        }
+        acquire(route, priority);
+        count(route, "admitted");
+        try {
+            return work.get();
+        } finally {
+            release();
+        }
+    }
+
+    private void acquire(String route, Priority priority) {
+        lock.lock();
+        try {
+            if (active < maxConcurrent && waiting.isEmpty()) {
+                active++;
+                return;
+            }
+            if (waiting.size() >= queueCapacity) {
+                Waiter lowest = lowestWaiter();
+                if (lowest == null || lowest.priority.compareTo(priority) <= 0) {
+                    throw shed(route, "伺服器忙碌中，請稍後再試");
+                }
+                waiting.remove(lowest);
+                lowest.evicted = true;
+                changed.signalAll();
+            }
+            Waiter waiter = new Waiter(priority, nextSequence++);
+            waiting.add(waiter);
+            long remaining = TimeUnit.SECONDS.toNanos(maxWaitSeconds);
+            while (true) {
+                if (waiter.evicted) {
+                    throw shed(route, "伺服器忙碌中，已讓位給較優先的請求");
+                }
+                if (waiting.peek() == waiter && active < maxConcurrent) {
+                    waiting.poll();
+                    active++;
+                    // 名額可能不只一個，讓下一位也檢查
+                    changed.signalAll();
+                    return;
+                }
+                if (remaining <= 0) {
+                    waiting.remove(waiter);
+                    changed.signalAll();
+                    throw shed(route, "等候逾時，請稍後再試");
+                }
+                try {
+                    remaining = changed.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    waiting.remove(waiter);
+                    changed.signalAll();
+                    Thread.currentThread().interrupt();
+                    throw shed(route, "等候時被中斷");
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            active--;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Waiter lowestWaiter() {
+        Waiter lowest = null;
+        for (Waiter waiter : waiting) {
+            if (lowest == null || waiter.priority.compareTo(lowest.priority) > 0
+                    || (waiter.priority == lowest.priority && waiter.sequence > lowest.sequence)) {
+                lowest = waiter;
+            }
+        }
+        return lowest;
+    }
+
+    private RejectedException shed(String route, String message) {
+        count(route, "shed");
+        return new RejectedException(HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds, message);
+    }
+
+    private TokenBucket clientBucket(String client) {
+        if (clientBuckets.size() > MAX_TRACKED_CLIENTS) {
+            clientBuckets.values().removeIf(TokenBucket::isFull);
+        }
+        return clientBuckets.computeIfAbsent(client, key -> new TokenBucket(clientRequestsPerMinute));
+    }
+
+    private void count(String route, String result) {
+        meterRegistry.counter("library.admission.requests", "route", route, "result", result).increment();
+    }
+
+    /**
+     * 被拒絕的請求，附帶回應狀態與建議的重試秒數
+     */
+    public static class RejectedException extends RuntimeException {
+        private final HttpStatus status;
+        private final long retryAfterSeconds;
+
+        public RejectedException(HttpStatus status, long retryAfterSeconds, String message) {
+            super(message);
+            this.status = status;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public HttpStatus getStatus() {
+            return status;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+
+    private static class Waiter {
+        private final Priority priority;
+        private final long sequence;
+        private boolean evicted;
+
+        Waiter(Priority priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * 每分鐘補充固定數量權杖的桶，容量等於每分鐘的數量
+     */
+    private static class TokenBucket {
+        private final int capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+
+        TokenBucket(int perMinute) {
+            this.capacity = perMinute;
+            this.tokensPerNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            this.tokens = perMinute;
+        }
+
+        /**
+         * @return 0 表示取得權杖，否則為需要等待的秒數
+         */
+        synchronized long tryAcquire() {
+            refill();
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano / TimeUnit.SECONDS.toNanos(1)));
+        }
+
+        synchronized boolean isFull() {
+            refill();
+            return tokens >= capacity;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.library.demo.service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.library.demo.model.LibraryArea;
+import com.library.demo.model.LibraryAreaDim;
+import com.library.demo.repository.LibraryAreaDimRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * 區域維度的快取與維護
+ * 寫入歷史記錄前把區域編號換成整數代號；新區域或名稱有變動時才寫入維度表
+ */
+@Service
+public class AreaDimensionService {
+
+    @Autowired
+    private LibraryAreaDimRepository libraryAreaDimRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // 區域編號對應的維度資料，第一次使用時從資料庫載入
+    private final Map<String, LibraryAreaDim> dimensions = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+
+    // 維度寫入使用的獨立交易，不加入呼叫端的快照交易
+    private TransactionTemplate writeTransaction;
+
+    @PostConstruct
+    public void init() {
+        writeTransaction = new TransactionTemplate(transactionManager);
+        writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 取得各區域的代號，必要時新增或更新維度
+     * 維度在獨立交易中寫入，提交後才放入快取：即使快照寫入失敗，已寫入的維度仍然有效；
+     * 維度寫入本身失敗而回滾時，快取保持原狀，不會指向不存在的代號
+     * @return 區域編號對應的代號
+     */
+    public synchronized Map<String, Integer> resolveKeys(List<LibraryArea> areas) {
+        if (!loaded) {
+            for (LibraryAreaDim dimension : libraryAreaDimRepository.findAll()) {
+                dimensions.put(dimension.getAreaId(), dimension);
+            }
+            loaded = true;
+        }
+
+        // 需要新增或更新的維度，以快取中的資料複製後修改，交易回滾時快取不受影響
+        Map<String, LibraryAreaDim> changed = new LinkedHashMap<>();
+        for (LibraryArea area : areas) {
+            LibraryAreaDim dimension = dimensions.get(area.getAreaId());
+            if (dimension == null || !dimension.sameNames(area)) {
+                LibraryAreaDim updated = new LibraryAreaDim(area);
+                updated.setAreaKey(dimension != null ? dimension.getAreaKey() : null);
+                changed.put(area.getAreaId(), updated);
+            }
+        }
+        if (!changed.isEmpty()) {
+            List<LibraryAreaDim> saved = writeTransaction.execute(status ->
+                    libraryAreaDimRepository.saveAll(changed.values()));
+            for (LibraryAreaDim dimension : saved) {
+                dimensions.put(dimension.getAreaId(), dimension);
+            }
+        }
+
+        Map<String, Integer> keys = new HashMap<>();
+        for (LibraryArea area : areas) {
+            keys.put(area.getAreaId(), dimensions.get(area.getAreaId()).getAreaKey());
+        }
+        return keys;
+    }
+
+    /**
+     * 區域維度在其他地方被改寫（例如合併孤兒區域）後，下次使用時重新載入
+     */
+    public synchronized void reload() {
+        dimensions.clear();
+        loaded = false;
+    }
+}
@@ -0,0 +1,336 @@
+package com.library.demo.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.library.demo.dto.AreaOrphanDTO;
+import com.library.demo.model.LibraryArea;
+import com.library.demo.model.LibraryAreaDim;
+import com.library.demo.model.LibraryAreaIdentity;
+import com.library.demo.repository.LibraryAreaDimRepository;
+import com.library.demo.repository.LibraryAreaIdentityRepository;
+import com.library.demo.service.source.SeatSourceCatalog;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * 區域識別登記
+ * 以（座位來源前綴, 分館|樓層|區域名稱）對應穩定的區域代碼，保存在 library_area_identity 並快取於記憶體。
+ * 上游沒有區域代碼時沿用登記的代碼，從未出現過的區域以名稱雜湊產生 auto- 開頭的代碼，
+ * 多個節點或重新啟動後都會得到相同的代碼；上游之後開始提供代碼時改以上游代碼為準。
+ * 舊版以時間產生的代碼與被取代的 auto- 代碼視為孤兒，可列出並合併到目前的代碼，讓區域數量維持有限
+ */
+@Service
+public class AreaIdentityRegistry {
+
+    private static final String AUTO_PREFIX = "auto-";
+
+    // 舊版解析在缺少區域代碼時以 System.currentTimeMillis() 產生的代碼
+    private static final Pattern LEGACY_GENERATED_ID = Pattern.compile("\\d{13,}");
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    // 孤兒的歷史記錄搬到目標區域，同一分鐘目標已有記錄時保留目標的
+    private static final String MOVE_FACTS =
+            "UPDATE library_area_history_fact SET area_key = ? WHERE area_key = ? AND record_minute NOT IN " +
+            "(SELECT t.record_minute FROM library_area_history_fact t WHERE t.area_key = ?)";
+
+    private static final String DELETE_FACTS = "DELETE FROM library_area_history_fact WHERE area_key = ?";
+
+    private static final String DELETE_DIM = "DELETE FROM library_area_dim WHERE area_key = ?";
+
+    private static final String RENAME_DIM = "UPDATE library_area_dim SET area_id = ? WHERE area_key = ?";
+
+    private static final String DELETE_CURRENT = "DELETE FROM library_areas WHERE area_id = ?";
+
+    @Autowired
+    private LibraryAreaIdentityRepository libraryAreaIdentityRepository;
+
+    @Autowired
+    private LibraryAreaDimRepository libraryAreaDimRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private AreaDimensionService areaDimensionService;
+
+    @Autowired
+    private SeatSourceCatalog seatSourceCatalog;
+
+    @Autowired
+    private HistoryQueryCache historyQueryCache;
+
+    @Autowired
+    private SnapshotVersionService snapshotVersionService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 在虛擬執行緒中呼叫，以 ReentrantLock 取代 synchronized，寫入資料庫時不會佔住載體執行緒
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // 「前綴\n自然鍵」對應的區域代碼，第一次使用時從資料庫載入
+    private final Map<String, String> areaIds = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("library.area.identities", areaIds, Map::size)
+                .description("已登記的區域識別數")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 為沒有區域代碼的區域指定穩定的代碼，並登記有代碼區域的自然鍵
+     * 同一次快照中名稱相同的區域依出現順序在自然鍵後加上序號，避免合併成同一個區域
+     * @param namespace 座位來源的區域代碼前綴，有代碼的區域需已加上前綴
+     */
+    public void resolve(String namespace, List<LibraryArea> areas) {
+        Map<String, Integer> occurrences = new HashMap<>();
+        lock.lock();
+        try {
+            ensureLoaded();
+            for (LibraryArea area : areas) {
+                String naturalKey = naturalKey(area.getBranchName(), area.getFloorName(), area.getAreaName());
+                int occurrence = occurrences.merge(naturalKey, 1, Integer::sum);
+                if (occurrence > 1) {
+                    naturalKey = naturalKey + "#" + occurrence;
+                }
+                String known = areaIds.get(cacheKey(namespace, naturalKey));
+                if (area.getAreaId() == null || area.getAreaId().isEmpty()) {
+                    if (known == null) {
+                        known = namespace + autoId(naturalKey);
+                        register(namespace, naturalKey, known);
+                    }
+                    area.setAreaId(known);
+                } else if (known == null || (!known.equals(area.getAreaId()) && isAutoId(namespace, known))) {
+                    // 新的區域，或上游開始提供代碼：以上游代碼為準，原本的 auto- 代碼成為孤兒
+                    register(namespace, naturalKey, area.getAreaId());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 列出區域維度中的孤兒代碼及應合併到的代碼
+     */
+    public List<AreaOrphanDTO> findOrphans() {
+        List<AreaOrphanDTO> result = new ArrayList<>();
+        for (Orphan orphan : orphans(libraryAreaDimRepository.findAll())) {
+            AreaOrphanDTO dto = new AreaOrphanDTO();
+            dto.setAreaId(orphan.dimension().getAreaId());
+            dto.setCanonicalAreaId(orphan.canonicalAreaId());
+            dto.setBranchName(orphan.dimension().getBranchName());
+            dto.setFloorName(orphan.dimension().getFloorName());
+            dto.setAreaName(orphan.dimension().getAreaName());
+            result.add(dto);
+        }
+        return result;
+    }
+
+    /**
+     * 將孤兒代碼的歷史記錄合併到目前的代碼，並移除孤兒的維度與當前座位資料
+     * 目前的代碼還沒有維度時，第一個孤兒的維度直接改名；每個目標區域在各自的交易中處理
+     * 合併後遞增快照版本，讓各節點的當前座位快取重新載入；每天由主節點執行一次（見 SchedulingConfig）
+     * @return 合併掉的孤兒數量
+     */
+    public int mergeOrphans() {
+        List<LibraryAreaDim> dimensions = libraryAreaDimRepository.findAll();
+        Map<String, LibraryAreaDim> dimensionsById = new HashMap<>();
+        for (LibraryAreaDim dimension : dimensions) {
+            dimensionsById.put(dimension.getAreaId(), dimension);
+        }
+        Map<String, List<Orphan>> byCanonical = new LinkedHashMap<>();
+        for (Orphan orphan : orphans(dimensions)) {
+            byCanonical.computeIfAbsent(orphan.canonicalAreaId(), key -> new ArrayList<>()).add(orphan);
+        }
+        if (byCanonical.isEmpty()) {
+            return 0;
+        }
+
+        int merged = 0;
+        for (Map.Entry<String, List<Orphan>> entry : byCanonical.entrySet()) {
+            String canonicalAreaId = entry.getKey();
+            List<Orphan> group = entry.getValue();
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        mergeGroup(canonicalAreaId, dimensionsById.get(canonicalAreaId), group));
+                Orphan first = group.get(0);
+                lock.lock();
+                try {
+                    if (!areaIds.containsKey(cacheKey(first.namespace(), first.naturalKey()))) {
+                        register(first.namespace(), first.naturalKey(), canonicalAreaId);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                merged += group.size();
+            } catch (Exception e) {
+                System.err.println("合併孤兒區域到 " + canonicalAreaId + " 失敗: " + e.getMessage());
+            }
+        }
+
+        areaDimensionService.reload();
+        historyQueryCache.invalidateAll();
+        snapshotVersionService.advanceHistoryMaintenance();
+        if (merged > 0) {
+            // 孤兒的當前座位資料已刪除，讓 /current、/by-branch 與 /search 不再回傳合併掉的代碼
+            try {
+                snapshotVersionService.republishCurrentSnapshot();
+            } catch (Exception e) {
+                System.err.println("合併孤兒區域後更新快照版本失敗: " + e.getMessage());
+            }
+        }
+        meterRegistry.counter("library.area.orphans.merged").increment(merged);
+        System.out.println("合併了 " + merged + " 個孤兒區域代碼到 " + byCanonical.size() + " 個區域");
+        return merged;
+    }
+
+    private void mergeGroup(String canonicalAreaId, LibraryAreaDim target, List<Orphan> group) {
+        int start = 0;
+        if (target == null) {
+            // 目前的代碼還沒有維度，沿用第一個孤兒的區域代號
+            target = group.get(0).dimension();
+            jdbcTemplate.update(RENAME_DIM, canonicalAreaId, target.getAreaKey());
+            jdbcTemplate.update(DELETE_CURRENT, group.get(0).dimension().getAreaId());
+            start = 1;
+        }
+        for (Orphan orphan : group.subList(start, group.size())) {
+            int orphanKey = orphan.dimension().getAreaKey();
+            jdbcTemplate.update(MOVE_FACTS, target.getAreaKey(), orphanKey, target.getAreaKey());
+            jdbcTemplate.update(DELETE_FACTS, orphanKey);
+            jdbcTemplate.update(DELETE_DIM, orphanKey);
+            jdbcTemplate.update(DELETE_CURRENT, orphan.dimension().getAreaId());
+        }
+    }
+
+    /**
+     * 找出由舊版產生或已被取代、目前沒有登記的代碼；沒有登記的舊版代碼合併到以名稱產生的代碼
+     */
+    private List<Orphan> orphans(List<LibraryAreaDim> dimensions) {
+        Set<String> registered;
+        lock.lock();
+        try {
+            ensureLoaded();
+            registered = new HashSet<>(areaIds.values());
+        } finally {
+            lock.unlock();
+        }
+        List<Orphan> result = new ArrayList<>();
+        for (LibraryAreaDim dimension : dimensions) {
+            String namespace = seatSourceCatalog.namespaceOf(dimension.getAreaId());
+            if (registered.contains(dimension.getAreaId()) || !isGenerated(namespace, dimension.getAreaId())) {
+                continue;
+            }
+            String naturalKey = naturalKey(dimension.getBranchName(), dimension.getFloorName(), dimension.getAreaName());
+            String canonicalAreaId = areaIds.get(cacheKey(namespace, naturalKey));
+            if (canonicalAreaId == null) {
+                canonicalAreaId = namespace + autoId(naturalKey);
+            }
+            if (!canonicalAreaId.equals(dimension.getAreaId())) {
+                result.add(new Orphan(dimension, namespace, naturalKey, canonicalAreaId));
+            }
+        }
+        return result;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        for (LibraryAreaIdentity identity : libraryAreaIdentityRepository.findAll()) {
+            areaIds.put(cacheKey(identity.getNamespace(), identity.getNaturalKey()), identity.getAreaId());
+        }
+        loaded = true;
+    }
+
+    /**
+     * 寫入或更新一筆識別；其他節點同時寫入時以資料庫中的為準
+     */
+    private void register(String namespace, String naturalKey, String areaId) {
+        try {
+            LibraryAreaIdentity identity = libraryAreaIdentityRepository
+                    .findByNamespaceAndNaturalKey(namespace, naturalKey)
+                    .orElseGet(() -> new LibraryAreaIdentity(namespace, naturalKey, areaId));
+            identity.setAreaId(areaId);
+            libraryAreaIdentityRepository.save(identity);
+            areaIds.put(cacheKey(namespace, naturalKey), areaId);
+        } catch (DataIntegrityViolationException e) {
+            libraryAreaIdentityRepository.findByNamespaceAndNaturalKey(namespace, naturalKey)
+                    .ifPresent(existing -> areaIds.put(cacheKey(namespace, naturalKey), existing.getAreaId()));
+        }
+    }
+
+    private static boolean isGenerated(String namespace, String areaId) {
+        String localId = areaId.substring(namespace.length());
+        return isAutoId(namespace, areaId) || LEGACY_GENERATED_ID.matcher(localId).matches();
+    }
+
+    private static boolean isAutoId(String namespace, String areaId) {
+        return areaId.startsWith(namespace + AUTO_PREFIX);
+    }
+
+    /**
+     * 正規化的「分館|樓層|區域名稱」：去除前後空白、連續空白合併、英文轉小寫
+     */
+    private static String naturalKey(String branchName, String floorName, String areaName) {
+        return normalize(branchName) + "|" + normalize(floorName) + "|" + normalize(areaName);
+    }
+
+    private static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        return WHITESPACE.matcher(name.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 以自然鍵的 SHA-256 前 16 個十六進位字元產生代碼
+     */
+    private static String autoId(String naturalKey) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(naturalKey.getBytes(StandardCharsets.UTF_8));
+            StringBuilder id = new StringBuilder(AUTO_PREFIX);
+            for (int i = 0; i < 8; i++) {
+                id.append(String.format("%02x", hash[i]));
+            }
+            return id.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String cacheKey(String namespace, String naturalKey) {
+        return namespace + "\n" + naturalKey;
+    }
+
+    private record Orphan(LibraryAreaDim dimension, String namespace, String naturalKey, String canonicalAreaId) {
+    }
+}
@@ -0,0 +1,194 @@
+package com.library.demo.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.library.demo.dto.LibraryAreaDTO;
+import com.library.demo.event.SnapshotSavedEvent;
+import com.library.demo.model.LibraryArea;
+import com.library.demo.repository.LibraryAreaRepository;
+
+/**
+ * 以記憶體索引回答「哪裡有空位」的查詢
+ * 每次即時快照後重建整個索引並一次替換：所有區域依剩餘座位由多到少、使用率由低到高排序，
+ * 並依分館分桶。查詢只走訪排序後剩餘座位仍達門檻的前段，取到足夠筆數即停止，不存取資料庫
+ */
+@Service
+public class AvailabilitySearchService {
+
+    // 剩餘座位多者優先，相同時使用率低者優先
+    private static final Comparator<Entry> RANKING = Comparator
+            .comparingInt((Entry entry) -> entry.freeCount).reversed()
+            .thenComparingDouble(entry -> entry.occupationRate)
+            .thenComparing(entry -> entry.areaId);
+
+    @Autowired
+    private LibraryAreaRepository libraryAreaRepository;
+
+    @Autowired
+    private SnapshotVersionService snapshotVersionService;
+
+    private volatile Index index = new Index(null, List.of());
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            rebuild(snapshotVersionService.getCurrentSnapshotTime(), libraryAreaRepository.findAll());
+        } catch (Exception e) {
+            System.err.println("建立座位搜尋索引失敗，等待下一次快照: " + e.getMessage());
+        }
+    }
+
+    @EventListener
+    public void onSnapshotSaved(SnapshotSavedEvent event) {
+        if (event.isLive()) {
+            rebuild(event.getRecordTime(), event.getAreas());
+        }
+    }
+
+    /**
+     * 查詢剩餘座位最多的區域
+     * @param minFree 剩餘座位下限
+     * @param branches 分館名稱，空集合表示所有分館
+     * @param floor 樓層名稱，null 表示不限
+     * @param keywords 區域名稱關鍵字，符合任一個即可，空集合表示不限
+     * @param limit 回傳筆數上限
+     */
+    public List<LibraryAreaDTO> search(int minFree, Set<String> branches, String floor, List<String> keywords, int limit) {
+        List<String> normalized = new ArrayList<>(keywords.size());
+        for (String keyword : keywords) {
+            if (!keyword.isBlank()) {
+                normalized.add(keyword.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        Index current = index;
+        List<Entry> matched = new ArrayList<>();
+        if (branches.isEmpty()) {
+            collect(current.all, minFree, floor, normalized, limit, matched);
+        } else {
+            // 各分館分別取前 limit 筆後合併排序
+            for (String branch : branches) {
+                Entry[] bucket = current.byBranch.get(branch);
+                if (bucket != null) {
+                    collect(bucket, minFree, floor, normalized, limit, matched);
+                }
+            }
+            if (branches.size() > 1) {
+                matched.sort(RANKING);
+            }
+        }
+
+        List<LibraryAreaDTO> result = new ArrayList<>(Math.min(limit, matched.size()));
+        for (int i = 0; i < matched.size() && i < limit; i++) {
+            result.add(matched.get(i).toDTO(current.recordTime));
+        }
+        return result;
+    }
+
+    private void collect(Entry[] ranked, int minFree, String floor, List<String> keywords, int limit, List<Entry> matched) {
+        int found = 0;
+        for (Entry entry : ranked) {
+            // 已依剩餘座位排序，之後的區域都不會達到門檻
+            if (entry.freeCount < minFree || found >= limit) {
+                return;
+            }
+            if (floor != null && !floor.equalsIgnoreCase(entry.floorName)) {
+                continue;
+            }
+            if (!keywords.isEmpty() && !entry.matchesAny(keywords)) {
+                continue;
+            }
+            matched.add(entry);
+            found++;
+        }
+    }
+
+    private void rebuild(LocalDateTime recordTime, List<LibraryArea> areas) {
+        List<Entry> entries = new ArrayList<>(areas.size());
+        for (LibraryArea area : areas) {
+            entries.add(new Entry(area));
+        }
+        index = new Index(recordTime, entries);
+    }
+
+    /**
+     * 建立後不再修改的索引
+     */
+    private static class Index {
+        private final LocalDateTime recordTime;
+        private final Entry[] all;
+        private final Map<String, Entry[]> byBranch;
+
+        Index(LocalDateTime recordTime, List<Entry> entries) {
+            this.recordTime = recordTime;
+            this.all = entries.toArray(new Entry[0]);
+            Arrays.sort(all, RANKING);
+
+            Map<String, List<Entry>> grouped = new HashMap<>();
+            for (Entry entry : all) {
+                grouped.computeIfAbsent(entry.branchName, name -> new ArrayList<>()).add(entry);
+            }
+            Map<String, Entry[]> buckets = new HashMap<>();
+            // 由已排序的陣列依序分組，各分館內仍維持排序
+            grouped.forEach((branch, list) -> buckets.put(branch, list.toArray(new Entry[0])));
+            this.byBranch = buckets;
+        }
+    }
+
+    private static class Entry {
+        private final String areaId;
+        private final String branchName;
+        private final String floorName;
+        private final String areaName;
+        private final String lowerAreaName;
+        private final int freeCount;
+        private final int totalCount;
+        private final double occupationRate;
+
+        Entry(LibraryArea area) {
+            this.areaId = area.getAreaId();
+            this.branchName = area.getBranchName();
+            this.floorName = area.getFloorName();
+            this.areaName = area.getAreaName();
+            this.lowerAreaName = area.getAreaName() == null ? "" : area.getAreaName().toLowerCase(Locale.ROOT);
+            this.freeCount = area.getFreeCount();
+            this.totalCount = area.getTotalCount();
+            this.occupationRate = area.getOccupationRate();
+        }
+
+        // 關鍵字已轉為小寫
+        boolean matchesAny(List<String> keywords) {
+            for (String keyword : keywords) {
+                if (lowerAreaName.contains(keyword)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        LibraryAreaDTO toDTO(LocalDateTime recordTime) {
+            LibraryAreaDTO dto = new LibraryAreaDTO();
+            dto.setAreaId(areaId);
+            dto.setBranchName(branchName);
+            dto.setFloorName(floorName);
+            dto.setAreaName(areaName);
+            dto.setFreeCount(freeCount);
+            dto.setTotalCount(totalCount);
+            dto.setRecordTime(recordTime);
+            dto.setOccupationRate(occupationRate);
+            return dto;
+        }
+    }
+}
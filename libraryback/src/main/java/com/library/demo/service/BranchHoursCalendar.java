@@ -0,0 +1,268 @@
+package com.library.demo.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.library.demo.model.LibraryBranch;
+
+/**
+ * 各分館每週營業時間與休館日的不可變行事曆
+ * 每間分館以星期幾（0為星期一）對應當天的開館與閉館分鐘，休館日所有分館整天閉館；
+ * 未登記的分館沿用全域營業時間（週日及週一使用另一組時間）。
+ * 判斷是否開放只需查休館日與當天的時間，不需讀取資料庫；分館資料變動時整個換成新的行事曆
+ */
+public final class BranchHoursCalendar {
+
+    private static final int WEEKDAYS = 7;
+
+    // 往後找下一次開館時最多檢查的天數
+    private static final int HORIZON_DAYS = 366;
+
+    private final Map<String, BranchHours> branches;
+    private final BranchHours defaultHours;
+    private final Set<LocalDate> holidays;
+
+    private BranchHoursCalendar(Map<String, BranchHours> branches, BranchHours defaultHours, Set<LocalDate> holidays) {
+        this.branches = branches;
+        this.defaultHours = defaultHours;
+        this.holidays = holidays;
+    }
+
+    /**
+     * 由分館表與全域設定建立行事曆
+     * 目前分館表每間分館只有一組營業時間，一週七天相同
+     */
+    public static BranchHoursCalendar build(List<LibraryBranch> branchList,
+                                            LocalTime openTime, LocalTime closeTime,
+                                            LocalTime weekendOpenTime, LocalTime weekendCloseTime,
+                                            Set<LocalDate> holidays) {
+        Map<String, BranchHours> branches = new LinkedHashMap<>();
+        branchList.stream()
+                .sorted(Comparator.comparing(LibraryBranch::getBranchName))
+                .forEach(branch -> branches.put(branch.getBranchName(), BranchHours.everyDay(
+                        branch.getBranchName(), branch.getOpenTime(), branch.getCloseTime(), branch.isOpen())));
+
+        int[] openMinutes = new int[WEEKDAYS];
+        int[] closeMinutes = new int[WEEKDAYS];
+        for (DayOfWeek day : DayOfWeek.values()) {
+            boolean weekend = day == DayOfWeek.SUNDAY || day == DayOfWeek.MONDAY;
+            openMinutes[day.ordinal()] = minuteOfDay(weekend ? weekendOpenTime : openTime);
+            closeMinutes[day.ordinal()] = minuteOfDay(weekend ? weekendCloseTime : closeTime);
+        }
+        BranchHours defaultHours = new BranchHours(null, openTime, closeTime, false, openMinutes, closeMinutes);
+        return new BranchHoursCalendar(Collections.unmodifiableMap(branches), defaultHours, Set.copyOf(holidays));
+    }
+
+    /**
+     * 回傳更新開放狀態旗標後的新行事曆，營業時間不變
+     */
+    public BranchHoursCalendar withOpenFlags(Map<String, Boolean> openFlags) {
+        Map<String, BranchHours> updated = new LinkedHashMap<>(branches);
+        openFlags.forEach((name, open) -> updated.computeIfPresent(name, (key, hours) -> hours.withOpen(open)));
+        return new BranchHoursCalendar(Collections.unmodifiableMap(updated), defaultHours, holidays);
+    }
+
+    /**
+     * 依分館名稱排序的已登記分館
+     */
+    public Collection<BranchHours> getBranches() {
+        return branches.values();
+    }
+
+    public BranchHours getBranch(String branchName) {
+        return branches.get(branchName);
+    }
+
+    public boolean isRegistered(String branchName) {
+        return branches.containsKey(branchName);
+    }
+
+    public boolean isHoliday(LocalDate date) {
+        return holidays.contains(date);
+    }
+
+    /**
+     * 判斷分館在指定時間是否開放，未登記的分館依全域營業時間
+     */
+    public boolean isOpen(String branchName, LocalDateTime dateTime) {
+        return isOpen(hoursOf(branchName), dateTime);
+    }
+
+    /**
+     * 依全域營業時間判斷是否開館
+     */
+    public boolean isDefaultOpen(LocalDateTime dateTime) {
+        return isOpen(defaultHours, dateTime);
+    }
+
+    /**
+     * 分館在指定日期的閉館時間，未登記的分館依全域營業時間
+     * @return 當天不開館時回傳 null
+     */
+    public LocalTime getCloseTime(String branchName, LocalDate date) {
+        return closeTime(hoursOf(branchName), date);
+    }
+
+    /**
+     * 全域營業時間在指定日期的閉館時間
+     * @return 當天不開館時回傳 null
+     */
+    public LocalTime getDefaultCloseTime(LocalDate date) {
+        return closeTime(defaultHours, date);
+    }
+
+    /**
+     * 分館下一次開館或閉館的時間
+     * @return 一年內都不會開館時回傳 null
+     */
+    public LocalDateTime nextTransition(String branchName, LocalDateTime dateTime) {
+        BranchHours hours = hoursOf(branchName);
+        int secondOfDay = dateTime.toLocalTime().toSecondOfDay();
+        for (int offset = 0; offset <= HORIZON_DAYS; offset++) {
+            LocalDate date = dateTime.toLocalDate().plusDays(offset);
+            int day = date.getDayOfWeek().ordinal();
+            int open = hours.openMinutes[day];
+            int close = hours.closeMinutes[day];
+            if (holidays.contains(date) || open >= close) {
+                continue;
+            }
+            if (offset > 0 || secondOfDay < open * 60) {
+                return date.atStartOfDay().plusMinutes(open);
+            }
+            if (secondOfDay < close * 60) {
+                return date.atStartOfDay().plusMinutes(close);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 分館在指定時間之後第一次閉館前 minutesBeforeClosing 分鐘的時間
+     * @return 一年內都不會開館時回傳 null
+     */
+    public LocalDateTime nextPreClose(String branchName, LocalDateTime after, int minutesBeforeClosing) {
+        BranchHours hours = hoursOf(branchName);
+        // 閉館時間接近午夜時，閉館前的時間可能落在前一天
+        for (int offset = -1; offset <= HORIZON_DAYS; offset++) {
+            LocalDate date = after.toLocalDate().plusDays(offset);
+            LocalTime close = closeTime(hours, date);
+            if (close == null) {
+                continue;
+            }
+            LocalDateTime preClose = LocalDateTime.of(date, close).minusMinutes(minutesBeforeClosing);
+            if (preClose.isAfter(after)) {
+                return preClose;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 營業時間與休館日是否相同，不比較開放狀態旗標
+     */
+    public boolean hasSameHours(BranchHoursCalendar other) {
+        if (other == null || !holidays.equals(other.holidays) || !defaultHours.sameHours(other.defaultHours)
+                || !branches.keySet().equals(other.branches.keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, BranchHours> entry : branches.entrySet()) {
+            if (!entry.getValue().sameHours(other.branches.get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private BranchHours hoursOf(String branchName) {
+        BranchHours hours = branchName != null ? branches.get(branchName) : null;
+        return hours != null ? hours : defaultHours;
+    }
+
+    private boolean isOpen(BranchHours hours, LocalDateTime dateTime) {
+        if (holidays.contains(dateTime.toLocalDate())) {
+            return false;
+        }
+        int day = dateTime.getDayOfWeek().ordinal();
+        int secondOfDay = dateTime.toLocalTime().toSecondOfDay();
+        return secondOfDay >= hours.openMinutes[day] * 60 && secondOfDay < hours.closeMinutes[day] * 60;
+    }
+
+    private LocalTime closeTime(BranchHours hours, LocalDate date) {
+        int day = date.getDayOfWeek().ordinal();
+        if (holidays.contains(date) || hours.openMinutes[day] >= hours.closeMinutes[day]) {
+            return null;
+        }
+        return LocalTime.ofSecondOfDay(hours.closeMinutes[day] * 60L);
+    }
+
+    private static int minuteOfDay(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    /**
+     * 單一分館的營業時間；開館晚於或等於閉館的日子視為不開館
+     */
+    public static final class BranchHours {
+        private final String branchName;
+        private final LocalTime openTime;
+        private final LocalTime closeTime;
+        private final boolean open;
+        private final int[] openMinutes;
+        private final int[] closeMinutes;
+
+        private BranchHours(String branchName, LocalTime openTime, LocalTime closeTime, boolean open,
+                            int[] openMinutes, int[] closeMinutes) {
+            this.branchName = branchName;
+            this.openTime = openTime;
+            this.closeTime = closeTime;
+            this.open = open;
+            this.openMinutes = openMinutes;
+            this.closeMinutes = closeMinutes;
+        }
+
+        private static BranchHours everyDay(String branchName, LocalTime openTime, LocalTime closeTime, boolean open) {
+            int[] openMinutes = new int[WEEKDAYS];
+            int[] closeMinutes = new int[WEEKDAYS];
+            Arrays.fill(openMinutes, minuteOfDay(openTime));
+            Arrays.fill(closeMinutes, minuteOfDay(closeTime));
+            return new BranchHours(branchName, openTime, closeTime, open, openMinutes, closeMinutes);
+        }
+
+        private boolean sameHours(BranchHours other) {
+            return Arrays.equals(openMinutes, other.openMinutes) && Arrays.equals(closeMinutes, other.closeMinutes);
+        }
+
+        private BranchHours withOpen(boolean open) {
+            return new BranchHours(branchName, openTime, closeTime, open, openMinutes, closeMinutes);
+        }
+
+        public String getBranchName() {
+            return branchName;
+        }
+
+        public LocalTime getOpenTime() {
+            return openTime;
+        }
+
+        public LocalTime getCloseTime() {
+            return closeTime;
+        }
+
+        /**
+         * 分館表中保存的開放狀態
+         */
+        public boolean isOpen() {
+            return open;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.library.demo.service;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import com.library.demo.model.IngestionLease;
+import com.library.demo.repository.IngestionLeaseRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 以資料庫租約選出唯一的擷取主節點
+ * 主節點每隔租約長度的三分之一續約一次；主節點停止續約後，其他節點最遲在
+ * 租約長度加上一次續約間隔內接手，接手時 fencing token 加一
+ * 租約的過期時間只以資料庫時鐘判斷；本機只用單調時鐘估計自己的租約何時失效
+ */
+@Service
+public class ClusterLeaseService {
+
+    private static final String LEASE_NAME = "ingestion";
+
+    // 尚未有人持有過的租約，過期時間設在很久以前
+    private static final LocalDateTime NEVER = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    // 節點識別，空白時使用主機名稱加上隨機字串
+    @Value("${library.cluster.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${library.cluster.lease-seconds:30}")
+    private int leaseSeconds;
+
+    @Autowired
+    private IngestionLeaseRepository ingestionLeaseRepository;
+
+    private String nodeId;
+
+    // 目前持有的 fencing token，-1 表示不是主節點
+    private volatile long fencingToken = -1;
+
+    // 本機估計的租約失效時刻（System.nanoTime），從送出更新前開始計算，不會晚於資料庫上的過期時間
+    private volatile long leaseDeadlineNanos;
+
+    @PostConstruct
+    public void init() {
+        nodeId = configuredNodeId.isEmpty() ? defaultNodeId() : configuredNodeId;
+        try {
+            if (!ingestionLeaseRepository.existsById(LEASE_NAME)) {
+                ingestionLeaseRepository.save(new IngestionLease(LEASE_NAME, NEVER));
+            }
+        } catch (DataIntegrityViolationException e) {
+            // 其他節點同時建立了租約
+        } catch (Exception e) {
+            System.err.println("建立擷取租約失敗: " + e.getMessage());
+        }
+        renewOrAcquire();
+    }
+
+    /**
+     * 主節點續約；非主節點在租約過期時嘗試接手
+     */
+    public synchronized void renewOrAcquire() {
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(leaseSeconds);
+
+            if (fencingToken >= 0) {
+                if (ingestionLeaseRepository.renew(LEASE_NAME, nodeId, fencingToken, leaseSeconds) == 1) {
+                    leaseDeadlineNanos = deadline;
+                    return;
+                }
+                System.out.println("節點 " + nodeId + " 已失去擷取租約，fencing token: " + fencingToken);
+                fencingToken = -1;
+            }
+
+            if (ingestionLeaseRepository.takeOver(LEASE_NAME, nodeId, leaseSeconds) == 1) {
+                IngestionLease lease = ingestionLeaseRepository.findById(LEASE_NAME).orElse(null);
+                if (lease != null && nodeId.equals(lease.getOwnerId())) {
+                    fencingToken = lease.getFencingToken();
+                    leaseDeadlineNanos = deadline;
+                    System.out.println("節點 " + nodeId + " 取得擷取租約，fencing token: " + fencingToken);
+                }
+            }
+        } catch (Exception e) {
+            // 資料庫暫時無法連線時保留目前狀態，租約到期後 isLeader 自然失效
+            System.err.println("更新擷取租約失敗: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 是否為擷取主節點：持有租約且尚未過期
+     */
+    public boolean isLeader() {
+        return fencingToken >= 0 && System.nanoTime() - leaseDeadlineNanos < 0;
+    }
+
+    /**
+     * 目前持有的 fencing token，非主節點時回傳 -1
+     */
+    public long getFencingToken() {
+        return isLeader() ? fencingToken : -1;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public int getLeaseSeconds() {
+        return leaseSeconds;
+    }
+
+    /**
+     * 正常關閉時釋放租約
+     */
+    @PreDestroy
+    public synchronized void release() {
+        if (fencingToken < 0) {
+            return;
+        }
+        try {
+            ingestionLeaseRepository.release(LEASE_NAME, nodeId, fencingToken);
+            System.out.println("節點 " + nodeId + " 已釋放擷取租約");
+        } catch (Exception e) {
+            System.err.println("釋放擷取租約失敗: " + e.getMessage());
+        }
+        fencingToken = -1;
+    }
+
+    private String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
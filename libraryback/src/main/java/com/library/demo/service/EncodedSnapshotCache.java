@@ -0,0 +1,157 @@
+package com.library.demo.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.library.demo.config.JacksonConfig;
+import com.library.demo.event.SnapshotSavedEvent;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * 當前座位資料的編碼結果快取
+ * 依 Accept 選擇 JSON、CBOR 或 Smile，編碼後的位元組依快照版本快取，
+ * 同一版本內的重複請求不再查詢與編碼；內容以 CRC32 作為 ETag，未變動時回應 304
+ */
+@Service
+public class EncodedSnapshotCache {
+
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    // 依偏好順序排列，Accept 品質相同時優先使用前面的格式
+    private static final List<MediaType> FORMATS = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, APPLICATION_SMILE);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<MediaType, ObjectMapper> mappers = new ConcurrentHashMap<>();
+
+    private final Map<String, Encoded> cache = new ConcurrentHashMap<>();
+
+    // 本節點看到的即時快照數，作為快取的版本
+    private final AtomicLong version = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        mappers.put(MediaType.APPLICATION_JSON, objectMapper);
+        mappers.put(MediaType.APPLICATION_CBOR, JacksonConfig.configure(new CBORMapper()));
+        mappers.put(APPLICATION_SMILE, JacksonConfig.configure(new SmileMapper()));
+    }
+
+    /**
+     * 快照交易提交後才使快取失效，避免在提交前重新編碼到舊資料；
+     * 非主節點的事件不在交易中發布，直接處理
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSnapshotSaved(SnapshotSavedEvent event) {
+        if (event.isLive()) {
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * 依 Accept 回應編碼後的內容
+     * @param key 端點名稱，同一端點的不同格式分別快取
+     * @param accept 請求的 Accept 標頭
+     * @param ifNoneMatch 請求的 If-None-Match 標頭
+     * @param body 快取失效時產生回應內容
+     */
+    public ResponseEntity<byte[]> respond(String key, String accept, String ifNoneMatch, Supplier<Object> body) {
+        MediaType format = negotiate(accept);
+        if (format == null) {
+            return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).build();
+        }
+
+        String cacheKey = key + "|" + format;
+        long currentVersion = version.get();
+        Encoded encoded = cache.get(cacheKey);
+        if (encoded == null || encoded.version != currentVersion) {
+            encoded = encode(format, body.get(), currentVersion);
+            cache.put(cacheKey, encoded);
+        }
+
+        if (encoded.etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(encoded.etag)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .contentType(format)
+                .eTag(encoded.etag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .body(encoded.bytes);
+    }
+
+    private Encoded encode(MediaType format, Object body, long currentVersion) {
+        try {
+            byte[] bytes = mappers.get(format).writeValueAsBytes(body);
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            String etag = "\"" + format.getSubtype() + "-" + Long.toHexString(crc.getValue()) + "-" + bytes.length + "\"";
+            return new Encoded(currentVersion, bytes, etag);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("編碼回應內容失敗: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 依 Accept 的品質值選擇格式；每個格式取最明確符合的範圍的品質值，
+     * 品質相同時明確列出的格式優先於萬用字元，再依 FORMATS 的順序
+     * @return 沒有可接受的格式時回傳 null
+     */
+    private MediaType negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return MediaType.APPLICATION_JSON;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_JSON;
+        }
+        MediaType best = null;
+        double bestQuality = 0;
+        int bestSpecificity = -1;
+        for (MediaType format : FORMATS) {
+            double quality = 0;
+            int specificity = -1;
+            for (MediaType mediaType : accepted) {
+                if (!mediaType.includes(format)) {
+                    continue;
+                }
+                int rangeSpecificity = mediaType.isWildcardType() ? 0 : mediaType.isWildcardSubtype() ? 1 : 2;
+                if (rangeSpecificity > specificity) {
+                    specificity = rangeSpecificity;
+                    quality = mediaType.getQualityValue();
+                }
+            }
+            if (quality > bestQuality || (quality == bestQuality && quality > 0 && specificity > bestSpecificity)) {
+                best = format;
+                bestQuality = quality;
+                bestSpecificity = specificity;
+            }
+        }
+        return best;
+    }
+
+    private record Encoded(long version, byte[] bytes, String etag) {
+    }
+}
@@ -0,0 +1,212 @@
+package com.library.demo.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.library.demo.config.ReplicaDataSourceProperties;
+import com.library.demo.config.TimeWarpClock;
+import com.library.demo.dto.LibraryAreaHistorySeriesDTO;
+import com.library.demo.event.HistoryMaintainedEvent;
+import com.library.demo.event.SnapshotSavedEvent;
+import com.library.demo.model.LibraryArea;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * 單日歷史查詢結果的快取
+ * 以 Caffeine（W-TinyLFU）依估計的位元組數限制大小；已結束的日期不會再有新記錄，永久保留直到被淘汰，
+ * 但日期結束後要再經過副本允許的落後時間才算結束，避免快取落後副本上不完整的結果。
+ * 今天的項目在該區域或分館的快照提交後立即失效，另有存活時間作為其他節點與副本延遲的保險；
+ * 主節點清理或改寫歷史記錄時直接失效，其他節點在輪詢到新的維護世代時整個失效。
+ * 指標：cache.gets（命中/未命中）、cache.evictions、cache.eviction.weight 與 library.history.cache.hit.ratio
+ */
+@Service
+public class HistoryQueryCache {
+
+    private static final String CACHE_NAME = "libraryHistory";
+
+    @Value("${library.history.cache-max-mb:64}")
+    private long maxMegabytes;
+
+    @Value("${library.history.cache-open-day-minutes:10}")
+    private long openDayMinutes;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TimeWarpClock clock;
+
+    @Autowired
+    private ReplicaDataSourceProperties replicaDataSourceProperties;
+
+    // 日期結束後多久才視為已結束，等於副本允許的落後時間換算成應用程式時間
+    private Duration closedAfter;
+
+    private Cache<Key, Entry> cache;
+
+    // 每次失效都遞增；查詢期間有失效時不寫入結果，避免寫入提交前讀到的舊資料
+    private final AtomicLong generation = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        long openDayNanos = TimeUnit.MINUTES.toNanos(openDayMinutes);
+        closedAfter = Duration.ofMillis((long) (replicaDataSourceProperties.getMaxReplicaLagSeconds() * 1000 * clock.getSpeed()));
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxMegabytes * 1024 * 1024)
+                .weigher((Key key, Entry entry) -> entry.weight())
+                .expireAfter(new Expiry<Key, Entry>() {
+                    @Override
+                    public long expireAfterCreate(Key key, Entry entry, long currentTime) {
+                        return entry.closed() ? Long.MAX_VALUE : openDayNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Key key, Entry entry, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, entry, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Key key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder("library.history.cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("歷史查詢快取命中率")
+                .register(meterRegistry);
+        Gauge.builder("library.history.cache.weight", cache,
+                        c -> c.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                .description("歷史查詢快取估計佔用的位元組數")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 取得快取的查詢結果，未命中時執行查詢並快取
+     * @param key 以 Key.all、Key.area 或 Key.branch 建立
+     * @return 不可修改的清單
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> get(Key key, Supplier<List<T>> loader) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null) {
+            return (List<T>) entry.value();
+        }
+        long startGeneration = generation.get();
+        boolean closed = LocalDateTime.now(clock).isAfter(key.date().plusDays(1).atStartOfDay().plus(closedAfter));
+        List<T> value = Collections.unmodifiableList(loader.get());
+        if (generation.get() == startGeneration) {
+            cache.put(key, new Entry(value, estimateBytes(value), closed));
+        }
+        return value;
+    }
+
+    /**
+     * 快照提交後使該日期中寫入歷史記錄的區域與分館，以及全部區域的項目失效；
+     * 非主節點的事件不在交易中發布，直接處理
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSnapshotSaved(SnapshotSavedEvent event) {
+        if (event.getHistoryAreas().isEmpty()) {
+            return;
+        }
+        LocalDate date = event.getRecordTime().toLocalDate();
+        Set<String> areaIds = new HashSet<>();
+        Set<String> branchNames = new HashSet<>();
+        for (LibraryArea area : event.getHistoryAreas()) {
+            areaIds.add(area.getAreaId());
+            branchNames.add(area.getBranchName());
+        }
+        generation.incrementAndGet();
+        cache.asMap().keySet().removeIf(key -> key.date().equals(date) && switch (key.scope()) {
+            case ALL -> true;
+            case AREA -> areaIds.contains(key.name());
+            case BRANCH -> branchNames.contains(key.name());
+        });
+    }
+
+    /**
+     * 非主節點輪詢到新的歷史記錄維護世代時，整個快取失效
+     */
+    @EventListener
+    public void onHistoryMaintained(HistoryMaintainedEvent event) {
+        invalidateAll();
+    }
+
+    /**
+     * 清理過時歷史記錄後，使早於指定日期的項目失效
+     */
+    public void invalidateBefore(LocalDate date) {
+        generation.incrementAndGet();
+        cache.asMap().keySet().removeIf(key -> key.date().isBefore(date));
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    /**
+     * 粗估結果佔用的位元組數，作為淘汰時的權重
+     */
+    private static int estimateBytes(List<?> value) {
+        long bytes = 64;
+        for (Object item : value) {
+            if (item instanceof Object[] row) {
+                bytes += 32 + row.length * 32L;
+            } else if (item instanceof LibraryAreaHistorySeriesDTO series) {
+                bytes += 256 + series.getMinuteOffsets().length * 12L;
+            } else {
+                bytes += 192;
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    public enum Scope { ALL, AREA, BRANCH }
+
+    /**
+     * 快取鍵：查詢名稱、範圍、日期與其餘參數
+     * @param params 其餘查詢參數，需實作 equals 與 hashCode
+     */
+    public record Key(String query, Scope scope, String name, LocalDate date, Object params) {
+
+        public static Key all(String query, LocalDate date, Object params) {
+            return new Key(query, Scope.ALL, null, date, params);
+        }
+
+        public static Key area(String query, String areaId, LocalDate date, Object params) {
+            return new Key(query, Scope.AREA, areaId, date, params);
+        }
+
+        public static Key branch(String query, String branchName, LocalDate date, Object params) {
+            return new Key(query, Scope.BRANCH, branchName, date, params);
+        }
+    }
+
+    private record Entry(List<?> value, int weight, boolean closed) {
+    }
+}
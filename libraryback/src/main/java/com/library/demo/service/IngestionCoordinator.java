@@ -0,0 +1,245 @@
+package com.library.demo.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.library.demo.model.LibraryArea;
+import com.library.demo.service.source.SeatSourceFetcher;
+
+/**
+ * 資料擷取協調器
+ * 定時任務、手動擷取與閉館快照都經由此處觸發，所有座位來源由 SeatSourceFetcher 並發擷取後合併寫入，
+ * 超過合併期限才回應的來源以相同的記錄時間另外寫入；同一節點的寫入依序執行，
+ * 快照依記錄時間分入取樣桶，同一桶內的並發觸發只會合併為一次上游請求與一次寫入，
+ * 寫入前依各分館營業時間剔除閉館分館的資料；多節點部署時只有持有擷取租約的主節點會執行
+ * 取樣桶的長度等於最短擷取間隔，歷史記錄仍以分鐘桶去重，每個區域每分鐘最多一筆
+ */
+@Service
+public class IngestionCoordinator {
+
+    /**
+     * 單次觸發的處理結果
+     */
+    public enum IngestOutcome {
+        // 由本次呼叫實際擷取並寫入
+        EXECUTED,
+        // 與同一分鐘桶內進行中的擷取合併
+        COALESCED,
+        // 該分鐘桶已經寫入過，或定時任務已停用
+        SKIPPED,
+        // 擷取或寫入失敗
+        FAILED,
+        // 本節點不是擷取主節點
+        STANDBY
+    }
+
+    // 已完成取樣桶的保留範圍（秒）
+    private static final long COMPLETED_BUCKET_RETENTION_SECONDS = 24 * 60 * 60;
+
+    // 即時快照的取樣桶長度，與最短擷取間隔一致
+    @Value("${library.polling.min-interval-seconds:15}")
+    private int sampleBucketSeconds;
+
+    @Autowired
+    private LibraryAreaService libraryAreaService;
+
+    @Autowired
+    private LibraryBranchService libraryBranchService;
+
+    @Autowired
+    private SeatSourceFetcher seatSourceFetcher;
+
+    @Autowired
+    private ClusterLeaseService clusterLeaseService;
+
+    // 控制定時任務是否運行的標誌
+    private final AtomicBoolean isSchedulerEnabled = new AtomicBoolean(true);
+
+    // 正在進行中的取樣桶及其結果，鍵為「範圍:桶編號」
+    private final ConcurrentHashMap<String, CompletableFuture<Boolean>> inFlightBuckets = new ConcurrentHashMap<>();
+
+    // 已成功寫入的取樣桶及其開始時間（秒），鍵與進行中的相同
+    private final ConcurrentHashMap<String, Long> completedBuckets = new ConcurrentHashMap<>();
+
+    // 合併的快照與延後回應的來源依序寫入，保留其他來源的資料時讀到的是已提交的狀態
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * 啟用定時任務
+     */
+    public void enableScheduler() {
+        isSchedulerEnabled.set(true);
+        System.out.println("定時任務已啟用");
+    }
+
+    /**
+     * 禁用定時任務
+     */
+    public void disableScheduler() {
+        isSchedulerEnabled.set(false);
+        System.out.println("定時任務已禁用");
+    }
+
+    /**
+     * 檢查定時任務是否啟用
+     */
+    public boolean isSchedulerEnabled() {
+        return isSchedulerEnabled.get();
+    }
+
+    /**
+     * 定時任務觸發的擷取，定時任務停用時直接略過
+     */
+    public IngestOutcome fetchAndSaveLibraryData() {
+        if (!isSchedulerEnabled.get()) {
+            return IngestOutcome.SKIPPED;
+        }
+        return ingestOpenBranches("scheduled", true);
+    }
+
+    /**
+     * 使用自訂時間戳擷取並保存指定分館的數據
+     * 主要用於閉館時記錄最終狀態，以自訂時間的分鐘作為桶，且不覆蓋當前座位資料
+     * @param customTime 自訂時間戳（閉館時間）
+     * @param branchFilter 即將閉館的分館
+     */
+    public IngestOutcome fetchAndSaveWithCustomTime(LocalDateTime customTime, Predicate<String> branchFilter) {
+        return ingest(customTime, "closing", "closing", 60, branchFilter, false, false);
+    }
+
+    /**
+     * 手動觸發擷取，與定時任務共用取樣桶
+     */
+    public String manualFetchAndSave() {
+        IngestOutcome outcome = ingestOpenBranches("manual", false);
+        switch (outcome) {
+            case EXECUTED:
+                return "成功獲取並保存數據";
+            case COALESCED:
+                return "已與進行中的擷取合併，未重複請求上游";
+            case SKIPPED:
+                return "剛擷取過，沿用既有快照";
+            case STANDBY:
+                return "本節點不是擷取主節點，請由主節點擷取";
+            default:
+                return "手動獲取數據時發生錯誤，請查看服務器日誌";
+        }
+    }
+
+    /**
+     * 以所有座位來源的最新數據重新填充當前座位資料（用於測試和除錯）
+     * 與其他擷取相同經由租約檢查、取樣桶合併與依序寫入；各來源過期的區域在同一交易內由
+     * replaceChanged 刪除，擷取失敗的來源保留原有的當前座位資料
+     */
+    public String resetDatabase() {
+        IngestOutcome outcome = ingest(libraryAreaService.now(), "reset", "reset", sampleBucketSeconds,
+                branchName -> true, true, false);
+        switch (outcome) {
+            case EXECUTED:
+                return "資料庫已重置並使用最新數據重新填充";
+            case COALESCED:
+                return "已與進行中的重置合併，未重複請求上游";
+            case SKIPPED:
+                return "剛重置過或沒有可請求的座位來源，未重置資料庫";
+            case STANDBY:
+                return "本節點不是擷取主節點，請由主節點重置";
+            default:
+                return "重置資料庫時發生錯誤，請查看服務器日誌";
+        }
+    }
+
+    /**
+     * 以目前時間擷取一次快照，只寫入開放中分館的歷史記錄
+     */
+    private IngestOutcome ingestOpenBranches(String trigger, boolean scheduled) {
+        LocalDateTime now = libraryAreaService.now();
+        return ingest(now, trigger, "open", sampleBucketSeconds, libraryBranchService.openBranchFilter(now), true, scheduled);
+    }
+
+    /**
+     * 依取樣桶擷取並保存一次快照
+     * @param recordTime 快照的記錄時間
+     * @param trigger 觸發來源，僅用於日誌
+     * @param scope 寫入範圍，同一時間內不同範圍的快照各自去重
+     * @param bucketSeconds 取樣桶長度（秒）
+     * @param branchFilter 需要寫入歷史記錄的分館
+     * @param updateCurrent 是否同時更新當前座位資料
+     * @param scheduled 是否為定時擷取，定時擷取時各座位來源依各自的間隔略過
+     */
+    private IngestOutcome ingest(LocalDateTime recordTime, String trigger, String scope, int bucketSeconds,
+                                 Predicate<String> branchFilter, boolean updateCurrent, boolean scheduled) {
+        if (!clusterLeaseService.isLeader()) {
+            System.out.println("本節點不是擷取主節點，略過觸發: " + trigger);
+            return IngestOutcome.STANDBY;
+        }
+        long bucketStart = recordTime.toEpochSecond(ZoneOffset.UTC) / bucketSeconds * bucketSeconds;
+        String bucketKey = scope + ":" + bucketStart;
+        if (completedBuckets.containsKey(bucketKey)) {
+            System.out.println("取樣桶 " + recordTime.truncatedTo(ChronoUnit.SECONDS) + " 已寫入，略過觸發: " + trigger);
+            return IngestOutcome.SKIPPED;
+        }
+
+        CompletableFuture<Boolean> ownFuture = new CompletableFuture<>();
+        CompletableFuture<Boolean> runningFuture = inFlightBuckets.putIfAbsent(bucketKey, ownFuture);
+        if (runningFuture != null) {
+            // 同一取樣桶已有擷取進行中，等待其結果即可
+            System.out.println("合併觸發 " + trigger + " 至進行中的取樣桶 " + recordTime.truncatedTo(ChronoUnit.SECONDS));
+            return runningFuture.join() ? IngestOutcome.COALESCED : IngestOutcome.FAILED;
+        }
+
+        try {
+            // 前一個擷取可能剛好在檢查後完成，取得鎖後再確認一次
+            if (completedBuckets.containsKey(bucketKey)) {
+                ownFuture.complete(true);
+                return IngestOutcome.SKIPPED;
+            }
+
+            System.out.println("開始擷取圖書館座位數據，觸發來源: " + trigger + "，記錄時間: " + recordTime);
+            List<LibraryArea> areas = seatSourceFetcher.fetchAll(recordTime, scheduled,
+                    late -> save(late, recordTime, branchFilter, updateCurrent));
+            if (areas.isEmpty()) {
+                // 所有來源都未到間隔、退避中或超過頻率上限，不佔用取樣桶
+                System.out.println("沒有可請求的座位來源，略過觸發: " + trigger);
+                ownFuture.complete(true);
+                return IngestOutcome.SKIPPED;
+            }
+            save(areas, recordTime, branchFilter, updateCurrent);
+
+            // 先標記完成再移除進行中的紀錄，避免後到的觸發重複執行
+            completedBuckets.put(bucketKey, bucketStart);
+            completedBuckets.values().removeIf(completed -> completed < bucketStart - COMPLETED_BUCKET_RETENTION_SECONDS);
+            ownFuture.complete(true);
+            return IngestOutcome.EXECUTED;
+        } catch (Exception e) {
+            System.err.println("擷取圖書館座位數據時發生錯誤: " + e.getMessage());
+            e.printStackTrace();
+            ownFuture.complete(false);
+            return IngestOutcome.FAILED;
+        } finally {
+            inFlightBuckets.remove(bucketKey, ownFuture);
+        }
+    }
+
+    /**
+     * 寫入一次快照，與延後回應的來源依序執行
+     */
+    private void save(List<LibraryArea> areas, LocalDateTime recordTime, Predicate<String> branchFilter, boolean updateCurrent) {
+        writeLock.lock();
+        try {
+            libraryAreaService.saveSnapshot(areas, recordTime, branchFilter, updateCurrent);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.library.demo.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 將舊的 library_areas_history 搬移到區域維度與精簡歷史記錄
+ * 只在擷取主節點啟動時執行一次；搬移完成後舊表改名為 library_areas_history_migrated 保留備查
+ */
+@Component
+public class LegacyHistoryMigration {
+
+    private static final String LEGACY_EXISTS =
+            "SELECT CASE WHEN OBJECT_ID('library_areas_history', 'U') IS NULL THEN 0 ELSE 1 END";
+
+    private static final String MIGRATE_DIMENSIONS =
+            "INSERT INTO library_area_dim (area_id, branch_name, floor_name, area_name) " +
+            "SELECT h.area_id, MAX(h.branch_name), MAX(h.floor_name), MAX(h.area_name) FROM library_areas_history h " +
+            "WHERE h.area_id IS NOT NULL AND NOT EXISTS (SELECT 1 FROM library_area_dim d WHERE d.area_id = h.area_id) " +
+            "GROUP BY h.area_id";
+
+    // 舊資料在加入分鐘桶之前沒有 record_minute，一律由 record_time 換算；同一分鐘多筆時取最後一筆的座位數
+    private static final String MIGRATE_FACTS =
+            "INSERT INTO library_area_history_fact (area_key, record_minute, free_count, total_count) " +
+            "SELECT t.area_key, t.record_minute, t.free_count, t.total_count FROM (" +
+            "SELECT d.area_key, DATEDIFF_BIG(MINUTE, '19700101', h.record_time) as record_minute, h.free_count, h.total_count, " +
+            "ROW_NUMBER() OVER (PARTITION BY d.area_key, DATEDIFF_BIG(MINUTE, '19700101', h.record_time) ORDER BY h.record_time DESC) as rn " +
+            "FROM library_areas_history h JOIN library_area_dim d ON d.area_id = h.area_id WHERE h.record_time IS NOT NULL) t " +
+            "WHERE t.rn = 1 AND NOT EXISTS (SELECT 1 FROM library_area_history_fact f " +
+            "WHERE f.area_key = t.area_key AND f.record_minute = t.record_minute)";
+
+    private static final String RENAME_LEGACY = "EXEC sp_rename 'library_areas_history', 'library_areas_history_migrated'";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ClusterLeaseService clusterLeaseService;
+
+    @Autowired
+    private HistoryQueryCache historyQueryCache;
+
+    @Autowired
+    private SnapshotVersionService snapshotVersionService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        if (!clusterLeaseService.isLeader()) {
+            return;
+        }
+        try {
+            Integer exists = jdbcTemplate.queryForObject(LEGACY_EXISTS, Integer.class);
+            if (exists == null || exists == 0) {
+                return;
+            }
+            System.out.println("開始搬移舊的座位歷史記錄");
+            transactionTemplate.executeWithoutResult(status -> {
+                int dimensions = jdbcTemplate.update(MIGRATE_DIMENSIONS);
+                int facts = jdbcTemplate.update(MIGRATE_FACTS);
+                jdbcTemplate.execute(RENAME_LEGACY);
+                System.out.println("舊歷史記錄搬移完成，新增區域維度: " + dimensions + "，歷史記錄: " + facts);
+            });
+            // 搬移前可能已有查詢快取了缺少舊記錄的結果
+            historyQueryCache.invalidateAll();
+            snapshotVersionService.advanceHistoryMaintenance();
+        } catch (Exception e) {
+            System.err.println("搬移舊的座位歷史記錄失敗，下次啟動時重試: " + e.getMessage());
+        }
+    }
+}
@@ -1,51 +1,52 @@
 package com.library.demo.service;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.time.Clock;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.library.demo.dto.AreaOrphanDTO;
+import com.library.demo.dto.BusiestHoursBatchDTO;
+import com.library.demo.dto.FetchStrategyStatsDTO;
+import com.library.demo.dto.HistoryField;
+import com.library.demo.dto.HourlyOccupationDTO;
 import com.library.demo.dto.LibraryAreaDTO;
 import com.library.demo.dto.LibraryAreaHistoryDTO;
+import com.library.demo.dto.LibraryAreaHistorySeriesDTO;
 import com.library.demo.dto.OccupationStatsDTO;
+import com.library.demo.dto.SeatSourceHealthDTO;
+import com.library.demo.event.SnapshotSavedEvent;
 import com.library.demo.model.LibraryArea;
 import com.library.demo.model.LibraryAreaHistory;
+import com.library.demo.repository.LibraryAreaBulkRepository;
+import com.library.demo.repository.LibraryAreaHistoryFactRepository;
+import com.library.demo.repository.LibraryAreaHistoryProjectionRepository;
 import com.library.demo.repository.LibraryAreaHistoryRepository;
+import com.library.demo.repository.LibraryAreaHistorySeriesRepository;
 import com.library.demo.repository.LibraryAreaRepository;
+import com.library.demo.service.fetch.UpstreamFetcher;
+import com.library.demo.service.source.SeatSourceCatalog;
+import com.library.demo.service.source.SeatSourceFetcher;
+import com.library.demo.service.source.TpmlSeatSource;
 
 @Service
 public class LibraryAreaService {
 
-    // 臺北市圖書館API URL
-    private static final String TPML_API_URL = "https://seat.tpml.edu.tw/sm/service/getAllArea";
-    
-    // 控制定時任務是否運行的標誌
-    private final java.util.concurrent.atomic.AtomicBoolean isSchedulerEnabled = new java.util.concurrent.atomic.AtomicBoolean(true);
-    
     @Autowired
     private LibraryAreaRepository libraryAreaRepository;
     
@@ -53,629 +54,169 @@ public class LibraryAreaService {
     private LibraryAreaHistoryRepository libraryAreaHistoryRepository;
     
     @Autowired
-    private RestTemplate restTemplate;
+    private LibraryAreaHistoryFactRepository libraryAreaHistoryFactRepository;
     
     @Autowired
-    private ObjectMapper objectMapper;
+    private LibraryAreaHistoryProjectionRepository libraryAreaHistoryProjectionRepository;
     
-    @Value("${spring.jackson.time-zone:Asia/Taipei}")
-    private String timeZone;
+    @Autowired
+    private LibraryAreaHistorySeriesRepository libraryAreaHistorySeriesRepository;
     
-    // 在LibraryAreaService中添加同步機制
-    private final Object dataUpdateLock = new Object();
+    @Autowired
+    private HistoryQueryCache historyQueryCache;
     
-    /**
-     * 啟用定時任務
-     */
-    public void enableScheduler() {
-        isSchedulerEnabled.set(true);
-        System.out.println("定時任務已啟用");
-    }
-
-    /**
-     * 禁用定時任務
-     */
-    public void disableScheduler() {
-        isSchedulerEnabled.set(false);
-        System.out.println("定時任務已禁用");
-    }
+    @Autowired
+    private LibraryAreaBulkRepository libraryAreaBulkRepository;
     
-    /**
-     * 檢查定時任務是否啟用
-     */
-    public boolean isSchedulerEnabled() {
-        return isSchedulerEnabled.get();
-    }
+    @Autowired
+    private AreaDimensionService areaDimensionService;
     
-    /**
-     * 定時從臺北市圖書館API獲取座位數據並保存
-     * 每分鐘執行一次
-     */
-    @Scheduled(fixedRate = 60000) // 每分鐘執行一次
-    public void fetchAndSaveLibraryData() {
-        synchronized(dataUpdateLock) {
-            // 如果定時任務被禁用，則不執行
-            if (!isSchedulerEnabled.get()) {
-                return;
-            }
-
-            try {
-                System.out.println("開始執行定時獲取圖書館座位數據...");
-                
-                // 嘗試所有可能的方法獲取數據
-                String jsonData = null;
-                
-                // 1. 首先使用標準API請求
-                System.out.println("嘗試使用標準API請求...");
-                jsonData = fetchDataFromApi();
-                
-                // 2. 如果失敗，嘗試直接從網站獲取
-                if (jsonData == null || jsonData.trim().isEmpty() || !isValidJson(jsonData)) {
-                    System.out.println("標準API請求失敗，嘗試從網站直接獲取");
-                    jsonData = fetchDataFromWebsite();
-                }
-                
-                // 3. 如果還是失敗，嘗試模擬瀏覽器行為
-                if (jsonData == null || jsonData.trim().isEmpty() || !isValidJson(jsonData)) {
-                    System.out.println("從網站直接獲取失敗，嘗試模擬瀏覽器行為");
-                    jsonData = simulateBrowserFetch();
-                }
-                
-                // 如果獲取成功
-                if (jsonData != null && !jsonData.trim().isEmpty() && isValidJson(jsonData)) {
-                    System.out.println("成功獲取有效的JSON數據");
-                    parseAndSaveData(jsonData);
-                } else {
-                    // 使用硬編碼的範例數據作為備選
-                    System.out.println("無法從API獲取有效的JSON數據，使用備選數據");
-                    String jsonSample = fetchHardcodedSampleData();
-                    parseAndSaveData(jsonSample);
-                }
-            } catch (Exception e) {
-                // 記錄日誌
-                System.err.println("Error fetching library data: " + e.getMessage());
-                e.printStackTrace();
-            }
-        }
-    }
+    @Autowired
+    private UpstreamFetcher upstreamFetcher;
     
-    /**
-     * 使用自訂時間戳從臺北市圖書館API獲取座位數據並保存
-     * 主要用於閉館時記錄最終狀態
-     * @param customTime 自訂時間戳
-     */
-    public void fetchAndSaveWithCustomTime(LocalDateTime customTime) {
-        synchronized(dataUpdateLock) {
-            try {
-                System.out.println("開始使用自訂時間戳獲取圖書館座位數據: " + customTime);
-                
-                // 嘗試所有可能的方法獲取數據
-                String jsonData = null;
-                
-                // 1. 首先使用標準API請求
-                System.out.println("嘗試使用標準API請求...");
-                jsonData = fetchDataFromApi();
-                
-                // 2. 如果失敗，嘗試直接從網站獲取
-                if (jsonData == null || jsonData.trim().isEmpty() || !isValidJson(jsonData)) {
-                    System.out.println("標準API請求失敗，嘗試從網站直接獲取");
-                    jsonData = fetchDataFromWebsite();
-                }
-                
-                // 3. 如果還是失敗，嘗試模擬瀏覽器行為
-                if (jsonData == null || jsonData.trim().isEmpty() || !isValidJson(jsonData)) {
-                    System.out.println("從網站直接獲取失敗，嘗試模擬瀏覽器行為");
-                    jsonData = simulateBrowserFetch();
-                }
-                
-                // 如果獲取成功
-                if (jsonData != null && !jsonData.trim().isEmpty() && isValidJson(jsonData)) {
-                    // 解析並使用自訂時間戳保存數據
-                    parseAndSaveDataWithCustomTime(jsonData, customTime);
-                } else {
-                    // 使用硬編碼的範例數據作為備選
-                    System.out.println("無法從API獲取有效的JSON數據，使用備選數據");
-                    String jsonSample = fetchHardcodedSampleData();
-                    parseAndSaveDataWithCustomTime(jsonSample, customTime);
-                }
-            } catch (Exception e) {
-                System.err.println("使用自訂時間戳獲取圖書館座位數據時發生錯誤: " + e.getMessage());
-                e.printStackTrace();
-            }
-        }
-    }
+    @Autowired
+    private SeatSourceFetcher seatSourceFetcher;
+    
+    @Autowired
+    private TpmlSeatSource tpmlSeatSource;
+    
+    @Autowired
+    private SeatSourceCatalog seatSourceCatalog;
+    
+    @Autowired
+    private AreaIdentityRegistry areaIdentityRegistry;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private Clock clock;
+    
+    @Autowired
+    private SnapshotVersionService snapshotVersionService;
+    
+    @Value("${library.history.batch-max-keys:200}")
+    private int batchMaxKeys;
+    
+    @Value("${library.history.batch-max-days:31}")
+    private int batchMaxDays;
     
     /**
-     * 使用自訂時間戳解析並保存圖書館座位數據
-     * @param jsonData JSON格式的座位數據
-     * @param customTime 自訂時間戳
+     * 取得目前設定時區的本地時間
      */
-    private void parseAndSaveDataWithCustomTime(String jsonData, LocalDateTime customTime) {
-        try {
-            System.out.println("開始解析並使用自訂時間戳保存座位數據...");
-            
-            // 解析JSON數據
-            JsonNode rootNode = objectMapper.readTree(jsonData);
-            List<LibraryArea> areas = new ArrayList<>();
-            List<LibraryAreaHistory> histories = new ArrayList<>();
-            
-            // 獲取當前日期時間（使用自訂時間）
-            LocalDateTime now = customTime;
-            
-            // 解析數據
-            for (JsonNode node : rootNode) {
-                // 首先檢查並使用正確的欄位名稱
-                // API 可能返回 area_id 或 areaId，所以需要檢查兩者
-                String areaId = "";
-                if (node.has("area_id")) {
-                    areaId = node.path("area_id").asText();
-                } else if (node.has("areaId")) {
-                    areaId = node.path("areaId").asText();
-                }
-                
-                String areaName = "";
-                if (node.has("area_name")) {
-                    areaName = node.path("area_name").asText();
-                } else if (node.has("areaName")) {
-                    areaName = node.path("areaName").asText();
-                }
-                
-                String branchName = "";
-                if (node.has("branch_name")) {
-                    branchName = node.path("branch_name").asText();
-                } else if (node.has("branchName")) {
-                    branchName = node.path("branchName").asText();
-                }
-                
-                String floorName = "";
-                if (node.has("floor_name")) {
-                    floorName = node.path("floor_name").asText();
-                } else if (node.has("floorName")) {
-                    floorName = node.path("floorName").asText();
-                }
-                
-                int freeCount = 0;
-                if (node.has("free_count")) {
-                    freeCount = node.path("free_count").asInt();
-                } else if (node.has("freeCount")) {
-                    freeCount = node.path("freeCount").asInt();
-                }
-                
-                int totalCount = 0;
-                if (node.has("total_count")) {
-                    totalCount = node.path("total_count").asInt();
-                } else if (node.has("totalCount")) {
-                    totalCount = node.path("totalCount").asInt();
-                }
-                
-                // 確保 areaId 有值
-                if (areaId.isEmpty()) {
-                    // 如果沒有 areaId，則生成一個臨時值
-                    areaId = String.valueOf(System.currentTimeMillis() + areas.size());
-                    System.out.println("生成臨時 areaId: " + areaId);
-                }
-                
-                // 輸出解析結果以便調試
-                System.out.println("解析數據（使用自訂時間）: areaId=" + areaId + 
-                                  ", areaName=" + areaName +
-                                  ", branchName=" + branchName +
-                                  ", floorName=" + floorName +
-                                  ", freeCount=" + freeCount +
-                                  ", totalCount=" + totalCount +
-                                  ", customTime=" + customTime);
-                
-                LibraryArea area = new LibraryArea(areaId, branchName, floorName, areaName, 
-                                                  freeCount, totalCount, now);
-                areas.add(area);
-                
-                // 為每個區域創建歷史記錄，但不立即保存
-                LibraryAreaHistory history = new LibraryAreaHistory(area);
-                histories.add(history);
-            }
-            
-            // 批量保存當前數據
-            libraryAreaRepository.saveAll(areas);
-            
-            // 批量保存歷史記錄數據
-            libraryAreaHistoryRepository.saveAll(histories);
-            
-            System.out.println("成功批量保存數據和歷史記錄，使用自訂時間：" + customTime + "，記錄數量: " + areas.size());
-        } catch (Exception e) {
-            System.err.println("解析和保存數據失敗: " + e.getMessage());
-            e.printStackTrace();
-        }
+    public LocalDateTime now() {
+        return LocalDateTime.now(clock);
     }
     
     /**
-     * 檢查字符串是否為有效的JSON
+     * 手動測試API調用，用於診斷
      */
-    private boolean isValidJson(String json) {
-        if (json == null) return false;
-        json = json.trim();
-        return (json.startsWith("{") && json.endsWith("}")) || 
-               (json.startsWith("[") && json.endsWith("]"));
+    public String testApiCall() {
+        return upstreamFetcher.fetch();
     }
     
     /**
-     * 模擬瀏覽器行為獲取數據
+     * 取得各擷取策略的排序與統計
      */
-    private String simulateBrowserFetch() {
-        try {
-            // 設置一個完整的模擬瀏覽器環境
-            HttpHeaders headers = new HttpHeaders();
-            headers.add("Host", "seat.tpml.edu.tw");
-            headers.add("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36");
-            headers.add("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,*/*;q=0.8");
-            headers.add("Accept-Language", "zh-TW,zh;q=0.9,en-US;q=0.8,en;q=0.7");
-            headers.add("Connection", "keep-alive");
-            headers.add("Upgrade-Insecure-Requests", "1");
-            headers.add("Sec-Fetch-Dest", "document");
-            headers.add("Sec-Fetch-Mode", "navigate");
-            headers.add("Sec-Fetch-Site", "none");
-            headers.add("Sec-Fetch-User", "?1");
-            headers.add("Cache-Control", "max-age=0");
-            
-            // 首先訪問主頁，獲取必要的cookie
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-            ResponseEntity<String> homeResponse = restTemplate.exchange(
-                "https://seat.tpml.edu.tw/", 
-                HttpMethod.GET, 
-                entity, 
-                String.class
-            );
-            
-            System.out.println("主頁訪問狀態: " + homeResponse.getStatusCode());
-            
-            // 獲取cookies
-            List<String> cookies = homeResponse.getHeaders().get("Set-Cookie");
-            
-            // 現在有了cookie，嘗試訪問API
-            HttpHeaders apiHeaders = new HttpHeaders();
-            apiHeaders.add("Host", "seat.tpml.edu.tw");
-            apiHeaders.add("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36");
-            apiHeaders.add("Accept", "application/json, text/plain, */*");
-            apiHeaders.add("Accept-Language", "zh-TW,zh;q=0.9,en-US;q=0.8,en;q=0.7");
-            apiHeaders.add("Connection", "keep-alive");
-            apiHeaders.add("Referer", "https://seat.tpml.edu.tw/Home/Areas");
-            apiHeaders.add("Origin", "https://seat.tpml.edu.tw");
-            
-            // 添加從主頁獲取的cookies
-            if (cookies != null) {
-                for (String cookie : cookies) {
-                    apiHeaders.add("Cookie", cookie);
-                }
-            }
-            
-            entity = new HttpEntity<>(apiHeaders);
-            ResponseEntity<String> apiResponse = restTemplate.exchange(
-                TPML_API_URL, 
-                HttpMethod.GET, 
-                entity, 
-                String.class
-            );
-            
-            System.out.println("模擬瀏覽器API請求狀態: " + apiResponse.getStatusCode());
-            
-            String responseBody = apiResponse.getBody();
-            // 檢查是否獲得JSON響應
-            if (responseBody != null && isValidJson(responseBody)) {
-                System.out.println("模擬瀏覽器成功獲取JSON數據");
-                return responseBody;
-            } else {
-                System.out.println("模擬瀏覽器未能獲取有效數據");
-                return null;
-            }
-        } catch (Exception e) {
-            System.err.println("模擬瀏覽器獲取數據失敗: " + e.getMessage());
-            return null;
-        }
+    public List<FetchStrategyStatsDTO> getFetchStrategyStats() {
+        return upstreamFetcher.getStats();
     }
     
     /**
-     * 直接從網站URL獲取數據
+     * 取得各座位來源的狀態
      */
-    private String fetchDataFromWebsite() {
-        try {
-            // 嘗試直接訪問網站上可見的API URL
-            String apiUrl = "https://seat.tpml.edu.tw/sm/service/getAllArea";
-            
-            // 使用專門配置的RestTemplate
-            HttpHeaders headers = new HttpHeaders();
-            headers.add("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36");
-            headers.add("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,image/apng,*/*;q=0.8,application/signed-exchange;v=b3;q=0.9");
-            headers.add("Accept-Language", "zh-TW,zh;q=0.9,en-US;q=0.8,en;q=0.7");
-            headers.add("sec-ch-ua", "\"Google Chrome\";v=\"93\", \" Not;A Brand\";v=\"99\", \"Chromium\";v=\"93\"");
-            headers.add("sec-ch-ua-mobile", "?0");
-            headers.add("sec-ch-ua-platform", "\"Windows\"");
-            headers.add("Sec-Fetch-Dest", "document");
-            headers.add("Sec-Fetch-Mode", "navigate");
-            headers.add("Sec-Fetch-Site", "none");
-            headers.add("Sec-Fetch-User", "?1");
-            headers.add("Upgrade-Insecure-Requests", "1");
-            
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-            ResponseEntity<String> response = restTemplate.exchange(apiUrl, HttpMethod.GET, entity, String.class);
-            
-            String body = response.getBody();
-            if (body != null && isValidJson(body)) {
-                System.out.println("網站URL直接獲取成功");
-                return body;
-            } else {
-                System.out.println("網站URL未返回有效JSON數據");
-                return null;
-            }
-        } catch (Exception e) {
-            System.err.println("網站直接訪問失敗: " + e.getMessage());
-            return null;
-        }
+    public List<SeatSourceHealthDTO> getSeatSourceHealth() {
+        return seatSourceFetcher.getHealth();
     }
     
     /**
-     * 從API獲取數據的最佳實現方法
+     * 解析臺北市圖書館格式的JSON並保存一次快照，寫入所有分館的資料
      */
-    public String fetchDataFromApi() {
-        try {
-            // 更完整地模擬瀏覽器請求
-            HttpHeaders headers = new HttpHeaders();
-            headers.setAccept(Arrays.asList(MediaType.APPLICATION_JSON, MediaType.TEXT_PLAIN, MediaType.ALL));
-            headers.set("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36");
-            headers.set("Accept", "application/json, text/plain, */*");
-            headers.set("Accept-Language", "zh-TW,zh;q=0.9,en-US;q=0.8,en;q=0.7");
-            headers.set("Referer", "https://seat.tpml.edu.tw/");
-            headers.set("Origin", "https://seat.tpml.edu.tw");
-            headers.set("Connection", "keep-alive");
-            headers.set("Cache-Control", "no-cache");
-            headers.set("Pragma", "no-cache");
-            
-            // 先檢查API是否可用
-            try {
-                // 嘗試直接訪問座位查詢主頁以獲取必要的cookie或session
-                restTemplate.getForEntity("https://seat.tpml.edu.tw/", String.class);
-                System.out.println("成功訪問座位查詢主頁");
-            } catch (Exception e) {
-                System.out.println("訪問座位查詢主頁失敗: " + e.getMessage());
-            }
-            
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-            
-            // 發送請求並獲取回應
-            ResponseEntity<String> response = restTemplate.exchange(
-                TPML_API_URL, 
-                HttpMethod.GET, 
-                entity, 
-                String.class
-            );
-            
-            System.out.println("API響應內容類型: " + response.getHeaders().getContentType());
-            String responseBody = response.getBody();
-            
-            // 檢查響應是否為JSON (通過檢查開頭的'[' 或 '{')
-            if (responseBody != null && (responseBody.trim().startsWith("[") || responseBody.trim().startsWith("{"))) {
-                System.out.println("成功獲取JSON數據");
-                return responseBody;
-            } else {
-                System.out.println("響應內容不是JSON: " + (responseBody != null ? responseBody.substring(0, Math.min(responseBody.length(), 100)) : "null"));
-                
-                // 嘗試使用HttpURLConnection
-                return fetchDataWithHttpURLConnection();
-            }
-        } catch (Exception e) {
-            System.err.println("RestTemplate調用失敗: " + e.getMessage());
-            // 嘗試備選方法
-            return fetchDataWithHttpURLConnection();
-        }
+    public int saveSnapshot(String jsonData, LocalDateTime recordTime) {
+        List<LibraryArea> areas = tpmlSeatSource.parse(jsonData, recordTime);
+        areaIdentityRegistry.resolve(tpmlSeatSource.getAreaIdPrefix(), areas);
+        return saveSnapshot(areas, recordTime, branchName -> true, true);
     }
     
     /**
-     * 使用HttpURLConnection獲取數據（作為備選方法）
+     * 列出由舊版產生或已被取代的區域代碼
      */
-    public String fetchDataWithHttpURLConnection() {
-        HttpURLConnection connection = null;
-        BufferedReader reader = null;
-        StringBuilder response = new StringBuilder();
-        
-        try {
-            // 創建URL連接
-            URL url = new URL(TPML_API_URL);
-            connection = (HttpURLConnection) url.openConnection();
-            
-            // 設置請求方法和頭信息（更完整模擬瀏覽器）
-            connection.setRequestMethod("GET");
-            connection.setRequestProperty("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36");
-            connection.setRequestProperty("Accept", "application/json, text/plain, */*");
-            connection.setRequestProperty("Accept-Language", "zh-TW,zh;q=0.9,en-US;q=0.8,en;q=0.7");
-            connection.setRequestProperty("Referer", "https://seat.tpml.edu.tw/");
-            connection.setRequestProperty("Origin", "https://seat.tpml.edu.tw");
-            connection.setRequestProperty("Connection", "keep-alive");
-            connection.setRequestProperty("Cache-Control", "no-cache");
-            connection.setRequestProperty("Pragma", "no-cache");
-            
-            // 允許自動重定向
-            connection.setInstanceFollowRedirects(true);
-            
-            // 獲取響應代碼
-            int responseCode = connection.getResponseCode();
-            System.out.println("HttpURLConnection 響應代碼: " + responseCode);
-            
-            // 讀取響應內容
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                System.out.println("HttpURLConnection 響應內容類型: " + connection.getContentType());
-                
-                reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
-                }
-                
-                String responseStr = response.toString();
-                // 檢查響應是否為JSON
-                if (responseStr.trim().startsWith("[") || responseStr.trim().startsWith("{")) {
-                    System.out.println("HttpURLConnection成功獲取JSON數據");
-                    return responseStr;
-                } else {
-                    System.out.println("HttpURLConnection響應不是JSON格式: " + 
-                        responseStr.substring(0, Math.min(responseStr.length(), 100)));
-                    return null;
-                }
-            } else {
-                System.out.println("HttpURLConnection請求失敗，響應代碼: " + responseCode);
-                return null;
-            }
-        } catch (Exception e) {
-            System.err.println("HttpURLConnection失敗: " + e.getMessage());
-            return null;
-        } finally {
-            // 關閉連接和讀取器
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
-            if (connection != null) {
-                connection.disconnect();
-            }
-        }
+    public List<AreaOrphanDTO> getOrphanAreas() {
+        return areaIdentityRegistry.findOrphans();
     }
     
     /**
-     * 手動測試API調用，用於診斷
+     * 將孤兒區域代碼合併到目前的代碼
+     * @return 合併掉的孤兒數量
      */
-    public String testApiCall() {
-        return fetchDataFromApi();
+    public int mergeOrphanAreas() {
+        return areaIdentityRegistry.mergeOrphans();
     }
     
     /**
-     * 解析並保存數據
+     * 保存一次快照
+     * 同一分鐘桶內已寫入過的區域不會重複寫入歷史記錄；
+     * 寫入前先以 fencing token 遞增快照版本，失去擷取租約的節點在此即被拒絕
+     * @param areas 各座位來源合併後的區域
+     * @param recordTime 快照的記錄時間
+     * @param historyBranchFilter 需要寫入歷史記錄的分館，閉館分館的資料在寫入前剔除
+     * @param updateCurrent 是否同時更新當前座位資料
+     * @return 新寫入的歷史記錄數量
      */
-    private void parseAndSaveData(String jsonData) {
-        try {
-            // 獲取當前時間作為記錄時間
-            ZonedDateTime zonedNow = ZonedDateTime.now(ZoneId.of(timeZone));
-            LocalDateTime now = zonedNow.toLocalDateTime();
-            
-            // 解析JSON數據
-            JsonNode rootNode = objectMapper.readTree(jsonData);
-            List<LibraryArea> areas = new ArrayList<>();
-            List<LibraryAreaHistory> histories = new ArrayList<>();
-            
-            // 解析數據
-            for (JsonNode node : rootNode) {
-                // 首先檢查並使用正確的欄位名稱
-                // API 可能返回 area_id 或 areaId，所以需要檢查兩者
-                String areaId = "";
-                if (node.has("area_id")) {
-                    areaId = node.path("area_id").asText();
-                } else if (node.has("areaId")) {
-                    areaId = node.path("areaId").asText();
-                }
-                
-                String areaName = "";
-                if (node.has("area_name")) {
-                    areaName = node.path("area_name").asText();
-                } else if (node.has("areaName")) {
-                    areaName = node.path("areaName").asText();
-                }
-                
-                String branchName = "";
-                if (node.has("branch_name")) {
-                    branchName = node.path("branch_name").asText();
-                } else if (node.has("branchName")) {
-                    branchName = node.path("branchName").asText();
-                }
-                
-                String floorName = "";
-                if (node.has("floor_name")) {
-                    floorName = node.path("floor_name").asText();
-                } else if (node.has("floorName")) {
-                    floorName = node.path("floorName").asText();
-                }
-                
-                int freeCount = 0;
-                if (node.has("free_count")) {
-                    freeCount = node.path("free_count").asInt();
-                } else if (node.has("freeCount")) {
-                    freeCount = node.path("freeCount").asInt();
-                }
-                
-                int totalCount = 0;
-                if (node.has("total_count")) {
-                    totalCount = node.path("total_count").asInt();
-                } else if (node.has("totalCount")) {
-                    totalCount = node.path("totalCount").asInt();
-                }
-                
-                // 確保 areaId 有值
-                if (areaId.isEmpty()) {
-                    // 如果沒有 areaId，則生成一個臨時值
-                    areaId = String.valueOf(System.currentTimeMillis() + areas.size());
-                    System.out.println("生成臨時 areaId: " + areaId);
-                }
-                
-                // 輸出解析結果以便調試
-                System.out.println("解析數據: areaId=" + areaId + 
-                                  ", areaName=" + areaName +
-                                  ", branchName=" + branchName +
-                                  ", floorName=" + floorName +
-                                  ", freeCount=" + freeCount +
-                                  ", totalCount=" + totalCount);
-                
-                LibraryArea area = new LibraryArea(areaId, branchName, floorName, areaName, 
-                                                  freeCount, totalCount, now);
-                areas.add(area);
-                
-                // 為每個區域創建歷史記錄，但不立即保存
-                LibraryAreaHistory history = new LibraryAreaHistory(area);
-                histories.add(history);
+    @Transactional
+    public int saveSnapshot(List<LibraryArea> areas, LocalDateTime recordTime, Predicate<String> historyBranchFilter, boolean updateCurrent) {
+        snapshotVersionService.advance(recordTime, updateCurrent);
+        
+        // 批量保存當前數據，只寫入座位數有變動的區域；本次未擷取到的座位來源保留原有資料
+        int changedAreas = 0;
+        List<LibraryArea> currentAreas = areas;
+        if (updateCurrent) {
+            List<LibraryArea> retained = new ArrayList<>();
+            changedAreas = libraryAreaBulkRepository.replaceChanged(areas, seatSourceCatalog::namespaceOf, retained);
+            if (!retained.isEmpty()) {
+                currentAreas = new ArrayList<>(areas);
+                currentAreas.addAll(retained);
             }
-            
-            // 批量保存當前數據
-            libraryAreaRepository.saveAll(areas);
-            
-            // 批量保存歷史記錄數據
-            libraryAreaHistoryRepository.saveAll(histories);
-            
-            System.out.println("成功批量保存數據和歷史記錄，記錄數量: " + areas.size());
-        } catch (Exception e) {
-            System.err.println("解析和保存數據失敗: " + e.getMessage());
-            e.printStackTrace();
         }
-    }
-    
-    /**
-     * 手動獲取和保存數據
-     */
-    public String manualFetchAndSave() {
-        try {
-            // 嘗試獲取數據
-            String apiResponse = fetchDataFromApi();
-            
-            if (apiResponse != null && !apiResponse.trim().startsWith("<")) {
-                parseAndSaveData(apiResponse);
-                return "成功從API獲取並保存數據";
-            } else {
-                // 使用硬編碼數據
-                String jsonSample = fetchHardcodedSampleData();
-                parseAndSaveData(jsonSample);
-                return "無法從API獲取有效數據，使用了硬編碼範例數據";
+        
+        // 排除閉館分館及本分鐘桶內已存在的歷史記錄，避免重複快照
+        long recordMinute = LibraryAreaHistory.toMinuteBucket(recordTime);
+        List<LibraryArea> historyAreas = areas.stream()
+                .filter(area -> historyBranchFilter.test(area.getBranchName()))
+                .collect(Collectors.toList());
+        Map<String, Integer> areaKeys = areaDimensionService.resolveKeys(historyAreas);
+        Set<Integer> existingAreaKeys = new HashSet<>(libraryAreaHistoryFactRepository.findAreaKeysByRecordMinute(recordMinute));
+        Map<Integer, LibraryArea> histories = new LinkedHashMap<>();
+        for (LibraryArea area : historyAreas) {
+            Integer areaKey = areaKeys.get(area.getAreaId());
+            if (existingAreaKeys.add(areaKey)) {
+                histories.put(areaKey, area);
             }
-        } catch (Exception e) {
-            return "手動獲取數據時發生錯誤: " + e.getMessage();
         }
+        
+        // 批量保存歷史記錄數據
+        int insertedHistories = libraryAreaBulkRepository.insertHistory(recordMinute, histories);
+        
+        System.out.println("成功批量保存數據和歷史記錄，記錄時間: " + recordTime + "，記錄數量: " + areas.size()
+                + "，變動區域: " + changedAreas + "，新增歷史記錄: " + insertedHistories);
+        
+        // 通知依賴最新快照的記憶體結構
+        eventPublisher.publishEvent(new SnapshotSavedEvent(recordTime, currentAreas, historyAreas, updateCurrent));
+        return insertedHistories;
     }
     
     /**
      * 獲取最新的座位數據
      */
+    @Transactional(readOnly = true)
     public List<LibraryAreaDTO> getCurrentAvailability() {
-        List<LibraryArea> areas = libraryAreaRepository.findLatest();
-        return convertToDTO(areas);
+        return convertCurrentToDTO(libraryAreaRepository.findAll());
     }
     
     /**
      * 獲取每天佔用率最高的時段和佔用率最高的日期
      */
+    @Transactional(readOnly = true)
     public OccupationStatsDTO getOccupationStats() {
         OccupationStatsDTO stats = new OccupationStatsDTO();
         
@@ -729,150 +270,215 @@ public class LibraryAreaService {
     }
     
     /**
-     * 硬編碼的範例數據，從瀏覽器獲取的實際API響應
+     * 將當前座位資料轉換為DTO
+     * 沒有變動的區域保留上次變動的記錄時間，統一以最後一次即時快照的時間顯示
      */
-    private String fetchHardcodedSampleData() {
-        // 確保使用與您表格中看到的數據相似的樣本數據
-        // 注意欄位名稱使用下劃線格式，與API可能返回的格式一致
-        return "[\n" +
-                "{\n" +
-                "\"id\": 1986,\n" +
-                "\"area_id\": \"1986\",\n" +
-                "\"area_name\": \"兒童閱覽區\",\n" +
-                "\"branch_name\": \"總館\",\n" +
-                "\"floor_name\": \"3F\",\n" +
-                "\"free_count\": 5,\n" +
-                "\"total_count\": 20\n" +
-                "},\n" +
-                "{\n" +
-                "\"id\": 1987,\n" +
-                "\"area_id\": \"1987\",\n" +
-                "\"area_name\": \"青少年閱覽區\",\n" +
-                "\"branch_name\": \"總館\",\n" +
-                "\"floor_name\": \"4F\",\n" +
-                "\"free_count\": 10,\n" +
-                "\"total_count\": 30\n" +
-                "},\n" +
-                "{\n" +
-                "\"id\": 1988,\n" +
-                "\"area_id\": \"1988\",\n" +
-                "\"area_name\": \"自修室\",\n" +
-                "\"branch_name\": \"總館\",\n" +
-                "\"floor_name\": \"5F\",\n" +
-                "\"free_count\": 15,\n" +
-                "\"total_count\": 50\n" +
-                "},\n" +
-                "{\n" +
-                "\"id\": 1989,\n" +
-                "\"area_id\": \"1989\",\n" +
-                "\"area_name\": \"期刊閱覽區\",\n" +
-                "\"branch_name\": \"總館\",\n" +
-                "\"floor_name\": \"6F\",\n" +
-                "\"free_count\": 8,\n" +
-                "\"total_count\": 25\n" +
-                "},\n" +
-                "{\n" +
-                "\"id\": 1990,\n" +
-                "\"area_id\": \"1990\",\n" +
-                "\"area_name\": \"電腦區\",\n" +
-                "\"branch_name\": \"總館\",\n" +
-                "\"floor_name\": \"7F\",\n" +
-                "\"free_count\": 3,\n" +
-                "\"total_count\": 15\n" +
-                "},\n" +
-                "{\n" +
-                "\"id\": 1991,\n" +
-                "\"area_id\": \"1991\",\n" +
-                "\"area_name\": \"討論室\",\n" +
-                "\"branch_name\": \"文山分館\",\n" +
-                "\"floor_name\": \"2F\",\n" +
-                "\"free_count\": 2,\n" +
-                "\"total_count\": 4\n" +
-                "}\n" +
-                "]";
+    private List<LibraryAreaDTO> convertCurrentToDTO(List<LibraryArea> areas) {
+        List<LibraryAreaDTO> dtoList = convertToDTO(areas);
+        LocalDateTime snapshotTime = snapshotVersionService.getCurrentSnapshotTime();
+        if (snapshotTime != null) {
+            dtoList.forEach(dto -> dto.setRecordTime(snapshotTime));
+        }
+        return dtoList;
     }
     
     /**
-     * 轉換為歷史記錄DTO
+     * 獲取指定日期的歷史記錄
+     * @param maxPoints 每個區域最多回傳的筆數，null 表示不降採樣
      */
-    private List<LibraryAreaHistoryDTO> convertToHistoryDTO(List<LibraryAreaHistory> histories) {
-        return histories.stream().map(history -> {
-            LibraryAreaHistoryDTO dto = new LibraryAreaHistoryDTO();
-            dto.setAreaId(history.getAreaId());
-            dto.setAreaName(history.getAreaName());
-            dto.setBranchName(history.getBranchName());
-            dto.setFloorName(history.getFloorName());
-            dto.setFreeCount(history.getFreeCount());
-            dto.setTotalCount(history.getTotalCount());
-            dto.setRecordTime(history.getRecordTime());
-            dto.setOccupationRate(history.getOccupationRate());
-            return dto;
-        }).collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public List<LibraryAreaHistoryDTO> getHistoryByDate(LocalDate date, Set<HistoryField> fields, Integer maxPoints) {
+        return historyQueryCache.get(HistoryQueryCache.Key.all("historyByDate", date, Arrays.asList(fields, maxPoints)),
+                () -> getHistoryRows(null, startMinute(date), startMinute(date.plusDays(1)), fields, maxPoints));
     }
     
     /**
-     * 獲取指定日期的歷史記錄
+     * 獲取指定日期範圍的歷史記錄
      */
-    public List<LibraryAreaHistoryDTO> getHistoryByDate(LocalDate date) {
-        List<LibraryAreaHistory> histories = libraryAreaHistoryRepository.findByDate(date);
-        return convertToHistoryDTO(histories);
+    @Transactional(readOnly = true)
+    public List<LibraryAreaHistoryDTO> getHistoryByDateRange(LocalDate startDate, LocalDate endDate,
+                                                             Set<HistoryField> fields, Integer maxPoints) {
+        return getHistoryRows(null, startMinute(startDate), startMinute(endDate.plusDays(1)), fields, maxPoints);
     }
     
     /**
-     * 獲取指定日期範圍的歷史記錄
+     * 獲取特定區域在指定日期的歷史記錄
      */
-    public List<LibraryAreaHistoryDTO> getHistoryByDateRange(LocalDate startDate, LocalDate endDate) {
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.atTime(LocalTime.MAX);
-        List<LibraryAreaHistory> histories = libraryAreaHistoryRepository.findByRecordTimeBetween(startDateTime, endDateTime);
-        return convertToHistoryDTO(histories);
+    @Transactional(readOnly = true)
+    public List<LibraryAreaHistoryDTO> getHistoryByAreaAndDate(String areaId, LocalDate date,
+                                                               Set<HistoryField> fields, Integer maxPoints) {
+        return historyQueryCache.get(HistoryQueryCache.Key.area("historyByArea", areaId, date, Arrays.asList(fields, maxPoints)),
+                () -> getHistoryRows(areaId, startMinute(date), startMinute(date.plusDays(1)), fields, maxPoints));
     }
     
     /**
-     * 獲取特定區域在指定日期的歷史記錄
+     * 獲取指定日期範圍的歷史記錄，每個區域一個欄式序列
+     */
+    @Transactional(readOnly = true)
+    public List<LibraryAreaHistorySeriesDTO> getHistorySeriesByDateRange(LocalDate startDate, LocalDate endDate,
+                                                                         Integer maxPoints) {
+        checkMaxPoints(maxPoints);
+        return libraryAreaHistorySeriesRepository.find(null, startMinute(startDate), startMinute(endDate.plusDays(1)), maxPoints);
+    }
+    
+    /**
+     * 獲取特定區域在指定日期的歷史記錄欄式序列，沒有記錄時回傳空清單
      */
-    public List<LibraryAreaHistoryDTO> getHistoryByAreaAndDate(String areaId, LocalDate date) {
-        List<LibraryAreaHistory> histories = libraryAreaHistoryRepository.findByAreaIdAndDate(areaId, date);
-        return convertToHistoryDTO(histories);
+    @Transactional(readOnly = true)
+    public List<LibraryAreaHistorySeriesDTO> getHistorySeriesByAreaAndDate(String areaId, LocalDate date, Integer maxPoints) {
+        checkMaxPoints(maxPoints);
+        return historyQueryCache.get(HistoryQueryCache.Key.area("historySeriesByArea", areaId, date, maxPoints),
+                () -> libraryAreaHistorySeriesRepository.find(areaId, startMinute(date), startMinute(date.plusDays(1)), maxPoints));
+    }
+    
+    /**
+     * 不降採樣時直接以投影查詢；降採樣時先以序列讀取並降採樣，再展開為逐筆記錄
+     */
+    private List<LibraryAreaHistoryDTO> getHistoryRows(String areaId, long fromMinute, long toMinute,
+                                                       Set<HistoryField> fields, Integer maxPoints) {
+        if (maxPoints == null) {
+            return libraryAreaHistoryProjectionRepository.find(areaId, fromMinute, toMinute, fields);
+        }
+        checkMaxPoints(maxPoints);
+        List<LibraryAreaHistoryDTO> result = new ArrayList<>();
+        for (LibraryAreaHistorySeriesDTO series : libraryAreaHistorySeriesRepository.find(areaId, fromMinute, toMinute, maxPoints)) {
+            int[] minuteOffsets = series.getMinuteOffsets();
+            for (int i = 0; i < minuteOffsets.length; i++) {
+                int freeCount = series.getFreeCounts()[i];
+                int totalCount = series.getTotalCounts()[i];
+                LibraryAreaHistoryDTO dto = new LibraryAreaHistoryDTO();
+                for (HistoryField field : fields) {
+                    switch (field) {
+                        case AREA_ID -> dto.setAreaId(series.getAreaId());
+                        case BRANCH_NAME -> dto.setBranchName(series.getBranchName());
+                        case FLOOR_NAME -> dto.setFloorName(series.getFloorName());
+                        case AREA_NAME -> dto.setAreaName(series.getAreaName());
+                        case FREE_COUNT -> dto.setFreeCount(freeCount);
+                        case TOTAL_COUNT -> dto.setTotalCount(totalCount);
+                        case RECORD_TIME -> dto.setRecordTime(series.getStartTime().plusMinutes(minuteOffsets[i]));
+                        case OCCUPATION_RATE -> dto.setOccupationRate(
+                                totalCount == 0 ? 0 : (double) (totalCount - freeCount) / totalCount * 100);
+                    }
+                }
+                result.add(dto);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * @throws IllegalArgumentException maxPoints 小於3，LTTB 至少需要頭尾與一個中間點
+     */
+    private void checkMaxPoints(Integer maxPoints) {
+        if (maxPoints != null && maxPoints < 3) {
+            throw new IllegalArgumentException("maxPoints 至少為 3: " + maxPoints);
+        }
+    }
+    
+    private long startMinute(LocalDate date) {
+        return LibraryAreaHistory.toMinuteBucket(date.atStartOfDay());
     }
     
     /**
      * 獲取特定區域在指定日期最繁忙的時間段
      */
+    @Transactional(readOnly = true)
     public List<Object[]> getBusiestHoursByAreaAndDate(String areaId, LocalDate date) {
-        return libraryAreaHistoryRepository.findBusiestHoursByAreaAndDate(areaId, date);
+        return historyQueryCache.get(HistoryQueryCache.Key.area("busiestHoursByArea", areaId, date, null),
+                () -> libraryAreaHistoryRepository.findBusiestHoursByAreaAndDate(areaId, date));
     }
     
     /**
      * 獲取特定分館在指定日期最繁忙的時間段
      */
+    @Transactional(readOnly = true)
     public List<Object[]> getBusiestHoursByBranchAndDate(String branchName, LocalDate date) {
-        return libraryAreaHistoryRepository.findBusiestHoursByBranchAndDate(branchName, date);
+        return historyQueryCache.get(HistoryQueryCache.Key.branch("busiestHoursByBranch", branchName, date, null),
+                () -> libraryAreaHistoryRepository.findBusiestHoursByBranchAndDate(branchName, date));
+    }
+    
+    /**
+     * 一次取得多個區域與分館在日期範圍內每日每小時的平均使用率
+     * 區域與分館各以一個分組查詢完成，不論數量多少
+     */
+    @Transactional(readOnly = true)
+    public BusiestHoursBatchDTO getBusiestHoursBatch(Set<String> areaIds, Set<String> branchNames,
+                                                     LocalDate startDate, LocalDate endDate) {
+        if (areaIds.isEmpty() && branchNames.isEmpty()) {
+            throw new IllegalArgumentException("至少需要指定一個區域或分館");
+        }
+        if (areaIds.size() + branchNames.size() > batchMaxKeys) {
+            throw new IllegalArgumentException("區域與分館合計不可超過 " + batchMaxKeys + " 個");
+        }
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("結束日期不可早於開始日期");
+        }
+        if (startDate.plusDays(batchMaxDays).isBefore(endDate.plusDays(1))) {
+            throw new IllegalArgumentException("日期範圍不可超過 " + batchMaxDays + " 天");
+        }
+
+        long fromMinute = startMinute(startDate);
+        long toMinute = startMinute(endDate.plusDays(1));
+        BusiestHoursBatchDTO result = new BusiestHoursBatchDTO(startDate, endDate);
+        if (!areaIds.isEmpty()) {
+            result.setAreas(groupHourlyOccupation(areaIds,
+                    libraryAreaHistoryRepository.findHourlyOccupationByAreaIdsAndMinuteRange(areaIds, fromMinute, toMinute)));
+        }
+        if (!branchNames.isEmpty()) {
+            result.setBranches(groupHourlyOccupation(branchNames,
+                    libraryAreaHistoryRepository.findHourlyOccupationByBranchNamesAndMinuteRange(branchNames, fromMinute, toMinute)));
+        }
+        return result;
+    }
+    
+    /**
+     * 將 (鍵, 日序, 小時, 平均使用率, 筆數) 的查詢結果依鍵分組，保留請求的順序
+     */
+    private Map<String, List<HourlyOccupationDTO>> groupHourlyOccupation(Set<String> keys, List<Object[]> rows) {
+        Map<String, List<HourlyOccupationDTO>> grouped = new LinkedHashMap<>();
+        for (String key : keys) {
+            grouped.put(key, new ArrayList<>());
+        }
+        for (Object[] row : rows) {
+            List<HourlyOccupationDTO> hours = grouped.get((String) row[0]);
+            if (hours == null) {
+                continue;
+            }
+            hours.add(new HourlyOccupationDTO(
+                    LocalDate.ofEpochDay(((Number) row[1]).longValue()),
+                    ((Number) row[2]).intValue(),
+                    ((Number) row[3]).doubleValue(),
+                    ((Number) row[4]).longValue()));
+        }
+        return grouped;
     }
     
     /**
      * 獲取指定日期每個區域的平均使用率
      */
+    @Transactional(readOnly = true)
     public List<Object[]> getAverageOccupationByDate(LocalDate date) {
-        return libraryAreaHistoryRepository.findAverageOccupationByDateGroupByArea(date);
+        return historyQueryCache.get(HistoryQueryCache.Key.all("averageOccupationByDate", date, null),
+                () -> libraryAreaHistoryRepository.findAverageOccupationByDateGroupByArea(date));
     }
     
     /**
      * 定期清理過時數據
-     * 每天凌晨2點執行，清理30天前的歷史數據
+     * 每天凌晨2點執行（見 SchedulingConfig），清理30天前的歷史數據
      */
-    @Scheduled(cron = "0 0 2 * * ?") // 每天凌晨2點執行
     public void cleanupOldData() {
         try {
-            ZonedDateTime zonedNow = ZonedDateTime.now(ZoneId.of(timeZone));
-            LocalDateTime thirtyDaysAgo = zonedNow.toLocalDateTime().minusDays(30);
+            long thirtyDaysAgo = LibraryAreaHistory.toMinuteBucket(now().minusDays(30));
             
             // 獲取要刪除的數據數量用於記錄
-            long count = libraryAreaHistoryRepository.countByRecordTimeBefore(thirtyDaysAgo);
+            long count = libraryAreaHistoryFactRepository.countByRecordMinuteLessThan(thirtyDaysAgo);
             
             // 執行刪除
-            int deletedCount = libraryAreaHistoryRepository.deleteByRecordTimeBefore(thirtyDaysAgo);
+            int deletedCount = libraryAreaHistoryFactRepository.deleteByRecordMinuteLessThan(thirtyDaysAgo);
             
+            // 30天前那一天只刪除了部分記錄，也一併失效
+            historyQueryCache.invalidateBefore(now().minusDays(30).toLocalDate().plusDays(1));
+            snapshotVersionService.advanceHistoryMaintenance();
             System.out.println("清理了" + deletedCount + "條30天前的歷史數據");
         } catch (Exception e) {
             System.err.println("清理歷史數據時發生錯誤: " + e.getMessage());
@@ -880,35 +486,14 @@ public class LibraryAreaService {
         }
     }
     
-    /**
-     * 重置資料庫並使用樣本數據重新填充
-     * 這個方法用於測試和除錯
-     */
-    public String resetDatabase() {
-        try {
-            // 清空當前數據
-            libraryAreaRepository.deleteAll();
-            
-            // 使用樣本數據重新填充
-            String jsonSample = fetchHardcodedSampleData();
-            parseAndSaveData(jsonSample);
-            
-            return "資料庫已重置並使用樣本數據重新填充";
-        } catch (Exception e) {
-            return "重置資料庫時發生錯誤: " + e.getMessage();
-        }
-    }
-    
     /**
      * 獲取按分館分組的座位資料
      * @return 以分館名稱為鍵，座位資料列表為值的映射
      */
+    @Transactional(readOnly = true)
     public Map<String, List<LibraryAreaDTO>> getAvailabilityByBranch() {
-        // 先獲取所有最新資料
-        List<LibraryArea> allAreas = libraryAreaRepository.findLatest();
-        
-        // 將資料轉換為DTO
-        List<LibraryAreaDTO> dtoList = convertToDTO(allAreas);
+        // 先獲取所有最新資料並轉換為DTO
+        List<LibraryAreaDTO> dtoList = convertCurrentToDTO(libraryAreaRepository.findAll());
         
         // 按分館分組
         return dtoList.stream()
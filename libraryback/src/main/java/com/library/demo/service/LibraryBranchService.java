@@ -1,106 +1,364 @@
 package com.library.demo.service;
 
+import java.time.Clock;
+import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.library.demo.dto.LibraryBranchDTO;
+import com.library.demo.event.BranchHoursChangedEvent;
 import com.library.demo.model.LibraryBranch;
 import com.library.demo.repository.LibraryBranchRepository;
-import com.library.demo.service.LibraryAreaService;
 
+/**
+ * 分館營業時間與開放狀態
+ * 營業時間讀入不可變的 BranchHoursCalendar，判斷是否開放不需讀取資料庫；
+ * 只有分館資料變動時才重新建立行事曆，非主節點每小時重新載入一次以取得其他節點的變更；
+ * 營業時間變動時發布 BranchHoursChangedEvent，讓依營業時間設定的計時器重新計算
+ */
 @Service
 public class LibraryBranchService {
 
     @Autowired
     private LibraryBranchRepository libraryBranchRepository;
     
-    @Autowired
-    private LibraryAreaService libraryAreaService;
+    @Value("${library.open-time}")
+    private String openTime;
     
     @Value("${library.close-time}")
     private String closeTime;
     
+    @Value("${library.weekend.open-time}")
+    private String weekendOpenTime;
+    
     @Value("${library.weekend.close-time}")
     private String weekendCloseTime;
     
-    @Value("${spring.jackson.time-zone:Asia/Taipei}")
-    private String timeZone;
+    // 所有分館整天休館的日期，以逗號分隔的 yyyy-MM-dd
+    @Value("${library.holidays:}")
+    private String holidays;
+    
+    @Autowired
+    private Clock clock;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    // 在快照中出現過、但尚未在分館表登記的分館，這些分館沿用全域營業時間
+    private final Set<String> unregisteredBranchNames = ConcurrentHashMap.newKeySet();
+    
+    // 是否已套用過至少一次分館過濾，在此之前無法得知是否有未登記的分館
+    private volatile boolean snapshotBranchesObserved = false;
+    
+    private volatile BranchHoursCalendar calendar;
+    
+    /**
+     * 目前的營業時間行事曆，第一次使用時從資料庫載入
+     */
+    public BranchHoursCalendar getCalendar() {
+        BranchHoursCalendar current = calendar;
+        if (current == null) {
+            synchronized (this) {
+                if (calendar == null) {
+                    reloadCalendar();
+                }
+                current = calendar;
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * 從資料庫重新建立行事曆，營業時間有變動時發布 BranchHoursChangedEvent
+     */
+    public void reloadCalendar() {
+        BranchHoursCalendar previous;
+        BranchHoursCalendar reloaded;
+        synchronized (this) {
+            previous = calendar;
+            reloaded = BranchHoursCalendar.build(libraryBranchRepository.findAll(),
+                    LocalTime.parse(openTime), LocalTime.parse(closeTime),
+                    LocalTime.parse(weekendOpenTime), LocalTime.parse(weekendCloseTime),
+                    parseHolidays(holidays));
+            calendar = reloaded;
+        }
+        if (previous != null && !previous.hasSameHours(reloaded)) {
+            eventPublisher.publishEvent(new BranchHoursChangedEvent());
+        }
+    }
     
     /**
      * 獲取所有分館資訊
      */
     public List<LibraryBranchDTO> getAllBranches() {
-        List<LibraryBranch> branches = libraryBranchRepository.findAll();
-        return branches.stream()
-                .map(this::convertToDTO)
+        BranchHoursCalendar current = getCalendar();
+        LocalDateTime now = LocalDateTime.now(clock);
+        return current.getBranches().stream()
+                .map(branch -> convertToDTO(branch, current, now))
                 .collect(Collectors.toList());
     }
     
+    /**
+     * 非主節點重新載入行事曆，取得主節點上的變更
+     * 每小時執行一次（見 SchedulingConfig）
+     */
+    public void reloadCalendarOnFollower() {
+        try {
+            reloadCalendar();
+        } catch (Exception e) {
+            System.err.println("重新載入分館營業時間失敗: " + e.getMessage());
+        }
+    }
+    
     /**
      * 更新分館開放狀態
+     * 由 TransitionScheduler 在分館開館與閉館時呼叫，依行事曆找出狀態改變的分館，以批次 UPDATE 寫入
+     * 寫入失敗時例外交由呼叫端處理，兩次 UPDATE 一併回復，記憶體中的行事曆也不更新
      */
-    @Scheduled(cron = "0 0 * * * ?") // 每小時執行一次
+    @Transactional
     public void updateBranchOpenStatus() {
-        try {
-            List<LibraryBranch> branches = libraryBranchRepository.findAll();
+        BranchHoursCalendar current = getCalendar();
+        LocalDateTime now = LocalDateTime.now(clock);
+        Map<String, Boolean> changedFlags = new LinkedHashMap<>();
+        List<String> opened = new ArrayList<>();
+        List<String> closed = new ArrayList<>();
+        for (BranchHoursCalendar.BranchHours branch : current.getBranches()) {
+            boolean isOpenNow = current.isOpen(branch.getBranchName(), now);
             
-            for (LibraryBranch branch : branches) {
-                boolean wasOpen = branch.isOpen();
-                boolean isOpenNow = isLibraryOpenNow(branch);
-                
-                // 如果開放狀態發生變化，更新記錄
-                if (wasOpen != isOpenNow) {
-                    branch.setOpen(isOpenNow);
-                    libraryBranchRepository.save(branch);
-                    System.out.println("更新分館 " + branch.getBranchName() + " 開放狀態為: " + (isOpenNow ? "開放" : "關閉"));
-                }
+            // 如果開放狀態發生變化，更新記錄
+            if (branch.isOpen() != isOpenNow) {
+                changedFlags.put(branch.getBranchName(), isOpenNow);
+                (isOpenNow ? opened : closed).add(branch.getBranchName());
+                System.out.println("更新分館 " + branch.getBranchName() + " 開放狀態為: " + (isOpenNow ? "開放" : "關閉"));
             }
-        } catch (Exception e) {
-            System.err.println("更新分館開放狀態時發生錯誤: " + e.getMessage());
-            e.printStackTrace();
+        }
+        // 開館與閉館的分館各一次 UPDATE，不逐一載入再合併實體
+        if (!opened.isEmpty()) {
+            libraryBranchRepository.updateOpenFlags(opened, true);
+        }
+        if (!closed.isEmpty()) {
+            libraryBranchRepository.updateOpenFlags(closed, false);
+        }
+        if (!changedFlags.isEmpty()) {
+            replaceCalendar(current, current.withOpenFlags(changedFlags));
         }
     }
     
     /**
-     * 將實體轉換為DTO
+     * 將行事曆中的分館轉換為DTO
      */
-    private LibraryBranchDTO convertToDTO(LibraryBranch branch) {
+    private LibraryBranchDTO convertToDTO(BranchHoursCalendar.BranchHours branch, BranchHoursCalendar current, LocalDateTime now) {
         LibraryBranchDTO dto = new LibraryBranchDTO();
         dto.setBranchName(branch.getBranchName());
         dto.setOpenTime(branch.getOpenTime());
         dto.setCloseTime(branch.getCloseTime());
         dto.setOpen(branch.isOpen());
-        dto.setOpenNow(branch.isOpenNow());
+        dto.setOpenNow(current.isOpen(branch.getBranchName(), now));
         return dto;
     }
     
     /**
      * 添加或更新分館資訊
+     * 營業時間或開放狀態有變動時才重新建立行事曆
+     * @throws IllegalArgumentException 未指定分館名稱或營業時間
      */
     public LibraryBranchDTO saveBranch(LibraryBranchDTO branchDTO) {
-        LibraryBranch branch = new LibraryBranch();
-        branch.setBranchName(branchDTO.getBranchName());
-        branch.setOpenTime(branchDTO.getOpenTime());
-        branch.setCloseTime(branchDTO.getCloseTime());
-        branch.setOpen(branchDTO.isOpen());
+        if (branchDTO.getBranchName() == null || branchDTO.getOpenTime() == null || branchDTO.getCloseTime() == null) {
+            throw new IllegalArgumentException("分館名稱與營業時間不可為空");
+        }
+        BranchHoursCalendar current = getCalendar();
+        BranchHoursCalendar.BranchHours existing = current.getBranch(branchDTO.getBranchName());
+        boolean changed = existing == null
+                || !existing.getOpenTime().equals(branchDTO.getOpenTime())
+                || !existing.getCloseTime().equals(branchDTO.getCloseTime())
+                || existing.isOpen() != branchDTO.isOpen();
         
-        branch = libraryBranchRepository.save(branch);
-        return convertToDTO(branch);
+        if (changed) {
+            LibraryBranch branch = new LibraryBranch();
+            branch.setBranchName(branchDTO.getBranchName());
+            branch.setOpenTime(branchDTO.getOpenTime());
+            branch.setCloseTime(branchDTO.getCloseTime());
+            branch.setOpen(branchDTO.isOpen());
+            libraryBranchRepository.save(branch);
+            reloadCalendar();
+        }
+        unregisteredBranchNames.remove(branchDTO.getBranchName());
+        BranchHoursCalendar updated = getCalendar();
+        return convertToDTO(updated.getBranch(branchDTO.getBranchName()), updated, LocalDateTime.now(clock));
     }
-
-    public boolean isLibraryOpenNow(LibraryBranch branch) {
-        LocalTime currentTime = LocalTime.now(ZoneId.of(timeZone));
-        return !currentTime.isBefore(branch.getOpenTime()) && 
-               currentTime.isBefore(branch.getCloseTime());
+    
+    /**
+     * 判斷指定時間是否至少有一間分館開放
+     * 已登記的分館依各自的營業時間判斷，未登記的分館沿用全域營業時間
+     */
+    public boolean isAnyBranchOpen(LocalDateTime dateTime) {
+        BranchHoursCalendar current = getCalendar();
+        for (BranchHoursCalendar.BranchHours branch : current.getBranches()) {
+            if (current.isOpen(branch.getBranchName(), dateTime)) {
+                return true;
+            }
+        }
+        
+        return mayHaveUnregisteredBranches(current) && current.isDefaultOpen(dateTime);
+    }
+    
+    /**
+     * 沒有登記任何分館、尚未看過快照，或快照中有未登記的分館時，才需要參考全域營業時間
+     */
+    private boolean mayHaveUnregisteredBranches(BranchHoursCalendar current) {
+        return current.getBranches().isEmpty() || !snapshotBranchesObserved || !unregisteredBranchNames.isEmpty();
+    }
+    
+    /**
+     * 建立指定時間的開放分館過濾條件，用於寫入前剔除閉館分館的資料
+     * 使用建立時的行事曆
+     */
+    public Predicate<String> openBranchFilter(LocalDateTime dateTime) {
+        BranchHoursCalendar current = getCalendar();
+        boolean defaultHoursOpen = current.isDefaultOpen(dateTime);
+        
+        return branchName -> {
+            if (!current.isRegistered(branchName)) {
+                boolean defaultHoursIgnored = !mayHaveUnregisteredBranches(current);
+                if (unregisteredBranchNames.add(branchName) && defaultHoursIgnored) {
+                    // 計時器原本不參考全域營業時間，出現未登記的分館後需重新計算
+                    eventPublisher.publishEvent(new BranchHoursChangedEvent());
+                }
+                snapshotBranchesObserved = true;
+                return defaultHoursOpen;
+            }
+            snapshotBranchesObserved = true;
+            return current.isOpen(branchName, dateTime);
+        };
+    }
+    
+    /**
+     * 找出閉館前 minutesBeforeClosing 分鐘落在 (from, to] 之間的分館
+     * @return 以閉館時間為鍵、該批分館的過濾條件為值的映射
+     */
+    public Map<LocalDateTime, Predicate<String>> findBranchesClosingBetween(LocalDateTime from, LocalDateTime to,
+                                                                           int minutesBeforeClosing) {
+        BranchHoursCalendar current = getCalendar();
+        Map<LocalDateTime, Set<String>> closingBranches = new HashMap<>();
+        Map<LocalDateTime, Predicate<String>> result = new HashMap<>();
+        for (LocalDate date = from.toLocalDate(); !date.isAfter(to.toLocalDate().plusDays(1)); date = date.plusDays(1)) {
+            for (BranchHoursCalendar.BranchHours branch : current.getBranches()) {
+                LocalDateTime closingTime = closingTimeBetween(current.getCloseTime(branch.getBranchName(), date),
+                        date, from, to, minutesBeforeClosing);
+                if (closingTime != null) {
+                    closingBranches.computeIfAbsent(closingTime, k -> new HashSet<>()).add(branch.getBranchName());
+                }
+            }
+            
+            // 未登記的分館依全域閉館時間記錄
+            LocalDateTime defaultClosingTime = closingTimeBetween(current.getDefaultCloseTime(date),
+                    date, from, to, minutesBeforeClosing);
+            if (defaultClosingTime != null && mayHaveUnregisteredBranches(current)) {
+                Predicate<String> unregistered = unregisteredBranchNames::contains;
+                result.merge(defaultClosingTime, unregistered, Predicate::or);
+            }
+        }
+        closingBranches.forEach((closingTime, names) -> result.merge(closingTime, names::contains, Predicate::or));
+        return result;
+    }
+    
+    /**
+     * 下一次有分館開放的時間
+     * @return 目前已有分館開放時回傳 now；一年內都不會開館時回傳 null
+     */
+    public LocalDateTime nextOpening(LocalDateTime now) {
+        if (isAnyBranchOpen(now)) {
+            return now;
+        }
+        // 所有分館都閉館，各分館的下一次變化即為開館
+        return earliest((current, branchName) -> current.nextTransition(branchName, now));
+    }
+    
+    /**
+     * 任一分館下一次開館或閉館的時間
+     */
+    public LocalDateTime nextTransition(LocalDateTime now) {
+        return earliest((current, branchName) -> current.nextTransition(branchName, now));
+    }
+    
+    /**
+     * 指定時間之後第一次有分館進入閉館前 minutesBeforeClosing 分鐘的時間
+     */
+    public LocalDateTime nextPreClose(LocalDateTime after, int minutesBeforeClosing) {
+        return earliest((current, branchName) -> current.nextPreClose(branchName, after, minutesBeforeClosing));
+    }
+    
+    /**
+     * 對所有已登記的分館取最早的時間；可能有未登記的分館時，同時參考全域營業時間（branchName 為 null）
+     * 與 isAnyBranchOpen 的判斷一致，所有分館都有各自的營業時間時不會在全域開閉館時間喚醒計時器
+     */
+    private LocalDateTime earliest(BiFunction<BranchHoursCalendar, String, LocalDateTime> timeOf) {
+        BranchHoursCalendar current = getCalendar();
+        LocalDateTime earliest = mayHaveUnregisteredBranches(current) ? timeOf.apply(current, null) : null;
+        for (BranchHoursCalendar.BranchHours branch : current.getBranches()) {
+            LocalDateTime time = timeOf.apply(current, branch.getBranchName());
+            if (time != null && (earliest == null || time.isBefore(earliest))) {
+                earliest = time;
+            }
+        }
+        return earliest;
+    }
+    
+    /**
+     * 依全域設定判斷圖書館是否開館，週日及週一使用另一組時間，休館日不開館
+     */
+    public boolean isDefaultHoursOpen(LocalDateTime dateTime) {
+        return getCalendar().isDefaultOpen(dateTime);
+    }
+    
+    private static Set<LocalDate> parseHolidays(String value) {
+        Set<LocalDate> dates = new HashSet<>();
+        if (value != null) {
+            for (String date : value.split(",")) {
+                if (!date.isBlank()) {
+                    dates.add(LocalDate.parse(date.trim()));
+                }
+            }
+        }
+        return dates;
+    }
+    
+    /**
+     * 只在行事曆未被其他變更取代時才換上新的行事曆
+     */
+    private synchronized void replaceCalendar(BranchHoursCalendar expected, BranchHoursCalendar replacement) {
+        if (calendar == expected) {
+            calendar = replacement;
+        }
+    }
+    
+    /**
+     * 當天的閉館前時間落在 (from, to] 時回傳閉館時間
+     */
+    private LocalDateTime closingTimeBetween(LocalTime closeTime, LocalDate date, LocalDateTime from, LocalDateTime to,
+                                             int minutesBeforeClosing) {
+        if (closeTime == null) {
+            return null;
+        }
+        LocalDateTime closingTime = LocalDateTime.of(date, closeTime);
+        LocalDateTime beforeClosing = closingTime.minusMinutes(minutesBeforeClosing);
+        return beforeClosing.isAfter(from) && !beforeClosing.isAfter(to) ? closingTime : null;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,138 @@
+package com.library.demo.service;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 依星期幾（0為星期一）與15分鐘時段累計的使用率
+ * 以基本型別陣列保存每個時段的筆數與使用率總和，平均值在讀取時計算；
+ * 同一分鐘只計入一次，與歷史記錄的分鐘桶一致
+ */
+public class OccupancyProfileMatrix {
+
+    public static final int WEEKDAYS = 7;
+    public static final int SLOTS_PER_DAY = 96;
+    public static final int MINUTES_PER_SLOT = 24 * 60 / SLOTS_PER_DAY;
+
+    private final int[] counts = new int[WEEKDAYS * SLOTS_PER_DAY];
+    private final double[] sums = new double[WEEKDAYS * SLOTS_PER_DAY];
+    private long lastMinute = Long.MIN_VALUE;
+    private boolean dirty;
+
+    /**
+     * 計入一分鐘的使用率
+     * @return 該分鐘已計入過時回傳 false
+     */
+    public synchronized boolean add(long recordMinute, double occupation) {
+        if (recordMinute <= lastMinute) {
+            return false;
+        }
+        lastMinute = recordMinute;
+        int index = index(recordMinute);
+        counts[index]++;
+        sums[index] += occupation;
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * 計入從歷史記錄彙總的結果
+     */
+    public synchronized void addAggregate(int weekday, int slot, double occupationSum, int count, long lastRecordMinute) {
+        int index = weekday * SLOTS_PER_DAY + slot;
+        counts[index] += count;
+        sums[index] += occupationSum;
+        lastMinute = Math.max(lastMinute, lastRecordMinute);
+        dirty = true;
+    }
+
+    /**
+     * 各時段的平均使用率，沒有資料的時段為 null
+     * @param slotsPerDay 每天的時段數，需能整除96，例如24表示以小時合併
+     */
+    public synchronized Double[][] means(int slotsPerDay) {
+        int merge = mergeFactor(slotsPerDay);
+        Double[][] result = new Double[WEEKDAYS][slotsPerDay];
+        for (int weekday = 0; weekday < WEEKDAYS; weekday++) {
+            for (int slot = 0; slot < slotsPerDay; slot++) {
+                long count = 0;
+                double sum = 0;
+                for (int i = 0; i < merge; i++) {
+                    int index = weekday * SLOTS_PER_DAY + slot * merge + i;
+                    count += counts[index];
+                    sum += sums[index];
+                }
+                result[weekday][slot] = count == 0 ? null : sum / count;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 各時段計入的筆數
+     */
+    public synchronized int[][] counts(int slotsPerDay) {
+        int merge = mergeFactor(slotsPerDay);
+        int[][] result = new int[WEEKDAYS][slotsPerDay];
+        for (int weekday = 0; weekday < WEEKDAYS; weekday++) {
+            for (int slot = 0; slot < slotsPerDay; slot++) {
+                for (int i = 0; i < merge; i++) {
+                    result[weekday][slot] += counts[weekday * SLOTS_PER_DAY + slot * merge + i];
+                }
+            }
+        }
+        return result;
+    }
+
+    public synchronized long getLastMinute() {
+        return lastMinute;
+    }
+
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    public synchronized void markClean() {
+        dirty = false;
+    }
+
+    public synchronized void markDirty() {
+        dirty = true;
+    }
+
+    public synchronized byte[] countsToBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(counts.length * Integer.BYTES);
+        buffer.asIntBuffer().put(counts);
+        return buffer.array();
+    }
+
+    public synchronized byte[] sumsToBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(sums.length * Double.BYTES);
+        buffer.asDoubleBuffer().put(sums);
+        return buffer.array();
+    }
+
+    /**
+     * 由保存的二進位陣列還原
+     */
+    public static OccupancyProfileMatrix fromBytes(byte[] counts, byte[] sums, long lastMinute) {
+        OccupancyProfileMatrix matrix = new OccupancyProfileMatrix();
+        ByteBuffer.wrap(counts).asIntBuffer().get(matrix.counts);
+        ByteBuffer.wrap(sums).asDoubleBuffer().get(matrix.sums);
+        matrix.lastMinute = lastMinute;
+        return matrix;
+    }
+
+    // 分鐘序號以本地時間的1970-01-01（星期四）起算
+    private static int index(long recordMinute) {
+        int weekday = (int) Math.floorMod(Math.floorDiv(recordMinute, 1440) + 3, 7);
+        int slot = (int) (Math.floorMod(recordMinute, 1440) / MINUTES_PER_SLOT);
+        return weekday * SLOTS_PER_DAY + slot;
+    }
+
+    private static int mergeFactor(int slotsPerDay) {
+        if (slotsPerDay <= 0 || SLOTS_PER_DAY % slotsPerDay != 0) {
+            throw new IllegalArgumentException("每天的時段數需能整除 " + SLOTS_PER_DAY + ": " + slotsPerDay);
+        }
+        return SLOTS_PER_DAY / slotsPerDay;
+    }
+}
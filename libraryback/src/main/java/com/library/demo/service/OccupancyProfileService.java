@@ -0,0 +1,222 @@
+package com.library.demo.service;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.library.demo.dto.OccupancyProfileDTO;
+import com.library.demo.event.SnapshotSavedEvent;
+import com.library.demo.model.LibraryArea;
+import com.library.demo.model.LibraryAreaHistory;
+import com.library.demo.model.OccupancyProfile;
+import com.library.demo.repository.OccupancyProfileRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 維護各區域與分館依星期幾與15分鐘時段的使用率分佈
+ * 主節點寫入快照時逐分鐘累計並定期保存；其他節點定期從資料庫重新載入。
+ * 啟動時先載入保存的分佈，資料庫中沒有任何分佈時由主節點從近幾週的歷史記錄建立
+ */
+@Service
+public class OccupancyProfileService {
+
+    @Value("${library.profile.seed-weeks:8}")
+    private int seedWeeks;
+
+    @Autowired
+    private OccupancyProfileRepository occupancyProfileRepository;
+
+    @Autowired
+    private ClusterLeaseService clusterLeaseService;
+
+    @Autowired
+    private Clock clock;
+
+    // 鍵為 OccupancyProfile.key(類型, 名稱)
+    private final Map<String, OccupancyProfileMatrix> profiles = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            reload();
+            if (profiles.isEmpty() && clusterLeaseService.isLeader()) {
+                seedFromHistory();
+                persist();
+            }
+        } catch (Exception e) {
+            System.err.println("載入使用率分佈失敗: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 收到快照時把寫入歷史記錄的區域計入分佈，只在主節點上累計
+     */
+    @EventListener
+    public void onSnapshotSaved(SnapshotSavedEvent event) {
+        if (!clusterLeaseService.isLeader()) {
+            return;
+        }
+        long recordMinute = LibraryAreaHistory.toMinuteBucket(event.getRecordTime());
+        Map<String, int[]> branchCounts = new HashMap<>();
+        for (LibraryArea area : event.getHistoryAreas()) {
+            if (area.getTotalCount() <= 0) {
+                continue;
+            }
+            matrix(OccupancyProfile.TYPE_AREA, area.getAreaId()).add(recordMinute, area.getOccupationRate());
+            int[] counts = branchCounts.computeIfAbsent(area.getBranchName(), name -> new int[2]);
+            counts[0] += area.getTotalCount() - area.getFreeCount();
+            counts[1] += area.getTotalCount();
+        }
+        for (Map.Entry<String, int[]> entry : branchCounts.entrySet()) {
+            int[] counts = entry.getValue();
+            matrix(OccupancyProfile.TYPE_BRANCH, entry.getKey()).add(recordMinute, counts[0] * 100.0 / counts[1]);
+        }
+    }
+
+    /**
+     * 主節點保存有變動的分佈，其他節點重新載入
+     * 由 SchedulingConfig 定期呼叫
+     */
+    public void persistOrReload() {
+        try {
+            if (clusterLeaseService.isLeader()) {
+                persist();
+            } else {
+                reload();
+            }
+        } catch (Exception e) {
+            System.err.println("同步使用率分佈失敗: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void persistOnShutdown() {
+        if (clusterLeaseService.isLeader()) {
+            try {
+                persist();
+            } catch (Exception e) {
+                System.err.println("關閉前保存使用率分佈失敗: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 取得單一區域或分館的分佈
+     * @param slotsPerDay 每天的時段數，96為15分鐘、24為每小時
+     * @return 尚無資料時回傳 null
+     */
+    public OccupancyProfileDTO getProfile(String profileType, String name, int slotsPerDay) {
+        OccupancyProfileMatrix matrix = profiles.get(OccupancyProfile.key(profileType, name));
+        return matrix == null ? null : toDTO(profileType, name, matrix, slotsPerDay);
+    }
+
+    /**
+     * 取得某類型的所有分佈，依名稱排序
+     */
+    public List<OccupancyProfileDTO> getProfiles(String profileType, int slotsPerDay) {
+        String prefix = OccupancyProfile.key(profileType, "");
+        Map<String, OccupancyProfileMatrix> sorted = new TreeMap<>();
+        for (Map.Entry<String, OccupancyProfileMatrix> entry : profiles.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                sorted.put(entry.getKey().substring(prefix.length()), entry.getValue());
+            }
+        }
+        List<OccupancyProfileDTO> result = new ArrayList<>();
+        for (Map.Entry<String, OccupancyProfileMatrix> entry : sorted.entrySet()) {
+            result.add(toDTO(profileType, entry.getKey(), entry.getValue(), slotsPerDay));
+        }
+        return result;
+    }
+
+    private OccupancyProfileMatrix matrix(String profileType, String name) {
+        return profiles.computeIfAbsent(OccupancyProfile.key(profileType, name), key -> new OccupancyProfileMatrix());
+    }
+
+    private void reload() {
+        Map<String, OccupancyProfileMatrix> loaded = new HashMap<>();
+        for (OccupancyProfile profile : occupancyProfileRepository.findAll()) {
+            loaded.put(profile.getProfileKey(), OccupancyProfileMatrix.fromBytes(
+                    profile.getCounts(), profile.getSums(), profile.getLastMinute()));
+        }
+        profiles.putAll(loaded);
+        profiles.keySet().retainAll(loaded.keySet());
+    }
+
+    /**
+     * 從近幾週的歷史記錄建立分佈，取代目前記憶體中的分佈
+     */
+    private void seedFromHistory() {
+        long sinceMinute = LibraryAreaHistory.toMinuteBucket(LocalDateTime.now(clock).minusWeeks(seedWeeks));
+        Map<String, OccupancyProfileMatrix> seeded = new HashMap<>();
+        seed(seeded, OccupancyProfile.TYPE_AREA, occupancyProfileRepository.aggregateAreaProfilesSince(sinceMinute));
+        seed(seeded, OccupancyProfile.TYPE_BRANCH, occupancyProfileRepository.aggregateBranchProfilesSince(sinceMinute));
+        profiles.putAll(seeded);
+        System.out.println("已從近" + seedWeeks + "週歷史記錄建立使用率分佈，區域與分館數: " + seeded.size());
+    }
+
+    // 每列為 名稱、星期幾、時段、使用率總和、筆數、最後一筆的分鐘序號
+    private void seed(Map<String, OccupancyProfileMatrix> seeded, String profileType, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            seeded.computeIfAbsent(OccupancyProfile.key(profileType, (String) row[0]), key -> new OccupancyProfileMatrix())
+                    .addAggregate(((Number) row[1]).intValue(), ((Number) row[2]).intValue(),
+                            ((Number) row[3]).doubleValue(), ((Number) row[4]).intValue(), ((Number) row[5]).longValue());
+        }
+    }
+
+    private void persist() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        List<OccupancyProfile> changed = new ArrayList<>();
+        List<OccupancyProfileMatrix> changedMatrices = new ArrayList<>();
+        for (Map.Entry<String, OccupancyProfileMatrix> entry : profiles.entrySet()) {
+            OccupancyProfileMatrix matrix = entry.getValue();
+            if (!matrix.isDirty()) {
+                continue;
+            }
+            String key = entry.getKey();
+            int separator = key.indexOf(':');
+            OccupancyProfile profile = new OccupancyProfile();
+            profile.setProfileKey(key);
+            profile.setProfileType(key.substring(0, separator));
+            profile.setName(key.substring(separator + 1));
+            // 先標記為已保存，保存期間新計入的資料會在下一次保存
+            matrix.markClean();
+            profile.setLastMinute(matrix.getLastMinute());
+            profile.setCounts(matrix.countsToBytes());
+            profile.setSums(matrix.sumsToBytes());
+            profile.setUpdatedAt(now);
+            changed.add(profile);
+            changedMatrices.add(matrix);
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        try {
+            occupancyProfileRepository.saveAll(changed);
+        } catch (RuntimeException e) {
+            changedMatrices.forEach(OccupancyProfileMatrix::markDirty);
+            throw e;
+        }
+    }
+
+    private OccupancyProfileDTO toDTO(String profileType, String name, OccupancyProfileMatrix matrix, int slotsPerDay) {
+        OccupancyProfileDTO dto = new OccupancyProfileDTO();
+        dto.setType(profileType);
+        dto.setName(name);
+        dto.setSlotsPerDay(slotsPerDay);
+        dto.setMean(matrix.means(slotsPerDay));
+        dto.setCount(matrix.counts(slotsPerDay));
+        return dto;
+    }
+}
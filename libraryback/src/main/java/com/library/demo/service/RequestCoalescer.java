@@ -0,0 +1,97 @@
+package com.library.demo.service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 合併同時進行的相同查詢
+ * 同一個鍵的查詢執行期間，後到的呼叫共用同一個結果而不再各自查詢；
+ * 查詢在獨立的執行緒池執行並回傳 CompletableFuture，控制器以非同步回應等待，不佔用 Tomcat 執行緒。
+ * 查詢完成後立即移除，之後的呼叫會重新查詢，不作為快取
+ */
+@Service
+public class RequestCoalescer {
+
+    @Value("${library.coalesce.threads:4}")
+    private int threads;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ExecutorService executor;
+
+    private final Map<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private Counter executedCounter;
+    private Counter coalescedCounter;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(threads);
+        executedCounter = Counter.builder("library.coalesce.calls")
+                .tag("result", "executed")
+                .description("實際執行的查詢數")
+                .register(meterRegistry);
+        coalescedCounter = Counter.builder("library.coalesce.calls")
+                .tag("result", "coalesced")
+                .description("共用進行中查詢結果的呼叫數")
+                .register(meterRegistry);
+        Gauge.builder("library.coalesce.in.flight", inFlight, Map::size)
+                .description("進行中的查詢數")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 執行查詢，或加入相同鍵進行中的查詢
+     * @param key 查詢名稱與參數，需實作 equals 與 hashCode
+     * @param query 在執行緒池中執行；需要交易時應呼叫經過代理的服務方法
+     * @return 每個呼叫各自的 CompletableFuture，取消不影響其他等待的呼叫
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> submit(Object key, Supplier<T> query) {
+        CompletableFuture<Object> created = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalescedCounter.increment();
+            return (CompletableFuture<T>) existing.copy();
+        }
+        executedCounter.increment();
+        try {
+            executor.execute(() -> {
+                try {
+                    Object result = query.get();
+                    // 先移除再完成，完成之後才到的呼叫會重新查詢
+                    inFlight.remove(key, created);
+                    created.complete(result);
+                } catch (Throwable e) {
+                    inFlight.remove(key, created);
+                    created.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, created);
+            created.completeExceptionally(e);
+        }
+        return (CompletableFuture<T>) created.copy();
+    }
+}
@@ -1,119 +1,137 @@
 package com.library.demo.service;
 
-import java.time.DayOfWeek;
+import java.time.Clock;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.function.Predicate;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 @Service
 public class ScheduledService {
 
-    @Value("${library.open-time}")
-    private String openTime;
+    // 閉館前幾分鐘記錄最終狀態
+    private static final int MINUTES_BEFORE_CLOSING = 5;
 
-    @Value("${library.close-time}")
-    private String closeTime;
-    
-    @Value("${library.weekend.open-time}")
-    private String weekendOpenTime;
+    // 補處理錯過的閉館時最多往回追溯的分鐘數
+    private static final int MAX_CLOSING_CATCH_UP_MINUTES = 60;
 
-    @Value("${library.weekend.close-time}")
-    private String weekendCloseTime;
-    
-    @Value("${spring.jackson.time-zone:Asia/Taipei}")
-    private String timeZone;
+    @Autowired
+    private Clock clock;
+
+    @Autowired
+    private IngestionCoordinator ingestionCoordinator;
 
     @Autowired
-    private LibraryAreaService libraryAreaService;
+    private LibraryBranchService libraryBranchService;
+
+    @Autowired
+    private AdaptivePollingService adaptivePollingService;
+
+    // 已處理到的時間，閉館前時間不晚於此的分館都已寫入閉館快照
+    private LocalDateTime lastClosingCheck;
 
     /**
-     * 每分鐘執行一次，根據當前時間決定是否獲取資料
+     * 只要有任一分館開放就獲取資料，由 TransitionScheduler 在開館時與 nextCollectionTime 回傳的時間呼叫
+     * 閉館分館的資料由擷取協調器在寫入前剔除
      */
-    @Scheduled(cron = "0 * * * * *") // 每分鐘第0秒執行一次
     public void collectDataDuringOpenHours() {
-        // 使用設定的時區獲取當前時間
-        ZonedDateTime now = ZonedDateTime.now(ZoneId.of(timeZone));
-        LocalDateTime localNow = now.toLocalDateTime();
-        LocalTime currentTime = localNow.toLocalTime();
-        
+        // 使用應用程式時鐘獲取當前時間，重播模式下為加速後的時間
+        LocalDateTime localNow = LocalDateTime.now(clock);
+
         // 輸出現在的時間和時區進行調試
-        System.out.println("現在時間（" + timeZone + "）：" + localNow);
-        
-        // 根據當前是否為週日或週一決定使用哪個時間設定
-        boolean isSundayOrMonday = isSundayOrMonday(localNow.getDayOfWeek());
-        LocalTime openTimeValue = isSundayOrMonday ? LocalTime.parse(weekendOpenTime) : LocalTime.parse(openTime);
-        LocalTime closeTimeValue = isSundayOrMonday ? LocalTime.parse(weekendCloseTime) : LocalTime.parse(closeTime);
-        
-        // 判斷當前時間是否在開館時間內
-        if (isLibraryOpen(currentTime, openTimeValue, closeTimeValue)) {
-            // 如果在開館時間內，啟用定時任務並執行一次
-            if (!libraryAreaService.isSchedulerEnabled()) {
-                libraryAreaService.enableScheduler();
-                System.out.println("圖書館開館時間，啟用定時任務");
+        System.out.println("現在時間（" + clock.getZone() + "）：" + localNow);
+
+        // 判斷當前時間是否有任一分館開放
+        if (libraryBranchService.isAnyBranchOpen(localNow)) {
+            // 如果有分館開放，啟用定時任務並執行一次
+            if (!ingestionCoordinator.isSchedulerEnabled()) {
+                ingestionCoordinator.enableScheduler();
+                System.out.println("有分館開館，啟用定時任務");
+            }
+            // 執行一次數據獲取
+            if (ingestionCoordinator.fetchAndSaveLibraryData() == IngestionCoordinator.IngestOutcome.EXECUTED) {
+                adaptivePollingService.recordPoll();
             }
-            // 每分鐘執行一次數據獲取
-            libraryAreaService.fetchAndSaveLibraryData();
         } else {
-            // 如果在閉館時間，禁用定時任務
-            if (libraryAreaService.isSchedulerEnabled()) {
-                libraryAreaService.disableScheduler();
-                System.out.println("圖書館閉館時間，禁用定時任務");
+            // 如果所有分館都已閉館，禁用定時任務
+            if (ingestionCoordinator.isSchedulerEnabled()) {
+                ingestionCoordinator.disableScheduler();
+                System.out.println("所有分館皆已閉館，禁用定時任務");
             }
         }
     }
-    
+
+    /**
+     * 下一次擷取的時間
+     * 有分館開放時依 AdaptivePollingService 的間隔；間隔結束前所有分館都會閉館時改在下一次開館時擷取，
+     * 閉館期間不再定期喚醒
+     * @return 一年內都不會開館時回傳 null
+     */
+    public LocalDateTime nextCollectionTime() {
+        LocalDateTime localNow = LocalDateTime.now(clock);
+        LocalDateTime next = localNow.plus(adaptivePollingService.nextInterval());
+        if (libraryBranchService.isAnyBranchOpen(next)) {
+            return next;
+        }
+        return libraryBranchService.nextOpening(next);
+    }
+
     /**
-     * 每分鐘檢查是否接近閉館時間，如果是則執行閉館前最後一次數據更新
-     * 設定為閉館前5分鐘執行
+     * 處理上次之後到現在之間進入閉館前時段的分館，執行該分館閉館前最後一次數據更新
+     * 設定為閉館前5分鐘執行，每間分館依各自的閉館時間只寫入一次。
+     * 由 TransitionScheduler 在 nextClosingCheckTime 回傳的時間呼叫，也可由 /check-closing 手動呼叫；
+     * 計時器延遲或重播加速時會補處理上次之後錯過的閉館，最多往回一小時
      */
-    @Scheduled(cron = "0 * * * * *") // 每分鐘執行一次檢查
-    public void checkForClosingTimeUpdate() {
-        // 使用設定的時區獲取當前時間
-        ZonedDateTime now = ZonedDateTime.now(ZoneId.of(timeZone));
-        LocalDateTime localNow = now.toLocalDateTime();
-        LocalTime currentTime = localNow.toLocalTime();
-        
-        // 根據當前是否為週日或週一決定使用哪個閉館時間
-        boolean isSundayOrMonday = isSundayOrMonday(localNow.getDayOfWeek());
-        LocalTime closeTimeValue = isSundayOrMonday ? LocalTime.parse(weekendCloseTime) : LocalTime.parse(closeTime);
-        
-        // 計算閉館前5分鐘的時間
-        LocalTime fiveMinutesBeforeClosing = closeTimeValue.minusMinutes(5);
-        
-        // 如果當前時間在閉館前5分鐘內的特定一分鐘（例如19:55-19:56）
-        System.out.println("ScheduledService - 檢查閉館時間: " + currentTime + ", 閉館時間: " + closeTimeValue);
-        if (currentTime.compareTo(fiveMinutesBeforeClosing) >= 0 && 
-            currentTime.compareTo(fiveMinutesBeforeClosing.plusMinutes(1)) < 0) {
-            
-            System.out.println("ScheduledService - 將執行閉館前最後數據更新");
-            
-            // 創建閉館時間的完整日期時間對象
-            LocalDateTime closingDateTime = LocalDateTime.of(localNow.toLocalDate(), closeTimeValue);
-            
+    public synchronized void checkForClosingTimeUpdate() {
+        LocalDateTime localNow = LocalDateTime.now(clock);
+        LocalDateTime from = advanceClosingWindow(localNow);
+
+        System.out.println("ScheduledService - 檢查閉館時間: " + from.toLocalTime() + " ~ " + localNow.toLocalTime());
+        Map<LocalDateTime, Predicate<String>> closingBranches =
+                libraryBranchService.findBranchesClosingBetween(from, localNow, MINUTES_BEFORE_CLOSING);
+
+        closingBranches.forEach((closingDateTime, branchFilter) -> {
+            System.out.println("ScheduledService - 將執行閉館前最後數據更新，閉館時間: " + closingDateTime);
+
             // 使用閉館時間作為時間戳記執行最後一次數據更新
-            libraryAreaService.fetchAndSaveWithCustomTime(closingDateTime);
-            
+            ingestionCoordinator.fetchAndSaveWithCustomTime(closingDateTime, branchFilter);
+
             System.out.println("閉館前最後數據更新完成，時間戳設為閉館時間: " + closingDateTime);
-        }
+        });
+    }
+
+    /**
+     * 非主節點在閉館前時間只推進已處理的時間，不寫入資料；
+     * 成為主節點後不會重複寫入已由前一個主節點處理過的閉館
+     */
+    public synchronized void advanceClosingCheck() {
+        advanceClosingWindow(LocalDateTime.now(clock));
     }
-    
+
     /**
-     * 判斷當前時間是否在開館時間內
+     * 下一次需要檢查閉館的時間，即下一間分館的閉館前時間
+     * @return 一年內都不會開館時回傳 null
      */
-    private boolean isLibraryOpen(LocalTime currentTime, LocalTime openTime, LocalTime closeTime) {
-        return !currentTime.isBefore(openTime) && currentTime.isBefore(closeTime);
+    public synchronized LocalDateTime nextClosingCheckTime() {
+        LocalDateTime after = lastClosingCheck != null ? lastClosingCheck : LocalDateTime.now(clock);
+        return libraryBranchService.nextPreClose(after, MINUTES_BEFORE_CLOSING);
     }
-    
+
     /**
-     * 判斷是否為週日或週一
+     * 將已處理的時間推進到 now，回傳這次要處理的區間起點（不含）
      */
-    private boolean isSundayOrMonday(DayOfWeek dayOfWeek) {
-        return dayOfWeek == DayOfWeek.SUNDAY || dayOfWeek == DayOfWeek.MONDAY;
+    private LocalDateTime advanceClosingWindow(LocalDateTime localNow) {
+        // 第一次檢查時包含剛過去的一分鐘，涵蓋啟動時正好在閉館前時間的情況
+        LocalDateTime from = lastClosingCheck != null ? lastClosingCheck : localNow.minusMinutes(1);
+        LocalDateTime earliest = localNow.minusMinutes(MAX_CLOSING_CATCH_UP_MINUTES);
+        if (from.isBefore(earliest)) {
+            from = earliest;
+        }
+        if (lastClosingCheck == null || localNow.isAfter(lastClosingCheck)) {
+            lastClosingCheck = localNow;
+        }
+        return from;
     }
-} 
\ No newline at end of file
+}
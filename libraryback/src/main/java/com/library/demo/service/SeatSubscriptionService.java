@@ -0,0 +1,390 @@
+package com.library.demo.service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.library.demo.dto.SeatAlertDTO;
+import com.library.demo.dto.SeatSubscriptionDTO;
+import com.library.demo.event.SnapshotSavedEvent;
+import com.library.demo.model.LibraryArea;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 座位門檻訂閱：區域剩餘座位達到門檻時以 SSE 或 webhook 通知
+ * 每個區域的訂閱依門檻排序，快照進來時只走訪前後兩次剩餘座位之間被跨過的門檻，
+ * 不需要逐一檢查所有訂閱。通知後訂閱暫停，要等剩餘座位回落到「門檻 − 緩衝量」以下才會重新啟用，
+ * 座位數在門檻附近來回跳動時不會重複通知。訂閱只保存在接受訂閱的節點記憶體中
+ */
+@Service
+public class SeatSubscriptionService {
+
+    // webhook 連續失敗幾次後取消訂閱
+    private static final int MAX_DELIVERY_FAILURES = 3;
+
+    @Value("${library.subscription.hysteresis:2}")
+    private int hysteresis;
+
+    @Value("${library.subscription.ttl-hours:12}")
+    private int ttlHours;
+
+    @Value("${library.subscription.max-subscriptions:10000}")
+    private int maxSubscriptions;
+
+    // webhook 只允許送往這些主機
+    @Value("${library.subscription.webhook-allowed-hosts:localhost,127.0.0.1}")
+    private List<String> webhookAllowedHosts;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private Clock clock;
+
+    private final Map<String, AreaSubscriptions> byArea = new ConcurrentHashMap<>();
+    private final Map<String, Subscription> byId = new ConcurrentHashMap<>();
+
+    // 最後一次即時快照，新區域的第一個訂閱以此判斷目前是否已達門檻
+    private volatile SnapshotSavedEvent latestSnapshot;
+
+    // 通知在獨立執行緒送出，不拖慢快照寫入
+    private final ExecutorService deliveryExecutor = Executors.newFixedThreadPool(2);
+
+    private Counter alertCounter;
+    private Counter deliveryFailureCounter;
+
+    @PostConstruct
+    public void registerMetrics() {
+        alertCounter = Counter.builder("library.subscription.alerts")
+                .description("送出的座位門檻通知數")
+                .register(meterRegistry);
+        deliveryFailureCounter = Counter.builder("library.subscription.delivery.failures")
+                .description("送出失敗的座位門檻通知數")
+                .register(meterRegistry);
+        Gauge.builder("library.subscription.active", byId, Map::size)
+                .description("目前的座位門檻訂閱數")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        deliveryExecutor.shutdown();
+        byId.values().forEach(subscription -> {
+            if (subscription.emitter != null) {
+                subscription.emitter.complete();
+            }
+        });
+    }
+
+    /**
+     * 建立以 webhook 通知的訂閱
+     * @throws IllegalArgumentException 參數不正確、webhook 主機不在允許清單中或訂閱數已達上限
+     */
+    public SeatSubscriptionDTO subscribeWebhook(String areaId, int minFree, String webhookUrl) {
+        validate(areaId, minFree);
+        validateWebhook(webhookUrl);
+        Subscription subscription = new Subscription(areaId, minFree, expiresAt());
+        subscription.webhookUrl = webhookUrl;
+        register(subscription);
+        return toDTO(subscription);
+    }
+
+    /**
+     * 建立以 SSE 通知的訂閱，連線中斷時自動取消
+     * @throws IllegalArgumentException 參數不正確或訂閱數已達上限
+     */
+    public SseEmitter subscribeStream(String areaId, int minFree) {
+        validate(areaId, minFree);
+        Subscription subscription = new Subscription(areaId, minFree, expiresAt());
+        SseEmitter emitter = new SseEmitter(Duration.ofHours(ttlHours).toMillis());
+        subscription.emitter = emitter;
+        emitter.onCompletion(() -> unsubscribe(subscription.id));
+        emitter.onTimeout(() -> unsubscribe(subscription.id));
+        emitter.onError(error -> unsubscribe(subscription.id));
+        try {
+            emitter.send(SseEmitter.event().name("subscribed").data(toDTO(subscription)));
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        register(subscription);
+        return emitter;
+    }
+
+    /**
+     * 取消訂閱
+     * @return 訂閱不存在時回傳 false
+     */
+    public boolean unsubscribe(String id) {
+        Subscription subscription = byId.remove(id);
+        if (subscription == null) {
+            return false;
+        }
+        AreaSubscriptions area = byArea.get(subscription.areaId);
+        if (area != null) {
+            area.remove(subscription);
+        }
+        if (subscription.emitter != null) {
+            subscription.emitter.complete();
+        }
+        return true;
+    }
+
+    public SeatSubscriptionDTO getSubscription(String id) {
+        Subscription subscription = byId.get(id);
+        return subscription == null ? null : toDTO(subscription);
+    }
+
+    /**
+     * 依新快照的剩餘座位比對訂閱
+     */
+    @EventListener
+    public void onSnapshotSaved(SnapshotSavedEvent event) {
+        if (!event.isLive()) {
+            return;
+        }
+        latestSnapshot = event;
+        if (byId.isEmpty()) {
+            return;
+        }
+        for (LibraryArea area : event.getAreas()) {
+            AreaSubscriptions subscriptions = byArea.get(area.getAreaId());
+            if (subscriptions == null) {
+                continue;
+            }
+            for (Subscription subscription : subscriptions.update(area, event.getRecordTime(), hysteresis)) {
+                deliver(subscription, area, event.getRecordTime());
+            }
+        }
+    }
+
+    /**
+     * 移除過期的訂閱，由 SchedulingConfig 定期呼叫
+     */
+    public void removeExpired() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        for (Subscription subscription : byId.values()) {
+            if (subscription.expiresAt.isBefore(now)) {
+                unsubscribe(subscription.id);
+            }
+        }
+    }
+
+    private void validate(String areaId, int minFree) {
+        if (areaId == null || areaId.isBlank()) {
+            throw new IllegalArgumentException("需要指定區域編號");
+        }
+        if (minFree < 1) {
+            throw new IllegalArgumentException("剩餘座位門檻至少為 1");
+        }
+        if (byId.size() >= maxSubscriptions) {
+            throw new IllegalArgumentException("訂閱數已達上限 " + maxSubscriptions);
+        }
+    }
+
+    private void register(Subscription subscription) {
+        byId.put(subscription.id, subscription);
+        AreaSubscriptions area = byArea.computeIfAbsent(subscription.areaId, id -> new AreaSubscriptions());
+        SnapshotSavedEvent snapshot = latestSnapshot;
+        if (snapshot != null) {
+            // 區域還沒有訂閱時快照不會更新它，先以最後一次快照的座位數補上
+            snapshot.getAreas().stream()
+                    .filter(latest -> latest.getAreaId().equals(subscription.areaId))
+                    .findFirst()
+                    .ifPresent(latest -> area.seed(latest, snapshot.getRecordTime()));
+        }
+        // 目前已達門檻時立即通知一次
+        if (area.add(subscription)) {
+            deliver(subscription, area.lastArea, area.lastRecordTime);
+        }
+    }
+
+    private void deliver(Subscription subscription, LibraryArea area, LocalDateTime recordTime) {
+        SeatAlertDTO alert = new SeatAlertDTO();
+        alert.setSubscriptionId(subscription.id);
+        alert.setAreaId(area.getAreaId());
+        alert.setBranchName(area.getBranchName());
+        alert.setFloorName(area.getFloorName());
+        alert.setAreaName(area.getAreaName());
+        alert.setMinFree(subscription.minFree);
+        alert.setFreeCount(area.getFreeCount());
+        alert.setTotalCount(area.getTotalCount());
+        alert.setRecordTime(recordTime);
+        alertCounter.increment();
+
+        deliveryExecutor.execute(() -> {
+            try {
+                if (subscription.emitter != null) {
+                    subscription.emitter.send(SseEmitter.event().name("seat-alert").data(alert));
+                } else {
+                    restTemplate.postForEntity(subscription.webhookUrl, alert, String.class);
+                }
+                subscription.deliveryFailures = 0;
+            } catch (Exception e) {
+                deliveryFailureCounter.increment();
+                System.err.println("座位門檻通知送出失敗，訂閱: " + subscription.id + "，" + e.getMessage());
+                if (subscription.emitter != null || ++subscription.deliveryFailures >= MAX_DELIVERY_FAILURES) {
+                    unsubscribe(subscription.id);
+                }
+            }
+        });
+    }
+
+    private void validateWebhook(String webhookUrl) {
+        if (webhookUrl == null || webhookUrl.isBlank()) {
+            throw new IllegalArgumentException("需要指定 webhookUrl");
+        }
+        URI uri;
+        try {
+            uri = URI.create(webhookUrl);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("webhookUrl 格式不正確: " + webhookUrl);
+        }
+        String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ROOT);
+        if (!scheme.equals("http") && !scheme.equals("https")) {
+            throw new IllegalArgumentException("webhookUrl 只支援 http 或 https");
+        }
+        String host = uri.getHost();
+        if (host == null || webhookAllowedHosts.stream().noneMatch(allowed -> allowed.trim().equalsIgnoreCase(host))) {
+            throw new IllegalArgumentException("webhook 主機不在允許清單中: " + host);
+        }
+    }
+
+    private LocalDateTime expiresAt() {
+        return LocalDateTime.now(clock).plusHours(ttlHours);
+    }
+
+    private SeatSubscriptionDTO toDTO(Subscription subscription) {
+        SeatSubscriptionDTO dto = new SeatSubscriptionDTO();
+        dto.setId(subscription.id);
+        dto.setAreaId(subscription.areaId);
+        dto.setMinFree(subscription.minFree);
+        dto.setWebhookUrl(subscription.webhookUrl);
+        dto.setArmed(subscription.armed);
+        dto.setExpiresAt(subscription.expiresAt);
+        return dto;
+    }
+
+    private static class Subscription {
+        private final String id = UUID.randomUUID().toString();
+        private final String areaId;
+        private final int minFree;
+        private final LocalDateTime expiresAt;
+        private String webhookUrl;
+        private SseEmitter emitter;
+        // 由所屬的 AreaSubscriptions 在同步區塊內更新
+        private volatile boolean armed = true;
+        private volatile int deliveryFailures;
+
+        Subscription(String areaId, int minFree, LocalDateTime expiresAt) {
+            this.areaId = areaId;
+            this.minFree = minFree;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * 單一區域的訂閱，依門檻排序
+     * 啟用中的訂閱門檻一定大於上一次的剩餘座位
+     */
+    private static class AreaSubscriptions {
+        private final TreeMap<Integer, List<Subscription>> byThreshold = new TreeMap<>();
+        // 上一次快照的剩餘座位，-1 表示尚未收到快照
+        private int lastFree = -1;
+        private LibraryArea lastArea;
+        private LocalDateTime lastRecordTime;
+
+        /**
+         * 加入訂閱
+         * @return 目前已達門檻、需要立即通知時回傳 true
+         */
+        synchronized boolean add(Subscription subscription) {
+            byThreshold.computeIfAbsent(subscription.minFree, threshold -> new ArrayList<>()).add(subscription);
+            if (lastFree >= subscription.minFree) {
+                subscription.armed = false;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * 尚未收到快照時以最後一次快照的座位數作為起點，已有快照時不變
+         */
+        synchronized void seed(LibraryArea area, LocalDateTime recordTime) {
+            if (lastFree < 0) {
+                lastFree = area.getFreeCount();
+                lastArea = area;
+                lastRecordTime = recordTime;
+            }
+        }
+
+        synchronized void remove(Subscription subscription) {
+            List<Subscription> subscriptions = byThreshold.get(subscription.minFree);
+            if (subscriptions != null) {
+                subscriptions.remove(subscription);
+                if (subscriptions.isEmpty()) {
+                    byThreshold.remove(subscription.minFree);
+                }
+            }
+        }
+
+        /**
+         * 更新剩餘座位，回傳需要通知的訂閱
+         * 上升時通知門檻落在 (上次, 本次] 的啟用中訂閱；
+         * 下降時重新啟用「門檻 − 緩衝量」落在 (本次, 上次] 的訂閱
+         */
+        synchronized List<Subscription> update(LibraryArea area, LocalDateTime recordTime, int hysteresis) {
+            int previous = lastFree;
+            int free = area.getFreeCount();
+            lastFree = free;
+            lastArea = area;
+            lastRecordTime = recordTime;
+
+            List<Subscription> fired = new ArrayList<>();
+            if (free > previous) {
+                for (List<Subscription> subscriptions : byThreshold.subMap(previous, false, free, true).values()) {
+                    for (Subscription subscription : subscriptions) {
+                        if (subscription.armed) {
+                            subscription.armed = false;
+                            fired.add(subscription);
+                        }
+                    }
+                }
+            } else if (free < previous) {
+                for (List<Subscription> subscriptions
+                        : byThreshold.subMap(free + hysteresis, false, previous + hysteresis, true).values()) {
+                    for (Subscription subscription : subscriptions) {
+                        subscription.armed = true;
+                    }
+                }
+            }
+            return fired;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.library.demo.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.library.demo.event.HistoryMaintainedEvent;
+import com.library.demo.event.SnapshotSavedEvent;
+import com.library.demo.model.SnapshotVersion;
+import com.library.demo.repository.LibraryAreaRepository;
+import com.library.demo.repository.SnapshotVersionRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * 快照版本列的維護與輪詢
+ * 主節點寫入快照時在同一交易內遞增版本並檢查 fencing token；
+ * 非主節點定期讀取版本列，發現新的即時快照時從資料庫重新載入並發布 SnapshotSavedEvent，
+ * 讓本機的記憶體結構與主節點保持一致；歷史記錄的維護世代改變時發布 HistoryMaintainedEvent
+ */
+@Service
+public class SnapshotVersionService {
+
+    @Autowired
+    private SnapshotVersionRepository snapshotVersionRepository;
+
+    @Autowired
+    private LibraryAreaRepository libraryAreaRepository;
+
+    @Autowired
+    private ClusterLeaseService clusterLeaseService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // 本節點最後看到的版本，-1 表示尚未讀取
+    private volatile long knownVersion = -1;
+
+    // 本節點最後看到的歷史記錄維護世代，-1 表示尚未讀取
+    private volatile long knownMaintenance = -1;
+
+    @PostConstruct
+    public void init() {
+        for (String versionName : new String[] {SnapshotVersion.LIBRARY_AREAS, SnapshotVersion.HISTORY_MAINTENANCE}) {
+            try {
+                if (!snapshotVersionRepository.existsById(versionName)) {
+                    snapshotVersionRepository.save(new SnapshotVersion(versionName));
+                }
+            } catch (DataIntegrityViolationException e) {
+                // 其他節點同時建立了版本列
+            } catch (Exception e) {
+                System.err.println("建立版本列 " + versionName + " 失敗: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 寫入快照前遞增版本，應與快照寫入在同一交易內呼叫
+     * @throws IllegalStateException 本節點不是主節點，或已有持有較新 token 的節點寫入過
+     */
+    public void advance(LocalDateTime recordTime, boolean live) {
+        long fencingToken = clusterLeaseService.getFencingToken();
+        if (fencingToken < 0) {
+            throw new IllegalStateException("節點 " + clusterLeaseService.getNodeId() + " 未持有擷取租約，拒絕寫入快照");
+        }
+        if (snapshotVersionRepository.advance(SnapshotVersion.LIBRARY_AREAS, fencingToken, recordTime, live) == 0) {
+            throw new IllegalStateException("fencing token " + fencingToken + " 已過期，拒絕寫入快照");
+        }
+    }
+
+    /**
+     * 主節點在快照以外改寫當前座位資料後（例如合併孤兒區域）遞增版本，記錄時間沿用目前的即時快照，
+     * 讓本機與其他節點的當前座位快取與搜尋索引重新載入；不寫入歷史記錄
+     * @throws IllegalStateException 本節點不是主節點，或已有持有較新 token 的節點寫入過
+     */
+    @Transactional
+    public void republishCurrentSnapshot() {
+        LocalDateTime liveRecordTime = getCurrentSnapshotTime();
+        if (liveRecordTime == null) {
+            return;
+        }
+        advance(liveRecordTime, true);
+        eventPublisher.publishEvent(new SnapshotSavedEvent(liveRecordTime, libraryAreaRepository.findAll(), List.of(), true));
+    }
+
+    /**
+     * 清理、合併或搬移歷史記錄提交後遞增維護世代，讓非主節點的歷史查詢快取失效
+     * 主節點已自行使快取失效，這裡失敗只記錄錯誤
+     */
+    public void advanceHistoryMaintenance() {
+        long fencingToken = clusterLeaseService.getFencingToken();
+        try {
+            if (fencingToken < 0
+                    || snapshotVersionRepository.advanceGeneration(SnapshotVersion.HISTORY_MAINTENANCE, fencingToken) == 0) {
+                System.err.println("節點 " + clusterLeaseService.getNodeId() + " 未持有有效的擷取租約，未遞增歷史記錄維護世代");
+            }
+        } catch (Exception e) {
+            System.err.println("遞增歷史記錄維護世代失敗: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 當前座位資料對應的快照時間
+     * 沒有變動的區域不會重寫記錄時間，顯示時以此時間為準
+     * @return 最後一次即時快照的記錄時間，尚未寫入過時回傳 null
+     */
+    public LocalDateTime getCurrentSnapshotTime() {
+        return snapshotVersionRepository.findById(SnapshotVersion.LIBRARY_AREAS)
+                .map(SnapshotVersion::getLiveRecordTime)
+                .orElse(null);
+    }
+
+    /**
+     * 非主節點輪詢版本列，有新的即時快照時重新整理本機快取
+     * 版本列與座位資料在同一個唯讀交易內讀取，確保來自同一個副本；同時檢查歷史記錄的維護世代
+     */
+    @Transactional(readOnly = true)
+    public void pollForNewSnapshot() {
+        if (clusterLeaseService.isLeader()) {
+            // 主節點自己寫入時已發布事件，維護歷史記錄後也已自行使快取失效
+            knownVersion = -1;
+            knownMaintenance = -1;
+            return;
+        }
+        try {
+            SnapshotVersion maintenance = snapshotVersionRepository.findById(SnapshotVersion.HISTORY_MAINTENANCE).orElse(null);
+            if (maintenance != null && maintenance.getVersion() != knownMaintenance) {
+                // 剛啟動或剛卸下主節點時不知道期間是否有過維護，一律失效
+                knownMaintenance = maintenance.getVersion();
+                eventPublisher.publishEvent(new HistoryMaintainedEvent());
+            }
+
+            SnapshotVersion current = snapshotVersionRepository.findById(SnapshotVersion.LIBRARY_AREAS).orElse(null);
+            if (current == null || current.getVersion() == knownVersion) {
+                return;
+            }
+            knownVersion = current.getVersion();
+            if (current.isLive() && current.getRecordTime() != null) {
+                // 沒有變動的區域保留舊的記錄時間，事件中的資料僅供比對座位數
+                System.out.println("偵測到新快照版本 " + current.getVersion() + "，記錄時間: " + current.getRecordTime());
+                eventPublisher.publishEvent(new SnapshotSavedEvent(
+                        current.getRecordTime(), libraryAreaRepository.findAll(), true));
+            }
+        } catch (Exception e) {
+            System.err.println("輪詢快照版本失敗: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.library.demo.service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import com.library.demo.config.TimeWarpClock;
+import com.library.demo.event.BranchHoursChangedEvent;
+
+/**
+ * 依分館營業時間設定精確的計時器，取代每分鐘輪詢
+ * 擷取：開館時開始，開館期間依 AdaptivePollingService 的間隔，所有分館閉館後睡到下一次開館；
+ * 閉館快照：在下一間分館的閉館前時間觸發；開放狀態：在任一分館開館或閉館時更新。
+ * 時間依應用程式時鐘計算，重播模式加速時換算回真實時間；營業時間變動時所有計時器重新計算
+ */
+@Service
+public class TransitionScheduler {
+
+    // 計算下一次觸發時間失敗（例如資料庫無法連線）時，隔多久再試
+    private static final int RETRY_MINUTES = 1;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Autowired
+    private TimeWarpClock clock;
+
+    @Autowired
+    private ScheduledService scheduledService;
+
+    @Autowired
+    private LibraryBranchService libraryBranchService;
+
+    @Autowired
+    private ClusterLeaseService clusterLeaseService;
+
+    // 啟動或營業時間變動時，有分館開放就立即擷取一次
+    private final Timer collectionTimer = new Timer("擷取",
+            () -> libraryBranchService.nextOpening(LocalDateTime.now(clock)),
+            () -> scheduledService.nextCollectionTime(),
+            this::collect);
+
+    private final Timer closingTimer = new Timer("閉館快照",
+            () -> scheduledService.nextClosingCheckTime(),
+            () -> scheduledService.nextClosingCheckTime(),
+            this::checkClosing);
+
+    // 啟動時立即更新一次開放狀態
+    private final Timer statusTimer = new Timer("開放狀態",
+            () -> LocalDateTime.now(clock),
+            () -> libraryBranchService.nextTransition(LocalDateTime.now(clock)),
+            this::updateStatus);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rearmAll();
+    }
+
+    /**
+     * 營業時間或休館日變動後重新計算所有計時器
+     */
+    @EventListener
+    public void onBranchHoursChanged(BranchHoursChangedEvent event) {
+        System.out.println("分館營業時間已變動，重新設定計時器");
+        rearmAll();
+    }
+
+    private void rearmAll() {
+        collectionTimer.rearm();
+        closingTimer.rearm();
+        statusTimer.rearm();
+    }
+
+    private void collect() {
+        if (clusterLeaseService.isLeader()) {
+            scheduledService.collectDataDuringOpenHours();
+        }
+    }
+
+    private void checkClosing() {
+        if (clusterLeaseService.isLeader()) {
+            scheduledService.checkForClosingTimeUpdate();
+        } else {
+            scheduledService.advanceClosingCheck();
+        }
+    }
+
+    private void updateStatus() {
+        if (clusterLeaseService.isLeader()) {
+            libraryBranchService.updateBranchOpenStatus();
+        }
+    }
+
+    private Instant toRealInstant(LocalDateTime time) {
+        return clock.toRealInstant(time.atZone(clock.getZone()).toInstant());
+    }
+
+    /**
+     * 單一計時器：執行完畢後依 nextTime 設定下一次觸發
+     * 重新設定時遞增世代，執行中的舊任務完成後不會再設定計時器
+     */
+    private class Timer {
+        private final String name;
+        private final Supplier<LocalDateTime> firstTime;
+        private final Supplier<LocalDateTime> nextTime;
+        private final Runnable task;
+
+        private ScheduledFuture<?> future;
+        private long generation;
+
+        Timer(String name, Supplier<LocalDateTime> firstTime, Supplier<LocalDateTime> nextTime, Runnable task) {
+            this.name = name;
+            this.firstTime = firstTime;
+            this.nextTime = nextTime;
+            this.task = task;
+        }
+
+        synchronized void rearm() {
+            generation++;
+            if (future != null) {
+                future.cancel(false);
+            }
+            schedule(generation, firstTime);
+        }
+
+        private synchronized void schedule(long expectedGeneration, Supplier<LocalDateTime> time) {
+            if (expectedGeneration != generation) {
+                return;
+            }
+            LocalDateTime at;
+            try {
+                at = time.get();
+            } catch (Exception e) {
+                System.err.println("計算" + name + "時間失敗，" + RETRY_MINUTES + "分鐘後重試: " + e.getMessage());
+                at = LocalDateTime.now(clock).plusMinutes(RETRY_MINUTES);
+            }
+            if (at == null) {
+                System.out.println(name + "計時器一年內沒有需要觸發的時間");
+                future = null;
+                return;
+            }
+            future = taskScheduler.schedule(() -> fire(expectedGeneration), toRealInstant(at));
+        }
+
+        private void fire(long expectedGeneration) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                System.err.println(name + "計時器執行失敗: " + e.getMessage());
+            } finally {
+                schedule(expectedGeneration, nextTime);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.library.demo.service.fetch;
+
+import java.util.Arrays;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * 標準API請求：以RestTemplate帶著快取的 session cookie 呼叫API
+ */
+@Component
+@ConditionalOnProperty(name = "library.replay.enabled", havingValue = "false", matchIfMissing = true)
+@Order(1)
+public class ApiFetchStrategy implements FetchStrategy {
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private UpstreamSessionManager sessionManager;
+
+    @Override
+    public String getName() {
+        return "api";
+    }
+
+    @Override
+    public String fetch() {
+        // session 失效時重新建立後再試一次
+        for (int attempt = 1; attempt <= 2; attempt++) {
+            boolean authFailure;
+            try {
+                String responseBody = requestApi();
+                
+                // 檢查響應是否為JSON (通過檢查開頭的'[' 或 '{')
+                if (responseBody != null && (responseBody.trim().startsWith("[") || responseBody.trim().startsWith("{"))) {
+                    System.out.println("成功獲取JSON數據");
+                    return responseBody;
+                }
+                System.out.println("響應內容不是JSON: " + (responseBody != null ? responseBody.substring(0, Math.min(responseBody.length(), 100)) : "null"));
+                authFailure = UpstreamSessionManager.isAuthFailure(200, responseBody);
+            } catch (HttpStatusCodeException e) {
+                System.err.println("RestTemplate調用失敗: " + e.getMessage());
+                authFailure = UpstreamSessionManager.isAuthFailure(e.getStatusCode().value(), e.getResponseBodyAsString());
+            } catch (Exception e) {
+                System.err.println("RestTemplate調用失敗: " + e.getMessage());
+                return null;
+            }
+            
+            if (!authFailure) {
+                return null;
+            }
+            sessionManager.invalidate();
+        }
+        return null;
+    }
+    
+    /**
+     * 帶著快取的 session cookie 呼叫API
+     */
+    private String requestApi() {
+        // 更完整地模擬瀏覽器請求
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(Arrays.asList(MediaType.APPLICATION_JSON, MediaType.TEXT_PLAIN, MediaType.ALL));
+        headers.set("User-Agent", TpmlApi.USER_AGENT);
+        headers.set("Accept", "application/json, text/plain, */*");
+        headers.set("Accept-Language", "zh-TW,zh;q=0.9,en-US;q=0.8,en;q=0.7");
+        headers.set("Referer", TpmlApi.HOME_URL);
+        headers.set("Origin", "https://seat.tpml.edu.tw");
+        headers.set("Connection", "keep-alive");
+        headers.set("Cache-Control", "no-cache");
+        headers.set("Pragma", "no-cache");
+        
+        // 附加快取的cookie，取代每次先訪問主頁
+        String cookieHeader = sessionManager.getCookieHeader();
+        if (!cookieHeader.isEmpty()) {
+            headers.set(HttpHeaders.COOKIE, cookieHeader);
+        }
+        
+        HttpEntity<String> entity = new HttpEntity<>(headers);
+        
+        // 發送請求並獲取回應
+        ResponseEntity<String> response = restTemplate.exchange(
+            TpmlApi.API_URL, 
+            HttpMethod.GET, 
+            entity, 
+            String.class
+        );
+        
+        System.out.println("API響應內容類型: " + response.getHeaders().getContentType());
+        return response.getBody();
+    }
+}
@@ -0,0 +1,87 @@
+package com.library.demo.service.fetch;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * 模擬瀏覽器行為獲取數據：帶著主頁發出的cookie與瀏覽器的API請求標頭呼叫API
+ */
+@Component
+@ConditionalOnProperty(name = "library.replay.enabled", havingValue = "false", matchIfMissing = true)
+@Order(4)
+public class BrowserSimulationFetchStrategy implements FetchStrategy {
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private UpstreamSessionManager sessionManager;
+
+    @Override
+    public String getName() {
+        return "browser-simulation";
+    }
+
+    @Override
+    public String fetch() {
+        try {
+            // 取得快取的cookie，過期時才會重新訪問主頁
+            String cookieHeader = sessionManager.getCookieHeader();
+            
+            // 現在有了cookie，嘗試訪問API
+            HttpHeaders apiHeaders = new HttpHeaders();
+            apiHeaders.add("Host", "seat.tpml.edu.tw");
+            apiHeaders.add("User-Agent", TpmlApi.USER_AGENT);
+            apiHeaders.add("Accept", "application/json, text/plain, */*");
+            apiHeaders.add("Accept-Language", "zh-TW,zh;q=0.9,en-US;q=0.8,en;q=0.7");
+            apiHeaders.add("Connection", "keep-alive");
+            apiHeaders.add("Referer", "https://seat.tpml.edu.tw/Home/Areas");
+            apiHeaders.add("Origin", "https://seat.tpml.edu.tw");
+            
+            // 添加從主頁獲取的cookies
+            if (!cookieHeader.isEmpty()) {
+                apiHeaders.add("Cookie", cookieHeader);
+            }
+            
+            HttpEntity<String> entity = new HttpEntity<>(apiHeaders);
+            ResponseEntity<String> apiResponse = restTemplate.exchange(
+                TpmlApi.API_URL, 
+                HttpMethod.GET, 
+                entity, 
+                String.class
+            );
+            
+            System.out.println("模擬瀏覽器API請求狀態: " + apiResponse.getStatusCode());
+            
+            String responseBody = apiResponse.getBody();
+            // 檢查是否獲得JSON響應
+            if (responseBody != null && TpmlApi.isValidJson(responseBody)) {
+                System.out.println("模擬瀏覽器成功獲取JSON數據");
+                return responseBody;
+            } else {
+                System.out.println("模擬瀏覽器未能獲取有效數據");
+                if (UpstreamSessionManager.isAuthFailure(200, responseBody)) {
+                    sessionManager.invalidate();
+                }
+                return null;
+            }
+        } catch (HttpStatusCodeException e) {
+            System.err.println("模擬瀏覽器獲取數據失敗: " + e.getMessage());
+            if (UpstreamSessionManager.isAuthFailure(e.getStatusCode().value(), e.getResponseBodyAsString())) {
+                sessionManager.invalidate();
+            }
+            return null;
+        } catch (Exception e) {
+            System.err.println("模擬瀏覽器獲取數據失敗: " + e.getMessage());
+            return null;
+        }
+    }
+}
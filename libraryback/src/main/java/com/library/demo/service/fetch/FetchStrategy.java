@@ -0,0 +1,19 @@
+package com.library.demo.service.fetch;
+
+/**
+ * 向臺北市圖書館取得座位數據的一種方式
+ * 由 UpstreamFetcher 依歷史成功率與延遲排序後依序嘗試
+ */
+public interface FetchStrategy {
+
+    /**
+     * 策略名稱，用於統計與日誌
+     */
+    String getName();
+
+    /**
+     * 執行一次擷取
+     * @return 上游回傳的內容，失敗時回傳 null
+     */
+    String fetch();
+}
@@ -0,0 +1,149 @@
+package com.library.demo.service.fetch;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * 單一擷取策略的滾動統計與斷路器狀態
+ * 保留最近數次的成功與延遲紀錄；連續失敗達門檻時開啟斷路器，
+ * 等待時間以指數方式增加，到期後進入半開狀態允許一次試探
+ */
+public class FetchStrategyStats {
+
+    public enum CircuitState {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final FetchStrategy strategy;
+    private final int order;
+
+    // 滾動視窗：最近幾次的結果與延遲（毫秒）
+    private final boolean[] successes;
+    private final long[] latencies;
+    private int nextSlot = 0;
+    private int sampleCount = 0;
+
+    private CircuitState state = CircuitState.CLOSED;
+    private int consecutiveFailures = 0;
+    private int consecutiveOpens = 0;
+    private Instant openUntil;
+    private Instant lastAttempt;
+
+    public FetchStrategyStats(FetchStrategy strategy, int order, int windowSize) {
+        this.strategy = strategy;
+        this.order = order;
+        this.successes = new boolean[windowSize];
+        this.latencies = new long[windowSize];
+    }
+
+    public FetchStrategy getStrategy() {
+        return strategy;
+    }
+
+    public int getOrder() {
+        return order;
+    }
+
+    /**
+     * 記錄一次擷取結果並更新斷路器狀態
+     */
+    public synchronized void record(boolean success, long latencyMillis, Instant now,
+                                    int failureThreshold, Duration baseBackoff, Duration maxBackoff) {
+        successes[nextSlot] = success;
+        latencies[nextSlot] = latencyMillis;
+        nextSlot = (nextSlot + 1) % successes.length;
+        sampleCount = Math.min(sampleCount + 1, successes.length);
+        lastAttempt = now;
+
+        if (success) {
+            state = CircuitState.CLOSED;
+            consecutiveFailures = 0;
+            consecutiveOpens = 0;
+            openUntil = null;
+            return;
+        }
+
+        consecutiveFailures++;
+        // 半開狀態試探失敗時直接重新開啟；關閉狀態下連續失敗達門檻才開啟
+        if (state == CircuitState.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            long multiplier = 1L << Math.min(consecutiveOpens, 20);
+            Duration backoff = baseBackoff.multipliedBy(multiplier);
+            if (backoff.compareTo(maxBackoff) > 0) {
+                backoff = maxBackoff;
+            }
+            consecutiveOpens++;
+            state = CircuitState.OPEN;
+            openUntil = now.plus(backoff);
+        }
+    }
+
+    /**
+     * 取得指定時間的斷路器狀態，開啟期限到期後轉為半開
+     */
+    public synchronized CircuitState stateAt(Instant now) {
+        if (state == CircuitState.OPEN && !now.isBefore(openUntil)) {
+            state = CircuitState.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * 滾動視窗內的成功率，沒有紀錄時回傳 NaN
+     */
+    public synchronized double getSuccessRate() {
+        if (sampleCount == 0) {
+            return Double.NaN;
+        }
+        int successCount = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            if (successes[i]) successCount++;
+        }
+        return (double) successCount / sampleCount;
+    }
+
+    /**
+     * 滾動視窗內成功擷取的平均延遲（毫秒），沒有成功紀錄時回傳 NaN
+     */
+    public synchronized double getAverageSuccessLatency() {
+        long total = 0;
+        int count = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            if (successes[i]) {
+                total += latencies[i];
+                count++;
+            }
+        }
+        return count == 0 ? Double.NaN : (double) total / count;
+    }
+
+    /**
+     * 預期取得一次成功所需的時間：平均成功延遲除以成功率
+     * 沒有成功紀錄時回傳無限大
+     */
+    public synchronized double getExpectedCost() {
+        double successRate = getSuccessRate();
+        double latency = getAverageSuccessLatency();
+        if (Double.isNaN(successRate) || Double.isNaN(latency) || successRate == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return latency / successRate;
+    }
+
+    public synchronized int getSampleCount() {
+        return sampleCount;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public synchronized Instant getOpenUntil() {
+        return openUntil;
+    }
+
+    public synchronized Instant getLastAttempt() {
+        return lastAttempt;
+    }
+}
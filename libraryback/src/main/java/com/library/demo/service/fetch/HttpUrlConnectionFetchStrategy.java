@@ -0,0 +1,109 @@
+package com.library.demo.service.fetch;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * 使用HttpURLConnection獲取數據（作為備選方法）
+ */
+@Component
+@ConditionalOnProperty(name = "library.replay.enabled", havingValue = "false", matchIfMissing = true)
+@Order(2)
+public class HttpUrlConnectionFetchStrategy implements FetchStrategy {
+
+    @Autowired
+    private UpstreamSessionManager sessionManager;
+
+    @Override
+    public String getName() {
+        return "http-url-connection";
+    }
+
+    @Override
+    public String fetch() {
+        HttpURLConnection connection = null;
+        BufferedReader reader = null;
+        StringBuilder response = new StringBuilder();
+        
+        try {
+            // 創建URL連接
+            URL url = URI.create(TpmlApi.API_URL).toURL();
+            connection = (HttpURLConnection) url.openConnection();
+            
+            // 設置請求方法和頭信息（更完整模擬瀏覽器）
+            connection.setRequestMethod("GET");
+            connection.setRequestProperty("User-Agent", TpmlApi.USER_AGENT);
+            connection.setRequestProperty("Accept", "application/json, text/plain, */*");
+            connection.setRequestProperty("Accept-Language", "zh-TW,zh;q=0.9,en-US;q=0.8,en;q=0.7");
+            connection.setRequestProperty("Referer", TpmlApi.HOME_URL);
+            connection.setRequestProperty("Origin", "https://seat.tpml.edu.tw");
+            connection.setRequestProperty("Connection", "keep-alive");
+            connection.setRequestProperty("Cache-Control", "no-cache");
+            connection.setRequestProperty("Pragma", "no-cache");
+            
+            // 附加快取的 session cookie
+            String cookieHeader = sessionManager.getCookieHeader();
+            if (!cookieHeader.isEmpty()) {
+                connection.setRequestProperty("Cookie", cookieHeader);
+            }
+            
+            // 允許自動重定向
+            connection.setInstanceFollowRedirects(true);
+            
+            // 獲取響應代碼
+            int responseCode = connection.getResponseCode();
+            System.out.println("HttpURLConnection 響應代碼: " + responseCode);
+            
+            // 讀取響應內容
+            if (responseCode == HttpURLConnection.HTTP_OK) {
+                System.out.println("HttpURLConnection 響應內容類型: " + connection.getContentType());
+                
+                reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    response.append(line);
+                }
+                
+                String responseStr = response.toString();
+                // 檢查響應是否為JSON
+                if (responseStr.trim().startsWith("[") || responseStr.trim().startsWith("{")) {
+                    System.out.println("HttpURLConnection成功獲取JSON數據");
+                    return responseStr;
+                } else {
+                    System.out.println("HttpURLConnection響應不是JSON格式: " + 
+                        responseStr.substring(0, Math.min(responseStr.length(), 100)));
+                    return null;
+                }
+            } else {
+                System.out.println("HttpURLConnection請求失敗，響應代碼: " + responseCode);
+                if (UpstreamSessionManager.isAuthFailure(responseCode, null)) {
+                    sessionManager.invalidate();
+                }
+                return null;
+            }
+        } catch (Exception e) {
+            System.err.println("HttpURLConnection失敗: " + e.getMessage());
+            return null;
+        } finally {
+            // 關閉連接和讀取器
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.library.demo.service.fetch;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * 重播模式的擷取策略，取代所有實際連線上游的策略
+ * 依應用程式時鐘回傳存檔或合成的上游內容，並可依機率注入延遲、HTML 錯誤頁與截斷的JSON，
+ * 用來在本機驗證擷取、斷路器、閉館快照與清理排程
+ */
+@Component
+@ConditionalOnProperty(name = "library.replay.enabled", havingValue = "true")
+@Order(1)
+public class ReplayFetchStrategy implements FetchStrategy {
+
+    private static final String HTML_ERROR_PAGE =
+            "<!DOCTYPE html><html><head><title>503 Service Unavailable</title></head>"
+            + "<body><h1>Service Unavailable</h1></body></html>";
+
+    @Value("${library.replay.faults.latency-ms:0}")
+    private long latencyMillis;
+
+    @Value("${library.replay.faults.latency-probability:0}")
+    private double latencyProbability;
+
+    @Value("${library.replay.faults.html-error-probability:0}")
+    private double htmlErrorProbability;
+
+    @Value("${library.replay.faults.truncated-json-probability:0}")
+    private double truncatedJsonProbability;
+
+    @Autowired
+    private ReplayPayloadSource payloadSource;
+
+    @Autowired
+    private Clock clock;
+
+    private Random faultRandom;
+
+    @Value("${library.replay.seed:42}")
+    public void setSeed(long seed) {
+        this.faultRandom = new Random(seed);
+    }
+
+    @Override
+    public String getName() {
+        return "replay";
+    }
+
+    @Override
+    public synchronized String fetch() {
+        if (faultRandom.nextDouble() < latencyProbability) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+
+        if (faultRandom.nextDouble() < htmlErrorProbability) {
+            System.out.println("重播注入錯誤: HTML 錯誤頁");
+            return HTML_ERROR_PAGE;
+        }
+
+        String payload = payloadSource.payloadAt(LocalDateTime.now(clock));
+        if (payload != null && faultRandom.nextDouble() < truncatedJsonProbability) {
+            System.out.println("重播注入錯誤: 截斷的JSON");
+            return payload.substring(0, faultRandom.nextInt(Math.max(1, payload.length() - 1)));
+        }
+        return payload;
+    }
+}
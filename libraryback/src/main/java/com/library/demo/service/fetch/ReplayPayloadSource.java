@@ -0,0 +1,189 @@
+package com.library.demo.service.fetch;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * 重播用的上游資料來源
+ * 可將即時擷取到的內容依時間存檔，重播時依應用程式時鐘取出對應時間的存檔；
+ * 沒有存檔時依時段產生合成資料，同一時間與亂數種子永遠產生相同內容
+ */
+@Component
+public class ReplayPayloadSource {
+
+    private static final DateTimeFormatter FILE_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private static final String FILE_SUFFIX = ".json";
+
+    // 重播存檔目錄，空白表示使用合成資料
+    @Value("${library.replay.directory:}")
+    private String replayDirectory;
+
+    // 即時擷取的存檔目錄，空白表示不存檔
+    @Value("${library.replay.record-directory:}")
+    private String recordDirectory;
+
+    @Value("${library.replay.synthetic.branches:10}")
+    private int syntheticBranches;
+
+    @Value("${library.replay.synthetic.areas-per-branch:6}")
+    private int syntheticAreasPerBranch;
+
+    @Value("${library.replay.seed:42}")
+    private long seed;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Clock clock;
+
+    // 存檔的記錄時間與檔案
+    private final TreeMap<LocalDateTime, Path> recordings = new TreeMap<>();
+
+    // 重播開始時的日期，用於把重播時間對應到存檔的日期
+    private LocalDate replayFirstDate;
+
+    @PostConstruct
+    public void loadRecordings() {
+        if (replayDirectory.isEmpty()) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(Paths.get(replayDirectory))) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (!name.endsWith(FILE_SUFFIX)) {
+                    return;
+                }
+                try {
+                    LocalDateTime time = LocalDateTime.parse(
+                            name.substring(0, name.length() - FILE_SUFFIX.length()), FILE_NAME_FORMAT);
+                    recordings.put(time, file);
+                } catch (DateTimeParseException e) {
+                    System.err.println("略過無法辨識時間的存檔: " + name);
+                }
+            });
+            System.out.println("已載入重播存檔 " + recordings.size() + " 筆，目錄: " + replayDirectory);
+        } catch (IOException e) {
+            System.err.println("讀取重播存檔目錄失敗，改用合成資料: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 取得應用程式時鐘目前時間的上游內容
+     */
+    public String payloadAt(LocalDateTime time) {
+        if (recordings.isEmpty()) {
+            return syntheticPayload(time);
+        }
+        Path file = recordingAt(time);
+        try {
+            return Files.readString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.err.println("讀取重播存檔失敗: " + file + "，" + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 將即時擷取到的內容依應用程式時鐘的時間存檔
+     */
+    public void record(String payload) {
+        if (recordDirectory.isEmpty() || payload == null) {
+            return;
+        }
+        try {
+            Path directory = Paths.get(recordDirectory);
+            Files.createDirectories(directory);
+            String name = LocalDateTime.now(clock).format(FILE_NAME_FORMAT) + FILE_SUFFIX;
+            Files.writeString(directory.resolve(name), payload, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.err.println("存檔上游內容失敗: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 依日期循環使用存檔：重播的第 n 天對應存檔的第 n 天（超過時從頭開始），
+     * 再取當天該時間點以前最近的一筆
+     */
+    private synchronized Path recordingAt(LocalDateTime time) {
+        if (replayFirstDate == null) {
+            replayFirstDate = time.toLocalDate();
+        }
+        LocalDate firstRecordedDate = recordings.firstKey().toLocalDate();
+        long recordedDays = recordings.lastKey().toLocalDate().toEpochDay() - firstRecordedDate.toEpochDay() + 1;
+        long dayOffset = Math.floorMod(time.toLocalDate().toEpochDay() - replayFirstDate.toEpochDay(), recordedDays);
+        LocalDateTime recordedTime = LocalDateTime.of(firstRecordedDate.plusDays(dayOffset), time.toLocalTime());
+
+        Entry<LocalDateTime, Path> entry = recordings.floorEntry(recordedTime);
+        return entry != null ? entry.getValue() : recordings.firstEntry().getValue();
+    }
+
+    /**
+     * 依時段產生合成資料：午後為尖峰，週末較滿，並加上少量隨機變動
+     */
+    private String syntheticPayload(LocalDateTime time) {
+        long epochMinute = time.toEpochSecond(ZoneOffset.UTC) / 60;
+        double hour = time.getHour() + time.getMinute() / 60.0;
+        double peak = Math.exp(-Math.pow(hour - 15, 2) / 18);
+        boolean weekend = time.getDayOfWeek().getValue() >= 6;
+        double baseOccupancy = 0.1 + (weekend ? 0.8 : 0.65) * peak;
+
+        List<Map<String, Object>> areas = new ArrayList<>();
+        for (int branch = 0; branch < syntheticBranches; branch++) {
+            String branchName = branch == 0 ? "總館" : String.format("分館%02d", branch);
+            for (int area = 0; area < syntheticAreasPerBranch; area++) {
+                int id = 1000 + branch * 100 + area;
+                // 區域本身的容量與熱門程度固定，每分鐘的變動則依時間取亂數
+                Random areaRandom = new Random(seed * 31 + id);
+                int totalCount = 20 + areaRandom.nextInt(81);
+                double popularity = 0.8 + areaRandom.nextDouble() * 0.4;
+                Random minuteRandom = new Random(seed ^ (epochMinute * 1_000_003L + id));
+                double occupancy = baseOccupancy * popularity + (minuteRandom.nextDouble() - 0.5) * 0.06;
+                int usedCount = (int) Math.round(Math.max(0, Math.min(1, occupancy)) * totalCount);
+
+                Map<String, Object> node = new LinkedHashMap<>();
+                node.put("id", id);
+                node.put("area_id", String.valueOf(id));
+                node.put("area_name", "閱覽區" + (area + 1));
+                node.put("branch_name", branchName);
+                node.put("floor_name", (area % 5 + 1) + "F");
+                node.put("free_count", totalCount - usedCount);
+                node.put("total_count", totalCount);
+                areas.add(node);
+            }
+        }
+        try {
+            return objectMapper.writeValueAsString(areas);
+        } catch (JsonProcessingException e) {
+            System.err.println("產生合成資料失敗: " + e.getMessage());
+            return null;
+        }
+    }
+}
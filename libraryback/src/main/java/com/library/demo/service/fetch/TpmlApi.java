@@ -0,0 +1,27 @@
+package com.library.demo.service.fetch;
+
+/**
+ * 臺北市圖書館座位系統的網址與共用請求標頭
+ */
+public final class TpmlApi {
+
+    // 臺北市圖書館API URL
+    public static final String API_URL = "https://seat.tpml.edu.tw/sm/service/getAllArea";
+
+    // 座位查詢主頁
+    public static final String HOME_URL = "https://seat.tpml.edu.tw/";
+
+    public static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36";
+
+    private TpmlApi() {}
+
+    /**
+     * 檢查字符串是否為有效的JSON
+     */
+    public static boolean isValidJson(String json) {
+        if (json == null) return false;
+        json = json.trim();
+        return (json.startsWith("{") && json.endsWith("}")) || 
+               (json.startsWith("[") && json.endsWith("]"));
+    }
+}
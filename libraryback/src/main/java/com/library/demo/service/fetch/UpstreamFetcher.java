@@ -0,0 +1,130 @@
+package com.library.demo.service.fetch;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.library.demo.dto.FetchStrategyStatsDTO;
+import com.library.demo.service.fetch.FetchStrategyStats.CircuitState;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * 依歷史表現排序並執行擷取策略
+ * 半開狀態的策略優先試探一次；其餘關閉狀態的策略依預期成本（平均成功延遲 ÷ 成功率）排序，
+ * 尚無紀錄的策略依宣告順序排在已知可用的策略之後；斷路器開啟中的策略直接略過
+ */
+@Service
+public class UpstreamFetcher {
+
+    @Value("${library.fetch.window-size:20}")
+    private int windowSize;
+
+    @Value("${library.fetch.failure-threshold:3}")
+    private int failureThreshold;
+
+    @Value("${library.fetch.base-backoff-seconds:60}")
+    private long baseBackoffSeconds;
+
+    @Value("${library.fetch.max-backoff-seconds:1800}")
+    private long maxBackoffSeconds;
+
+    @Autowired
+    private List<FetchStrategy> strategies;
+
+    @Autowired
+    private Clock clock;
+
+    @Autowired
+    private ReplayPayloadSource replayPayloadSource;
+
+    private final List<FetchStrategyStats> strategyStats = new ArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        // 注入的清單已依 @Order 排序
+        for (int i = 0; i < strategies.size(); i++) {
+            strategyStats.add(new FetchStrategyStats(strategies.get(i), i, windowSize));
+        }
+    }
+
+    /**
+     * 依排序嘗試各擷取策略，回傳第一個有效的JSON
+     * @return 上游JSON，全部失敗或斷路器皆開啟時回傳 null
+     */
+    public String fetch() {
+        for (FetchStrategyStats stats : rank(clock.instant())) {
+            FetchStrategy strategy = stats.getStrategy();
+            System.out.println("嘗試擷取策略: " + strategy.getName());
+
+            long start = System.nanoTime();
+            String body = strategy.fetch();
+            long latencyMillis = (System.nanoTime() - start) / 1_000_000;
+
+            boolean success = TpmlApi.isValidJson(body);
+            stats.record(success, latencyMillis, clock.instant(), failureThreshold,
+                    Duration.ofSeconds(baseBackoffSeconds), Duration.ofSeconds(maxBackoffSeconds));
+            if (success) {
+                System.out.println("擷取策略 " + strategy.getName() + " 成功，耗時 " + latencyMillis + " ms");
+                replayPayloadSource.record(body);
+                return body;
+            }
+            System.out.println("擷取策略 " + strategy.getName() + " 失敗，耗時 " + latencyMillis + " ms");
+        }
+        return null;
+    }
+
+    /**
+     * 取得各擷取策略目前的排序與統計
+     */
+    public List<FetchStrategyStatsDTO> getStats() {
+        Instant now = clock.instant();
+        List<FetchStrategyStats> ranked = rank(now);
+        List<FetchStrategyStatsDTO> result = new ArrayList<>();
+        for (FetchStrategyStats stats : strategyStats) {
+            FetchStrategyStatsDTO dto = new FetchStrategyStatsDTO();
+            dto.setName(stats.getStrategy().getName());
+            dto.setRank(ranked.indexOf(stats) + 1);
+            dto.setCircuitState(stats.stateAt(now).name());
+            dto.setSampleCount(stats.getSampleCount());
+            dto.setSuccessRate(stats.getSuccessRate());
+            dto.setAverageLatencyMillis(stats.getAverageSuccessLatency());
+            dto.setConsecutiveFailures(stats.getConsecutiveFailures());
+            dto.setOpenUntil(stats.getOpenUntil());
+            dto.setLastAttempt(stats.getLastAttempt());
+            result.add(dto);
+        }
+        return result;
+    }
+
+    /**
+     * 依斷路器狀態與預期成本排序，開啟中的策略不列入
+     */
+    private List<FetchStrategyStats> rank(Instant now) {
+        List<FetchStrategyStats> halfOpen = new ArrayList<>();
+        List<FetchStrategyStats> closed = new ArrayList<>();
+        for (FetchStrategyStats stats : strategyStats) {
+            CircuitState state = stats.stateAt(now);
+            if (state == CircuitState.HALF_OPEN) {
+                halfOpen.add(stats);
+            } else if (state == CircuitState.CLOSED) {
+                closed.add(stats);
+            }
+        }
+
+        // 成本相同（例如皆無成功紀錄）時維持宣告順序
+        closed.sort(Comparator.comparingDouble(FetchStrategyStats::getExpectedCost)
+                .thenComparingInt(FetchStrategyStats::getOrder));
+
+        List<FetchStrategyStats> ranked = new ArrayList<>(halfOpen);
+        ranked.addAll(closed);
+        return ranked;
+    }
+}
@@ -0,0 +1,145 @@
+package com.library.demo.service.fetch;
+
+import java.net.HttpCookie;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * 快取座位查詢主頁發出的cookie
+ * 只在cookie過期或API回應看起來像是未授權時才重新訪問主頁，
+ * 穩定狀態下每次擷取只需要一個上游請求
+ */
+@Component
+public class UpstreamSessionManager {
+
+    // 沒有 Max-Age/Expires 的 session cookie，或主頁沒有發出任何 cookie 時的快取時間
+    @Value("${library.fetch.session-ttl-seconds:1800}")
+    private long sessionTtlSeconds;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private Clock clock;
+
+    // cookie名稱 -> 快取的cookie
+    private final Map<String, CachedCookie> cookies = new LinkedHashMap<>();
+
+    private Instant sessionExpiresAt;
+
+    /**
+     * 取得要附加在API請求上的 Cookie 標頭，必要時先重新建立 session
+     * @return Cookie 標頭內容，主頁沒有發出cookie時回傳空字串
+     */
+    public synchronized String getCookieHeader() {
+        Instant now = clock.instant();
+        if (needsRefresh(now)) {
+            refresh(now);
+        }
+        return cookies.values().stream()
+                .map(cookie -> cookie.name + "=" + cookie.value)
+                .collect(Collectors.joining("; "));
+    }
+
+    /**
+     * 捨棄目前的 session，下一次取得 cookie 時會重新訪問主頁
+     */
+    public synchronized void invalidate() {
+        System.out.println("捨棄快取的上游 session");
+        cookies.clear();
+        sessionExpiresAt = null;
+    }
+
+    /**
+     * 判斷上游回應是否像是 session 失效：401/403/419/440，或應回傳JSON卻拿到HTML頁面
+     */
+    public static boolean isAuthFailure(int statusCode, String body) {
+        if (statusCode == 401 || statusCode == 403 || statusCode == 419 || statusCode == 440) {
+            return true;
+        }
+        return body != null && body.trim().startsWith("<");
+    }
+
+    private boolean needsRefresh(Instant now) {
+        if (sessionExpiresAt == null || !now.isBefore(sessionExpiresAt)) {
+            return true;
+        }
+        return cookies.values().stream().anyMatch(cookie -> !now.isBefore(cookie.expiresAt));
+    }
+
+    /**
+     * 訪問座位查詢主頁並快取回應中的 cookie
+     */
+    private void refresh(Instant now) {
+        cookies.clear();
+        Instant defaultExpiry = now.plus(Duration.ofSeconds(sessionTtlSeconds));
+        sessionExpiresAt = defaultExpiry;
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.add("User-Agent", TpmlApi.USER_AGENT);
+            headers.add("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,*/*;q=0.8");
+            headers.add("Accept-Language", "zh-TW,zh;q=0.9,en-US;q=0.8,en;q=0.7");
+
+            ResponseEntity<String> homeResponse = restTemplate.exchange(
+                TpmlApi.HOME_URL,
+                HttpMethod.GET,
+                new HttpEntity<>(headers),
+                String.class
+            );
+            System.out.println("重新建立上游 session，主頁訪問狀態: " + homeResponse.getStatusCode());
+
+            List<String> setCookies = homeResponse.getHeaders().get(HttpHeaders.SET_COOKIE);
+            if (setCookies != null) {
+                for (String setCookie : setCookies) {
+                    for (HttpCookie cookie : HttpCookie.parse(setCookie)) {
+                        // Max-Age=0 表示刪除cookie
+                        if (cookie.getMaxAge() == 0) {
+                            continue;
+                        }
+                        Instant expiresAt = cookie.getMaxAge() >= 0
+                                ? now.plusSeconds(cookie.getMaxAge())
+                                : defaultExpiry;
+                        cookies.put(cookie.getName(), new CachedCookie(cookie.getName(), cookie.getValue(), expiresAt));
+                    }
+                }
+            }
+            // session 以最早過期的 cookie 為準
+            for (CachedCookie cookie : cookies.values()) {
+                if (cookie.expiresAt.isBefore(sessionExpiresAt)) {
+                    sessionExpiresAt = cookie.expiresAt;
+                }
+            }
+            System.out.println("快取 cookie 數量: " + cookies.size() + "，有效至: " + sessionExpiresAt);
+        } catch (Exception e) {
+            // 主頁無法訪問時仍讓API請求照常進行，稍後再重試
+            System.out.println("訪問座位查詢主頁失敗: " + e.getMessage());
+            sessionExpiresAt = now.plus(Duration.ofSeconds(Math.min(sessionTtlSeconds, 60)));
+        }
+    }
+
+    private static class CachedCookie {
+        private final String name;
+        private final String value;
+        private final Instant expiresAt;
+
+        CachedCookie(String name, String value, Instant expiresAt) {
+            this.name = name;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
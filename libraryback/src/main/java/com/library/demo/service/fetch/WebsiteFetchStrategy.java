@@ -0,0 +1,62 @@
+package com.library.demo.service.fetch;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * 直接從網站URL獲取數據，使用瀏覽器導覽時的請求標頭
+ */
+@Component
+@ConditionalOnProperty(name = "library.replay.enabled", havingValue = "false", matchIfMissing = true)
+@Order(3)
+public class WebsiteFetchStrategy implements FetchStrategy {
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Override
+    public String getName() {
+        return "website";
+    }
+
+    @Override
+    public String fetch() {
+        try {
+            // 使用專門配置的RestTemplate
+            HttpHeaders headers = new HttpHeaders();
+            headers.add("User-Agent", TpmlApi.USER_AGENT);
+            headers.add("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,image/apng,*/*;q=0.8,application/signed-exchange;v=b3;q=0.9");
+            headers.add("Accept-Language", "zh-TW,zh;q=0.9,en-US;q=0.8,en;q=0.7");
+            headers.add("sec-ch-ua", "\"Google Chrome\";v=\"93\", \" Not;A Brand\";v=\"99\", \"Chromium\";v=\"93\"");
+            headers.add("sec-ch-ua-mobile", "?0");
+            headers.add("sec-ch-ua-platform", "\"Windows\"");
+            headers.add("Sec-Fetch-Dest", "document");
+            headers.add("Sec-Fetch-Mode", "navigate");
+            headers.add("Sec-Fetch-Site", "none");
+            headers.add("Sec-Fetch-User", "?1");
+            headers.add("Upgrade-Insecure-Requests", "1");
+            
+            HttpEntity<String> entity = new HttpEntity<>(headers);
+            ResponseEntity<String> response = restTemplate.exchange(TpmlApi.API_URL, HttpMethod.GET, entity, String.class);
+            
+            String body = response.getBody();
+            if (body != null && TpmlApi.isValidJson(body)) {
+                System.out.println("網站URL直接獲取成功");
+                return body;
+            } else {
+                System.out.println("網站URL未返回有效JSON數據");
+                return null;
+            }
+        } catch (Exception e) {
+            System.err.println("網站直接訪問失敗: " + e.getMessage());
+            return null;
+        }
+    }
+}
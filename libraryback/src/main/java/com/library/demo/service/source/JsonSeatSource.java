@@ -0,0 +1,107 @@
+package com.library.demo.service.source;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.library.demo.config.SeatSourceProperties;
+import com.library.demo.model.LibraryArea;
+
+/**
+ * 以設定描述格式的座位系統：GET 一個網址，依 JSON Pointer 取出座位陣列並依設定的欄位名稱解析
+ * 沒有區域代碼的資料保留空白，由 AreaIdentityRegistry 依名稱指定穩定的代碼
+ */
+class JsonSeatSource implements SeatSource {
+
+    private final SeatSourceProperties.JsonSource config;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final Duration timeout;
+
+    JsonSeatSource(SeatSourceProperties.JsonSource config, HttpClient httpClient, ObjectMapper objectMapper,
+                   Duration timeout) {
+        if (config.getId() == null || config.getId().isBlank() || config.getUrl() == null || config.getUrl().isBlank()) {
+            throw new IllegalArgumentException("座位來源需要設定 id 與 url");
+        }
+        this.config = config;
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public String getId() {
+        return config.getId();
+    }
+
+    @Override
+    public int getIntervalSeconds() {
+        return config.getIntervalSeconds();
+    }
+
+    @Override
+    public int getRequestsPerMinute() {
+        return config.getRequestsPerMinute();
+    }
+
+    @Override
+    public int getTimeoutSeconds() {
+        return config.getTimeoutSeconds();
+    }
+
+    @Override
+    public String fetch() {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(config.getUrl()))
+                .timeout(timeout)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                System.err.println("座位來源 " + getId() + " 回應狀態 " + response.statusCode());
+                return null;
+            }
+            return response.body();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            System.err.println("座位來源 " + getId() + " 請求失敗: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public List<LibraryArea> parse(String payload, LocalDateTime recordTime) {
+        List<LibraryArea> areas = new ArrayList<>();
+        SeatSourceProperties.Fields fields = config.getFields();
+        try {
+            JsonNode rootNode = objectMapper.readTree(payload);
+            JsonNode items = config.getItemsPath().isEmpty() ? rootNode : rootNode.at(config.getItemsPath());
+            for (JsonNode node : items) {
+                String areaId = node.path(fields.getAreaId()).asText("");
+                String branchName = node.path(fields.getBranchName()).asText("");
+                if (branchName.isEmpty()) {
+                    branchName = config.getBranchName();
+                }
+                areas.add(new LibraryArea(areaId, branchName,
+                        node.path(fields.getFloorName()).asText(""),
+                        node.path(fields.getAreaName()).asText(""),
+                        node.path(fields.getFreeCount()).asInt(),
+                        node.path(fields.getTotalCount()).asInt(),
+                        recordTime));
+            }
+        } catch (Exception e) {
+            System.err.println("解析座位來源 " + getId() + " 的數據失敗: " + e.getMessage());
+        }
+        return areas;
+    }
+}
@@ -0,0 +1,59 @@
+package com.library.demo.service.source;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.library.demo.model.LibraryArea;
+
+/**
+ * 一個圖書館座位系統
+ * 由 SeatSourceFetcher 與其他來源並發擷取，各自依間隔、頻率上限與逾時設定執行，
+ * 解析出的區域代碼加上來源前綴後合併為同一次快照
+ */
+public interface SeatSource {
+
+    /**
+     * 來源代碼，用於區域代碼前綴、指標與日誌
+     */
+    String getId();
+
+    /**
+     * 加在區域代碼前的命名空間，避免不同系統的區域代碼衝突
+     */
+    default String getAreaIdPrefix() {
+        return getId() + ":";
+    }
+
+    /**
+     * 定時擷取時兩次請求的最短間隔（秒），0 表示每次擷取都請求
+     * 閉館快照與手動擷取不受此限制
+     */
+    default int getIntervalSeconds() {
+        return 0;
+    }
+
+    /**
+     * 每分鐘最多請求的次數，包含閉館快照與手動擷取，0 表示不限制
+     */
+    default int getRequestsPerMinute() {
+        return 0;
+    }
+
+    /**
+     * 單次擷取的逾時秒數，0 表示使用全域設定
+     */
+    default int getTimeoutSeconds() {
+        return 0;
+    }
+
+    /**
+     * 向上游請求一次
+     * @return 上游回傳的內容，失敗時回傳 null
+     */
+    String fetch();
+
+    /**
+     * 依此來源的格式解析座位數據，區域代碼不含前綴
+     */
+    List<LibraryArea> parse(String payload, LocalDateTime recordTime);
+}
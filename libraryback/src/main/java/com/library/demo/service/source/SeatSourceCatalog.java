@@ -0,0 +1,99 @@
+package com.library.demo.service.source;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.library.demo.config.SeatSourceProperties;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 已設定的座位來源清單
+ * 包含以 Bean 實作的來源（依 @Order 排序）與 library.sources.json 設定的來源，
+ * 並依各來源的區域代碼前綴判斷一個區域代碼屬於哪個來源
+ */
+@Component
+public class SeatSourceCatalog {
+
+    @Autowired
+    private List<SeatSource> beanSources;
+
+    @Autowired
+    private SeatSourceProperties properties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ExecutorService httpExecutor;
+
+    private List<SeatSource> sources;
+
+    // 由長到短排列的區域代碼前綴，較長的前綴優先比對
+    private List<String> prefixes;
+
+    @PostConstruct
+    public void init() {
+        httpExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        HttpClient httpClient = HttpClient.newBuilder()
+                .executor(httpExecutor)
+                .connectTimeout(Duration.ofSeconds(properties.getTimeoutSeconds()))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+
+        // 注入的清單已依 @Order 排序，設定的來源排在之後
+        List<SeatSource> all = new ArrayList<>(beanSources);
+        for (SeatSourceProperties.JsonSource config : properties.getJson()) {
+            int timeoutSeconds = config.getTimeoutSeconds() > 0 ? config.getTimeoutSeconds() : properties.getTimeoutSeconds();
+            all.add(new JsonSeatSource(config, httpClient, objectMapper, Duration.ofSeconds(timeoutSeconds)));
+        }
+        Set<String> ids = new LinkedHashSet<>();
+        Set<String> uniquePrefixes = new HashSet<>();
+        for (SeatSource source : all) {
+            if (!ids.add(source.getId()) || !uniquePrefixes.add(source.getAreaIdPrefix())) {
+                throw new IllegalStateException("座位來源代碼或區域代碼前綴重複: " + source.getId());
+            }
+        }
+        List<String> sortedPrefixes = new ArrayList<>(uniquePrefixes);
+        sortedPrefixes.sort(Comparator.comparingInt(String::length).reversed());
+        sources = Collections.unmodifiableList(all);
+        prefixes = Collections.unmodifiableList(sortedPrefixes);
+        System.out.println("座位來源: " + ids);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        httpExecutor.shutdownNow();
+    }
+
+    public List<SeatSource> getSources() {
+        return sources;
+    }
+
+    /**
+     * 區域代碼所屬來源的前綴
+     * 依已設定的前綴比對開頭而非最後一個冒號，上游代碼本身含有冒號時也不會判斷錯誤；
+     * 沒有相符的前綴時回傳空字串（臺北市圖書館的代碼不加前綴）
+     */
+    public String namespaceOf(String areaId) {
+        for (String prefix : prefixes) {
+            if (areaId.startsWith(prefix)) {
+                return prefix;
+            }
+        }
+        return "";
+    }
+}
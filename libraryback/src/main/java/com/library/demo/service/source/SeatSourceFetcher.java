@@ -0,0 +1,423 @@
+package com.library.demo.service.source;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.library.demo.config.SeatSourceProperties;
+import com.library.demo.dto.SeatSourceHealthDTO;
+import com.library.demo.model.LibraryArea;
+import com.library.demo.service.AreaIdentityRegistry;
+import com.library.demo.service.fetch.FetchStrategy;
+import com.library.demo.service.fetch.FetchStrategyStats;
+import com.library.demo.service.fetch.FetchStrategyStats.CircuitState;
+import com.library.demo.service.fetch.TpmlApi;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 並發擷取所有座位來源並合併為一次快照
+ * 每個來源在各自的虛擬執行緒中請求與解析；第一個來源回應後最多再等 merge-window-millis，
+ * 期限內回應的來源合併為同一次快照，之後才回應的來源在逾時前回應時另外寫入，較慢的來源不會拖延其他來源。
+ * 逾時、失敗、斷路器開啟、未到間隔或超過頻率上限的來源不列入本次快照，不影響其他來源；
+ * 斷路器與 UpstreamFetcher 的擷取策略共用 FetchStrategyStats 與 library.fetch 設定。
+ * 區域代碼加上來源前綴，不同系統的代碼不會衝突，沒有區域代碼的區域由 AreaIdentityRegistry 依名稱指定
+ */
+@Service
+public class SeatSourceFetcher {
+
+    @Value("${library.fetch.window-size:20}")
+    private int windowSize;
+
+    @Value("${library.fetch.failure-threshold:3}")
+    private int failureThreshold;
+
+    @Value("${library.fetch.base-backoff-seconds:60}")
+    private long baseBackoffSeconds;
+
+    @Value("${library.fetch.max-backoff-seconds:1800}")
+    private long maxBackoffSeconds;
+
+    @Autowired
+    private SeatSourceCatalog seatSourceCatalog;
+
+    @Autowired
+    private SeatSourceProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private Clock clock;
+
+    @Autowired
+    private AreaIdentityRegistry areaIdentityRegistry;
+
+    private ExecutorService executor;
+
+    private final List<SourceState> sources = new ArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        List<SeatSource> configured = seatSourceCatalog.getSources();
+        for (int i = 0; i < configured.size(); i++) {
+            sources.add(new SourceState(configured.get(i), i, windowSize));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 並發擷取所有可請求的來源，合併在合併期限內回應的解析結果
+     * @param recordTime 快照的記錄時間
+     * @param scheduled 定時擷取時遵守各來源的間隔，閉館快照與手動擷取則不受限制
+     * @param lateResults 合併期限後、逾時前才回應的來源，在該來源的執行緒上以其區域呼叫
+     * @return 合併後的區域；沒有任何來源可請求時回傳空清單
+     * @throws IllegalStateException 所有請求的來源都失敗
+     */
+    public List<LibraryArea> fetchAll(LocalDateTime recordTime, boolean scheduled, Consumer<List<LibraryArea>> lateResults) {
+        Instant now = clock.instant();
+        long startNanos = System.nanoTime();
+        List<SourceState> attempted = new ArrayList<>();
+        for (SourceState state : sources) {
+            String skipReason = state.tryStart(now, scheduled);
+            if (skipReason != null) {
+                System.out.println("略過座位來源 " + state.source.getId() + "：" + skipReason);
+                meterRegistry.counter("library.source.skipped", "source", state.source.getId(), "reason", skipReason)
+                        .increment();
+                continue;
+            }
+            attempted.add(state);
+        }
+        if (attempted.isEmpty()) {
+            return List.of();
+        }
+
+        Merge merge = new Merge(attempted.size());
+        for (SourceState state : attempted) {
+            submit(state, recordTime, merge, lateResults);
+        }
+        Merge.Outcome outcome = merge.await(TimeUnit.MILLISECONDS.toNanos(properties.getMergeWindowMillis()));
+
+        if (outcome.failures() == attempted.size()) {
+            throw new IllegalStateException("所有座位來源擷取失敗");
+        }
+        System.out.println("座位來源擷取完成：請求 " + attempted.size() + " 個、失敗 " + outcome.failures()
+                + " 個、延後寫入 " + outcome.pending() + " 個，共 " + outcome.areas().size()
+                + " 個區域，耗時 " + (System.nanoTime() - startNanos) / 1_000_000 + " ms");
+        return outcome.areas();
+    }
+
+    /**
+     * 取得各座位來源目前的狀態
+     */
+    public List<SeatSourceHealthDTO> getHealth() {
+        Instant now = clock.instant();
+        List<SeatSourceHealthDTO> result = new ArrayList<>();
+        for (SourceState state : sources) {
+            result.add(state.toDTO(now));
+        }
+        return result;
+    }
+
+    /**
+     * 在新的虛擬執行緒中請求並解析單一來源，結束時解除忙碌狀態
+     * 超過逾時仍未回應的來源記為失敗，之後的回應直接捨棄
+     */
+    private void submit(SourceState state, LocalDateTime recordTime, Merge merge, Consumer<List<LibraryArea>> lateResults) {
+        int timeoutSeconds = state.source.getTimeoutSeconds() > 0
+                ? state.source.getTimeoutSeconds() : properties.getTimeoutSeconds();
+        long startNanos = System.nanoTime();
+        CompletableFuture<List<LibraryArea>> future = new CompletableFuture<>();
+        future.orTimeout(timeoutSeconds, TimeUnit.SECONDS).whenComplete((areas, error) -> {
+            long latencyMillis = (System.nanoTime() - startNanos) / 1_000_000;
+            if (error == null) {
+                record(state, "success", latencyMillis, areas.size(), null);
+                if (!merge.offer(areas)) {
+                    deliverLate(state, areas, lateResults);
+                }
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof TimeoutException) {
+                // 不中斷仍在請求的執行緒，結束前該來源會被視為忙碌而不重複請求
+                record(state, "timeout", latencyMillis, 0, "逾時 " + timeoutSeconds + " 秒");
+            } else {
+                record(state, "failure", latencyMillis, 0, cause.getMessage());
+            }
+            merge.fail();
+        });
+        try {
+            executor.execute(() -> {
+                List<LibraryArea> areas = null;
+                Throwable failure = null;
+                try {
+                    areas = fetchOne(state, recordTime);
+                } catch (Throwable e) {
+                    failure = e;
+                }
+                // 先解除忙碌再完成，呼叫端回傳後立即再次擷取時不會被誤判為忙碌
+                state.running.set(false);
+                if (failure == null) {
+                    future.complete(areas);
+                } else {
+                    future.completeExceptionally(failure);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            state.running.set(false);
+            future.completeExceptionally(e);
+        }
+    }
+
+    private List<LibraryArea> fetchOne(SourceState state, LocalDateTime recordTime) {
+        SeatSource source = state.source;
+        String payload = state.stats.getStrategy().fetch();
+        if (!TpmlApi.isValidJson(payload)) {
+            throw new IllegalStateException("回應不是有效的JSON");
+        }
+        List<LibraryArea> areas = source.parse(payload, recordTime);
+        if (areas.isEmpty()) {
+            throw new IllegalStateException("回應中沒有座位資料");
+        }
+        String prefix = source.getAreaIdPrefix();
+        for (LibraryArea area : areas) {
+            if (area.getAreaId() != null && !area.getAreaId().isEmpty()) {
+                area.setAreaId(prefix + area.getAreaId());
+            }
+        }
+        // 沒有區域代碼的區域依名稱取得穩定的代碼
+        areaIdentityRegistry.resolve(prefix, areas);
+        return areas;
+    }
+
+    private void deliverLate(SourceState state, List<LibraryArea> areas, Consumer<List<LibraryArea>> lateResults) {
+        System.out.println("座位來源 " + state.source.getId() + " 在合併期限後回應，另外寫入 " + areas.size() + " 個區域");
+        try {
+            lateResults.accept(areas);
+        } catch (Exception e) {
+            System.err.println("寫入座位來源 " + state.source.getId() + " 的延後結果失敗: " + e.getMessage());
+        }
+    }
+
+    private void record(SourceState state, String result, long latencyMillis, int areaCount, String error) {
+        String id = state.source.getId();
+        if (error == null) {
+            System.out.println("座位來源 " + id + " 成功，" + areaCount + " 個區域，耗時 " + latencyMillis + " ms");
+        } else {
+            System.err.println("座位來源 " + id + " 失敗: " + error);
+        }
+        Timer.builder("library.source.fetch")
+                .description("座位來源的擷取時間")
+                .tag("source", id)
+                .tag("result", result)
+                .register(meterRegistry)
+                .record(latencyMillis, TimeUnit.MILLISECONDS);
+        state.finish(clock.instant(), error, latencyMillis, areaCount);
+        state.stats.record(error == null, latencyMillis, clock.instant(), failureThreshold,
+                Duration.ofSeconds(baseBackoffSeconds), Duration.ofSeconds(maxBackoffSeconds));
+    }
+
+    /**
+     * 一次擷取中各來源結果的合併
+     * 第一個來源回應後開始計算合併期限，期限到或所有來源都結束時關閉，之後的回應由呼叫端另外寫入
+     */
+    private static class Merge {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private final List<LibraryArea> areas = new ArrayList<>();
+        private int pending;
+        private int failures;
+        private long firstArrivalNanos;
+        private boolean arrived;
+        private boolean closed;
+
+        Merge(int pending) {
+            this.pending = pending;
+        }
+
+        /**
+         * 加入一個來源的結果
+         * @return false 表示合併已關閉，結果需另外寫入
+         */
+        boolean offer(List<LibraryArea> result) {
+            lock.lock();
+            try {
+                pending--;
+                if (closed) {
+                    return false;
+                }
+                areas.addAll(result);
+                if (!arrived) {
+                    arrived = true;
+                    firstArrivalNanos = System.nanoTime();
+                }
+                changed.signalAll();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void fail() {
+            lock.lock();
+            try {
+                pending--;
+                failures++;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 等待所有來源結束，或第一個來源回應後經過合併期限
+         * 尚無來源回應時的等待由各來源的逾時限制
+         */
+        Outcome await(long windowNanos) {
+            lock.lock();
+            try {
+                while (pending > 0) {
+                    if (!arrived) {
+                        changed.await();
+                        continue;
+                    }
+                    long remainingNanos = firstArrivalNanos + windowNanos - System.nanoTime();
+                    if (remainingNanos <= 0) {
+                        break;
+                    }
+                    changed.awaitNanos(remainingNanos);
+                }
+                return new Outcome(new ArrayList<>(areas), pending, failures);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待座位來源時被中斷", e);
+            } finally {
+                closed = true;
+                lock.unlock();
+            }
+        }
+
+        record Outcome(List<LibraryArea> areas, int pending, int failures) {
+        }
+    }
+
+    /**
+     * 以擷取策略的介面呼叫座位來源，讓斷路器與滾動統計沿用 FetchStrategyStats
+     */
+    private record SourceStrategy(SeatSource source) implements FetchStrategy {
+
+        @Override
+        public String getName() {
+            return source.getId();
+        }
+
+        @Override
+        public String fetch() {
+            return source.fetch();
+        }
+    }
+
+    /**
+     * 單一來源的斷路器、排程、頻率限制與最近一次結果
+     */
+    private static class SourceState {
+        private final SeatSource source;
+        private final FetchStrategyStats stats;
+        // 上一次請求尚未結束（例如逾時後仍卡在上游）時不再重複請求
+        private final AtomicBoolean running = new AtomicBoolean();
+        // 最近一分鐘內的請求時間
+        private final Deque<Instant> recentRequests = new ArrayDeque<>();
+        private Instant lastAttempt;
+        private Instant lastSuccess;
+        private long lastLatencyMillis;
+        private int lastAreaCount;
+        private String lastError;
+
+        SourceState(SeatSource source, int order, int windowSize) {
+            this.source = source;
+            this.stats = new FetchStrategyStats(new SourceStrategy(source), order, windowSize);
+        }
+
+        /**
+         * 檢查是否可以請求，可以時記錄這次請求
+         * 斷路器半開時同一時間只會有一次試探，其餘由忙碌狀態擋下
+         * @return 不能請求的原因，可以請求時回傳 null
+         */
+        synchronized String tryStart(Instant now, boolean scheduled) {
+            if (stats.stateAt(now) == CircuitState.OPEN) {
+                return "backoff";
+            }
+            if (scheduled && source.getIntervalSeconds() > 0 && lastAttempt != null
+                    && now.isBefore(lastAttempt.plusSeconds(source.getIntervalSeconds()))) {
+                return "interval";
+            }
+            while (!recentRequests.isEmpty() && !recentRequests.peekFirst().isAfter(now.minusSeconds(60))) {
+                recentRequests.pollFirst();
+            }
+            if (source.getRequestsPerMinute() > 0 && recentRequests.size() >= source.getRequestsPerMinute()) {
+                return "rate-limit";
+            }
+            if (!running.compareAndSet(false, true)) {
+                return "busy";
+            }
+            recentRequests.addLast(now);
+            lastAttempt = now;
+            return null;
+        }
+
+        synchronized void finish(Instant now, String error, long latencyMillis, int areaCount) {
+            lastLatencyMillis = latencyMillis;
+            lastAreaCount = areaCount;
+            lastError = error;
+            if (error == null) {
+                lastSuccess = now;
+            }
+        }
+
+        synchronized SeatSourceHealthDTO toDTO(Instant now) {
+            SeatSourceHealthDTO dto = new SeatSourceHealthDTO();
+            dto.setId(source.getId());
+            dto.setAreaIdPrefix(source.getAreaIdPrefix());
+            dto.setCircuitState(stats.stateAt(now).name());
+            dto.setIntervalSeconds(source.getIntervalSeconds());
+            dto.setRequestsPerMinute(source.getRequestsPerMinute());
+            dto.setSuccessRate(stats.getSuccessRate());
+            dto.setConsecutiveFailures(stats.getConsecutiveFailures());
+            dto.setLastLatencyMillis(lastLatencyMillis);
+            dto.setLastAreaCount(lastAreaCount);
+            dto.setLastError(lastError);
+            dto.setLastAttempt(lastAttempt);
+            dto.setLastSuccess(lastSuccess);
+            dto.setOpenUntil(stats.getOpenUntil());
+            return dto;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.library.demo.service.source;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.library.demo.model.LibraryArea;
+import com.library.demo.service.fetch.UpstreamFetcher;
+
+/**
+ * 臺北市圖書館座位系統
+ * 依排序嘗試各擷取策略（見 UpstreamFetcher），全部失敗時視為本次擷取失敗；
+ * 區域代碼不加前綴，與既有的歷史記錄一致
+ */
+@Component
+@Order(0)
+public class TpmlSeatSource implements SeatSource {
+
+    @Value("${library.sources.tpml.interval-seconds:0}")
+    private int intervalSeconds;
+
+    @Value("${library.sources.tpml.requests-per-minute:0}")
+    private int requestsPerMinute;
+
+    @Value("${library.sources.tpml.timeout-seconds:0}")
+    private int timeoutSeconds;
+
+    @Autowired
+    private UpstreamFetcher upstreamFetcher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    public String getId() {
+        return "tpml";
+    }
+
+    @Override
+    public String getAreaIdPrefix() {
+        return "";
+    }
+
+    @Override
+    public int getIntervalSeconds() {
+        return intervalSeconds;
+    }
+
+    @Override
+    public int getRequestsPerMinute() {
+        return requestsPerMinute;
+    }
+
+    @Override
+    public int getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    /**
+     * 依排序嘗試各擷取策略從臺北市圖書館API獲取座位數據
+     * 全部失敗時回傳 null，由 SeatSourceFetcher 記錄失敗並保留本來源的當前座位資料
+     */
+    @Override
+    public String fetch() {
+        String jsonData = upstreamFetcher.fetch();
+        if (jsonData != null) {
+            System.out.println("成功獲取有效的JSON數據");
+        } else {
+            System.err.println("無法從API獲取有效的JSON數據");
+        }
+        return jsonData;
+    }
+    
+    /**
+     * 解析座位數據
+     * 沒有 areaId 的區域保留空白，由 AreaIdentityRegistry 依名稱指定穩定的代碼
+     */
+    @Override
+    public List<LibraryArea> parse(String jsonData, LocalDateTime recordTime) {
+        List<LibraryArea> areas = new ArrayList<>();
+        try {
+            // 解析JSON數據
+            JsonNode rootNode = objectMapper.readTree(jsonData);
+                
+            // 解析數據
+            for (JsonNode node : rootNode) {
+                // 首先檢查並使用正確的欄位名稱
+                // API 可能返回 area_id 或 areaId，所以需要檢查兩者
+                String areaId = "";
+                if (node.has("area_id")) {
+                    areaId = node.path("area_id").asText();
+                } else if (node.has("areaId")) {
+                    areaId = node.path("areaId").asText();
+                }
+                
+                String areaName = "";
+                if (node.has("area_name")) {
+                    areaName = node.path("area_name").asText();
+                } else if (node.has("areaName")) {
+                    areaName = node.path("areaName").asText();
+                }
+                
+                String branchName = "";
+                if (node.has("branch_name")) {
+                    branchName = node.path("branch_name").asText();
+                } else if (node.has("branchName")) {
+                    branchName = node.path("branchName").asText();
+                }
+                
+                String floorName = "";
+                if (node.has("floor_name")) {
+                    floorName = node.path("floor_name").asText();
+                } else if (node.has("floorName")) {
+                    floorName = node.path("floorName").asText();
+                }
+                
+                int freeCount = 0;
+                if (node.has("free_count")) {
+                    freeCount = node.path("free_count").asInt();
+                } else if (node.has("freeCount")) {
+                    freeCount = node.path("freeCount").asInt();
+                }
+                
+                int totalCount = 0;
+                if (node.has("total_count")) {
+                    totalCount = node.path("total_count").asInt();
+                } else if (node.has("totalCount")) {
+                    totalCount = node.path("totalCount").asInt();
+                }
+                
+                // 輸出解析結果以便調試
+                System.out.println("解析數據: areaId=" + areaId + 
+                                  ", areaName=" + areaName +
+                                  ", branchName=" + branchName +
+                                  ", floorName=" + floorName +
+                                  ", freeCount=" + freeCount +
+                                  ", totalCount=" + totalCount);
+                
+                LibraryArea area = new LibraryArea(areaId, branchName, floorName, areaName, 
+                                                  freeCount, totalCount, recordTime);
+                areas.add(area);
+            }
+        } catch (Exception e) {
+            System.err.println("解析數據失敗: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return areas;
+    }
+}
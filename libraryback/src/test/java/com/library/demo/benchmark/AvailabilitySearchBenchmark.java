@@ -0,0 +1,67 @@
+package com.library.demo.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.library.demo.event.SnapshotSavedEvent;
+import com.library.demo.model.LibraryArea;
+import com.library.demo.service.AvailabilitySearchService;
+
+/**
+ * 量測座位搜尋索引的重建時間與查詢延遲
+ * 執行方式: mvn test -Dtest=AvailabilitySearchBenchmark -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class AvailabilitySearchBenchmark {
+
+	private static final int AREAS = 2000;
+	private static final int BRANCHES = 50;
+	private static final int QUERIES = 200_000;
+
+	@Test
+	void measureSearchLatency() {
+		Random random = new Random(42);
+		String[] types = {"自修室", "閱覽區", "電腦區", "兒童閱覽區", "期刊區"};
+		List<LibraryArea> areas = new ArrayList<>();
+		LocalDateTime time = LocalDateTime.of(2025, 5, 1, 15, 0);
+		for (int a = 0; a < AREAS; a++) {
+			int total = 20 + random.nextInt(80);
+			areas.add(new LibraryArea(String.valueOf(1000 + a), "分館" + (a % BRANCHES), (a % 5 + 1) + "F",
+					types[a % types.length] + a, random.nextInt(total + 1), total, time));
+		}
+
+		AvailabilitySearchService service = new AvailabilitySearchService();
+		long rebuildStart = System.nanoTime();
+		for (int i = 0; i < 100; i++) {
+			service.onSnapshotSaved(new SnapshotSavedEvent(time, areas, true));
+		}
+		double rebuildMillis = (System.nanoTime() - rebuildStart) / 1_000_000.0 / 100;
+
+		List<String> keywords = List.of("自修");
+		int sink = 0;
+		for (int i = 0; i < QUERIES / 10; i++) {
+			sink += service.search(5, Set.of(), null, keywords, 10).size();
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < QUERIES; i++) {
+			sink += service.search(5, Set.of(), null, keywords, 10).size();
+		}
+		double allMicros = (System.nanoTime() - start) / 1000.0 / QUERIES;
+
+		start = System.nanoTime();
+		for (int i = 0; i < QUERIES; i++) {
+			sink += service.search(1, Set.of("分館" + (i % BRANCHES)), "3F", List.of(), 10).size();
+		}
+		double branchMicros = (System.nanoTime() - start) / 1000.0 / QUERIES;
+
+		System.out.println("座位搜尋索引（" + AREAS + " 個區域，" + BRANCHES + " 個分館）");
+		System.out.printf("重建索引 %.3f ms；全部分館+關鍵字 top10 %.2f µs/次；單一分館+樓層 top10 %.2f µs/次（%d）%n",
+				rebuildMillis, allMicros, branchMicros, sink);
+	}
+}
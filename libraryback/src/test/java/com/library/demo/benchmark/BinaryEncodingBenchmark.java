@@ -0,0 +1,107 @@
+package com.library.demo.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.library.demo.config.JacksonConfig;
+import com.library.demo.dto.LibraryAreaDTO;
+import com.library.demo.dto.LibraryAreaHistoryDTO;
+
+/**
+ * 比較 JSON、CBOR 與 Smile 編碼當前座位資料與歷史序列的大小、編碼與解析時間
+ * 執行方式: mvn test -Dtest=BinaryEncodingBenchmark -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BinaryEncodingBenchmark {
+
+	private static final int AREAS = 300;
+	// 單一區域一天的圖表序列（recordTime、freeCount、totalCount）
+	private static final int HISTORY_POINTS = 780;
+	private static final int ROUNDS = 2000;
+
+	@Test
+	void compareFormats() throws Exception {
+		List<LibraryAreaDTO> current = currentSnapshot();
+		List<LibraryAreaHistoryDTO> history = historySeries();
+
+		ObjectMapper[] mappers = {
+				JacksonConfig.configure(new ObjectMapper()),
+				JacksonConfig.configure(new CBORMapper()),
+				JacksonConfig.configure(new SmileMapper())
+		};
+		String[] names = {"JSON", "CBOR", "Smile"};
+
+		System.out.println("當前座位資料（" + AREAS + " 個區域）");
+		for (int i = 0; i < mappers.length; i++) {
+			System.out.println(measure(names[i], mappers[i], current, LibraryAreaDTO[].class));
+		}
+		System.out.println("單一區域一天的歷史序列（" + HISTORY_POINTS + " 筆，3 個欄位）");
+		for (int i = 0; i < mappers.length; i++) {
+			System.out.println(measure(names[i], mappers[i], history, LibraryAreaHistoryDTO[].class));
+		}
+	}
+
+	private String measure(String name, ObjectMapper mapper, Object value, Class<?> type) throws Exception {
+		byte[] bytes = mapper.writeValueAsBytes(value);
+		for (int i = 0; i < ROUNDS; i++) {
+			mapper.writeValueAsBytes(value);
+			mapper.readValue(bytes, type);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < ROUNDS; i++) {
+			bytes = mapper.writeValueAsBytes(value);
+		}
+		double encodeMicros = (System.nanoTime() - start) / 1000.0 / ROUNDS;
+		start = System.nanoTime();
+		for (int i = 0; i < ROUNDS; i++) {
+			mapper.readValue(bytes, type);
+		}
+		double decodeMicros = (System.nanoTime() - start) / 1000.0 / ROUNDS;
+		return String.format("%-6s %8d bytes，編碼 %8.1f µs，解析 %8.1f µs", name, bytes.length, encodeMicros, decodeMicros);
+	}
+
+	private List<LibraryAreaDTO> currentSnapshot() {
+		Random random = new Random(42);
+		LocalDateTime time = LocalDateTime.of(2025, 5, 1, 15, 0);
+		List<LibraryAreaDTO> areas = new ArrayList<>();
+		for (int a = 0; a < AREAS; a++) {
+			LibraryAreaDTO dto = new LibraryAreaDTO();
+			int total = 20 + random.nextInt(80);
+			int free = random.nextInt(total + 1);
+			dto.setAreaId(String.valueOf(1000 + a));
+			dto.setBranchName("分館" + (a / 10));
+			dto.setFloorName((a % 5 + 1) + "F");
+			dto.setAreaName("閱覽區" + a);
+			dto.setFreeCount(free);
+			dto.setTotalCount(total);
+			dto.setRecordTime(time);
+			dto.setOccupationRate((double) (total - free) / total * 100);
+			areas.add(dto);
+		}
+		return areas;
+	}
+
+	private List<LibraryAreaHistoryDTO> historySeries() {
+		Random random = new Random(42);
+		LocalDateTime time = LocalDateTime.of(2025, 5, 1, 8, 30);
+		List<LibraryAreaHistoryDTO> points = new ArrayList<>();
+		int free = 30;
+		for (int m = 0; m < HISTORY_POINTS; m++) {
+			free = Math.max(0, Math.min(60, free + random.nextInt(3) - 1));
+			LibraryAreaHistoryDTO dto = new LibraryAreaHistoryDTO();
+			dto.setRecordTime(time.plusMinutes(m));
+			dto.setFreeCount(free);
+			dto.setTotalCount(60);
+			points.add(dto);
+		}
+		return points;
+	}
+}
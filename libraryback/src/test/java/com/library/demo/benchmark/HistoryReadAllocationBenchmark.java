@@ -0,0 +1,209 @@
+package com.library.demo.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.library.demo.dto.HistoryField;
+import com.library.demo.dto.LibraryAreaHistoryDTO;
+import com.library.demo.model.LibraryAreaHistory;
+import com.library.demo.repository.LibraryAreaHistoryProjectionRepository;
+import com.library.demo.repository.LibraryAreaHistoryRepository;
+import com.library.demo.repository.LibraryAreaHistorySeriesRepository;
+
+/**
+ * 比較以實體查詢歷史記錄再轉換為DTO、直接以純量投影查詢，以及欄式序列（含 LTTB 降採樣）的記憶體配置量、延遲與JSON大小
+ * 執行方式: mvn test -Dtest=HistoryReadAllocationBenchmark -Dbenchmark=true
+ */
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({LibraryAreaHistoryProjectionRepository.class, LibraryAreaHistorySeriesRepository.class,
+		HistoryReadAllocationBenchmark.H2DataSourceConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class HistoryReadAllocationBenchmark {
+
+	private static final int AREAS = 100;
+	// 開館時段 08:30-21:30，每分鐘一筆
+	private static final int MINUTES = 13 * 60;
+	private static final LocalDate DATE = LocalDate.of(2025, 5, 1);
+	private static final int WARMUP = 3;
+	private static final int ROUNDS = 5;
+	private static final int MAX_POINTS = 200;
+
+	@Autowired
+	private LibraryAreaHistoryRepository libraryAreaHistoryRepository;
+
+	@Autowired
+	private LibraryAreaHistoryProjectionRepository libraryAreaHistoryProjectionRepository;
+
+	@Autowired
+	private LibraryAreaHistorySeriesRepository libraryAreaHistorySeriesRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private final ObjectMapper objectMapper = new ObjectMapper()
+			.registerModule(new JavaTimeModule())
+			.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+	@Test
+	void compareEntityWithProjection() {
+		loadHistory();
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.setReadOnly(true);
+
+		long fromMinute = LibraryAreaHistory.toMinuteBucket(DATE.atStartOfDay());
+		long toMinute = LibraryAreaHistory.toMinuteBucket(DATE.plusDays(1).atStartOfDay());
+		EnumSet<HistoryField> chartFields = EnumSet.of(HistoryField.RECORD_TIME,
+				HistoryField.FREE_COUNT, HistoryField.TOTAL_COUNT);
+
+		List<Result> results = new ArrayList<>();
+		results.add(run("實體+轉換", () -> transaction.execute(
+				status -> toDTO(libraryAreaHistoryRepository.findByDate(DATE)))));
+		results.add(run("投影全部欄位", () -> transaction.execute(status -> libraryAreaHistoryProjectionRepository
+				.find(null, fromMinute, toMinute, EnumSet.allOf(HistoryField.class)))));
+		results.add(run("投影圖表欄位", () -> transaction.execute(status -> libraryAreaHistoryProjectionRepository
+				.find(null, fromMinute, toMinute, chartFields))));
+		results.add(run("欄式序列", () -> transaction.execute(status -> libraryAreaHistorySeriesRepository
+				.find(null, fromMinute, toMinute))));
+		results.add(run("序列降採樣", () -> transaction.execute(status -> libraryAreaHistorySeriesRepository
+				.find(null, fromMinute, toMinute, MAX_POINTS))));
+
+		System.out.println("歷史記錄讀取比較（" + AREAS + " 個區域 × " + MINUTES + " 分鐘 = " + AREAS * MINUTES + " 筆）");
+		results.forEach(System.out::println);
+	}
+
+	private Result run(String name, Supplier<List<?>> query) {
+		for (int i = 0; i < WARMUP; i++) {
+			serialize(query.get());
+		}
+		long queryBytes = 0;
+		long totalBytes = 0;
+		long queryNanos = 0;
+		int payloadBytes = 0;
+		for (int i = 0; i < ROUNDS; i++) {
+			long startBytes = allocatedBytes();
+			long start = System.nanoTime();
+			List<?> result = query.get();
+			queryNanos += System.nanoTime() - start;
+			long afterQuery = allocatedBytes();
+			payloadBytes = serialize(result);
+			queryBytes += afterQuery - startBytes;
+			totalBytes += allocatedBytes() - startBytes;
+		}
+		return new Result(name, payloadBytes, queryBytes / ROUNDS, totalBytes / ROUNDS, queryNanos / 1_000_000.0 / ROUNDS);
+	}
+
+	// 與改為投影前服務層的轉換相同
+	private List<LibraryAreaHistoryDTO> toDTO(List<LibraryAreaHistory> histories) {
+		List<LibraryAreaHistoryDTO> result = new ArrayList<>(histories.size());
+		for (LibraryAreaHistory history : histories) {
+			LibraryAreaHistoryDTO dto = new LibraryAreaHistoryDTO();
+			dto.setAreaId(history.getAreaId());
+			dto.setBranchName(history.getBranchName());
+			dto.setFloorName(history.getFloorName());
+			dto.setAreaName(history.getAreaName());
+			dto.setFreeCount(history.getFreeCount());
+			dto.setTotalCount(history.getTotalCount());
+			dto.setRecordTime(history.getRecordTime());
+			dto.setOccupationRate(history.getOccupationRate());
+			result.add(dto);
+		}
+		return result;
+	}
+
+	private int serialize(List<?> result) {
+		try {
+			return objectMapper.writeValueAsBytes(result).length;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+	}
+
+	private void loadHistory() {
+		List<Object[]> dims = new ArrayList<>();
+		for (int a = 0; a < AREAS; a++) {
+			dims.add(new Object[] {String.valueOf(1000 + a), "分館" + (a / 10), (a % 5 + 1) + "F", "閱覽區" + a});
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO library_area_dim (area_id, branch_name, floor_name, area_name) "
+				+ "VALUES (?, ?, ?, ?)", dims);
+		List<Integer> areaKeys = jdbcTemplate.queryForList("SELECT area_key FROM library_area_dim", Integer.class);
+
+		Random random = new Random(42);
+		long firstMinute = LibraryAreaHistory.toMinuteBucket(LocalDateTime.of(DATE, LocalTime.of(8, 30)));
+		List<Object[]> facts = new ArrayList<>();
+		for (Integer areaKey : areaKeys) {
+			int free = 10 + random.nextInt(40);
+			for (int m = 0; m < MINUTES; m++) {
+				free = Math.max(0, Math.min(60, free + random.nextInt(3) - 1));
+				facts.add(new Object[] {areaKey, firstMinute + m, free, 60});
+			}
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO library_area_history_fact (area_key, record_minute, free_count, total_count) "
+				+ "VALUES (?, ?, ?, ?)", facts);
+	}
+
+	private record Result(String name, int payloadBytes, long queryBytes, long totalBytes, double queryMillis) {
+		@Override
+		public String toString() {
+			return String.format("%-8s JSON %7.1f MB，查詢配置 %7.1f MB（%5d B/筆），含序列化 %7.1f MB，查詢 %7.1f ms",
+					name, payloadBytes / 1048576.0, queryBytes / 1048576.0, queryBytes / (AREAS * MINUTES),
+					totalBytes / 1048576.0, queryMillis);
+		}
+	}
+
+	@TestConfiguration
+	static class H2DataSourceConfig {
+
+		// 應用程式主類別需要
+		@Bean
+		ObjectMapper objectMapper() {
+			return new ObjectMapper();
+		}
+
+		// 歷史記錄的聯結查詢使用 DATEADD 與 DATETIME2，需要 SQL Server 相容模式
+		@Bean
+		DataSource dataSource() {
+			return new DriverManagerDataSource(
+					"jdbc:h2:mem:history" + System.nanoTime() + ";MODE=MSSQLServer;DB_CLOSE_DELAY=-1", "sa", "");
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package com.library.demo.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.library.demo.model.LibraryArea;
+import com.library.demo.repository.LibraryAreaBulkRepository;
+import com.library.demo.repository.LibraryAreaRepository;
+
+/**
+ * 比較 JPA saveAll 與批次 SQL 寫入當前座位資料的語句往返次數與提交延遲
+ * 執行方式: mvn test -Dtest=LibraryAreaUpsertBenchmark -Dbenchmark=true
+ */
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({LibraryAreaBulkRepository.class, LibraryAreaUpsertBenchmark.CountingDataSourceConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class LibraryAreaUpsertBenchmark {
+
+	private static final int AREAS = 300;
+	private static final int SNAPSHOTS = 50;
+	// 每次快照有變動的區域比例，接近開館時段的實際情況
+	private static final double CHANGED_RATIO = 0.1;
+
+	@Autowired
+	private LibraryAreaRepository libraryAreaRepository;
+
+	@Autowired
+	private LibraryAreaBulkRepository libraryAreaBulkRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private StatementCounter statementCounter;
+
+	@Test
+	void compareSaveAllWithBulkUpsert() {
+		List<List<LibraryArea>> snapshots = generateSnapshots();
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+		Result saveAll = run("JPA saveAll", snapshots,
+				areas -> transaction.executeWithoutResult(status -> libraryAreaRepository.saveAll(areas)));
+		Result bulk = run("批次 SQL", snapshots,
+				areas -> transaction.executeWithoutResult(status -> libraryAreaBulkRepository.replaceChanged(areas, areaId -> "", List.of())));
+
+		System.out.println("當前座位資料寫入比較（" + AREAS + " 個區域，每次快照約 "
+				+ Math.round(CHANGED_RATIO * 100) + "% 變動，" + SNAPSHOTS + " 次快照）");
+		System.out.println(saveAll);
+		System.out.println(bulk);
+	}
+
+	private Result run(String name, List<List<LibraryArea>> snapshots, Consumer<List<LibraryArea>> writer) {
+		jdbcTemplate.update("DELETE FROM library_areas");
+		// 第一次快照只用來建立初始資料，不列入統計
+		writer.accept(copy(snapshots.get(0)));
+
+		statementCounter.reset();
+		long totalNanos = 0;
+		for (int i = 1; i < snapshots.size(); i++) {
+			List<LibraryArea> areas = copy(snapshots.get(i));
+			long start = System.nanoTime();
+			writer.accept(areas);
+			totalNanos += System.nanoTime() - start;
+		}
+		int measured = snapshots.size() - 1;
+		return new Result(name, (double) statementCounter.getRoundTrips() / measured, totalNanos / 1_000_000.0 / measured);
+	}
+
+	private List<List<LibraryArea>> generateSnapshots() {
+		Random random = new Random(42);
+		int[] freeCounts = new int[AREAS];
+		List<List<LibraryArea>> snapshots = new ArrayList<>();
+		LocalDateTime time = LocalDateTime.of(2025, 5, 1, 9, 0);
+		for (int s = 0; s < SNAPSHOTS + 1; s++) {
+			List<LibraryArea> areas = new ArrayList<>();
+			for (int a = 0; a < AREAS; a++) {
+				if (s == 0) {
+					freeCounts[a] = 10 + random.nextInt(40);
+				} else if (random.nextDouble() < CHANGED_RATIO) {
+					freeCounts[a] = Math.max(0, freeCounts[a] + random.nextInt(5) - 2);
+				}
+				areas.add(new LibraryArea(String.valueOf(1000 + a), "分館" + (a / 30), (a % 5 + 1) + "F",
+						"閱覽區" + a, freeCounts[a], 60, time));
+			}
+			snapshots.add(areas);
+			time = time.plusMinutes(1);
+		}
+		return snapshots;
+	}
+
+	// 每次寫入都使用新的實體，與解析上游JSON時相同
+	private List<LibraryArea> copy(List<LibraryArea> areas) {
+		List<LibraryArea> copies = new ArrayList<>();
+		for (LibraryArea area : areas) {
+			copies.add(new LibraryArea(area.getAreaId(), area.getBranchName(), area.getFloorName(),
+					area.getAreaName(), area.getFreeCount(), area.getTotalCount(), area.getRecordTime()));
+		}
+		return copies;
+	}
+
+	private record Result(String name, double roundTripsPerSnapshot, double commitMillisPerSnapshot) {
+		@Override
+		public String toString() {
+			return String.format("%-12s 每次快照語句往返 %7.1f 次，提交延遲 %7.2f ms", name, roundTripsPerSnapshot, commitMillisPerSnapshot);
+		}
+	}
+
+	@TestConfiguration
+	static class CountingDataSourceConfig {
+
+		// 應用程式主類別需要
+		@Bean
+		ObjectMapper objectMapper() {
+			return new ObjectMapper();
+		}
+
+		@Bean
+		StatementCounter statementCounter() {
+			return new StatementCounter();
+		}
+
+		@Bean
+		DataSource dataSource(StatementCounter statementCounter) {
+			return statementCounter.wrap(new EmbeddedDatabaseBuilder()
+					.setType(EmbeddedDatabaseType.H2)
+					.generateUniqueName(true)
+					.build());
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.library.demo.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+/**
+ * 計算經由 DataSource 送往資料庫的語句往返次數，批次執行算一次
+ */
+class StatementCounter {
+
+	private final AtomicLong roundTrips = new AtomicLong();
+
+	DataSource wrap(DataSource target) {
+		return proxy(DataSource.class, target, (proxy, method, args) -> {
+			Object result = invoke(target, method, args);
+			return result instanceof Connection connection ? wrap(connection) : result;
+		});
+	}
+
+	long getRoundTrips() {
+		return roundTrips.get();
+	}
+
+	void reset() {
+		roundTrips.set(0);
+	}
+
+	private Connection wrap(Connection target) {
+		return proxy(Connection.class, target, (proxy, method, args) -> {
+			Object result = invoke(target, method, args);
+			if (result instanceof Statement statement) {
+				return wrap(statement, method.getReturnType());
+			}
+			return result;
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T wrap(Statement target, Class<T> type) {
+		return proxy(type, (T) target, (proxy, method, args) -> {
+			if (method.getName().startsWith("execute")) {
+				roundTrips.incrementAndGet();
+			}
+			return invoke(target, method, args);
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, T target, InvocationHandler handler) {
+		return (T) Proxy.newProxyInstance(StatementCounter.class.getClassLoader(), new Class<?>[] {type}, handler);
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+}
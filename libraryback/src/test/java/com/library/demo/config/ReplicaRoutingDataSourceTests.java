@@ -0,0 +1,113 @@
+package com.library.demo.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.library.demo.model.SnapshotVersion;
+
+/**
+ * 以兩個內嵌資料庫驗證唯讀交易的路由與副本落後時的退回
+ */
+class ReplicaRoutingDataSourceTests {
+
+	private static final Duration MAX_LAG = Duration.ofMinutes(2);
+
+	private DataSource primary;
+	private DataSource replica;
+	private ReplicaRoutingDataSource routingDataSource;
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate readWrite;
+	private TransactionTemplate readOnly;
+
+	@BeforeEach
+	void setUp() {
+		primary = embeddedDatabase("primary");
+		replica = embeddedDatabase("replica");
+
+		routingDataSource = new ReplicaRoutingDataSource(primary, Map.of("replica", replica));
+		routingDataSource.afterPropertiesSet();
+		DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+		readWrite = new TransactionTemplate(transactionManager);
+		readOnly = new TransactionTemplate(transactionManager);
+		readOnly.setReadOnly(true);
+	}
+
+	@Test
+	void readOnlyTransactionsUsePrimaryUntilReplicaIsChecked() {
+		assertEquals("primary", databaseUsedBy(readOnly));
+	}
+
+	@Test
+	void readOnlyTransactionsUseHealthyReplica() {
+		LocalDateTime recordTime = LocalDateTime.of(2025, 5, 1, 10, 0);
+		setSnapshotVersion(primary, 5, recordTime);
+		setSnapshotVersion(replica, 5, recordTime);
+
+		routingDataSource.checkReplicas(MAX_LAG);
+
+		assertEquals("replica", databaseUsedBy(readOnly));
+		assertEquals("primary", databaseUsedBy(readWrite));
+	}
+
+	@Test
+	void laggingReplicaFallsBackToPrimary() {
+		LocalDateTime recordTime = LocalDateTime.of(2025, 5, 1, 10, 0);
+		setSnapshotVersion(primary, 5, recordTime);
+		setSnapshotVersion(replica, 5, recordTime);
+		routingDataSource.checkReplicas(MAX_LAG);
+
+		// 副本只落後一分鐘，仍可使用
+		setSnapshotVersion(primary, 6, recordTime.plusMinutes(1));
+		routingDataSource.checkReplicas(MAX_LAG);
+		assertEquals("replica", databaseUsedBy(readOnly));
+
+		// 副本落後超過上限，改用主資料庫
+		setSnapshotVersion(primary, 9, recordTime.plusMinutes(10));
+		routingDataSource.checkReplicas(MAX_LAG);
+		assertEquals("primary", databaseUsedBy(readOnly));
+
+		// 副本追上後恢復使用
+		setSnapshotVersion(replica, 9, recordTime.plusMinutes(10));
+		routingDataSource.checkReplicas(MAX_LAG);
+		assertEquals("replica", databaseUsedBy(readOnly));
+	}
+
+	private String databaseUsedBy(TransactionTemplate transactionTemplate) {
+		return transactionTemplate.execute(status ->
+				jdbcTemplate.queryForObject("SELECT name FROM database_marker", String.class));
+	}
+
+	private DataSource embeddedDatabase(String name) {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(
+				"jdbc:h2:mem:" + name + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", "");
+		JdbcTemplate template = new JdbcTemplate(dataSource);
+		template.execute("CREATE TABLE database_marker (name VARCHAR(20))");
+		template.update("INSERT INTO database_marker VALUES (?)", name);
+		template.execute("CREATE TABLE snapshot_version (version_name VARCHAR(50) PRIMARY KEY, "
+				+ "version BIGINT, fencing_token BIGINT, record_time TIMESTAMP, live BOOLEAN)");
+		return dataSource;
+	}
+
+	private void setSnapshotVersion(DataSource dataSource, long version, LocalDateTime recordTime) {
+		JdbcTemplate template = new JdbcTemplate(dataSource);
+		template.update("DELETE FROM snapshot_version");
+		template.update("INSERT INTO snapshot_version VALUES (?, ?, 1, ?, TRUE)",
+				SnapshotVersion.LIBRARY_AREAS, version, recordTime);
+	}
+}
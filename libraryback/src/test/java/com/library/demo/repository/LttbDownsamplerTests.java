@@ -0,0 +1,120 @@
+package com.library.demo.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 驗證逐筆 LTTB 降採樣的筆數上限、頭尾保留、尖峰保留與資料空缺
+ */
+class LttbDownsamplerTests {
+
+	private static final long FROM = 1_000_000;
+	private static final long TO = FROM + 1440;
+	private static final int TOTAL = 100;
+
+	@Test
+	void outputNeverExceedsMaxPoints() {
+		Random random = new Random(42);
+		List<long[]> records = new ArrayList<>();
+		for (long minute = FROM; minute < TO; minute++) {
+			records.add(new long[] {minute, random.nextInt(TOTAL + 1)});
+		}
+		for (int maxPoints : new int[] {3, 4, 10, 100, 1000}) {
+			List<long[]> output = downsample(records, maxPoints);
+			assertTrue(output.size() <= maxPoints, "maxPoints " + maxPoints + " 輸出 " + output.size() + " 筆");
+			assertIncreasing(output);
+		}
+	}
+
+	@Test
+	void keepsFirstAndLastRecord() {
+		List<long[]> records = new ArrayList<>();
+		for (long minute = FROM + 5; minute < TO - 5; minute++) {
+			records.add(new long[] {minute, minute % 7});
+		}
+		List<long[]> output = downsample(records, 20);
+		assertEquals(FROM + 5, output.get(0)[0]);
+		assertEquals(TO - 6, output.get(output.size() - 1)[0]);
+	}
+
+	@Test
+	void keepsSpike() {
+		long spikeMinute = FROM + 733;
+		List<long[]> records = new ArrayList<>();
+		for (long minute = FROM; minute < TO; minute++) {
+			records.add(new long[] {minute, minute == spikeMinute ? 0 : TOTAL / 2});
+		}
+		List<long[]> output = downsample(records, 20);
+		assertTrue(output.stream().anyMatch(record -> record[0] == spikeMinute && record[1] == 0));
+	}
+
+	@Test
+	void keepsEveryRecordWhenSparse() {
+		List<long[]> records = List.of(
+				new long[] {FROM, 10}, new long[] {FROM + 300, 20}, new long[] {FROM + 600, 30},
+				new long[] {FROM + 900, 40}, new long[] {TO - 1, 50});
+		List<long[]> output = downsample(records, 100);
+		assertEquals(records.size(), output.size());
+		for (int i = 0; i < records.size(); i++) {
+			assertEquals(records.get(i)[0], output.get(i)[0]);
+		}
+	}
+
+	@Test
+	void handlesGapsBetweenRecords() {
+		// 上午與晚上各有一段記錄，中間的區間全空
+		List<long[]> records = new ArrayList<>();
+		for (long minute = FROM; minute < FROM + 100; minute++) {
+			records.add(new long[] {minute, minute % 13});
+		}
+		for (long minute = TO - 140; minute < TO; minute++) {
+			records.add(new long[] {minute, minute % 17});
+		}
+		List<long[]> output = downsample(records, 50);
+		assertTrue(output.size() <= 50);
+		assertIncreasing(output);
+		assertEquals(FROM, output.get(0)[0]);
+		assertEquals(TO - 1, output.get(output.size() - 1)[0]);
+		assertTrue(output.stream().anyMatch(record -> record[0] > FROM && record[0] < FROM + 100));
+		assertTrue(output.stream().anyMatch(record -> record[0] >= TO - 140 && record[0] < TO - 1));
+		// 只輸出實際存在的記錄
+		assertTrue(output.stream().allMatch(record -> record[0] < FROM + 100 || record[0] >= TO - 140));
+	}
+
+	@Test
+	void handlesSingleRecordAndEmptyInput() {
+		assertEquals(0, downsample(List.of(), 10).size());
+		List<long[]> output = downsample(List.<long[]>of(new long[] {FROM + 10, 5}), 10);
+		assertEquals(1, output.size());
+		assertEquals(FROM + 10, output.get(0)[0]);
+	}
+
+	@Test
+	void rejectsMaxPointsBelowThree() {
+		assertThrows(IllegalArgumentException.class, () -> new LttbDownsampler(FROM, TO, 2, (minute, free, total) -> { }));
+	}
+
+	private static List<long[]> downsample(List<long[]> records, int maxPoints) {
+		List<long[]> output = new ArrayList<>();
+		LttbDownsampler downsampler = new LttbDownsampler(FROM, TO, maxPoints,
+				(minute, freeCount, totalCount) -> output.add(new long[] {minute, freeCount}));
+		for (long[] record : records) {
+			downsampler.add(record[0], (int) record[1], TOTAL);
+		}
+		downsampler.finish();
+		return output;
+	}
+
+	private static void assertIncreasing(List<long[]> output) {
+		for (int i = 1; i < output.size(); i++) {
+			assertTrue(output.get(i)[0] > output.get(i - 1)[0], "第 " + i + " 筆未依時間遞增");
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package com.library.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.library.demo.service.AdmissionControlService.Priority;
+import com.library.demo.service.AdmissionControlService.RejectedException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 驗證用戶端頻率限制、名額排隊的優先順序、佇列已滿時的淘汰與等候逾時
+ */
+class AdmissionControlServiceTests {
+
+	private SimpleMeterRegistry meterRegistry;
+	private AdmissionControlService service;
+	private ExecutorService executor;
+	private final CountDownLatch releaseHolder = new CountDownLatch(1);
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		service = new AdmissionControlService();
+		ReflectionTestUtils.setField(service, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(service, "maxConcurrent", 1);
+		ReflectionTestUtils.setField(service, "queueCapacity", 2);
+		ReflectionTestUtils.setField(service, "maxWaitSeconds", 10);
+		ReflectionTestUtils.setField(service, "retryAfterSeconds", 30);
+		ReflectionTestUtils.setField(service, "clientRequestsPerMinute", 100);
+		service.init();
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@AfterEach
+	void tearDown() {
+		releaseHolder.countDown();
+		executor.shutdownNow();
+	}
+
+	@Test
+	void throttlesClientOverRequestsPerMinute() {
+		ReflectionTestUtils.setField(service, "clientRequestsPerMinute", 2);
+
+		assertEquals("ok", service.execute("fetch", Priority.NORMAL, "10.0.0.1", () -> "ok"));
+		assertEquals("ok", service.execute("fetch", Priority.NORMAL, "10.0.0.1", () -> "ok"));
+		RejectedException rejected = assertThrows(RejectedException.class,
+				() -> service.execute("fetch", Priority.NORMAL, "10.0.0.1", () -> "ok"));
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getStatus());
+		assertTrue(rejected.getRetryAfterSeconds() > 0);
+
+		// 其他用戶端不受影響
+		assertEquals("ok", service.execute("fetch", Priority.NORMAL, "10.0.0.2", () -> "ok"));
+	}
+
+	@Test
+	void queuedRequestsRunInPriorityOrder() throws Exception {
+		holdOnlySlot();
+		List<String> order = new CopyOnWriteArrayList<>();
+		CompletableFuture<Void> low = submit(Priority.LOW, "low", () -> order.add("low"));
+		awaitQueued(1);
+		CompletableFuture<Void> high = submit(Priority.HIGH, "high", () -> order.add("high"));
+		awaitQueued(2);
+
+		releaseHolder.countDown();
+		low.get(5, TimeUnit.SECONDS);
+		high.get(5, TimeUnit.SECONDS);
+		assertEquals(List.of("high", "low"), order);
+	}
+
+	@Test
+	void fullQueueShedsEqualOrLowerPriority() throws Exception {
+		holdOnlySlot();
+		submit(Priority.NORMAL, "a", () -> { });
+		submit(Priority.NORMAL, "b", () -> { });
+		awaitQueued(2);
+
+		RejectedException rejected = assertThrows(RejectedException.class,
+				() -> service.execute("reset-db", Priority.NORMAL, "c", () -> "ok"));
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getStatus());
+		assertEquals(30, rejected.getRetryAfterSeconds());
+	}
+
+	@Test
+	void higherPriorityEvictsLowestQueuedRequest() throws Exception {
+		holdOnlySlot();
+		CompletableFuture<Void> normal = submit(Priority.NORMAL, "normal", () -> { });
+		CompletableFuture<Void> low = submit(Priority.LOW, "low", () -> { });
+		awaitQueued(2);
+		CompletableFuture<Void> high = submit(Priority.HIGH, "high", () -> { });
+
+		ExecutionException evicted = assertThrows(ExecutionException.class, () -> low.get(5, TimeUnit.SECONDS));
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ((RejectedException) evicted.getCause()).getStatus());
+
+		releaseHolder.countDown();
+		high.get(5, TimeUnit.SECONDS);
+		normal.get(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	void waitingLongerThanMaxWaitIsShed() throws Exception {
+		ReflectionTestUtils.setField(service, "maxWaitSeconds", 1);
+		holdOnlySlot();
+
+		long start = System.nanoTime();
+		RejectedException rejected = assertThrows(RejectedException.class,
+				() -> service.execute("fetch", Priority.HIGH, "waiter", () -> "ok"));
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getStatus());
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(900));
+		assertEquals(0, queued());
+	}
+
+	/**
+	 * 讓一個請求佔住唯一的名額，直到測試釋放
+	 */
+	private void holdOnlySlot() throws Exception {
+		CountDownLatch admitted = new CountDownLatch(1);
+		executor.submit(() -> service.execute("holder", Priority.HIGH, "holder", () -> {
+			admitted.countDown();
+			try {
+				return releaseHolder.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}));
+		assertTrue(admitted.await(5, TimeUnit.SECONDS));
+	}
+
+	private CompletableFuture<Void> submit(Priority priority, String client, Runnable work) {
+		return CompletableFuture.runAsync(() -> service.execute("fetch", priority, client, () -> {
+			work.run();
+			return null;
+		}), executor);
+	}
+
+	private void awaitQueued(int expected) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (queued() < expected && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(expected, queued());
+	}
+
+	private double queued() {
+		return meterRegistry.get("library.admission.queued").gauge().value();
+	}
+}
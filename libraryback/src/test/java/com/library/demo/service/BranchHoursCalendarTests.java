@@ -0,0 +1,120 @@
+package com.library.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.library.demo.model.LibraryBranch;
+
+/**
+ * 驗證分館與全域營業時間、休館日，以及下一次開閉館與閉館前時間的計算
+ */
+class BranchHoursCalendarTests {
+
+	// 2025-05-06 為星期二，2025-05-05 為星期一
+	private static final LocalDate TUESDAY = LocalDate.of(2025, 5, 6);
+	private static final LocalDate MONDAY = LocalDate.of(2025, 5, 5);
+
+	private static final LocalTime DEFAULT_OPEN = LocalTime.of(8, 30);
+	private static final LocalTime DEFAULT_CLOSE = LocalTime.of(21, 0);
+	private static final LocalTime WEEKEND_OPEN = LocalTime.of(9, 0);
+	private static final LocalTime WEEKEND_CLOSE = LocalTime.of(17, 0);
+
+	private final BranchHoursCalendar calendar = calendar(Set.of());
+
+	@Test
+	void registeredBranchUsesItsOwnHours() {
+		assertFalse(calendar.isOpen("文山分館", TUESDAY.atTime(9, 59)));
+		assertTrue(calendar.isOpen("文山分館", TUESDAY.atTime(10, 0)));
+		assertTrue(calendar.isOpen("文山分館", TUESDAY.atTime(17, 59)));
+		assertFalse(calendar.isOpen("文山分館", TUESDAY.atTime(18, 0)));
+		assertTrue(calendar.isRegistered("文山分館"));
+	}
+
+	@Test
+	void unregisteredBranchFollowsDefaultHoursWithWeekendSchedule() {
+		assertFalse(calendar.isRegistered("總館"));
+		assertTrue(calendar.isOpen("總館", TUESDAY.atTime(8, 30)));
+		assertTrue(calendar.isOpen("總館", TUESDAY.atTime(20, 59)));
+		assertFalse(calendar.isOpen("總館", TUESDAY.atTime(21, 0)));
+
+		// 週一使用週末的時間
+		assertFalse(calendar.isOpen("總館", MONDAY.atTime(8, 45)));
+		assertTrue(calendar.isDefaultOpen(MONDAY.atTime(9, 0)));
+		assertFalse(calendar.isDefaultOpen(MONDAY.atTime(17, 0)));
+		assertEquals(WEEKEND_CLOSE, calendar.getDefaultCloseTime(MONDAY));
+	}
+
+	@Test
+	void holidayClosesEveryBranch() {
+		BranchHoursCalendar withHoliday = calendar(Set.of(TUESDAY));
+		assertFalse(withHoliday.isOpen("文山分館", TUESDAY.atTime(12, 0)));
+		assertFalse(withHoliday.isDefaultOpen(TUESDAY.atTime(12, 0)));
+		assertNull(withHoliday.getCloseTime("文山分館", TUESDAY));
+		assertTrue(withHoliday.isHoliday(TUESDAY));
+	}
+
+	@Test
+	void nextTransitionAlternatesBetweenOpeningAndClosing() {
+		assertEquals(TUESDAY.atTime(10, 0), calendar.nextTransition("文山分館", TUESDAY.atTime(7, 0)));
+		assertEquals(TUESDAY.atTime(18, 0), calendar.nextTransition("文山分館", TUESDAY.atTime(10, 0)));
+		assertEquals(TUESDAY.plusDays(1).atTime(10, 0), calendar.nextTransition("文山分館", TUESDAY.atTime(18, 0)));
+	}
+
+	@Test
+	void nextTransitionSkipsHolidays() {
+		BranchHoursCalendar withHoliday = calendar(Set.of(TUESDAY.plusDays(1)));
+		assertEquals(TUESDAY.plusDays(2).atTime(10, 0), withHoliday.nextTransition("文山分館", TUESDAY.atTime(19, 0)));
+	}
+
+	@Test
+	void branchThatNeverOpensHasNoTransition() {
+		BranchHoursCalendar closed = BranchHoursCalendar.build(
+				List.of(new LibraryBranch("休館中", LocalTime.of(9, 0), LocalTime.of(9, 0), false)),
+				DEFAULT_OPEN, DEFAULT_CLOSE, WEEKEND_OPEN, WEEKEND_CLOSE, Set.of());
+		assertNull(closed.nextTransition("休館中", TUESDAY.atTime(8, 0)));
+		assertNull(closed.nextPreClose("休館中", TUESDAY.atTime(8, 0), 5));
+	}
+
+	@Test
+	void nextPreCloseIsStrictlyAfterGivenTime() {
+		assertEquals(TUESDAY.atTime(17, 55), calendar.nextPreClose("文山分館", TUESDAY.atTime(12, 0), 5));
+		assertEquals(TUESDAY.plusDays(1).atTime(17, 55), calendar.nextPreClose("文山分館", TUESDAY.atTime(17, 55), 5));
+	}
+
+	@Test
+	void nextPreCloseNearMidnightFallsOnPreviousDay() {
+		BranchHoursCalendar lateNight = BranchHoursCalendar.build(
+				List.of(new LibraryBranch("自習中心", LocalTime.of(0, 30), LocalTime.of(0, 3), false),
+						new LibraryBranch("夜讀館", LocalTime.of(0, 0), LocalTime.of(0, 2), false)),
+				DEFAULT_OPEN, DEFAULT_CLOSE, WEEKEND_OPEN, WEEKEND_CLOSE, Set.of());
+		// 00:02 閉館，閉館前 5 分鐘是前一天的 23:57
+		LocalDateTime preClose = lateNight.nextPreClose("夜讀館", TUESDAY.atTime(23, 50), 5);
+		assertEquals(TUESDAY.atTime(23, 57), preClose);
+	}
+
+	@Test
+	void openFlagsChangeWithoutAffectingHours() {
+		BranchHoursCalendar updated = calendar.withOpenFlags(Map.of("文山分館", true));
+		assertTrue(updated.getBranch("文山分館").isOpen());
+		assertFalse(calendar.getBranch("文山分館").isOpen());
+		assertTrue(updated.hasSameHours(calendar));
+		assertFalse(calendar(Set.of(TUESDAY)).hasSameHours(calendar));
+	}
+
+	private static BranchHoursCalendar calendar(Set<LocalDate> holidays) {
+		return BranchHoursCalendar.build(
+				List.of(new LibraryBranch("文山分館", LocalTime.of(10, 0), LocalTime.of(18, 0), false)),
+				DEFAULT_OPEN, DEFAULT_CLOSE, WEEKEND_OPEN, WEEKEND_CLOSE, holidays);
+	}
+}
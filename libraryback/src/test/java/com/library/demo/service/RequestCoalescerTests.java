@@ -0,0 +1,139 @@
+package com.library.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 驗證相同查詢的合併、例外的傳遞、完成後移除與個別取消
+ */
+class RequestCoalescerTests {
+
+	private SimpleMeterRegistry meterRegistry;
+	private RequestCoalescer coalescer;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		coalescer = new RequestCoalescer();
+		ReflectionTestUtils.setField(coalescer, "threads", 4);
+		ReflectionTestUtils.setField(coalescer, "meterRegistry", meterRegistry);
+		coalescer.init();
+	}
+
+	@AfterEach
+	void tearDown() {
+		coalescer.shutdown();
+	}
+
+	@Test
+	void concurrentCallsWithSameKeyShareOneQuery() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger executions = new AtomicInteger();
+
+		CompletableFuture<String> first = coalescer.submit("stats", () -> blockingQuery(release, executions, "result"));
+		CompletableFuture<String> second = coalescer.submit("stats", () -> blockingQuery(release, executions, "other"));
+		release.countDown();
+
+		assertEquals("result", first.get(5, TimeUnit.SECONDS));
+		assertEquals("result", second.get(5, TimeUnit.SECONDS));
+		assertEquals(1, executions.get());
+		assertEquals(1, calls("executed"));
+		assertEquals(1, calls("coalesced"));
+	}
+
+	@Test
+	void differentKeysRunSeparately() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger executions = new AtomicInteger();
+
+		CompletableFuture<String> first = coalescer.submit("a", () -> blockingQuery(release, executions, "a"));
+		CompletableFuture<String> second = coalescer.submit("b", () -> blockingQuery(release, executions, "b"));
+		release.countDown();
+
+		assertEquals("a", first.get(5, TimeUnit.SECONDS));
+		assertEquals("b", second.get(5, TimeUnit.SECONDS));
+		assertEquals(2, executions.get());
+	}
+
+	@Test
+	void exceptionReachesEveryWaiter() {
+		CountDownLatch release = new CountDownLatch(1);
+		IllegalStateException failure = new IllegalStateException("查詢失敗");
+
+		CompletableFuture<String> first = coalescer.submit("stats", () -> {
+			await(release);
+			throw failure;
+		});
+		CompletableFuture<String> second = coalescer.submit("stats", () -> "unused");
+		release.countDown();
+
+		assertSame(failure, assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS)).getCause());
+		assertSame(failure, assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS)).getCause());
+	}
+
+	@Test
+	void keyIsRemovedAfterCompletion() throws Exception {
+		AtomicInteger executions = new AtomicInteger();
+
+		assertEquals(1, coalescer.submit("stats", executions::incrementAndGet).get(5, TimeUnit.SECONDS));
+		assertEquals(2, coalescer.submit("stats", executions::incrementAndGet).get(5, TimeUnit.SECONDS));
+		assertEquals(0, meterRegistry.get("library.coalesce.in.flight").gauge().value());
+
+		// 失敗的查詢也要移除，之後的呼叫重新查詢
+		CompletableFuture<Integer> failed = coalescer.submit("broken", () -> {
+			throw new IllegalStateException("查詢失敗");
+		});
+		assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+		assertEquals(3, coalescer.submit("broken", executions::incrementAndGet).get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void cancellingOneCallerDoesNotAffectOthers() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger executions = new AtomicInteger();
+
+		CompletableFuture<String> first = coalescer.submit("stats", () -> blockingQuery(release, executions, "result"));
+		CompletableFuture<String> second = coalescer.submit("stats", () -> blockingQuery(release, executions, "other"));
+		assertTrue(first.cancel(true));
+		release.countDown();
+
+		assertTrue(first.isCancelled());
+		assertEquals("result", second.get(5, TimeUnit.SECONDS));
+		assertFalse(second.isCancelled());
+		assertEquals(1, executions.get());
+	}
+
+	private double calls(String result) {
+		return meterRegistry.get("library.coalesce.calls").tag("result", result).counter().count();
+	}
+
+	private static String blockingQuery(CountDownLatch release, AtomicInteger executions, String result) {
+		executions.incrementAndGet();
+		await(release);
+		return result;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,195 @@
+package com.library.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import com.library.demo.event.SnapshotSavedEvent;
+import com.library.demo.model.LibraryArea;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 驗證門檻的觸發範圍 (上次, 本次]、緩衝量內的來回跳動、重新啟用的邊界，以及第一次快照與訂閱時立即通知
+ */
+class SeatSubscriptionServiceTests {
+
+	private static final String AREA_ID = "tpml-1";
+	private static final int THRESHOLD = 10;
+	private static final int HYSTERESIS = 2;
+
+	private SimpleMeterRegistry meterRegistry;
+	private SeatSubscriptionService service;
+	private LocalDateTime recordTime = LocalDateTime.of(2025, 5, 6, 10, 0);
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		service = new SeatSubscriptionService();
+		ReflectionTestUtils.setField(service, "hysteresis", HYSTERESIS);
+		ReflectionTestUtils.setField(service, "ttlHours", 12);
+		ReflectionTestUtils.setField(service, "maxSubscriptions", 100);
+		ReflectionTestUtils.setField(service, "webhookAllowedHosts", List.of("localhost"));
+		ReflectionTestUtils.setField(service, "restTemplate", new RestTemplate() {
+			@Override
+			public <T> ResponseEntity<T> postForEntity(String url, Object request, Class<T> responseType, Object... uriVariables) {
+				return ResponseEntity.ok().build();
+			}
+		});
+		ReflectionTestUtils.setField(service, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(service, "clock", Clock.fixed(Instant.parse("2025-05-06T02:00:00Z"), ZoneId.of("Asia/Taipei")));
+		service.registerMetrics();
+	}
+
+	@AfterEach
+	void tearDown() {
+		service.shutdown();
+	}
+
+	@Test
+	void crossingUpwardFiresOnce() {
+		String id = subscribe(THRESHOLD);
+		snapshot(5);
+		assertEquals(0, alerts());
+
+		snapshot(THRESHOLD);
+		assertEquals(1, alerts());
+		assertFalse(isArmed(id));
+
+		snapshot(THRESHOLD + 3);
+		assertEquals(1, alerts());
+	}
+
+	@Test
+	void jumpingPastThresholdFires() {
+		subscribe(THRESHOLD);
+		snapshot(5);
+		snapshot(THRESHOLD + 5);
+		assertEquals(1, alerts());
+	}
+
+	@Test
+	void firstSnapshotAtThresholdFires() {
+		subscribe(THRESHOLD);
+		snapshot(THRESHOLD);
+		assertEquals(1, alerts());
+	}
+
+	@Test
+	void oscillatingInsideHysteresisBandDoesNotRefire() {
+		String id = subscribe(THRESHOLD);
+		snapshot(5);
+		snapshot(THRESHOLD + 1);
+		assertEquals(1, alerts());
+
+		for (int free : new int[] {THRESHOLD - 1, THRESHOLD + 1, THRESHOLD - 1, THRESHOLD, THRESHOLD + 1}) {
+			snapshot(free);
+		}
+		assertEquals(1, alerts());
+		assertFalse(isArmed(id));
+	}
+
+	@Test
+	void fallingExactlyToThresholdMinusHysteresisDoesNotRearm() {
+		String id = subscribe(THRESHOLD);
+		snapshot(5);
+		snapshot(THRESHOLD);
+		snapshot(THRESHOLD - HYSTERESIS);
+		assertFalse(isArmed(id));
+
+		snapshot(THRESHOLD);
+		assertEquals(1, alerts());
+	}
+
+	@Test
+	void fallingBelowThresholdMinusHysteresisRearms() {
+		String id = subscribe(THRESHOLD);
+		snapshot(5);
+		snapshot(THRESHOLD);
+		snapshot(THRESHOLD - HYSTERESIS - 1);
+		assertTrue(isArmed(id));
+
+		snapshot(THRESHOLD);
+		assertEquals(2, alerts());
+	}
+
+	@Test
+	void fallingBelowInSmallStepsRearms() {
+		String id = subscribe(THRESHOLD);
+		snapshot(5);
+		snapshot(THRESHOLD);
+		for (int free = THRESHOLD - 1; free >= THRESHOLD - HYSTERESIS; free--) {
+			snapshot(free);
+			assertFalse(isArmed(id));
+		}
+		snapshot(THRESHOLD - HYSTERESIS - 1);
+		assertTrue(isArmed(id));
+	}
+
+	@Test
+	void subscribingWhenAlreadyAtThresholdFiresImmediately() {
+		snapshot(THRESHOLD + 2);
+		String id = subscribe(THRESHOLD);
+		assertEquals(1, alerts());
+		assertFalse(isArmed(id));
+
+		// 下一次快照座位數不變，不重複通知
+		snapshot(THRESHOLD + 2);
+		assertEquals(1, alerts());
+	}
+
+	@Test
+	void subscribingBelowThresholdWaitsForCrossing() {
+		snapshot(THRESHOLD - 1);
+		String id = subscribe(THRESHOLD);
+		assertEquals(0, alerts());
+		assertTrue(isArmed(id));
+
+		snapshot(THRESHOLD);
+		assertEquals(1, alerts());
+	}
+
+	@Test
+	void onlyThresholdsInsideCrossedRangeFire() {
+		subscribe(5);
+		subscribe(8);
+		subscribe(12);
+		snapshot(6);
+		assertEquals(1, alerts());
+
+		// (6, 10] 只包含門檻 8
+		snapshot(10);
+		assertEquals(2, alerts());
+	}
+
+	private String subscribe(int minFree) {
+		return service.subscribeWebhook(AREA_ID, minFree, "http://localhost/hook").getId();
+	}
+
+	private void snapshot(int freeCount) {
+		recordTime = recordTime.plusMinutes(1);
+		LibraryArea area = new LibraryArea(AREA_ID, "總館", "1F", "自修室", freeCount, 50, recordTime);
+		service.onSnapshotSaved(new SnapshotSavedEvent(recordTime, List.of(area), true));
+	}
+
+	private boolean isArmed(String id) {
+		return service.getSubscription(id).getArmed();
+	}
+
+	private double alerts() {
+		return meterRegistry.get("library.subscription.alerts").counter().count();
+	}
+}
@@ -0,0 +1,325 @@
+package com.library.demo.service.source;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.library.demo.config.SeatSourceProperties;
+import com.library.demo.dto.SeatSourceHealthDTO;
+import com.library.demo.model.LibraryArea;
+import com.library.demo.service.AreaIdentityRegistry;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 驗證合併期限、期限後的延後寫入、全部來源失敗、逾時後的忙碌狀態，以及各來源的間隔與頻率上限
+ */
+class SeatSourceFetcherTests {
+
+	private static final LocalDateTime RECORD_TIME = LocalDateTime.of(2025, 5, 6, 10, 0);
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final MutableClock clock = new MutableClock(Instant.parse("2025-05-06T02:00:00Z"));
+	private final List<StubSource> stubs = new ArrayList<>();
+	private final CountDownLatch releaseBlocked = new CountDownLatch(1);
+	private SeatSourceCatalog catalog;
+	private SeatSourceFetcher fetcher;
+
+	@AfterEach
+	void tearDown() {
+		releaseBlocked.countDown();
+		fetcher.shutdown();
+		catalog.shutdown();
+	}
+
+	@Test
+	void mergesSourcesRespondingWithinWindow() {
+		stub("fast", 50);
+		stub("medium", 300);
+		init(1000);
+
+		long start = System.nanoTime();
+		List<LibraryArea> areas = fetcher.fetchAll(RECORD_TIME, false, late -> { });
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+		assertEquals(Set.of("fast:a1", "medium:a1"), areaIds(areas));
+		// 所有來源都回應後立即回傳，不等滿合併期限
+		assertTrue(elapsedMillis < 900, "耗時 " + elapsedMillis + " ms");
+	}
+
+	@Test
+	void slowSourceDoesNotDelayOthersAndIsDeliveredLate() throws Exception {
+		for (int i = 0; i < 9; i++) {
+			stub("fast" + i, 50);
+		}
+		stub("slow", 1500);
+		init(300);
+		List<List<LibraryArea>> late = new CopyOnWriteArrayList<>();
+		CountDownLatch delivered = new CountDownLatch(1);
+		Consumer<List<LibraryArea>> lateResults = areas -> {
+			late.add(areas);
+			delivered.countDown();
+		};
+
+		long start = System.nanoTime();
+		List<LibraryArea> areas = fetcher.fetchAll(RECORD_TIME, false, lateResults);
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+		assertEquals(9, areas.size());
+		assertTrue(areas.stream().noneMatch(area -> area.getAreaId().startsWith("slow:")));
+		assertTrue(elapsedMillis < 1000, "耗時 " + elapsedMillis + " ms");
+
+		assertTrue(delivered.await(5, TimeUnit.SECONDS));
+		assertEquals(1, late.size());
+		assertEquals(Set.of("slow:a1"), areaIds(late.get(0)));
+	}
+
+	@Test
+	void allSourcesFailingThrows() {
+		stub("broken1", 10).fails = true;
+		stub("broken2", 10).fails = true;
+		init(1000);
+
+		assertThrows(IllegalStateException.class, () -> fetcher.fetchAll(RECORD_TIME, false, late -> { }));
+	}
+
+	@Test
+	void failedSourceIsLeftOutOfSnapshot() {
+		stub("ok", 10);
+		stub("broken", 10).fails = true;
+		init(1000);
+
+		assertEquals(Set.of("ok:a1"), areaIds(fetcher.fetchAll(RECORD_TIME, false, late -> { })));
+		assertEquals("回應不是有效的JSON", health("broken").getLastError());
+	}
+
+	@Test
+	void timedOutSourceIsBusyUntilItsRequestEnds() throws Exception {
+		stub("ok", 10);
+		StubSource hung = stub("hung", 0);
+		hung.timeoutSeconds = 1;
+		hung.blocked = true;
+		init(5000);
+
+		long start = System.nanoTime();
+		assertEquals(Set.of("ok:a1"), areaIds(fetcher.fetchAll(RECORD_TIME, false, late -> { })));
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(900));
+		assertEquals("逾時 1 秒", health("hung").getLastError());
+
+		// 上一次請求仍卡在上游，不重複請求
+		assertEquals(Set.of("ok:a1"), areaIds(fetcher.fetchAll(RECORD_TIME, false, late -> { })));
+		assertEquals(1, hung.calls.get());
+		assertEquals(1, skipped("hung", "busy"));
+
+		releaseBlocked.countDown();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (hung.finished.get() == 0 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		Thread.sleep(50);
+		hung.blocked = false;
+		assertEquals(Set.of("ok:a1", "hung:a1"), areaIds(fetcher.fetchAll(RECORD_TIME, false, late -> { })));
+		assertEquals(2, hung.calls.get());
+	}
+
+	@Test
+	void scheduledFetchRespectsSourceInterval() {
+		stub("every", 0);
+		StubSource hourly = stub("hourly", 0);
+		hourly.intervalSeconds = 60;
+		init(1000);
+
+		assertEquals(2, fetcher.fetchAll(RECORD_TIME, true, late -> { }).size());
+		assertEquals(Set.of("every:a1"), areaIds(fetcher.fetchAll(RECORD_TIME, true, late -> { })));
+		assertEquals(1, skipped("hourly", "interval"));
+
+		// 手動擷取不受間隔限制
+		assertEquals(2, fetcher.fetchAll(RECORD_TIME, false, late -> { }).size());
+
+		clock.advance(Duration.ofSeconds(61));
+		assertEquals(2, fetcher.fetchAll(RECORD_TIME, true, late -> { }).size());
+		assertEquals(3, hourly.calls.get());
+	}
+
+	@Test
+	void rateLimitAppliesToEveryFetch() {
+		StubSource limited = stub("limited", 0);
+		limited.requestsPerMinute = 2;
+		init(1000);
+
+		assertEquals(1, fetcher.fetchAll(RECORD_TIME, false, late -> { }).size());
+		clock.advance(Duration.ofSeconds(10));
+		assertEquals(1, fetcher.fetchAll(RECORD_TIME, false, late -> { }).size());
+		clock.advance(Duration.ofSeconds(10));
+		// 沒有任何來源可請求時回傳空清單
+		assertTrue(fetcher.fetchAll(RECORD_TIME, false, late -> { }).isEmpty());
+		assertEquals(1, skipped("limited", "rate-limit"));
+
+		// 第一次請求滿一分鐘後釋出一個名額
+		clock.advance(Duration.ofSeconds(41));
+		assertEquals(1, fetcher.fetchAll(RECORD_TIME, false, late -> { }).size());
+		assertEquals(3, limited.calls.get());
+	}
+
+	private StubSource stub(String id, long delayMillis) {
+		StubSource source = new StubSource(id, delayMillis, releaseBlocked);
+		stubs.add(source);
+		return source;
+	}
+
+	private void init(long mergeWindowMillis) {
+		SeatSourceProperties properties = new SeatSourceProperties();
+		properties.setTimeoutSeconds(5);
+		properties.setMergeWindowMillis(mergeWindowMillis);
+
+		catalog = new SeatSourceCatalog();
+		ReflectionTestUtils.setField(catalog, "beanSources", new ArrayList<SeatSource>(stubs));
+		ReflectionTestUtils.setField(catalog, "properties", properties);
+		ReflectionTestUtils.setField(catalog, "objectMapper", new ObjectMapper());
+		catalog.init();
+
+		fetcher = new SeatSourceFetcher();
+		ReflectionTestUtils.setField(fetcher, "windowSize", 20);
+		ReflectionTestUtils.setField(fetcher, "failureThreshold", 3);
+		ReflectionTestUtils.setField(fetcher, "baseBackoffSeconds", 60L);
+		ReflectionTestUtils.setField(fetcher, "maxBackoffSeconds", 1800L);
+		ReflectionTestUtils.setField(fetcher, "seatSourceCatalog", catalog);
+		ReflectionTestUtils.setField(fetcher, "properties", properties);
+		ReflectionTestUtils.setField(fetcher, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(fetcher, "clock", clock);
+		ReflectionTestUtils.setField(fetcher, "areaIdentityRegistry", new AreaIdentityRegistry() {
+			@Override
+			public void resolve(String namespace, List<LibraryArea> areas) {
+				// 測試來源的區域都有代碼
+			}
+		});
+		fetcher.init();
+	}
+
+	private SeatSourceHealthDTO health(String id) {
+		return fetcher.getHealth().stream().filter(dto -> dto.getId().equals(id)).findFirst().orElseThrow();
+	}
+
+	private double skipped(String source, String reason) {
+		return meterRegistry.counter("library.source.skipped", "source", source, "reason", reason).count();
+	}
+
+	private static Set<String> areaIds(List<LibraryArea> areas) {
+		return areas.stream().map(LibraryArea::getAreaId).collect(Collectors.toSet());
+	}
+
+	/**
+	 * 延遲固定時間後回應一個區域的測試來源
+	 */
+	private static class StubSource implements SeatSource {
+		private final String id;
+		private final long delayMillis;
+		private final CountDownLatch release;
+		private final AtomicInteger calls = new AtomicInteger();
+		private final AtomicInteger finished = new AtomicInteger();
+		private volatile boolean fails;
+		private volatile boolean blocked;
+		private int timeoutSeconds;
+		private int intervalSeconds;
+		private int requestsPerMinute;
+
+		StubSource(String id, long delayMillis, CountDownLatch release) {
+			this.id = id;
+			this.delayMillis = delayMillis;
+			this.release = release;
+		}
+
+		@Override
+		public String getId() {
+			return id;
+		}
+
+		@Override
+		public int getIntervalSeconds() {
+			return intervalSeconds;
+		}
+
+		@Override
+		public int getRequestsPerMinute() {
+			return requestsPerMinute;
+		}
+
+		@Override
+		public int getTimeoutSeconds() {
+			return timeoutSeconds;
+		}
+
+		@Override
+		public String fetch() {
+			calls.incrementAndGet();
+			try {
+				if (blocked) {
+					release.await(10, TimeUnit.SECONDS);
+				}
+				Thread.sleep(delayMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				finished.incrementAndGet();
+			}
+			return fails ? null : "{}";
+		}
+
+		@Override
+		public List<LibraryArea> parse(String payload, LocalDateTime recordTime) {
+			List<LibraryArea> areas = new ArrayList<>();
+			areas.add(new LibraryArea("a1", id, "1F", "自修室", 10, 50, recordTime));
+			return areas;
+		}
+	}
+
+	/**
+	 * 可手動前進的時鐘，用於間隔與頻率上限
+	 */
+	private static class MutableClock extends Clock {
+		private volatile Instant instant;
+
+		MutableClock(Instant instant) {
+			this.instant = instant;
+		}
+
+		void advance(Duration duration) {
+			instant = instant.plus(duration);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneId.of("Asia/Taipei");
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return instant;
+		}
+	}
+}